@@ -0,0 +1,69 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.os.Debug;
+import android.util.Log;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import java.util.Locale;
+
+/**
+ * Count the allocations of a benchmarked operation, the BenchmarkRule only reports the time per operation,
+ * so the allocation count and size per operation are measured in a separate run and reported with the
+ * instrumentation status, which are printed by {@code ./gradlew :benchmark:connectedCheck}.
+ */
+public final class AllocationCounter {
+    private static final String TAG = "ClickstreamBenchmark";
+    private static final int WARMUP_COUNT = 100;
+    private static final int MEASURE_COUNT = 1000;
+
+    private AllocationCounter() {
+    }
+
+    /**
+     * Measure and report the allocation count and size per operation.
+     *
+     * @param name      The name of the benchmark.
+     * @param operation The operation to measure.
+     */
+    @SuppressWarnings("deprecation")
+    public static void measure(String name, Runnable operation) {
+        for (int i = 0; i < WARMUP_COUNT; i++) {
+            operation.run();
+        }
+        Debug.resetThreadAllocCount();
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        for (int i = 0; i < MEASURE_COUNT; i++) {
+            operation.run();
+        }
+        Debug.stopAllocCounting();
+        double allocationCount = (double) Debug.getThreadAllocCount() / MEASURE_COUNT;
+        double allocationSize = (double) Debug.getThreadAllocSize() / MEASURE_COUNT;
+
+        String summary = String.format(Locale.US, "%s allocations: %.1f objects/op, %.1f bytes/op",
+            name, allocationCount, allocationSize);
+        Log.i(TAG, summary);
+        Bundle status = new Bundle();
+        status.putString("android.studio.display.benchmark", summary);
+        status.putDouble(name + "_allocationCount", allocationCount);
+        status.putDouble(name + "_allocationBytes", allocationSize);
+        InstrumentationRegistry.getInstrumentation().sendStatus(Activity.RESULT_OK, status);
+    }
+}
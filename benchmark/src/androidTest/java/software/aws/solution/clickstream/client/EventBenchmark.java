@@ -0,0 +1,131 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client;
+
+import android.content.Context;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import software.aws.solution.clickstream.ClickstreamAnalytics;
+import software.aws.solution.clickstream.ClickstreamConfiguration;
+import software.aws.solution.clickstream.ClickstreamItem;
+
+@RunWith(AndroidJUnit4.class)
+public class EventBenchmark {
+    private static final int ATTRIBUTE_COUNT = 10;
+
+    /**
+     * the benchmark rule.
+     */
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+    private AnalyticsClient analyticsClient;
+    private AnalyticsEvent event;
+
+    /**
+     * prepare the analytics client with global attributes and user attributes.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        ClickstreamConfiguration configuration = new ClickstreamConfiguration()
+            .withAppId("benchmark-app")
+            .withEndpoint("http://example.com/collect")
+            .withSendEventsInterval(100000)
+            .withSessionTimeoutDuration(1800000)
+            .withCompressEvents(true)
+            .withTrackScreenViewEvents(false)
+            .withTrackUserEngagementEvents(false)
+            .withTrackAppExceptionEvents(false)
+            .withLogEvents(false);
+        analyticsClient = new ClickstreamManager(context, configuration).getAnalyticsClient();
+        for (int i = 0; i < ATTRIBUTE_COUNT; i++) {
+            analyticsClient.addGlobalAttribute("global_" + i, "value_" + i);
+        }
+        analyticsClient.updateUserId("benchmark_user");
+        analyticsClient.addUserAttribute("user_age", 20);
+        analyticsClient.updateUserAttribute();
+        event = createTestEvent();
+    }
+
+    private AnalyticsEvent createTestEvent() {
+        AnalyticsEvent testEvent = analyticsClient.createEvent("button_click");
+        for (int i = 0; i < ATTRIBUTE_COUNT; i++) {
+            testEvent.addAttribute("attribute_" + i, i);
+        }
+        ClickstreamItem item = ClickstreamItem.builder()
+            .add(ClickstreamAnalytics.Item.ITEM_ID, "item_1")
+            .add(ClickstreamAnalytics.Item.ITEM_NAME, "apple")
+            .add(ClickstreamAnalytics.Item.PRICE, 9.9)
+            .build();
+        testEvent.addItems(new ClickstreamItem[] {item});
+        return testEvent;
+    }
+
+    /**
+     * benchmark create event.
+     */
+    @Test
+    public void createEvent() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            analyticsClient.createEvent("button_click");
+        }
+        AllocationCounter.measure("createEvent", () -> analyticsClient.createEvent("button_click"));
+    }
+
+    /**
+     * benchmark create event and add attributes.
+     */
+    @Test
+    public void createEventWithAttributes() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            createTestEvent();
+        }
+        AllocationCounter.measure("createEventWithAttributes", this::createTestEvent);
+    }
+
+    /**
+     * benchmark convert event to JSONObject.
+     */
+    @Test
+    public void toJSONObject() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            event.toJSONObject().toString();
+        }
+        AllocationCounter.measure("toJSONObject", () -> event.toJSONObject().toString());
+    }
+
+    /**
+     * benchmark serialize event to JSON string for storage.
+     */
+    @Test
+    public void toJSONString() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            event.toJSONString();
+        }
+        AllocationCounter.measure("toJSONString", () -> event.toJSONString());
+    }
+}
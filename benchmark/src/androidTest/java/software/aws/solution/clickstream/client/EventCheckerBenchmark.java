@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import software.aws.solution.clickstream.ClickstreamAnalytics;
+import software.aws.solution.clickstream.ClickstreamItem;
+
+@RunWith(AndroidJUnit4.class)
+public class EventCheckerBenchmark {
+    private static final int CURRENT_ATTRIBUTE_NUMBER = 10;
+
+    /**
+     * the benchmark rule.
+     */
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+    private final ClickstreamItem item = ClickstreamItem.builder()
+        .add(ClickstreamAnalytics.Item.ITEM_ID, "item_1")
+        .add(ClickstreamAnalytics.Item.ITEM_NAME, "apple")
+        .add(ClickstreamAnalytics.Item.PRICE, 9.9)
+        .add("item_color", "red")
+        .build();
+
+    /**
+     * benchmark check string attribute.
+     */
+    @Test
+    public void checkStringAttribute() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            EventChecker.checkAttribute(CURRENT_ATTRIBUTE_NUMBER, "goods_name", "apple");
+        }
+        AllocationCounter.measure("checkStringAttribute",
+            () -> EventChecker.checkAttribute(CURRENT_ATTRIBUTE_NUMBER, "goods_name", "apple"));
+    }
+
+    /**
+     * benchmark check number attribute.
+     */
+    @Test
+    public void checkNumberAttribute() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            EventChecker.checkAttribute(CURRENT_ATTRIBUTE_NUMBER, "goods_price", 9.9);
+        }
+        AllocationCounter.measure("checkNumberAttribute",
+            () -> EventChecker.checkAttribute(CURRENT_ATTRIBUTE_NUMBER, "goods_price", 9.9));
+    }
+
+    /**
+     * benchmark check item attribute.
+     */
+    @Test
+    public void checkItemAttribute() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            EventChecker.checkItemAttribute(0, item);
+        }
+        AllocationCounter.measure("checkItemAttribute", () -> EventChecker.checkItemAttribute(0, item));
+    }
+}
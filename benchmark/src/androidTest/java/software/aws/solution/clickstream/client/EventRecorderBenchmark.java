@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client;
+
+import android.content.Context;
+import android.database.Cursor;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import software.aws.solution.clickstream.ClickstreamConfiguration;
+import software.aws.solution.clickstream.client.db.ClickstreamDBUtil;
+
+@RunWith(AndroidJUnit4.class)
+public class EventRecorderBenchmark {
+    private static final int EVENT_COUNT = 100;
+    private static final int ATTRIBUTE_COUNT = 10;
+
+    /**
+     * the benchmark rule.
+     */
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+    private ClickstreamDBUtil dbUtil;
+    private EventRecorder eventRecorder;
+    private Cursor cursor;
+
+    /**
+     * prepare the database with events.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        ClickstreamConfiguration configuration = new ClickstreamConfiguration()
+            .withAppId("benchmark-app")
+            .withEndpoint("http://example.com/collect")
+            .withSendEventsInterval(100000)
+            .withSessionTimeoutDuration(1800000)
+            .withCompressEvents(true)
+            .withTrackScreenViewEvents(false)
+            .withTrackUserEngagementEvents(false)
+            .withTrackAppExceptionEvents(false)
+            .withLogEvents(false);
+        ClickstreamManager clickstreamManager = new ClickstreamManager(context, configuration);
+        AnalyticsClient analyticsClient = clickstreamManager.getAnalyticsClient();
+        eventRecorder = EventRecorder.newInstance(clickstreamManager.getClickstreamContext());
+        dbUtil = new ClickstreamDBUtil(context);
+        dbUtil.deleteBatchEvents(Integer.MAX_VALUE);
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            AnalyticsEvent event = analyticsClient.createEvent("button_click");
+            for (int j = 0; j < ATTRIBUTE_COUNT; j++) {
+                event.addAttribute("attribute_" + j, "value_" + j);
+            }
+            dbUtil.saveEvent(event);
+        }
+        cursor = dbUtil.queryAllEvents();
+    }
+
+    /**
+     * close the cursor and clean the database.
+     */
+    @After
+    public void tearDown() {
+        cursor.close();
+        dbUtil.deleteBatchEvents(Integer.MAX_VALUE);
+        dbUtil.closeDB();
+    }
+
+    private void getBatchOfEvents() {
+        cursor.moveToFirst();
+        eventRecorder.getBatchOfEvents(cursor);
+    }
+
+    /**
+     * benchmark read a batch of events from the cursor.
+     */
+    @Test
+    public void getBatchOfEventsFromCursor() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            getBatchOfEvents();
+        }
+        AllocationCounter.measure("getBatchOfEvents", this::getBatchOfEvents);
+    }
+}
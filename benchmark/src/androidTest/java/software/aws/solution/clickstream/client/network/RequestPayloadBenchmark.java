@@ -0,0 +1,138 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client.network;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.util.Log;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import software.aws.solution.clickstream.client.AllocationCounter;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Compare the compression ratio and the time of the preset dictionary deflate with gzip, for the small
+ * batches which are uploaded most often and a full batch.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RequestPayloadBenchmark {
+    private static final String TAG = "ClickstreamBenchmark";
+    private static final int SMALL_BATCH_EVENT_COUNT = 5;
+    private static final int LARGE_BATCH_EVENT_COUNT = 100;
+    private static final String EVENT_TEMPLATE = "{\"unique_id\":\"%s\",\"event_type\":\"button_click\","
+        + "\"event_id\":\"%s\",\"app_id\":\"benchmark-app\",\"timestamp\":%d,\"device_id\":\"a1b2c3d4e5f6\","
+        + "\"platform\":\"Android\",\"os_version\":\"13\",\"make\":\"Google\",\"brand\":\"google\","
+        + "\"model\":\"Pixel 7\",\"locale\":\"en_US\",\"carrier\":\"UNKNOWN\",\"network_type\":\"WIFI\","
+        + "\"screen_height\":2400,\"screen_width\":1080,\"zone_offset\":28800000,\"system_language\":\"en\","
+        + "\"country\":\"United States\",\"country_code\":\"US\",\"sdk_version\":\"0.14.0\","
+        + "\"sdk_name\":\"aws-solution-clickstream-sdk\",\"app_version\":\"1.0\","
+        + "\"app_package_name\":\"com.example.benchmark\",\"app_title\":\"benchmark\",\"items\":[],"
+        + "\"user\":{\"_user_id\":{\"value\":\"benchmark_user\",\"set_timestamp\":%d}},"
+        + "\"attributes\":{\"_session_id\":\"%s\",\"_session_start_timestamp\":%d,\"_session_duration\":%d,"
+        + "\"_session_number\":1,\"_screen_name\":\"MainActivity\",\"_screen_unique_id\":\"123456\","
+        + "\"goods_id\":%d}}";
+
+    /**
+     * the benchmark rule.
+     */
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    /**
+     * benchmark compress a small batch of events with gzip.
+     *
+     * @throws IOException exception
+     */
+    @Test
+    public void gzipSmallBatch() throws IOException {
+        measure("gzipSmallBatch", createEventsJson(SMALL_BATCH_EVENT_COUNT), RequestPayload.COMPRESSION_GZIP);
+    }
+
+    /**
+     * benchmark compress a small batch of events with the preset dictionary.
+     *
+     * @throws IOException exception
+     */
+    @Test
+    public void dictionarySmallBatch() throws IOException {
+        measure("dictionarySmallBatch", createEventsJson(SMALL_BATCH_EVENT_COUNT),
+            RequestPayload.COMPRESSION_DEFLATE);
+    }
+
+    /**
+     * benchmark compress a full batch of events with gzip.
+     *
+     * @throws IOException exception
+     */
+    @Test
+    public void gzipLargeBatch() throws IOException {
+        measure("gzipLargeBatch", createEventsJson(LARGE_BATCH_EVENT_COUNT), RequestPayload.COMPRESSION_GZIP);
+    }
+
+    /**
+     * benchmark compress a full batch of events with the preset dictionary.
+     *
+     * @throws IOException exception
+     */
+    @Test
+    public void dictionaryLargeBatch() throws IOException {
+        measure("dictionaryLargeBatch", createEventsJson(LARGE_BATCH_EVENT_COUNT),
+            RequestPayload.COMPRESSION_DEFLATE);
+    }
+
+    private void measure(String name, String eventsJson, String compression) throws IOException {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            RequestPayload.create(eventsJson, compression, false);
+        }
+        AllocationCounter.measure(name, () -> {
+            try {
+                RequestPayload.create(eventsJson, compression, false);
+            } catch (IOException exception) {
+                throw new IllegalStateException(exception);
+            }
+        });
+        double ratio = (double) RequestPayload.create(eventsJson, compression, false).getBytes().length
+            / eventsJson.length();
+        String summary = String.format(Locale.US, "%s compression ratio: %.3f", name, ratio);
+        Log.i(TAG, summary);
+        Bundle status = new Bundle();
+        status.putString("android.studio.display.benchmark", summary);
+        status.putDouble(name + "_compressionRatio", ratio);
+        InstrumentationRegistry.getInstrumentation().sendStatus(Activity.RESULT_OK, status);
+    }
+
+    private static String createEventsJson(int eventCount) {
+        StringBuilder builder = new StringBuilder("[");
+        long timestamp = System.currentTimeMillis();
+        for (int i = 0; i < eventCount; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(String.format(Locale.US, EVENT_TEMPLATE, "unique_" + i, "event_" + i,
+                timestamp + i, timestamp, "session_" + (i / 10), timestamp, i * 1000L, i));
+        }
+        return builder.append(']').toString();
+    }
+}
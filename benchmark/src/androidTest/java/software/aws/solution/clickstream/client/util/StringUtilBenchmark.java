@@ -0,0 +1,89 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client.util;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import software.aws.solution.clickstream.client.AllocationCounter;
+
+import java.util.Locale;
+
+@RunWith(AndroidJUnit4.class)
+public class StringUtilBenchmark {
+    private static final int EVENT_COUNT = 100;
+    private static final String EVENT_TEMPLATE = "{\"unique_id\":\"%s\",\"event_type\":\"button_click\","
+        + "\"event_id\":\"%s\",\"app_id\":\"benchmark-app\",\"timestamp\":%d,\"platform\":\"Android\","
+        + "\"os_version\":\"13\",\"make\":\"Google\",\"brand\":\"google\",\"model\":\"Pixel 7\","
+        + "\"locale\":\"en_US\",\"carrier\":\"UNKNOWN\",\"network_type\":\"WIFI\",\"screen_height\":2400,"
+        + "\"screen_width\":1080,\"zone_offset\":28800000,\"system_language\":\"en\",\"country_code\":\"US\","
+        + "\"sdk_version\":\"0.14.0\",\"sdk_name\":\"aws-solution-clickstream-sdk\",\"items\":[],"
+        + "\"user\":{\"_user_id\":{\"value\":\"benchmark_user\",\"set_timestamp\":%d}},"
+        + "\"attributes\":{\"_session_id\":\"%s\",\"_screen_name\":\"MainActivity\",\"goods_id\":%d}}";
+
+    /**
+     * the benchmark rule.
+     */
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+    private String eventsJson;
+
+    /**
+     * prepare a batch of events json.
+     */
+    @Before
+    public void setup() {
+        StringBuilder builder = new StringBuilder("[");
+        long timestamp = System.currentTimeMillis();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(String.format(Locale.US, EVENT_TEMPLATE, "unique_" + i, "event_" + i,
+                timestamp + i, timestamp, "session_" + (i / 10), i));
+        }
+        eventsJson = builder.append(']').toString();
+    }
+
+    /**
+     * benchmark compress a batch of events with gzip.
+     */
+    @Test
+    public void compressForGzip() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            StringUtil.compressForGzip(eventsJson);
+        }
+        AllocationCounter.measure("compressForGzip", () -> StringUtil.compressForGzip(eventsJson));
+    }
+
+    /**
+     * benchmark get the hash code of a batch of events.
+     */
+    @Test
+    public void getHashCode() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            StringUtil.getHashCode(eventsJson);
+        }
+        AllocationCounter.measure("getHashCode", () -> StringUtil.getHashCode(eventsJson));
+    }
+}
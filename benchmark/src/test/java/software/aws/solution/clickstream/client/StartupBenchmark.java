@@ -0,0 +1,228 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client;
+
+import android.content.Context;
+import android.os.Looper;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import software.aws.solution.clickstream.ClickstreamConfiguration;
+import software.aws.solution.clickstream.client.metrics.ClickstreamMetrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Measure the cost of each SDK initialization phase on the main thread, for a fresh install without any
+ * SDK state and for a warm re-launch with the preferences, state file and events of a previous launch.
+ * It runs with the unit tests of the build and the medians are written to the benchmark reports. The medians
+ * are checked against the budgets in startup_budgets.properties only when the check budgets system property
+ * is true, as the wall clock of a shared build machine is noisy, compare the reports between commits instead.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class StartupBenchmark {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 15;
+    private static final int PREVIOUS_LAUNCH_EVENT_COUNT = 20;
+    private static final String BUDGETS_FILE = "startup_budgets.properties";
+    private static final String REPORT_DIR_PROPERTY = "clickstream.benchmark.reportDir";
+    private static final String CHECK_BUDGETS_PROPERTY = "clickstream.benchmark.checkBudgets";
+    private static final String[] PHASES = {
+        ClickstreamMetrics.INIT_PHASE_PREFERENCES,
+        ClickstreamMetrics.INIT_PHASE_SYSTEM,
+        ClickstreamMetrics.INIT_PHASE_DEVICE_ID,
+        ClickstreamMetrics.INIT_PHASE_DB_OPEN,
+        ClickstreamMetrics.INIT_PHASE_CLIENTS,
+        ClickstreamMetrics.INIT_PHASE_PRESET_EVENTS,
+        ClickstreamMetrics.INIT_PHASE_TOTAL,
+    };
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    /**
+     * benchmark the initialization of the first launch after the app installed.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void freshInstall() throws Exception {
+        run("fresh_install", false);
+    }
+
+    /**
+     * benchmark the initialization of a re-launch after the SDK was initialized and recorded events.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void warmRelaunch() throws Exception {
+        run("warm_relaunch", true);
+    }
+
+    private void run(String scenario, boolean isWarm) throws Exception {
+        Map<String, List<Long>> samples = new LinkedHashMap<>();
+        for (String phase : PHASES) {
+            samples.put(phase, new ArrayList<>());
+        }
+        ClickstreamManager clickstreamManager = null;
+        for (int i = 0; i < WARMUP_ITERATIONS + MEASURED_ITERATIONS; i++) {
+            // the delayed state write of the previous iteration must not recreate the state after it is cleared.
+            flushState(clickstreamManager);
+            clearAppData();
+            if (isWarm) {
+                ClickstreamManager previousLaunch = new ClickstreamManager(context, getConfiguration());
+                AnalyticsClient analyticsClient = previousLaunch.getAnalyticsClient();
+                for (int j = 0; j < PREVIOUS_LAUNCH_EVENT_COUNT; j++) {
+                    analyticsClient.recordEvent(analyticsClient.createEvent("button_click"));
+                }
+                flushState(previousLaunch);
+            }
+            clickstreamManager = new ClickstreamManager(context, getConfiguration());
+            Map<String, Long> initPhases = clickstreamManager.getAnalyticsClient().getMetrics().getSnapshot()
+                .getInitPhases();
+            if (i < WARMUP_ITERATIONS) {
+                continue;
+            }
+            for (String phase : PHASES) {
+                assertNotNull(phase + " is not recorded", initPhases.get(phase));
+                samples.get(phase).add(initPhases.get(phase));
+            }
+        }
+        Map<String, Long> medians = new LinkedHashMap<>();
+        for (String phase : PHASES) {
+            medians.put(phase, getMedian(samples.get(phase)));
+        }
+        flushState(clickstreamManager);
+        report(scenario, medians);
+        if (Boolean.getBoolean(CHECK_BUDGETS_PROPERTY)) {
+            checkBudgets(scenario, medians);
+        }
+    }
+
+    /**
+     * Write the pending state of the launch to the state file.
+     *
+     * @param clickstreamManager the ClickstreamManager of the launch, or null if there is no launch yet.
+     */
+    private static void flushState(ClickstreamManager clickstreamManager) {
+        if (clickstreamManager != null) {
+            clickstreamManager.getClickstreamContext().getSystem().getStateStore().flush();
+        }
+    }
+
+    private ClickstreamConfiguration getConfiguration() {
+        return new ClickstreamConfiguration()
+            .withAppId("benchmark-app")
+            .withEndpoint("http://example.com/collect")
+            .withSendEventsInterval(100000)
+            .withSessionTimeoutDuration(1800000)
+            .withCompressEvents(true)
+            .withTrackScreenViewEvents(false)
+            .withTrackUserEngagementEvents(false)
+            .withTrackAppExceptionEvents(false)
+            .withLogEvents(false);
+    }
+
+    /**
+     * Remove the preferences, files and database, which is the state of the app after installed.
+     */
+    private void clearAppData() {
+        File sharedPrefsDir = new File(context.getApplicationInfo().dataDir, "shared_prefs");
+        String[] prefsFiles = sharedPrefsDir.list();
+        if (prefsFiles != null) {
+            for (String prefsFile : prefsFiles) {
+                String name = prefsFile.replace(".xml", "");
+                context.getSharedPreferences(name, Context.MODE_PRIVATE).edit().clear().commit();
+            }
+        }
+        File[] files = context.getFilesDir().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                assertTrue(file.delete());
+            }
+        }
+        context.deleteDatabase("clickstream.db");
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private static long getMedian(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private static void report(String scenario, Map<String, Long> medians) throws JSONException, IOException {
+        JSONObject phases = new JSONObject();
+        for (Map.Entry<String, Long> entry : medians.entrySet()) {
+            phases.put(entry.getKey(), TimeUnit.NANOSECONDS.toMicros(entry.getValue()));
+        }
+        String reportDir = System.getProperty(REPORT_DIR_PROPERTY);
+        if (reportDir == null) {
+            return;
+        }
+        JSONObject report = new JSONObject()
+            .put("benchmark", "startup")
+            .put("scenario", scenario)
+            .put("iterations", MEASURED_ITERATIONS)
+            .put("medianMicros", phases);
+        File dir = new File(reportDir);
+        assertTrue(dir.isDirectory() || dir.mkdirs());
+        try (OutputStream outputStream = new FileOutputStream(new File(dir, "startup_" + scenario + ".json"))) {
+            outputStream.write(report.toString(2).getBytes(Charset.forName("UTF-8")));
+        }
+    }
+
+    private static void checkBudgets(String scenario, Map<String, Long> medians) throws IOException {
+        Properties budgets = new Properties();
+        try (InputStream inputStream = StartupBenchmark.class.getClassLoader().getResourceAsStream(BUDGETS_FILE)) {
+            assertNotNull(BUDGETS_FILE + " is not found", inputStream);
+            budgets.load(inputStream);
+        }
+        List<String> exceeded = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : medians.entrySet()) {
+            String budget = budgets.getProperty(scenario + "." + entry.getKey());
+            if (budget != null && entry.getValue() > TimeUnit.MILLISECONDS.toNanos(Long.parseLong(budget))) {
+                exceeded.add(String.format(Locale.US, "%s %.2fms > %sms",
+                    entry.getKey(), entry.getValue() / 1_000_000.0, budget));
+            }
+        }
+        assertEquals("the initialization phases exceed the budgets of " + scenario,
+            Collections.emptyList(), exceeded);
+    }
+}
@@ -35,7 +35,10 @@ import software.aws.solution.clickstream.client.AnalyticsClient;
 import software.aws.solution.clickstream.client.AnalyticsEvent;
 import software.aws.solution.clickstream.client.ClickstreamManager;
 import software.aws.solution.clickstream.client.Event;
+import software.aws.solution.clickstream.client.EventChecker;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -50,7 +53,10 @@ public final class AWSClickstreamPlugin extends AnalyticsPlugin<Object> {
     private AutoEventSubmitter autoEventSubmitter;
     private ActivityLifecycleManager activityLifecycleManager;
     private ClickstreamManager clickstreamManager;
-    private boolean isEnable = true;
+    private ClickstreamConfiguration configuration;
+    private DeferredInitializer deferredInitializer;
+    private volatile boolean isEnable = true;
+    private boolean isTrackingStarted;
 
     /**
      * Constructs a new {@link AWSClickstreamPlugin}.
@@ -63,35 +69,51 @@ public final class AWSClickstreamPlugin extends AnalyticsPlugin<Object> {
 
     @Override
     public void identifyUser(@NonNull String userId, @Nullable UserProfile profile) {
-        if (userId.equals(Event.ReservedAttribute.USER_ID_UNSET)) {
-            for (Map.Entry<String, AnalyticsPropertyBehavior<?>> entry :
-                ((ClickstreamUserAttribute) Objects.requireNonNull(profile)).getUserAttributes()) {
-                AnalyticsPropertyBehavior<?> property = entry.getValue();
-                analyticsClient.addUserAttribute(entry.getKey(), property.getValue());
+        runAfterInit(() -> {
+            if (userId.equals(Event.ReservedAttribute.USER_ID_UNSET)) {
+                for (Map.Entry<String, AnalyticsPropertyBehavior<?>> entry :
+                    ((ClickstreamUserAttribute) Objects.requireNonNull(profile)).getUserAttributes()) {
+                    AnalyticsPropertyBehavior<?> property = entry.getValue();
+                    analyticsClient.addUserAttribute(entry.getKey(), property.getValue());
+                }
+            } else {
+                analyticsClient.updateUserId(userId);
             }
-        } else {
-            analyticsClient.updateUserId(userId);
-        }
-        analyticsClient.updateUserAttribute();
-        recordEvent(Event.PresetEvent.PROFILE_SET);
+            analyticsClient.updateUserAttribute();
+            recordEvent(Event.PresetEvent.PROFILE_SET);
+        });
     }
 
     @Override
-    public synchronized void disable() {
+    public void disable() {
+        runAfterInit(this::disableTracking);
+    }
+
+    private synchronized void disableTracking() {
         if (isEnable) {
-            autoEventSubmitter.stop();
-            activityLifecycleManager.stopLifecycleTracking(context, ProcessLifecycleOwner.get().getLifecycle());
+            // in the lazy init mode, the operation replayed before the tracking starts only keeps it from starting.
+            if (isTrackingStarted) {
+                autoEventSubmitter.stop();
+                activityLifecycleManager.stopLifecycleTracking(context, ProcessLifecycleOwner.get().getLifecycle());
+            }
             clickstreamManager.disableTrackAppException();
+            analyticsClient.releaseUploadLock();
             isEnable = false;
             LOG.info("Clickstream SDK disabled");
         }
     }
 
     @Override
-    public synchronized void enable() {
+    public void enable() {
+        runAfterInit(this::enableTracking);
+    }
+
+    private synchronized void enableTracking() {
         if (!isEnable) {
-            autoEventSubmitter.start();
-            activityLifecycleManager.startLifecycleTracking(context, ProcessLifecycleOwner.get().getLifecycle());
+            if (isTrackingStarted) {
+                autoEventSubmitter.start();
+                activityLifecycleManager.startLifecycleTracking(context, ProcessLifecycleOwner.get().getLifecycle());
+            }
             clickstreamManager.enableTrackAppException();
             isEnable = true;
             LOG.info("Clickstream SDK enabled");
@@ -100,26 +122,139 @@ public final class AWSClickstreamPlugin extends AnalyticsPlugin<Object> {
 
     @Override
     public void recordEvent(@NonNull String eventName) {
-        final AnalyticsEvent event = analyticsClient.createEvent(eventName);
-        if (event != null) {
-            recordAnalyticsEvent(event);
-        }
+        final long timestamp = System.currentTimeMillis();
+        runAfterInit(() -> {
+            final AnalyticsEvent event = analyticsClient.createEvent(eventName, timestamp);
+            if (event != null) {
+                recordAnalyticsEvent(event);
+            }
+        });
     }
 
     @Override
     public void recordEvent(@NonNull AnalyticsEventBehavior analyticsEvent) {
-        ClickstreamEvent event = (ClickstreamEvent) analyticsEvent;
-        final AnalyticsEvent clickstreamEvent =
-            analyticsClient.createEvent(event.getName());
+        final long timestamp = System.currentTimeMillis();
+        runAfterInit(() -> {
+            final AnalyticsEvent clickstreamEvent = createEvent((ClickstreamEvent) analyticsEvent, timestamp);
+            if (clickstreamEvent != null) {
+                recordAnalyticsEvent(clickstreamEvent);
+            }
+        });
+    }
 
-        if (clickstreamEvent != null) {
-            for (Map.Entry<String, AnalyticsPropertyBehavior<?>> entry : analyticsEvent.getProperties()) {
-                AnalyticsPropertyBehavior<?> property = entry.getValue();
-                clickstreamEvent.addAttribute(entry.getKey(), property.getValue());
+    /**
+     * Record the event without the Amplify category, the {@link AnalyticsEvent} is created from the attribute
+     * values of the ClickstreamEvent directly, and nothing is recorded while the SDK is disabled.
+     *
+     * @param event the ClickstreamEvent.
+     */
+    void recordEventDirectly(@NonNull ClickstreamEvent event) {
+        final long timestamp = System.currentTimeMillis();
+        runAfterInit(() -> {
+            if (!isEnable) {
+                return;
+            }
+            final AnalyticsEvent clickstreamEvent = createEvent(event, timestamp);
+            if (clickstreamEvent != null) {
+                recordAnalyticsEvent(clickstreamEvent);
+            }
+        });
+    }
+
+    /**
+     * Record the event of the name without the Amplify category, nothing is recorded while the SDK is disabled.
+     *
+     * @param eventName the event name.
+     */
+    void recordEventDirectly(@NonNull String eventName) {
+        final long timestamp = System.currentTimeMillis();
+        runAfterInit(() -> {
+            if (!isEnable) {
+                return;
+            }
+            final AnalyticsEvent event = analyticsClient.createEvent(eventName, timestamp);
+            if (event != null) {
+                recordAnalyticsEvent(event);
+            }
+        });
+    }
+
+    /**
+     * Record the events in order, they are validated, enriched and saved in one pass and one transaction.
+     *
+     * @param events the list of ClickstreamEvent.
+     * @return the error of each event in order, the event is not recorded if its name is invalid, and is
+     * recorded without the invalid attributes and items otherwise. null if the SDK is disabled, or is
+     * initializing lazily and the events are recorded after the initialization finishes.
+     */
+    List<Event.EventError> recordEvents(@NonNull List<ClickstreamEvent> events) {
+        final long timestamp = System.currentTimeMillis();
+        final List<ClickstreamEvent> batch = new ArrayList<>(events);
+        final List<Event.EventError> errors = new ArrayList<>(batch.size());
+        final boolean[] isRecorded = new boolean[1];
+        boolean isRunNow = runAfterInit(() -> {
+            if (!isEnable) {
+                return;
             }
-            clickstreamEvent.addItems(event.getItems());
-            recordAnalyticsEvent(clickstreamEvent);
+            isRecorded[0] = true;
+            final List<AnalyticsEvent> analyticsEvents = new ArrayList<>(batch.size());
+            for (ClickstreamEvent event : batch) {
+                final Event.EventError nameError = EventChecker.checkEventName(event.getName());
+                if (nameError.getErrorCode() > 0) {
+                    // the error event is recorded when the event is created, so record the events before it first.
+                    analyticsClient.recordEvents(analyticsEvents);
+                    analyticsEvents.clear();
+                    createEvent(event, timestamp);
+                    errors.add(nameError);
+                    continue;
+                }
+                final AnalyticsEvent clickstreamEvent = createEvent(event, timestamp);
+                errors.add(clickstreamEvent.getAttributeError());
+                if (clickstreamEvent.getEventType().equals(Event.PresetEvent.SCREEN_VIEW)) {
+                    // keep the order of the events before and after the screen view.
+                    analyticsClient.recordEvents(analyticsEvents);
+                    analyticsEvents.clear();
+                    recordAnalyticsEvent(clickstreamEvent);
+                } else {
+                    analyticsEvents.add(clickstreamEvent);
+                }
+            }
+            analyticsClient.recordEvents(analyticsEvents);
+        });
+        return isRunNow && isRecorded[0] ? errors : null;
+    }
+
+    /**
+     * Create the {@link AnalyticsEvent} with the attributes, items and priority of the ClickstreamEvent.
+     *
+     * @param event     the ClickstreamEvent.
+     * @param timestamp the time when the event is recorded.
+     * @return the AnalyticsEvent, or null if the event name is invalid.
+     */
+    private AnalyticsEvent createEvent(ClickstreamEvent event, long timestamp) {
+        final AnalyticsEvent clickstreamEvent = analyticsClient.createEvent(event.getName(), timestamp);
+        if (clickstreamEvent == null) {
+            return null;
+        }
+        for (Map.Entry<String, Object> entry : event.getAttributes().entrySet()) {
+            clickstreamEvent.addAttribute(entry.getKey(), entry.getValue());
+        }
+        clickstreamEvent.addItems(event.getItems());
+        if (event.getPriority() != null) {
+            clickstreamEvent.setPriority(event.getPriority());
         }
+        return clickstreamEvent;
+    }
+
+    /**
+     * Record a metric value which is aggregated on device.
+     *
+     * @param name       the metric name.
+     * @param value      the metric value.
+     * @param dimensions the dimensions of the metric, can be null.
+     */
+    void recordMetric(@NonNull String name, double value, @Nullable Map<String, Object> dimensions) {
+        runAfterInit(() -> analyticsClient.recordMetric(name, value, dimensions));
     }
 
     private void recordAnalyticsEvent(AnalyticsEvent event) {
@@ -132,22 +267,40 @@ public final class AWSClickstreamPlugin extends AnalyticsPlugin<Object> {
 
     @Override
     public void registerGlobalProperties(@NonNull AnalyticsProperties properties) {
-        for (Map.Entry<String, AnalyticsPropertyBehavior<?>> entry : properties) {
-            AnalyticsPropertyBehavior<?> property = entry.getValue();
-            analyticsClient.addGlobalAttribute(entry.getKey(), property.getValue());
-        }
+        runAfterInit(() -> {
+            for (Map.Entry<String, AnalyticsPropertyBehavior<?>> entry : properties) {
+                AnalyticsPropertyBehavior<?> property = entry.getValue();
+                analyticsClient.addGlobalAttribute(entry.getKey(), property.getValue());
+            }
+        });
     }
 
     @Override
     public void unregisterGlobalProperties(@NonNull String... propertyNames) {
-        for (String name : propertyNames) {
-            analyticsClient.deleteGlobalAttribute(name);
-        }
+        runAfterInit(() -> {
+            for (String name : propertyNames) {
+                analyticsClient.deleteGlobalAttribute(name);
+            }
+        });
     }
 
     @Override
     public void flushEvents() {
-        analyticsClient.submitEvents();
+        runAfterInit(() -> analyticsClient.submitEvents());
+    }
+
+    /**
+     * Run the operation now, or after the initialization finishes in the lazy init mode.
+     *
+     * @param operation the operation.
+     * @return true if the operation is run now, false if it is buffered or dropped.
+     */
+    private boolean runAfterInit(Runnable operation) {
+        if (deferredInitializer == null) {
+            operation.run();
+            return true;
+        }
+        return deferredInitializer.run(operation);
     }
 
     @NonNull
@@ -209,6 +362,37 @@ public final class AWSClickstreamPlugin extends AnalyticsPlugin<Object> {
                 configuration.withInitialGlobalAttributes(
                     (ClickstreamAttribute) pluginConfiguration.get(ConfigurationKey.GLOBAL_ATTRIBUTES));
             }
+            if (pluginConfiguration.has(ConfigurationKey.EVENT_LIMITS)) {
+                configuration.withEventLimits(
+                    (ClickstreamEventLimits) pluginConfiguration.get(ConfigurationKey.EVENT_LIMITS));
+            }
+            if (pluginConfiguration.has(ConfigurationKey.IS_LAZY_INIT)) {
+                configuration.withLazyInit(pluginConfiguration.getBoolean(ConfigurationKey.IS_LAZY_INIT));
+            }
+            if (pluginConfiguration.has(ConfigurationKey.DEDUPE_WINDOW)) {
+                configuration.withDedupeWindow(pluginConfiguration.getLong(ConfigurationKey.DEDUPE_WINDOW));
+            }
+            if (pluginConfiguration.has(ConfigurationKey.MAX_EVENT_AGE)) {
+                configuration.withMaxEventAge(pluginConfiguration.getLong(ConfigurationKey.MAX_EVENT_AGE));
+            }
+            if (pluginConfiguration.has(ConfigurationKey.IS_CRC32C_CHECKSUM)) {
+                configuration.withCrc32cChecksum(pluginConfiguration.getBoolean(ConfigurationKey.IS_CRC32C_CHECKSUM));
+            }
+            if (pluginConfiguration.has(ConfigurationKey.IS_DICTIONARY_COMPRESSION)) {
+                configuration.withDictionaryCompression(
+                    pluginConfiguration.getBoolean(ConfigurationKey.IS_DICTIONARY_COMPRESSION));
+            }
+            if (pluginConfiguration.has(ConfigurationKey.IS_MULTI_PROCESS)) {
+                configuration.withMultiProcess(pluginConfiguration.getBoolean(ConfigurationKey.IS_MULTI_PROCESS));
+            }
+            if (pluginConfiguration.has(ConfigurationKey.IS_MEMORY_EVENT_STORE)) {
+                configuration.withMemoryEventStore(
+                    pluginConfiguration.getBoolean(ConfigurationKey.IS_MEMORY_EVENT_STORE));
+            }
+            if (pluginConfiguration.has(ConfigurationKey.IS_SPILL_EVENTS_TO_DISK)) {
+                configuration.withSpillEventsToDisk(
+                    pluginConfiguration.getBoolean(ConfigurationKey.IS_SPILL_EVENTS_TO_DISK));
+            }
         } catch (JSONException exception) {
             throw new AnalyticsException(
                 "Unable to read appId or endpoint from the amplify configuration json.", exception,
@@ -216,14 +400,49 @@ public final class AWSClickstreamPlugin extends AnalyticsPlugin<Object> {
                     "Please take a look at the documentation for expected format of amplifyconfiguration.json."
             );
         }
-        clickstreamManager = new ClickstreamManager(context, configuration);
-        this.analyticsClient = clickstreamManager.getAnalyticsClient();
+        this.configuration = configuration;
+        if (configuration.isLazyInit()) {
+            deferredInitializer = new DeferredInitializer(this.context);
+            deferredInitializer.start(() -> initClients(context), () -> {
+                startTracking();
+                if (isEnable && deferredInitializer.getResumedActivity() != null) {
+                    activityLifecycleManager.onActivityResumed(deferredInitializer.getResumedActivity());
+                }
+            });
+        } else {
+            initClients(context);
+            startTracking();
+        }
+    }
 
+    /**
+     * Create the clients, which runs in the background thread in the lazy init mode and publishes the clients
+     * under the lock to the tracking operations.
+     *
+     * @param context the context to create the clickstream manager.
+     */
+    private synchronized void initClients(Context context) {
+        clickstreamManager = new ClickstreamManager(context, configuration);
+        analyticsClient = clickstreamManager.getAnalyticsClient();
         autoEventSubmitter = new AutoEventSubmitter(configuration.getSendEventsInterval());
-        autoEventSubmitter.start();
-
         activityLifecycleManager = new ActivityLifecycleManager(clickstreamManager);
-        activityLifecycleManager.startLifecycleTracking(this.context, ProcessLifecycleOwner.get().getLifecycle());
+    }
+
+    private synchronized void startTracking() {
+        if (isEnable) {
+            autoEventSubmitter.start();
+            activityLifecycleManager.startLifecycleTracking(this.context, ProcessLifecycleOwner.get().getLifecycle());
+        }
+        isTrackingStarted = true;
+    }
+
+    /**
+     * Get the configuration of the plugin, which is available before the lazy initialization finishes.
+     *
+     * @return the configuration.
+     */
+    ClickstreamConfiguration getConfiguration() {
+        return configuration;
     }
 
     @Override
@@ -252,6 +471,15 @@ public final class AWSClickstreamPlugin extends AnalyticsPlugin<Object> {
         static final String IS_TRACK_SCREEN_VIEW_EVENTS = "isTrackScreenViewEvents";
         static final String IS_TRACK_USER_ENGAGEMENT_EVENTS = "isTrackUserEngagementEvents";
         static final String GLOBAL_ATTRIBUTES = "globalAttributes";
+        static final String EVENT_LIMITS = "eventLimits";
+        static final String DEDUPE_WINDOW = "dedupeWindow";
+        static final String MAX_EVENT_AGE = "maxEventAge";
+        static final String IS_LAZY_INIT = "isLazyInit";
+        static final String IS_CRC32C_CHECKSUM = "isCrc32cChecksum";
+        static final String IS_DICTIONARY_COMPRESSION = "isDictionaryCompression";
+        static final String IS_MULTI_PROCESS = "isMultiProcess";
+        static final String IS_MEMORY_EVENT_STORE = "isMemoryEventStore";
+        static final String IS_SPILL_EVENTS_TO_DISK = "isSpillEventsToDisk";
     }
 }
 
@@ -19,6 +19,7 @@ import android.content.Context;
 import androidx.annotation.NonNull;
 
 import com.amplifyframework.AmplifyException;
+import com.amplifyframework.analytics.AnalyticsPropertyBehavior;
 import com.amplifyframework.core.Amplify;
 import com.amplifyframework.core.AmplifyConfiguration;
 import com.amplifyframework.core.category.CategoryConfiguration;
@@ -30,10 +31,16 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import software.aws.solution.clickstream.AWSClickstreamPlugin.ConfigurationKey;
 import software.aws.solution.clickstream.client.AnalyticsClient;
+import software.aws.solution.clickstream.client.Event.EventError;
 import software.aws.solution.clickstream.client.Event.PresetEvent;
 import software.aws.solution.clickstream.client.Event.ReservedAttribute;
+import software.aws.solution.clickstream.client.metrics.ClickstreamMetrics;
 import software.aws.solution.clickstream.client.util.ThreadUtil;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * This is the top-level customer-facing interface to The ClickstreamAnalytics.
  */
@@ -77,7 +84,8 @@ public final class ClickstreamAnalytics {
      * @param event ClickstreamEvent to record
      */
     public static void recordEvent(@NonNull final ClickstreamEvent event) {
-        Amplify.Analytics.recordEvent(event);
+        ((AWSClickstreamPlugin) Amplify.Analytics.getPlugin(AWSClickstreamPlugin.PLUGIN_KEY))
+            .recordEventDirectly(event);
     }
 
     /**
@@ -86,7 +94,57 @@ public final class ClickstreamAnalytics {
      * @param eventName the event name
      */
     public static void recordEvent(@NonNull final String eventName) {
-        Amplify.Analytics.recordEvent(eventName);
+        ((AWSClickstreamPlugin) Amplify.Analytics.getPlugin(AWSClickstreamPlugin.PLUGIN_KEY))
+            .recordEventDirectly(eventName);
+    }
+
+    /**
+     * Use this method to record a list of events in order, the events are saved in one transaction, which
+     * costs less than recording them one by one, please record them after SDK initialize.
+     *
+     * @param events the list of ClickstreamEvent
+     * @return the error of each event in order, the event is not recorded if the error code is
+     * {@link software.aws.solution.clickstream.client.Event.ErrorCode#EVENT_NAME_INVALID} or
+     * {@link software.aws.solution.clickstream.client.Event.ErrorCode#EVENT_NAME_LENGTH_EXCEED}, and is
+     * recorded without the invalid attributes and items for other errors. null if the SDK is disabled, or
+     * is initializing lazily and the events are recorded after the initialization finishes.
+     */
+    public static List<EventError> recordEvents(@NonNull final List<ClickstreamEvent> events) {
+        return ((AWSClickstreamPlugin) Amplify.Analytics.getPlugin(AWSClickstreamPlugin.PLUGIN_KEY))
+            .recordEvents(events);
+    }
+
+    /**
+     * Use this method to record a metric value which is aggregated on device, please record it after SDK
+     * initialize.
+     *
+     * @param name  the metric name
+     * @param value the finite metric value
+     */
+    public static void recordMetric(@NonNull final String name, final double value) {
+        recordMetric(name, value, null);
+    }
+
+    /**
+     * Use this method to record a metric value which is aggregated on device by the name and dimensions,
+     * the aggregated values are sent in one summary event when events are submitted, please record it after
+     * SDK initialize.
+     *
+     * @param name       the metric name
+     * @param value      the finite metric value
+     * @param dimensions the metric dimensions, can be null
+     */
+    public static void recordMetric(@NonNull final String name, final double value,
+                                    final ClickstreamAttribute dimensions) {
+        Map<String, Object> dimensionMap = null;
+        if (dimensions != null) {
+            dimensionMap = new HashMap<>();
+            for (Map.Entry<String, AnalyticsPropertyBehavior<?>> entry : dimensions.getAttributes()) {
+                dimensionMap.put(entry.getKey(), entry.getValue().getValue());
+            }
+        }
+        ((AWSClickstreamPlugin) Amplify.Analytics.getPlugin(AWSClickstreamPlugin.PLUGIN_KEY))
+            .recordMetric(name, value, dimensionMap);
     }
 
     /**
@@ -164,10 +222,23 @@ public final class ClickstreamAnalytics {
      * @return ClickstreamConfiguration configurationF
      */
     public static ClickstreamConfiguration getClickStreamConfiguration() {
+        return ((AWSClickstreamPlugin) Amplify.Analytics.getPlugin(AWSClickstreamPlugin.PLUGIN_KEY))
+            .getConfiguration();
+    }
+
+    /**
+     * Get the metrics of Clickstream SDK, please get it after SDK initialize.
+     *
+     * @return ClickstreamMetrics metrics, null before the lazy initialization finishes.
+     */
+    public static ClickstreamMetrics getMetrics() {
         AnalyticsClient client =
             ((AWSClickstreamPlugin) Amplify.Analytics.getPlugin(AWSClickstreamPlugin.PLUGIN_KEY)).getEscapeHatch();
-        assert client != null;
-        return client.getClickstreamConfiguration();
+        if (client == null) {
+            LOG.error("Clickstream SDK is not initialized yet");
+            return null;
+        }
+        return client.getMetrics();
     }
 
     private static AmplifyConfiguration getAmplifyConfigurationObject(Context context,
@@ -233,6 +304,34 @@ public final class ClickstreamAnalytics {
             if (configuration.getInitialGlobalAttributes() != null) {
                 configureObject.put(ConfigurationKey.GLOBAL_ATTRIBUTES, configuration.getInitialGlobalAttributes());
             }
+            if (configuration.getEventLimits() != null) {
+                configureObject.put(ConfigurationKey.EVENT_LIMITS, configuration.getEventLimits());
+            }
+            if (configuration.isLazyInit() != null) {
+                configureObject.put(ConfigurationKey.IS_LAZY_INIT, configuration.isLazyInit());
+            }
+            if (configuration.getDedupeWindow() > 0) {
+                configureObject.put(ConfigurationKey.DEDUPE_WINDOW, configuration.getDedupeWindow());
+            }
+            if (configuration.getMaxEventAge() > 0) {
+                configureObject.put(ConfigurationKey.MAX_EVENT_AGE, configuration.getMaxEventAge());
+            }
+            if (configuration.isCrc32cChecksum() != null) {
+                configureObject.put(ConfigurationKey.IS_CRC32C_CHECKSUM, configuration.isCrc32cChecksum());
+            }
+            if (configuration.isDictionaryCompression() != null) {
+                configureObject.put(ConfigurationKey.IS_DICTIONARY_COMPRESSION,
+                    configuration.isDictionaryCompression());
+            }
+            if (configuration.isMultiProcess() != null) {
+                configureObject.put(ConfigurationKey.IS_MULTI_PROCESS, configuration.isMultiProcess());
+            }
+            if (configuration.isMemoryEventStore() != null) {
+                configureObject.put(ConfigurationKey.IS_MEMORY_EVENT_STORE, configuration.isMemoryEventStore());
+            }
+            if (configuration.isSpillEventsToDisk() != null) {
+                configureObject.put(ConfigurationKey.IS_SPILL_EVENTS_TO_DISK, configuration.isSpillEventsToDisk());
+            }
         } catch (Exception exception) {
             LOG.error("Parse JSON exception, you may need to check your initial configuration");
         }
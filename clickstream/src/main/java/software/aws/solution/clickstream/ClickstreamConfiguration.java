@@ -34,9 +34,18 @@ public class ClickstreamConfiguration {
     private Boolean isTrackUserEngagementEvents;
     private Boolean isTrackAppExceptionEvents;
     private Boolean isLogEvents;
+    private Boolean isLazyInit;
+    private Boolean isCrc32cChecksum;
+    private Boolean isDictionaryCompression;
+    private Boolean isMultiProcess;
+    private Boolean isMemoryEventStore;
+    private Boolean isSpillEventsToDisk;
     private String authCookie;
     private long sessionTimeoutDuration;
     private ClickstreamAttribute initialGlobalAttributes;
+    private ClickstreamEventLimits eventLimits;
+    private long dedupeWindow;
+    private long maxEventAge;
 
     /**
      * Create an {@link ClickstreamConfiguration} object.
@@ -54,6 +63,12 @@ public class ClickstreamConfiguration {
         configuration.isTrackUserEngagementEvents = true;
         configuration.isTrackAppExceptionEvents = false;
         configuration.isLogEvents = false;
+        configuration.isLazyInit = false;
+        configuration.isCrc32cChecksum = false;
+        configuration.isDictionaryCompression = false;
+        configuration.isMultiProcess = false;
+        configuration.isMemoryEventStore = false;
+        configuration.isSpillEventsToDisk = false;
         return configuration;
     }
 
@@ -306,5 +321,197 @@ public class ClickstreamConfiguration {
     public ClickstreamAttribute getInitialGlobalAttributes() {
         return this.initialGlobalAttributes;
     }
-}
 
+    /**
+     * Set the rate limits and sampling rates of recording events.
+     *
+     * @param eventLimits the event limits, null to disable.
+     * @return the current ClickstreamConfiguration instance.
+     */
+    public ClickstreamConfiguration withEventLimits(ClickstreamEventLimits eventLimits) {
+        this.eventLimits = eventLimits;
+        return this;
+    }
+
+    /**
+     * Get the rate limits and sampling rates of recording events.
+     *
+     * @return the event limits instance.
+     */
+    public ClickstreamEventLimits getEventLimits() {
+        return this.eventLimits;
+    }
+
+    /**
+     * Set the time window to drop the repeated events, the events with the same name, attributes
+     * and items as an event recorded within the window are not recorded.
+     *
+     * @param dedupeWindow the dedupe window in milliseconds, 0 to disable.
+     * @return the current ClickstreamConfiguration instance.
+     */
+    public ClickstreamConfiguration withDedupeWindow(final long dedupeWindow) {
+        this.dedupeWindow = dedupeWindow;
+        return this;
+    }
+
+    /**
+     * Get the time window to drop the repeated events.
+     *
+     * @return the dedupe window in milliseconds, 0 if disabled.
+     */
+    public long getDedupeWindow() {
+        return this.dedupeWindow;
+    }
+
+    /**
+     * Set the max age of the events in the store, the events recorded earlier than it are deleted
+     * without uploading when the events are submitted.
+     *
+     * @param maxEventAge the max event age in milliseconds, 0 to disable.
+     * @return the current ClickstreamConfiguration instance.
+     */
+    public ClickstreamConfiguration withMaxEventAge(final long maxEventAge) {
+        this.maxEventAge = maxEventAge;
+        return this;
+    }
+
+    /**
+     * Get the max age of the events in the store.
+     *
+     * @return the max event age in milliseconds, 0 if disabled.
+     */
+    public long getMaxEventAge() {
+        return this.maxEventAge;
+    }
+
+    /**
+     * Is lazy init, the SDK initialization is run in a background thread and the events recorded before
+     * it finishes are buffered in memory.
+     *
+     * @return Is lazy init.
+     */
+    public Boolean isLazyInit() {
+        return this.isLazyInit;
+    }
+
+    /**
+     * Whether to run the SDK initialization in a background thread, only the configuration is read
+     * in the main thread, and the events recorded before the initialization finishes are replayed in order.
+     *
+     * @param isLazyInit whether to init lazily.
+     * @return the current ClickstreamConfiguration instance.
+     */
+    public ClickstreamConfiguration withLazyInit(final boolean isLazyInit) {
+        this.isLazyInit = isLazyInit;
+        return this;
+    }
+
+    /**
+     * Is CRC32C checksum, the hash code of the request payload is the CRC32C instead of the SHA-256.
+     *
+     * @return Is CRC32C checksum.
+     */
+    public Boolean isCrc32cChecksum() {
+        return this.isCrc32cChecksum;
+    }
+
+    /**
+     * Whether to send the CRC32C of the request payload as the hash code, which is cheaper than the SHA-256,
+     * enable it only when the server accepts the hashAlgorithm=crc32c request parameter.
+     *
+     * @param isCrc32cChecksum whether to use the CRC32C checksum.
+     * @return the current ClickstreamConfiguration instance.
+     */
+    public ClickstreamConfiguration withCrc32cChecksum(final boolean isCrc32cChecksum) {
+        this.isCrc32cChecksum = isCrc32cChecksum;
+        return this;
+    }
+
+    /**
+     * Is dictionary compression, the events are compressed with the preset dictionary instead of gzip.
+     *
+     * @return Is dictionary compression.
+     */
+    public Boolean isDictionaryCompression() {
+        return this.isDictionaryCompression;
+    }
+
+    /**
+     * Whether to compress the events in zlib format with the preset dictionary of the event keys, which
+     * compresses the small batches better than gzip. It takes effect only when the events are compressed,
+     * enable it only when the server accepts the compression=deflate and dictionaryId request parameters.
+     *
+     * @param isDictionaryCompression whether to use the dictionary compression.
+     * @return the current ClickstreamConfiguration instance.
+     */
+    public ClickstreamConfiguration withDictionaryCompression(final boolean isDictionaryCompression) {
+        this.isDictionaryCompression = isDictionaryCompression;
+        return this;
+    }
+
+    /**
+     * Is multi process, the SDK runs in more than one process of the app.
+     *
+     * @return Is multi process.
+     */
+    public Boolean isMultiProcess() {
+        return this.isMultiProcess;
+    }
+
+    /**
+     * Whether the SDK runs in more than one process of the app, all the processes record events into the
+     * same store, and only the process which holds the upload lock uploads them.
+     *
+     * @param isMultiProcess whether to enable the multi process mode.
+     * @return the current ClickstreamConfiguration instance.
+     */
+    public ClickstreamConfiguration withMultiProcess(final boolean isMultiProcess) {
+        this.isMultiProcess = isMultiProcess;
+        return this;
+    }
+
+    /**
+     * Is memory event store, the events are kept in memory instead of the database.
+     *
+     * @return Is memory event store.
+     */
+    public Boolean isMemoryEventStore() {
+        return this.isMemoryEventStore;
+    }
+
+    /**
+     * Whether to keep the recorded events in a bounded ring buffer in memory instead of the database, which
+     * saves the disk write of each event, the oldest event is overwritten when the buffer is full and the
+     * events not uploaded are lost when the process ends unless they are spilled to disk.
+     *
+     * @param isMemoryEventStore whether to enable the memory event store.
+     * @return the current ClickstreamConfiguration instance.
+     */
+    public ClickstreamConfiguration withMemoryEventStore(final boolean isMemoryEventStore) {
+        this.isMemoryEventStore = isMemoryEventStore;
+        return this;
+    }
+
+    /**
+     * Is spill events to disk, the events in memory are saved to the database when the app enters the
+     * background or the system is low on memory.
+     *
+     * @return Is spill events to disk.
+     */
+    public Boolean isSpillEventsToDisk() {
+        return this.isSpillEventsToDisk;
+    }
+
+    /**
+     * Whether to save the events of the memory event store to the database in one transaction when the app
+     * enters the background or the system is low on memory, they are uploaded on the next flush or launch.
+     * It takes effect only when the memory event store is enabled.
+     *
+     * @param isSpillEventsToDisk whether to spill the events to disk.
+     * @return the current ClickstreamConfiguration instance.
+     */
+    public ClickstreamConfiguration withSpillEventsToDisk(final boolean isSpillEventsToDisk) {
+        this.isSpillEventsToDisk = isSpillEventsToDisk;
+        return this;
+    }
+}
@@ -22,6 +22,12 @@ import com.amplifyframework.analytics.AnalyticsCategory;
 import com.amplifyframework.analytics.AnalyticsEventBehavior;
 import com.amplifyframework.analytics.AnalyticsProperties;
 
+import software.aws.solution.clickstream.client.Event;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * ClickstreamEvent is a custom analytics event that holds a name and a number of
  * {@link AnalyticsProperties}. This data object is used to indicate an event occurred such as a user taking
@@ -43,13 +49,17 @@ public final class ClickstreamEvent implements AnalyticsEventBehavior {
     private static final int MAX_NAME_LENGTH = 50;
     private static final int MAX_VALUE_LENGTH = 1024;
     private final String name;
-    private final AnalyticsProperties properties;
+    private final Map<String, Object> attributes;
     private final ClickstreamItem[] items;
+    private final Event.Priority priority;
+    private volatile AnalyticsProperties properties;
 
-    private ClickstreamEvent(String name, AnalyticsProperties properties, ClickstreamItem[] items) {
+    private ClickstreamEvent(String name, Map<String, Object> attributes, ClickstreamItem[] items,
+                             Event.Priority priority) {
         this.name = name;
-        this.properties = properties;
+        this.attributes = Collections.unmodifiableMap(attributes);
         this.items = items;
+        this.priority = priority;
     }
 
     /**
@@ -64,16 +74,31 @@ public final class ClickstreamEvent implements AnalyticsEventBehavior {
     }
 
     /**
-     * Returns the {@link AnalyticsProperties} of the event.
+     * Returns the {@link AnalyticsProperties} of the event, they are converted from the attributes on the
+     * first call for the plugins which read the event through the Amplify category.
      *
      * @return The {@link AnalyticsProperties} of the event
      */
     @Override
     @NonNull
     public AnalyticsProperties getProperties() {
+        if (properties == null) {
+            properties = toProperties(attributes);
+        }
         return properties;
     }
 
+    /**
+     * Returns the attribute values of the event in the order they are added, the values are the String,
+     * Double, Boolean, Integer and Long added to the builder, without the {@link AnalyticsProperties} wrappers.
+     *
+     * @return The unmodifiable map of the attributes
+     */
+    @NonNull
+    Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
     /**
      * Returns the {@link ClickstreamItem} array of the event.
      *
@@ -84,6 +109,34 @@ public final class ClickstreamEvent implements AnalyticsEventBehavior {
         return items;
     }
 
+    /**
+     * Returns the priority of the event in storage and upload.
+     *
+     * @return The priority, or null to use the default priority of the event name.
+     */
+    public Event.Priority getPriority() {
+        return priority;
+    }
+
+    private static AnalyticsProperties toProperties(Map<String, Object> attributes) {
+        AnalyticsProperties.Builder builder = AnalyticsProperties.builder();
+        for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                builder.add(entry.getKey(), (String) value);
+            } else if (value instanceof Double) {
+                builder.add(entry.getKey(), (Double) value);
+            } else if (value instanceof Boolean) {
+                builder.add(entry.getKey(), (Boolean) value);
+            } else if (value instanceof Integer) {
+                builder.add(entry.getKey(), (Integer) value);
+            } else if (value instanceof Long) {
+                builder.add(entry.getKey(), AnalyticsLongProperty.from((Long) value));
+            }
+        }
+        return builder.build();
+    }
+
     /**
      * Returns a new {@link Builder} to configure an instance of ClickstreamEvent.
      *
@@ -96,21 +149,22 @@ public final class ClickstreamEvent implements AnalyticsEventBehavior {
 
     /**
      * Builder is used to create and configure an instance of {@link ClickstreamEvent}. Its
-     * methods return the Builder instance to allow for fluent method chaining. This Builder reuses
-     * {@link AnalyticsProperties.Builder} to construct the properties to store in the event.
+     * methods return the Builder instance to allow for fluent method chaining. The attribute values are
+     * kept as they are added, so that the event is created from them once when recorded.
      *
      * @see AnalyticsProperties
      */
     public static final class Builder {
         private String name;
-        private final AnalyticsProperties.Builder propertiesBuilder;
+        private final Map<String, Object> attributes;
         private ClickstreamItem[] items;
+        private Event.Priority priority;
 
         /**
          * the builder for add event attribute.
          */
         public Builder() {
-            this.propertiesBuilder = AnalyticsProperties.builder();
+            this.attributes = new LinkedHashMap<>();
         }
 
         /**
@@ -135,7 +189,7 @@ public final class ClickstreamEvent implements AnalyticsEventBehavior {
         @NonNull
         public Builder add(@NonNull @Size(min = 1L, max = MAX_NAME_LENGTH) String name,
                            @NonNull @Size(min = 0L, max = MAX_VALUE_LENGTH) String value) {
-            this.propertiesBuilder.add(name, value);
+            this.attributes.put(name, value);
             return this;
         }
 
@@ -148,7 +202,7 @@ public final class ClickstreamEvent implements AnalyticsEventBehavior {
          */
         @NonNull
         public Builder add(@NonNull @Size(min = 1L, max = MAX_NAME_LENGTH) String name, @NonNull Double value) {
-            this.propertiesBuilder.add(name, value);
+            this.attributes.put(name, value);
             return this;
         }
 
@@ -162,7 +216,7 @@ public final class ClickstreamEvent implements AnalyticsEventBehavior {
         @NonNull
         public Builder add(@NonNull @Size(min = 1L, max = MAX_NAME_LENGTH) String name,
                            @NonNull Boolean value) {
-            this.propertiesBuilder.add(name, value);
+            this.attributes.put(name, value);
             return this;
         }
 
@@ -176,7 +230,7 @@ public final class ClickstreamEvent implements AnalyticsEventBehavior {
         @NonNull
         public Builder add(@NonNull @Size(min = 1L, max = MAX_NAME_LENGTH) String name,
                            @NonNull Integer value) {
-            this.propertiesBuilder.add(name, value);
+            this.attributes.put(name, value);
             return this;
         }
 
@@ -190,7 +244,7 @@ public final class ClickstreamEvent implements AnalyticsEventBehavior {
         @NonNull
         public Builder add(@NonNull @Size(min = 1L, max = MAX_NAME_LENGTH) String name,
                            @NonNull Long value) {
-            this.propertiesBuilder.add(name, AnalyticsLongProperty.from(value));
+            this.attributes.put(name, value);
             return this;
         }
 
@@ -206,6 +260,19 @@ public final class ClickstreamEvent implements AnalyticsEventBehavior {
             return this;
         }
 
+        /**
+         * Sets the priority of the {@link ClickstreamEvent}, the events with higher priority are uploaded first
+         * and the events with lower priority are evicted first when the storage exceeds the limit.
+         *
+         * @param priority The priority of the event
+         * @return Current Builder instance, for fluent method chaining
+         */
+        @NonNull
+        public Builder priority(@NonNull Event.Priority priority) {
+            this.priority = priority;
+            return this;
+        }
+
         /**
          * Returns the built {@link ClickstreamEvent}.
          *
@@ -214,7 +281,7 @@ public final class ClickstreamEvent implements AnalyticsEventBehavior {
          */
         @NonNull
         public ClickstreamEvent build() {
-            return new ClickstreamEvent(name, propertiesBuilder.build(), this.items);
+            return new ClickstreamEvent(name, new LinkedHashMap<>(attributes), this.items, this.priority);
         }
     }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream;
+
+import androidx.annotation.NonNull;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The rate limits and sampling rates of recording events, the events exceed the rate limit or
+ * not sampled are dropped before they are stored, and the counts of them are recorded in the
+ * {@code _event_limit_summary} event.
+ */
+public class ClickstreamEventLimits {
+    private static final Log LOG = LogFactory.getLog(ClickstreamEventLimits.class);
+    private final RateLimit globalRateLimit;
+    private final Map<String, RateLimit> rateLimits;
+    private final Map<String, Double> samplingRates;
+
+    /**
+     * Constructor for init the rate limits and sampling rates.
+     *
+     * @param builder An instance of the builder with the desired limits set.
+     */
+    protected ClickstreamEventLimits(@NonNull Builder builder) {
+        this.globalRateLimit = builder.globalRateLimit;
+        this.rateLimits = Collections.unmodifiableMap(new HashMap<>(builder.rateLimits));
+        this.samplingRates = Collections.unmodifiableMap(new HashMap<>(builder.samplingRates));
+    }
+
+    /**
+     * Get the rate limit of all events.
+     *
+     * @return the global rate limit, or null if not limited.
+     */
+    public RateLimit getGlobalRateLimit() {
+        return globalRateLimit;
+    }
+
+    /**
+     * Get the rate limits of event types.
+     *
+     * @return the unmodifiable map of event name to rate limit.
+     */
+    public Map<String, RateLimit> getRateLimits() {
+        return rateLimits;
+    }
+
+    /**
+     * Get the sampling rates of event types.
+     *
+     * @return the unmodifiable map of event name to sampling rate.
+     */
+    public Map<String, Double> getSamplingRates() {
+        return samplingRates;
+    }
+
+    /**
+     * Begins construction of an {@link ClickstreamEventLimits} using a builder pattern.
+     *
+     * @return An {@link ClickstreamEventLimits.Builder} instance
+     */
+    @NonNull
+    public static Builder builder() {
+        return new ClickstreamEventLimits.Builder();
+    }
+
+    /**
+     * The token bucket rate limit, allows bursts up to the capacity and refills at the rate.
+     */
+    public static final class RateLimit {
+        private final double eventsPerSecond;
+        private final int burst;
+
+        private RateLimit(double eventsPerSecond, int burst) {
+            this.eventsPerSecond = eventsPerSecond;
+            this.burst = burst;
+        }
+
+        /**
+         * Get the refill rate of the bucket.
+         *
+         * @return the number of events allowed per second.
+         */
+        public double getEventsPerSecond() {
+            return eventsPerSecond;
+        }
+
+        /**
+         * Get the capacity of the bucket.
+         *
+         * @return the max number of events allowed in a burst.
+         */
+        public int getBurst() {
+            return burst;
+        }
+    }
+
+    /**
+     * Builder for the {@link ClickstreamEventLimits} class.
+     */
+    public static class Builder {
+        private RateLimit globalRateLimit;
+        private final Map<String, RateLimit> rateLimits = new HashMap<>();
+        private final Map<String, Double> samplingRates = new HashMap<>();
+
+        /**
+         * Limit the rate of all events, the preset events and the events of high priority are not limited.
+         *
+         * @param eventsPerSecond The number of events allowed per second, must be greater than 0.
+         * @param burst           The max number of events allowed in a burst, must be greater than 0.
+         * @return Current Builder instance, for fluent method chaining
+         */
+        @NonNull
+        public Builder globalRateLimit(double eventsPerSecond, int burst) {
+            if (isValidRateLimit(eventsPerSecond, burst)) {
+                this.globalRateLimit = new RateLimit(eventsPerSecond, burst);
+            }
+            return this;
+        }
+
+        /**
+         * Limit the rate of the events with the name.
+         *
+         * @param eventName       The event name.
+         * @param eventsPerSecond The number of events allowed per second, must be greater than 0.
+         * @param burst           The max number of events allowed in a burst, must be greater than 0.
+         * @return Current Builder instance, for fluent method chaining
+         */
+        @NonNull
+        public Builder rateLimit(@NonNull String eventName, double eventsPerSecond, int burst) {
+            if (isValidRateLimit(eventsPerSecond, burst)) {
+                rateLimits.put(eventName, new RateLimit(eventsPerSecond, burst));
+            }
+            return this;
+        }
+
+        /**
+         * Sample the events with the name, the decision is deterministic for each user and event name, so the
+         * events with the name of a user are either all kept or all dropped.
+         *
+         * @param eventName    The event name.
+         * @param samplingRate The ratio of events to keep, between 0 and 1.
+         * @return Current Builder instance, for fluent method chaining
+         */
+        @NonNull
+        public Builder samplingRate(@NonNull String eventName, double samplingRate) {
+            if (samplingRate >= 0 && samplingRate <= 1) {
+                samplingRates.put(eventName, samplingRate);
+            } else {
+                LOG.error("sampling rate must be between 0 and 1, the sampling rate of " + eventName + " is ignored");
+            }
+            return this;
+        }
+
+        private static boolean isValidRateLimit(double eventsPerSecond, int burst) {
+            if (eventsPerSecond > 0 && burst > 0) {
+                return true;
+            }
+            LOG.error("events per second and burst must be greater than 0, the rate limit is ignored");
+            return false;
+        }
+
+        /**
+         * Builds an instance of {@link ClickstreamEventLimits}, using the provided values.
+         *
+         * @return An {@link ClickstreamEventLimits}
+         */
+        @NonNull
+        public ClickstreamEventLimits build() {
+            return new ClickstreamEventLimits(this);
+        }
+    }
+}
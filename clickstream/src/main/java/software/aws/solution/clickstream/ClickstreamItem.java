@@ -23,29 +23,41 @@ import com.amazonaws.logging.LogFactory;
 import org.json.JSONException;
 import org.json.JSONObject;
 import software.aws.solution.clickstream.client.Event;
+import software.aws.solution.clickstream.client.util.AttributeContainer;
 
 /**
  * ClickstreamItem for item record.
  */
 public final class ClickstreamItem {
     private static final Log LOG = LogFactory.getLog(ClickstreamItem.class);
-    private final JSONObject attributes;
+    private final AttributeContainer attributes;
 
     /**
      * Constructor for init the ClickstreamItem.
      *
      * @param attributes An instance of the builder with the desired attributes set.
      */
-    private ClickstreamItem(@NonNull JSONObject attributes) {
+    private ClickstreamItem(@NonNull AttributeContainer attributes) {
         this.attributes = attributes;
     }
 
     /**
      * the getter for attributes.
      *
-     * @return the attributes json object.
+     * @return a new json object of the attributes.
      */
     public JSONObject getAttributes() {
+        return attributes.toJSONObject();
+    }
+
+    /**
+     * the getter for attributes without boxing the primitive values, which is used to validate and serialize
+     * the item.
+     *
+     * @return the attribute container.
+     */
+    @NonNull
+    public AttributeContainer getAttributeContainer() {
         return attributes;
     }
 
@@ -64,7 +76,7 @@ public final class ClickstreamItem {
      * Builder for the {@link ClickstreamItem} class.
      */
     public static class Builder {
-        private final JSONObject builder = new JSONObject();
+        private final AttributeContainer builder = new AttributeContainer();
 
         /**
          * constructor for Builder.
@@ -139,7 +151,9 @@ public final class ClickstreamItem {
 
         private void setAttribute(String key, Object value) {
             try {
-                builder.putOpt(key, value);
+                if (key != null && value != null) {
+                    builder.put(key, value);
+                }
             } catch (JSONException exception) {
                 LOG.warn("error parsing json, error message:" + exception.getMessage());
             }
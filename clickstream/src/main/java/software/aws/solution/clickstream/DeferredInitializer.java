@@ -0,0 +1,199 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Run the SDK initialization in a background thread for the lazy init mode. The operations called
+ * before the initialization finishes are buffered in memory and replayed in order in the same background
+ * thread after it, so their database writes do not block the main thread. Only the tracking start is
+ * posted to the main thread, and the activity resumed in the meantime is kept so that its screen view
+ * can be recorded.
+ */
+final class DeferredInitializer implements Application.ActivityLifecycleCallbacks {
+    static final int MAX_PENDING_OPERATIONS = 1000;
+    private static final Log LOG = LogFactory.getLog(DeferredInitializer.class);
+    private final Context context;
+    private final List<Runnable> pendingOperations = new ArrayList<>();
+    private boolean isInitialized;
+    private boolean isFailed;
+    private WeakReference<Activity> resumedActivity;
+
+    /**
+     * The construct function with the application context.
+     *
+     * @param context the application context to track the activity resumed before initialized.
+     */
+    DeferredInitializer(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Start the initialization.
+     *
+     * @param backgroundTask the heavy initialization which runs in a background thread, the buffered
+     *                       operations are replayed in the thread after it.
+     * @param mainThreadTask the initialization which runs in the main thread after the buffered operations
+     *                       are replayed.
+     */
+    void start(final Runnable backgroundTask, final Runnable mainThreadTask) {
+        if (context instanceof Application) {
+            ((Application) context).registerActivityLifecycleCallbacks(this);
+        }
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        Thread initThread = new Thread(() -> {
+            try {
+                backgroundTask.run();
+            } catch (RuntimeException exception) {
+                LOG.error("Clickstream SDK lazy initialization failed: " + exception.getMessage());
+                mainHandler.post(this::fail);
+                return;
+            }
+            replay();
+            mainHandler.post(() -> {
+                stopTrackingActivity();
+                mainThreadTask.run();
+            });
+        }, "ClickstreamInit");
+        initThread.start();
+    }
+
+    /**
+     * Run the operation now if the initialization is finished, otherwise buffer it until finished.
+     *
+     * @param operation the operation.
+     * @return true if the operation is run now, false if it is buffered or dropped.
+     */
+    boolean run(Runnable operation) {
+        synchronized (this) {
+            if (isFailed) {
+                return false;
+            }
+            if (!isInitialized) {
+                if (pendingOperations.size() < MAX_PENDING_OPERATIONS) {
+                    pendingOperations.add(operation);
+                } else {
+                    LOG.error("Too many operations before Clickstream SDK initialized, the operation is dropped");
+                }
+                return false;
+            }
+        }
+        operation.run();
+        return true;
+    }
+
+    /**
+     * Run the buffered operations in order, the operations added during replay are run after them.
+     */
+    void replay() {
+        while (true) {
+            List<Runnable> operations;
+            synchronized (this) {
+                if (pendingOperations.isEmpty()) {
+                    isInitialized = true;
+                    return;
+                }
+                operations = new ArrayList<>(pendingOperations);
+                pendingOperations.clear();
+            }
+            for (Runnable operation : operations) {
+                try {
+                    operation.run();
+                } catch (RuntimeException exception) {
+                    LOG.error("Failed to replay the operation: " + exception.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the buffered operations and the operations called later when the initialization failed.
+     */
+    synchronized void fail() {
+        stopTrackingActivity();
+        isFailed = true;
+        pendingOperations.clear();
+    }
+
+    /**
+     * Get the number of buffered operations.
+     *
+     * @return the number of operations.
+     */
+    synchronized int getPendingOperationCount() {
+        return pendingOperations.size();
+    }
+
+    /**
+     * Get the activity which is resumed and not paused before initialized.
+     *
+     * @return the activity or null.
+     */
+    Activity getResumedActivity() {
+        return resumedActivity == null ? null : resumedActivity.get();
+    }
+
+    private void stopTrackingActivity() {
+        if (context instanceof Application) {
+            ((Application) context).unregisterActivityLifecycleCallbacks(this);
+        }
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle bundle) {
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+        resumedActivity = new WeakReference<>(activity);
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+        if (getResumedActivity() == activity) {
+            resumedActivity = null;
+        }
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle bundle) {
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+    }
+}
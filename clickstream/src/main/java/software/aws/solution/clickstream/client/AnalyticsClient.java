@@ -15,7 +15,6 @@
 
 package software.aws.solution.clickstream.client;
 
-import android.util.DisplayMetrics;
 import androidx.annotation.NonNull;
 
 import com.amazonaws.logging.Log;
@@ -23,11 +22,17 @@ import com.amazonaws.logging.LogFactory;
 import org.json.JSONException;
 import org.json.JSONObject;
 import software.aws.solution.clickstream.ClickstreamConfiguration;
+import software.aws.solution.clickstream.client.metrics.ClickstreamMetrics;
+import software.aws.solution.clickstream.client.system.DeviceContextSnapshot;
 import software.aws.solution.clickstream.client.util.PreferencesUtil;
 import software.aws.solution.clickstream.client.util.StringUtil;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
 
 /**
  * A client to manage creating and sending analytics events.
@@ -35,12 +40,17 @@ import java.util.concurrent.ConcurrentHashMap;
 public class AnalyticsClient {
     private static final Log LOG = LogFactory.getLog(AnalyticsClient.class);
     private final ClickstreamContext context;
-    private final Map<String, Object> globalAttributes = new ConcurrentHashMap<>();
-    private JSONObject simpleUserAttributes;
-    private JSONObject allUserAttributes;
-    private String userId;
-    private String userUniqueId;
+    private volatile GlobalAttributesSnapshot globalAttributes = GlobalAttributesSnapshot.EMPTY;
+    private volatile UserAttributesSnapshot userAttributes;
+    private final Set<String> changedUserAttributeNames = new HashSet<>();
+    private boolean isUserAttributesReset;
+    private volatile String userId;
+    private volatile String userUniqueId;
     private final EventRecorder eventRecorder;
+    private final EventLimiter eventLimiter;
+    private final EventDeduplicator eventDeduplicator;
+    private final CrashJournal crashJournal;
+    private final MetricAggregator metricAggregator = new MetricAggregator();
     private Session session;
 
     /**
@@ -51,10 +61,18 @@ public class AnalyticsClient {
     public AnalyticsClient(@NonNull final ClickstreamContext context) {
         this.context = context;
         eventRecorder = EventRecorder.newInstance(context);
+        eventLimiter = new EventLimiter(context.getClickstreamConfiguration(), context.getMetrics());
+        eventDeduplicator = new EventDeduplicator(context.getClickstreamConfiguration(), context.getMetrics());
+        // the journal file is not shared by processes, the crash events are recorded into the store instead.
+        crashJournal = EventRecorder.isMultiProcess(context) ? null :
+            new CrashJournal(new File(context.getApplicationContext().getFilesDir(), CrashJournal.FILE_NAME));
+        importCrashJournal();
         userId = PreferencesUtil.getCurrentUserId(context.getSystem().getPreferences());
         userUniqueId = PreferencesUtil.getCurrentUserUniqueId(context.getSystem().getPreferences());
-        allUserAttributes = PreferencesUtil.getUserAttribute(context.getSystem().getPreferences());
-        simpleUserAttributes = getSimpleUserAttribute();
+        userAttributes = new UserAttributesSnapshot(context.getSystem().getStateStore().getUserAttributes());
+        if (!userAttributes.has(Event.ReservedAttribute.USER_FIRST_TOUCH_TIMESTAMP)) {
+            initUserFirstTouchTimestamp();
+        }
     }
 
     /**
@@ -65,7 +83,7 @@ public class AnalyticsClient {
      * @param value attribute value.
      * @throws IllegalArgumentException throws when fail to check the attribute name.
      */
-    public void addGlobalAttribute(String name, Object value) {
+    public synchronized void addGlobalAttribute(String name, Object value) {
         if (value != null) {
             Event.EventError error = EventChecker.checkAttribute(globalAttributes.size(), name, value);
             if (error.getErrorCode() > 0) {
@@ -75,9 +93,9 @@ public class AnalyticsClient {
                 recordEvent(event);
                 return;
             }
-            globalAttributes.put(name, value);
+            globalAttributes = globalAttributes.with(name, value);
         } else {
-            globalAttributes.remove(name);
+            globalAttributes = globalAttributes.without(name);
         }
     }
 
@@ -86,8 +104,17 @@ public class AnalyticsClient {
      *
      * @param name attribute name.
      */
-    public void deleteGlobalAttribute(String name) {
-        globalAttributes.remove(name);
+    public synchronized void deleteGlobalAttribute(String name) {
+        globalAttributes = globalAttributes.without(name);
+    }
+
+    /**
+     * get the current global attributes.
+     *
+     * @return the unmodifiable global attributes map.
+     */
+    public Map<String, Object> getGlobalAttributes() {
+        return globalAttributes.getAttributes();
     }
 
     /**
@@ -100,9 +127,10 @@ public class AnalyticsClient {
      * @param name  user attribute name.
      * @param value user attribute value.
      */
-    public void addUserAttribute(String name, Object value) {
+    public synchronized void addUserAttribute(String name, Object value) {
+        UserAttributesSnapshot snapshot = userAttributes;
         if (value != null) {
-            Event.EventError error = EventChecker.checkUserAttribute(allUserAttributes.length(), name, value);
+            Event.EventError error = EventChecker.checkUserAttribute(snapshot.length(), name, value);
             if (error.getErrorCode() > 0) {
                 final AnalyticsEvent event = createEvent(Event.PresetEvent.CLICKSTREAM_ERROR);
                 event.addAttribute(Event.ReservedAttribute.ERROR_CODE, error.getErrorCode());
@@ -115,12 +143,14 @@ public class AnalyticsClient {
                 JSONObject attribute = new JSONObject();
                 attribute.put("value", value);
                 attribute.put("set_timestamp", timeStamp);
-                allUserAttributes.put(name, attribute);
+                userAttributes = snapshot.with(name, attribute);
+                changedUserAttributeNames.add(name);
             } catch (JSONException exception) {
                 LOG.error("format user attribute, error message:" + exception.getMessage());
             }
-        } else {
-            allUserAttributes.remove(name);
+        } else if (snapshot.has(name)) {
+            userAttributes = snapshot.without(name);
+            changedUserAttributeNames.add(name);
         }
     }
 
@@ -129,13 +159,15 @@ public class AnalyticsClient {
      *
      * @param userId new userId
      */
-    public void updateUserId(String userId) {
+    public synchronized void updateUserId(String userId) {
         if (!this.userId.equals(userId)) {
             this.userId = userId;
             PreferencesUtil.setCurrentUserId(context.getSystem().getPreferences(), userId);
             if (!StringUtil.isNullOrEmpty(userId)) {
-                allUserAttributes = new JSONObject();
-                JSONObject userInfo = PreferencesUtil.getNewUserInfo(context.getSystem().getPreferences(), userId);
+                userAttributes = new UserAttributesSnapshot(new JSONObject());
+                isUserAttributesReset = true;
+                JSONObject userInfo = PreferencesUtil.getNewUserInfo(context.getSystem().getPreferences(),
+                    context.getSystem().getStateStore(), userId);
                 try {
                     userUniqueId = userInfo.getString("user_unique_id");
                     long userFirstTouchTimestamp = userInfo.getLong("user_first_touch_timestamp");
@@ -149,15 +181,22 @@ public class AnalyticsClient {
                 newUserId = null;
             }
             addUserAttribute(Event.ReservedAttribute.USER_ID, newUserId);
-            simpleUserAttributes = getSimpleUserAttribute();
         }
     }
 
     /**
-     * update user attribute after user attribute changed.
+     * update user attribute after user attribute changed, only the changed user attributes are saved
+     * unless all the user attributes are reset by switching user.
      */
-    public void updateUserAttribute() {
-        PreferencesUtil.updateUserAttribute(context.getSystem().getPreferences(), allUserAttributes);
+    public synchronized void updateUserAttribute() {
+        JSONObject allUserAttributes = userAttributes.getAttributes(true);
+        if (isUserAttributesReset) {
+            context.getSystem().getStateStore().saveUserAttributes(allUserAttributes);
+        } else {
+            context.getSystem().getStateStore().updateUserAttributes(allUserAttributes, changedUserAttributeNames);
+        }
+        isUserAttributesReset = false;
+        changedUserAttributeNames.clear();
     }
 
     /**
@@ -171,6 +210,17 @@ public class AnalyticsClient {
      * @throws IllegalArgumentException throws when fail to check the argument.
      */
     public AnalyticsEvent createEvent(String eventType) {
+        return createEvent(eventType, System.currentTimeMillis());
+    }
+
+    /**
+     * Create an event with the specified eventType and the time when it happened.
+     *
+     * @param eventType the type of event to create.
+     * @param timestamp the timestamp of the event in milliseconds.
+     * @return AnalyticsEvent.
+     */
+    public AnalyticsEvent createEvent(String eventType, long timestamp) {
         Event.EventError error = EventChecker.checkEventName(eventType);
         if (error.getErrorCode() > 0) {
             LOG.error(error.getErrorMessage());
@@ -180,15 +230,16 @@ public class AnalyticsClient {
             recordEvent(event);
             return null;
         }
-        return createAnalyticsEvent(eventType);
+        return createAnalyticsEvent(eventType, timestamp);
     }
 
     private AnalyticsEvent createAnalyticsEvent(String eventType) {
-        long timestamp = System.currentTimeMillis();
-        JSONObject eventUserAttribute =
-            eventType.equals(Event.PresetEvent.PROFILE_SET) ? allUserAttributes : simpleUserAttributes;
-        AnalyticsEvent event =
-            new AnalyticsEvent(eventType, globalAttributes, eventUserAttribute, timestamp, userUniqueId);
+        return createAnalyticsEvent(eventType, System.currentTimeMillis());
+    }
+
+    private AnalyticsEvent createAnalyticsEvent(String eventType, long timestamp) {
+        AnalyticsEvent event = new AnalyticsEvent(eventType, globalAttributes, userAttributes,
+            eventType.equals(Event.PresetEvent.PROFILE_SET), timestamp, userUniqueId);
         event.setDeviceId(this.context.getDeviceId());
         event.setAppId(context.getClickstreamConfiguration().getAppId());
         event.setSdkInfo(context.getSDKInfo());
@@ -198,23 +249,101 @@ public class AnalyticsClient {
         if (session != null) {
             event.setSession(session);
         }
-        DisplayMetrics dm = this.context.getApplicationContext().getResources().getDisplayMetrics();
-        if (dm != null) {
-            event.setHeightPixels(dm.heightPixels);
-            event.setWidthPixels(dm.widthPixels);
-        }
+        DeviceContextSnapshot snapshot = context.getSystem().getDeviceContext().getSnapshot();
+        event.setDeviceContextSnapshot(snapshot);
+        event.setHeightPixels(snapshot.getHeightPixels());
+        event.setWidthPixels(snapshot.getWidthPixels());
         return event;
     }
 
     /**
-     * Record event for AnalyticsEvent object.
+     * Record event for AnalyticsEvent object, the event is dropped if it repeats an event within
+     * {@link ClickstreamConfiguration#getDedupeWindow()}, or it is not sampled or exceeds the rate limits
+     * of {@link ClickstreamConfiguration#getEventLimits()}.
      *
      * @param event AnalyticsEvent object.
      */
     public void recordEvent(@NonNull AnalyticsEvent event) {
+        if (eventDeduplicator.isDuplicate(event) || !eventLimiter.isAllowed(event)) {
+            return;
+        }
         eventRecorder.recordEvent(event);
     }
 
+    /**
+     * Record the events in order in one transaction, each event is dropped as in
+     * {@link #recordEvent(AnalyticsEvent)}.
+     *
+     * @param events the list of AnalyticsEvent.
+     */
+    public void recordEvents(@NonNull List<AnalyticsEvent> events) {
+        final List<AnalyticsEvent> allowedEvents = new ArrayList<>(events.size());
+        for (AnalyticsEvent event : events) {
+            if (!eventDeduplicator.isDuplicate(event) && eventLimiter.isAllowed(event)) {
+                allowedEvents.add(event);
+            }
+        }
+        if (!allowedEvents.isEmpty()) {
+            eventRecorder.recordEvents(allowedEvents);
+        }
+    }
+
+    /**
+     * Prepare the crash journal for {@link #recordCrashEvent(AnalyticsEvent)}.
+     */
+    void openCrashJournal() {
+        if (crashJournal != null) {
+            crashJournal.open();
+        }
+    }
+
+    /**
+     * Record the event when the app crashes, the event is written into the crash journal in bounded time
+     * and imported into the event store on the next launch, or recorded normally if the journal is unavailable.
+     *
+     * @param event AnalyticsEvent object.
+     */
+    void recordCrashEvent(@NonNull AnalyticsEvent event) {
+        if (crashJournal == null || !crashJournal.append(event.toJSONString())) {
+            recordEvent(event);
+        }
+    }
+
+    /**
+     * import the events recorded in the crash journal in last launch with high priority and the time when
+     * they are recorded, the events which fail to be saved are kept in the journal for the next launch.
+     */
+    private void importCrashJournal() {
+        if (crashJournal == null) {
+            return;
+        }
+        List<String> crashEvents = crashJournal.readEvents();
+        if (crashEvents.isEmpty()) {
+            return;
+        }
+        List<String> failedEvents = new ArrayList<>();
+        for (String eventJson : crashEvents) {
+            if (eventRecorder.recordEvent(eventJson, Event.Priority.HIGH, getEventTimestamp(eventJson)) == null) {
+                failedEvents.add(eventJson);
+            }
+        }
+        crashJournal.clear();
+        for (String eventJson : failedEvents) {
+            crashJournal.append(eventJson);
+        }
+        LOG.debug("imported " + (crashEvents.size() - failedEvents.size()) + " events from crash journal");
+        eventRecorder.submitEvents();
+    }
+
+    private static long getEventTimestamp(String eventJson) {
+        try {
+            return new JSONObject(eventJson).getLong("timestamp");
+        } catch (JSONException exception) {
+            LOG.error("Failed to read the timestamp of crash event: " + exception.getMessage());
+            return System.currentTimeMillis();
+        }
+    }
+
     /**
      * Submit all recorded events
      * If the device is off line, this is a no-op. See
@@ -222,9 +351,84 @@ public class AnalyticsClient {
      * for customizing which Internet connection the SDK can submit on.
      */
     public void submitEvents() {
+        recordMetricSummary();
+        recordEventLimitSummary();
         eventRecorder.submitEvents();
     }
 
+    /**
+     * Spill the events kept in memory to the database, it is a no-op unless the memory event store is
+     * used with the spill enabled.
+     */
+    public void spillEvents() {
+        eventRecorder.spillEvents();
+    }
+
+    /**
+     * Release the upload lock in the multi process mode, so that another process uploads the events.
+     */
+    public void releaseUploadLock() {
+        eventRecorder.releaseUploadLock();
+    }
+
+    /**
+     * Record a metric value which is aggregated on device by the metric name and dimensions, the count, sum,
+     * min, max and histogram of the values are sent in the metric summary event when events are submitted,
+     * instead of an event for each value.
+     *
+     * @param name       the metric name.
+     * @param value      the finite metric value.
+     * @param dimensions the dimensions of the metric, can be null.
+     */
+    public void recordMetric(String name, double value, Map<String, Object> dimensions) {
+        Event.EventError error = EventChecker.checkEventName(name);
+        if (error.getErrorCode() > 0) {
+            LOG.error(error.getErrorMessage());
+            AnalyticsEvent event = createAnalyticsEvent(Event.PresetEvent.CLICKSTREAM_ERROR);
+            event.addAttribute(Event.ReservedAttribute.ERROR_CODE, error.getErrorCode());
+            event.addAttribute(Event.ReservedAttribute.ERROR_MESSAGE, error.getErrorMessage());
+            recordEvent(event);
+            return;
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            LOG.error("metric value must be finite, metric name: " + name);
+            return;
+        }
+        if (dimensions != null && dimensions.size() > Event.Limit.MAX_NUM_OF_METRIC_DIMENSIONS) {
+            LOG.error("metric dimension number exceeds the limit, metric name: " + name);
+            return;
+        }
+        metricAggregator.record(name, value, dimensions);
+    }
+
+    /**
+     * record the metrics aggregated since last submit, split into multiple events when they are too long.
+     */
+    private void recordMetricSummary() {
+        long startTimestamp = metricAggregator.getStartTimestamp();
+        for (String metrics : metricAggregator.drain()) {
+            AnalyticsEvent event = createAnalyticsEvent(Event.PresetEvent.METRIC_SUMMARY);
+            event.addAttribute(Event.ReservedAttribute.METRICS, metrics);
+            event.addAttribute(Event.ReservedAttribute.METRIC_START_TIMESTAMP, startTimestamp);
+            recordEvent(event);
+        }
+    }
+
+    /**
+     * record the counts of events dropped by rate limit and sampling since last submit.
+     */
+    private void recordEventLimitSummary() {
+        EventLimiter.Summary summary = eventLimiter.drainSummary();
+        if (summary == null) {
+            return;
+        }
+        AnalyticsEvent event = createAnalyticsEvent(Event.PresetEvent.EVENT_LIMIT_SUMMARY);
+        event.addAttribute(Event.ReservedAttribute.RATE_LIMITED_COUNT, summary.getRateLimitedCount());
+        event.addAttribute(Event.ReservedAttribute.SAMPLED_OUT_COUNT, summary.getSampledOutCount());
+        event.addAttribute(Event.ReservedAttribute.LIMITED_EVENTS, summary.getLimitedEvents());
+        recordEvent(event);
+    }
+
     /**
      * Sets the session.
      *
@@ -234,6 +438,15 @@ public class AnalyticsClient {
         this.session = session;
     }
 
+    /**
+     * get the metrics of the SDK.
+     *
+     * @return ClickstreamMetrics metrics.
+     */
+    public ClickstreamMetrics getMetrics() {
+        return this.context.getMetrics();
+    }
+
     /**
      * get clickstream configuration for dynamic modify.
      *
@@ -244,22 +457,20 @@ public class AnalyticsClient {
     }
 
     /**
-     * get simple user attribute from allUserAttributes.
-     *
-     * @return userAttribute
+     * init the user first touch timestamp attribute for the user who has no user attributes stored.
      */
-    private JSONObject getSimpleUserAttribute() {
-        JSONObject userAttribute = new JSONObject();
+    private void initUserFirstTouchTimestamp() {
+        long firstTouchTimestamp =
+            PreferencesUtil.getCurrentUserFirstTouchTimestamp(context.getSystem().getPreferences());
         try {
-            userAttribute.put(Event.ReservedAttribute.USER_FIRST_TOUCH_TIMESTAMP,
-                allUserAttributes.getJSONObject(Event.ReservedAttribute.USER_FIRST_TOUCH_TIMESTAMP));
-            if (allUserAttributes.has(Event.ReservedAttribute.USER_ID)) {
-                userAttribute.put(Event.ReservedAttribute.USER_ID,
-                    allUserAttributes.getJSONObject(Event.ReservedAttribute.USER_ID));
-            }
-        } catch (final JSONException jsonException) {
-            LOG.error("Could not create Json object of simpleUserAttribute. error: " + jsonException.getMessage());
+            JSONObject attribute = new JSONObject();
+            attribute.put("value", firstTouchTimestamp);
+            attribute.put("set_timestamp", firstTouchTimestamp);
+            userAttributes = userAttributes.with(Event.ReservedAttribute.USER_FIRST_TOUCH_TIMESTAMP, attribute);
+            changedUserAttributeNames.add(Event.ReservedAttribute.USER_FIRST_TOUCH_TIMESTAMP);
+            updateUserAttribute();
+        } catch (JSONException exception) {
+            LOG.error("Could not create Json object of user first touch timestamp. error: " + exception.getMessage());
         }
-        return userAttribute;
     }
 }
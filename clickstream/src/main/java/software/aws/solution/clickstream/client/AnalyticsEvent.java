@@ -26,12 +26,18 @@ import software.aws.solution.clickstream.ClickstreamItem;
 import software.aws.solution.clickstream.client.system.AndroidAppDetails;
 import software.aws.solution.clickstream.client.system.AndroidConnectivity;
 import software.aws.solution.clickstream.client.system.AndroidDeviceDetails;
+import software.aws.solution.clickstream.client.system.DeviceContextSnapshot;
+import software.aws.solution.clickstream.client.util.AttributeContainer;
 import software.aws.solution.clickstream.client.util.JSONBuilder;
 import software.aws.solution.clickstream.client.util.JSONSerializable;
 
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -46,42 +52,71 @@ public class AnalyticsEvent implements JSONSerializable {
     private final String eventType;
     private String sdkName;
     private String sdkVersion;
-    private final JSONObject attributes = new JSONObject();
-    private final JSONArray eventItems = new JSONArray();
-    private final JSONObject userAttributes;
+    private final GlobalAttributesSnapshot globalAttributes;
+    private final AttributeContainer attributes = new AttributeContainer();
+    private Set<String> removedGlobalAttributeNames;
+    private int numOfOverriddenGlobalAttributes;
+    private final List<AttributeContainer> eventItems = new ArrayList<>();
+    private final UserAttributesSnapshot userAttributes;
+    private final boolean isAllUserAttributes;
     private final Long timestamp;
     private final String uniqueId;
     private Session session;
     private AndroidAppDetails appDetails;
     private AndroidDeviceDetails deviceDetails;
     private AndroidConnectivity connectivity;
+    private DeviceContextSnapshot deviceContextSnapshot;
     private int heightPixels;
     private int widthPixels;
+    private Event.Priority priority;
 
     /**
      * The default constructor.
      *
-     * @param eventType        The eventType of the new event.
-     * @param globalAttributes A list of global attributes of the new event.
-     * @param userAttributes   A list of user attributes of the new event.
-     * @param timestamp        The timestamp of the new event.
-     * @param uniqueId         The uniqueId of the new event.
+     * @param eventType           The eventType of the new event.
+     * @param globalAttributes    The global attributes snapshot shared by the new event.
+     * @param userAttributes      The user attributes snapshot of the new event.
+     * @param isAllUserAttributes Whether to include all user attributes or only the user id and first touch.
+     * @param timestamp           The timestamp of the new event.
+     * @param uniqueId            The uniqueId of the new event.
      */
-    AnalyticsEvent(final String eventType, final Map<String, Object> globalAttributes,
-                   final JSONObject userAttributes, final long timestamp, final String uniqueId) {
-        this(UUID.randomUUID().toString(), eventType, globalAttributes, userAttributes, timestamp, uniqueId);
+    AnalyticsEvent(final String eventType, final GlobalAttributesSnapshot globalAttributes,
+                   final UserAttributesSnapshot userAttributes, final boolean isAllUserAttributes,
+                   final long timestamp, final String uniqueId) {
+        this(UUID.randomUUID().toString(), eventType, globalAttributes, userAttributes, isAllUserAttributes,
+            timestamp, uniqueId);
     }
 
-    private AnalyticsEvent(final String eventId, final String eventType, final Map<String, Object> globalAttributes,
-                           final JSONObject userAttributes, final long timestamp, final String uniqueId) {
+    private AnalyticsEvent(final String eventId, final String eventType,
+                           final GlobalAttributesSnapshot globalAttributes,
+                           final UserAttributesSnapshot userAttributes, final boolean isAllUserAttributes,
+                           final long timestamp, final String uniqueId) {
         this.eventId = eventId;
         this.timestamp = timestamp;
         this.uniqueId = uniqueId;
         this.eventType = eventType;
-        for (final Map.Entry<String, Object> kvp : globalAttributes.entrySet()) {
-            this.addGlobalAttribute(kvp.getKey(), kvp.getValue());
-        }
+        this.globalAttributes = globalAttributes;
         this.userAttributes = userAttributes;
+        this.isAllUserAttributes = isAllUserAttributes;
+        this.priority = Event.Priority.getDefault(eventType);
+    }
+
+    /**
+     * Get the priority of the event in storage and upload.
+     *
+     * @return The priority.
+     */
+    public Event.Priority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Set the priority of the event in storage and upload.
+     *
+     * @param priority The priority.
+     */
+    public void setPriority(@NonNull Event.Priority priority) {
+        this.priority = priority;
     }
 
     /**
@@ -121,13 +156,32 @@ public class AnalyticsEvent implements JSONSerializable {
         this.deviceDetails = deviceDetails;
     }
 
+    /**
+     * Setter for deviceContextSnapshot.
+     *
+     * @param deviceContextSnapshot The deviceContextSnapshot.
+     */
+    public void setDeviceContextSnapshot(DeviceContextSnapshot deviceContextSnapshot) {
+        this.deviceContextSnapshot = deviceContextSnapshot;
+    }
+
     /**
      * Getter for currentNumOfAttributes.
      *
      * @return currentNumOfAttributes AtomicInteger
      */
     public int getCurrentNumOfAttributes() {
-        return this.attributes.length();
+        return getNumOfVisibleGlobalAttributes() + attributes.length() - numOfOverriddenGlobalAttributes;
+    }
+
+    private int getNumOfVisibleGlobalAttributes() {
+        int numOfRemoved = removedGlobalAttributeNames == null ? 0 : removedGlobalAttributeNames.size();
+        return globalAttributes.size() - numOfRemoved;
+    }
+
+    private boolean isGlobalAttributeVisible(final String name) {
+        return globalAttributes.containsKey(name)
+            && (removedGlobalAttributeNames == null || !removedGlobalAttributeNames.contains(name));
     }
 
     /**
@@ -221,16 +275,67 @@ public class AnalyticsEvent implements JSONSerializable {
     }
 
     /**
-     * add global attribute and do not check the attribute.
+     * put the attribute of this event, which overrides the global attribute with the same name.
      *
      * @param name  The name of the attribute.
      * @param value The value of the attribute.
+     * @throws JSONException throws when the value is invalid.
      */
-    private void addGlobalAttribute(final String name, final Object value) {
-        try {
-            attributes.putOpt(name, value);
-        } catch (JSONException exception) {
-            LOG.error("error parsing json, error message:" + exception.getMessage());
+    private void putAttribute(final String name, final Object value) throws JSONException {
+        if (value == null) {
+            removeAttribute(name);
+            return;
+        }
+        overrideGlobalAttribute(name);
+        attributes.put(name, value);
+    }
+
+    /**
+     * put the long attribute of this event without boxing.
+     *
+     * @param name  The name of the attribute.
+     * @param value The value of the attribute.
+     */
+    private void putAttribute(final String name, final long value) {
+        overrideGlobalAttribute(name);
+        attributes.put(name, value);
+    }
+
+    /**
+     * put the int attribute of this event without boxing.
+     *
+     * @param name  The name of the attribute.
+     * @param value The value of the attribute.
+     */
+    private void putAttribute(final String name, final int value) {
+        overrideGlobalAttribute(name);
+        attributes.put(name, value);
+    }
+
+    private void overrideGlobalAttribute(final String name) {
+        if (!attributes.has(name) && globalAttributes.containsKey(name)) {
+            numOfOverriddenGlobalAttributes++;
+            if (removedGlobalAttributeNames != null) {
+                removedGlobalAttributeNames.remove(name);
+            }
+        }
+    }
+
+    /**
+     * remove the attribute of this event, including the global attribute with the same name.
+     *
+     * @param name The name of the attribute.
+     */
+    private void removeAttribute(final String name) {
+        boolean isGlobal = globalAttributes.containsKey(name);
+        if (attributes.remove(name) && isGlobal) {
+            numOfOverriddenGlobalAttributes--;
+        }
+        if (isGlobal) {
+            if (removedGlobalAttributeNames == null) {
+                removedGlobalAttributeNames = new HashSet<>();
+            }
+            removedGlobalAttributeNames.add(name);
         }
     }
 
@@ -253,18 +358,18 @@ public class AnalyticsEvent implements JSONSerializable {
             Event.EventError attributeError = EventChecker.checkAttribute(getCurrentNumOfAttributes(), name, value);
             try {
                 if (attributeError.getErrorCode() > 0) {
-                    if (!attributes.has(Event.ReservedAttribute.ERROR_CODE)) {
-                        attributes.putOpt(Event.ReservedAttribute.ERROR_CODE, attributeError.getErrorCode());
-                        attributes.putOpt(Event.ReservedAttribute.ERROR_MESSAGE, attributeError.getErrorMessage());
+                    if (!hasAttribute(Event.ReservedAttribute.ERROR_CODE)) {
+                        putAttribute(Event.ReservedAttribute.ERROR_CODE, attributeError.getErrorCode());
+                        putAttribute(Event.ReservedAttribute.ERROR_MESSAGE, attributeError.getErrorMessage());
                     }
                 } else {
-                    attributes.putOpt(name, value);
+                    putAttribute(name, value);
                 }
             } catch (JSONException exception) {
                 LOG.error("error parsing json, error message:" + exception.getMessage());
             }
         } else {
-            attributes.remove(name);
+            removeAttribute(name);
         }
     }
 
@@ -279,18 +384,18 @@ public class AnalyticsEvent implements JSONSerializable {
         }
         try {
             for (ClickstreamItem item : items) {
-                if (item.getAttributes().length() == 0) {
+                if (item.getAttributeContainer().length() == 0) {
                     return;
                 }
                 Event.EventError attributeError =
-                    EventChecker.checkItemAttribute(eventItems.length(), item);
+                    EventChecker.checkItemAttribute(eventItems.size(), item);
 
-                if (attributeError.getErrorCode() > 0 && !attributes.has(Event.ReservedAttribute.ERROR_CODE)) {
-                    attributes.putOpt(Event.ReservedAttribute.ERROR_CODE, attributeError.getErrorCode());
-                    attributes.putOpt(Event.ReservedAttribute.ERROR_MESSAGE, attributeError.getErrorMessage());
+                if (attributeError.getErrorCode() > 0 && !hasAttribute(Event.ReservedAttribute.ERROR_CODE)) {
+                    putAttribute(Event.ReservedAttribute.ERROR_CODE, attributeError.getErrorCode());
+                    putAttribute(Event.ReservedAttribute.ERROR_MESSAGE, attributeError.getErrorMessage());
                 }
                 if (attributeError.getErrorCode() == 0) {
-                    eventItems.put(item.getAttributes());
+                    eventItems.add(item.getAttributeContainer());
                 }
             }
         } catch (JSONException exception) {
@@ -308,12 +413,12 @@ public class AnalyticsEvent implements JSONSerializable {
     protected void addInternalAttribute(final String name, final Object value) {
         if (null != value) {
             try {
-                attributes.putOpt(name, value);
+                putAttribute(name, value);
             } catch (JSONException exception) {
                 LOG.error("error parsing json, error message:" + exception.getMessage());
             }
         } else {
-            attributes.remove(name);
+            removeAttribute(name);
         }
     }
 
@@ -328,7 +433,20 @@ public class AnalyticsEvent implements JSONSerializable {
         if (attributeName == null) {
             return false;
         }
-        return attributes.has(attributeName);
+        return attributes.has(attributeName) || isGlobalAttributeVisible(attributeName);
+    }
+
+    /**
+     * Returns the first error of the attributes and items which are not added to this {@link AnalyticsEvent}.
+     *
+     * @return the error, or the error with {@link Event.ErrorCode#NO_ERROR} if all of them are added.
+     */
+    public Event.EventError getAttributeError() {
+        if (!attributes.has(Event.ReservedAttribute.ERROR_CODE)) {
+            return new Event.EventError(Event.ErrorCode.NO_ERROR, null);
+        }
+        return new Event.EventError(attributes.optInt(Event.ReservedAttribute.ERROR_CODE),
+            attributes.optString(Event.ReservedAttribute.ERROR_MESSAGE));
     }
 
     /**
@@ -351,12 +469,14 @@ public class AnalyticsEvent implements JSONSerializable {
         if (name == null) {
             return null;
         }
-        try {
-            return attributes.getString(name);
-        } catch (JSONException exception) {
+        if (!attributes.has(name)) {
+            if (isGlobalAttributeVisible(name)) {
+                return String.valueOf(globalAttributes.get(name));
+            }
             LOG.warn("error to get attribute: " + name);
             return null;
         }
+        return attributes.optString(name);
     }
 
     /**
@@ -396,21 +516,78 @@ public class AnalyticsEvent implements JSONSerializable {
     }
 
     /**
-     * getAttributes.
+     * getAttributes, the attributes and the global attributes are merged into a new JSONObject.
      *
      * @return the attributes JSONObject.
      */
     public JSONObject getAttributes() {
-        return attributes;
+        if (getNumOfVisibleGlobalAttributes() == 0) {
+            return attributes.toJSONObject();
+        }
+        final JSONObject mergedAttributes = new JSONObject();
+        try {
+            for (final Map.Entry<String, Object> entry : globalAttributes.getAttributes().entrySet()) {
+                if (isGlobalAttributeVisible(entry.getKey())) {
+                    mergedAttributes.putOpt(entry.getKey(), entry.getValue());
+                }
+            }
+            for (int i = 0; i < attributes.length(); i++) {
+                mergedAttributes.putOpt(attributes.keyAt(i), attributes.valueAt(i));
+            }
+        } catch (JSONException exception) {
+            LOG.error("error parsing json, error message:" + exception.getMessage());
+        }
+        return mergedAttributes;
+    }
+
+    /**
+     * serialize the attributes, reuse the serialized global attributes snapshot
+     * when no global attribute is overridden or removed in this event.
+     *
+     * @return the JSON string of attributes.
+     */
+    String serializeAttributes() {
+        if (getNumOfVisibleGlobalAttributes() == 0) {
+            return attributes.toJSONString();
+        }
+        if (numOfOverriddenGlobalAttributes > 0 || getNumOfVisibleGlobalAttributes() != globalAttributes.size()) {
+            return getAttributes().toString();
+        }
+        final String globalJson = globalAttributes.toJSONString();
+        if (attributes.length() == 0) {
+            return globalJson;
+        }
+        final String eventJson = attributes.toJSONString();
+        return globalJson.substring(0, globalJson.length() - 1) + "," + eventJson.substring(1);
     }
 
     /**
      * Get event items.
      *
-     * @return the JSONArray of items.
+     * @return a new JSONArray of items.
      */
     public JSONArray getItems() {
-        return eventItems;
+        final JSONArray items = new JSONArray();
+        for (AttributeContainer item : eventItems) {
+            items.put(item.toJSONObject());
+        }
+        return items;
+    }
+
+    /**
+     * serialize the items without boxing the primitive values.
+     *
+     * @return the JSON string of items.
+     */
+    String serializeItems() {
+        final StringBuilder builder = new StringBuilder().append('[');
+        for (int i = 0; i < eventItems.size(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            eventItems.get(i).writeTo(builder);
+        }
+        return builder.append(']').toString();
     }
 
     /**
@@ -428,6 +605,9 @@ public class AnalyticsEvent implements JSONSerializable {
      * @return The zone offset.
      */
     public int getZoneOffset() {
+        if (deviceContextSnapshot != null) {
+            return deviceContextSnapshot.getZoneOffset();
+        }
         Calendar cal = Calendar.getInstance();
         return cal.get(Calendar.ZONE_OFFSET);
     }
@@ -455,11 +635,44 @@ public class AnalyticsEvent implements JSONSerializable {
      */
     @Override
     public JSONObject toJSONObject() {
-        final Locale locale = this.deviceDetails.locale();
-        final String localeString = locale != null ? locale.toString() : "UNKNOWN";
-        final String displayCountryString = locale != null ? locale.getDisplayCountry() : "UNKNOWN";
-        final String countryString = locale != null ? locale.getCountry() : "UNKNOWN";
-        final String languageString = locale != null ? locale.getLanguage() : "UNKNOWN";
+        final JSONBuilder builder = buildJSONWithoutUserAndAttributes();
+        builder.withAttribute("items", getItems());
+        builder.withAttribute("user", this.userAttributes.getAttributes(isAllUserAttributes));
+        builder.withAttribute("attributes", getAttributes());
+        return builder.toJSONObject();
+    }
+
+    /**
+     * Convert event to JSON string, which reuses the serialized user attributes and global attributes
+     * instead of copying them into every event.
+     *
+     * @return The JSON string of the event.
+     */
+    public String toJSONString() {
+        final String json = buildJSONWithoutUserAndAttributes().toJSONObject().toString();
+        return json.substring(0, json.length() - 1)
+            + ",\"items\":" + serializeItems()
+            + ",\"user\":" + userAttributes.toJSONString(isAllUserAttributes)
+            + ",\"attributes\":" + serializeAttributes() + "}";
+    }
+
+    private JSONBuilder buildJSONWithoutUserAndAttributes() {
+        final String localeString;
+        final String displayCountryString;
+        final String countryString;
+        final String languageString;
+        if (this.deviceContextSnapshot != null) {
+            localeString = this.deviceContextSnapshot.getLocale();
+            displayCountryString = this.deviceContextSnapshot.getDisplayCountry();
+            countryString = this.deviceContextSnapshot.getCountryCode();
+            languageString = this.deviceContextSnapshot.getLanguage();
+        } else {
+            final Locale locale = this.deviceDetails.locale();
+            localeString = locale != null ? locale.toString() : "UNKNOWN";
+            displayCountryString = locale != null ? locale.getDisplayCountry() : "UNKNOWN";
+            countryString = locale != null ? locale.getCountry() : "UNKNOWN";
+            languageString = locale != null ? locale.getLanguage() : "UNKNOWN";
+        }
         final String carrier = this.deviceDetails.carrier();
         final String carrierString = carrier != null ? carrier : "UNKNOWN";
 
@@ -514,10 +727,10 @@ public class AnalyticsEvent implements JSONSerializable {
         // ****************************************************
         if (session != null) {
             try {
-                attributes.put("_session_id", session.getSessionID());
-                attributes.put("_session_start_timestamp", session.getStartTime());
-                attributes.put("_session_duration", session.getSessionDuration().longValue());
-                attributes.put("_session_number", session.getSessionIndex());
+                putAttribute("_session_id", session.getSessionID());
+                putAttribute("_session_start_timestamp", session.getStartTime());
+                putAttribute("_session_duration", session.getSessionDuration().longValue());
+                putAttribute("_session_number", session.getSessionIndex());
             } catch (final JSONException jsonException) {
                 LOG.error("Error serializing session information " + jsonException.getMessage());
             }
@@ -527,8 +740,8 @@ public class AnalyticsEvent implements JSONSerializable {
         String screenUniqueId = ScreenRefererTool.getCurrentScreenUniqueId();
         if (screenName != null) {
             try {
-                attributes.put(Event.ReservedAttribute.SCREEN_NAME, screenName);
-                attributes.put(Event.ReservedAttribute.SCREEN_UNIQUE_ID, screenUniqueId);
+                putAttribute(Event.ReservedAttribute.SCREEN_NAME, screenName);
+                putAttribute(Event.ReservedAttribute.SCREEN_UNIQUE_ID, screenUniqueId);
             } catch (final JSONException jsonException) {
                 LOG.error("Error serializing session information " + jsonException.getMessage());
             }
@@ -547,9 +760,6 @@ public class AnalyticsEvent implements JSONSerializable {
         //builder.withAttribute("app_version_code", this.appDetails.versionCode());
         builder.withAttribute("app_package_name", this.appDetails.packageName());
         builder.withAttribute("app_title", this.appDetails.getAppTitle());
-        builder.withAttribute("items", this.eventItems);
-        builder.withAttribute("user", this.userAttributes);
-        builder.withAttribute("attributes", this.attributes);
-        return builder.toJSONObject();
+        return builder;
     }
 }
@@ -188,6 +188,7 @@ public class AutoRecordEventClient {
     public void flushEvents() {
         LOG.debug("App moves to background and start to flush events");
         this.clickstreamContext.getAnalyticsClient().submitEvents();
+        this.clickstreamContext.getAnalyticsClient().spillEvents();
     }
 
     /**
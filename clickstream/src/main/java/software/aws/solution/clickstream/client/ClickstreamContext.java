@@ -18,6 +18,7 @@ package software.aws.solution.clickstream.client;
 import android.content.Context;
 
 import software.aws.solution.clickstream.ClickstreamConfiguration;
+import software.aws.solution.clickstream.client.metrics.ClickstreamMetrics;
 import software.aws.solution.clickstream.client.system.AndroidSystem;
 import software.aws.solution.clickstream.client.uniqueid.SharedPrefsDeviceIdService;
 
@@ -56,6 +57,10 @@ public class ClickstreamContext implements Serializable {
      * The device unique ID.
      */
     private final String deviceId;
+    /**
+     * The metrics of the SDK.
+     */
+    private final transient ClickstreamMetrics metrics = new ClickstreamMetrics();
 
     /**
      * The constructor with parameters.
@@ -70,8 +75,10 @@ public class ClickstreamContext implements Serializable {
         this.sdkInfo = sdkInfo;
         this.clickstreamConfiguration = clickstreamConfiguration;
         this.applicationContext = applicationContext;
-        this.system = new AndroidSystem(applicationContext);
+        this.system = new AndroidSystem(applicationContext, metrics);
+        long start = System.nanoTime();
         this.deviceId = new SharedPrefsDeviceIdService().getDeviceId(this);
+        metrics.recordInitPhase(ClickstreamMetrics.INIT_PHASE_DEVICE_ID, System.nanoTime() - start);
     }
 
     /**
@@ -137,6 +144,15 @@ public class ClickstreamContext implements Serializable {
         return applicationContext;
     }
 
+    /**
+     * Get the metrics of the SDK.
+     *
+     * @return The metrics of the SDK.
+     */
+    public ClickstreamMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Get the system of Android.
      *
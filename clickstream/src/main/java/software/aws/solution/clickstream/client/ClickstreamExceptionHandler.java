@@ -30,7 +30,6 @@ import java.io.Writer;
 public final class ClickstreamExceptionHandler implements Thread.UncaughtExceptionHandler {
     private static final Log LOG = LogFactory.getLog(ClickstreamExceptionHandler.class);
     private static ClickstreamExceptionHandler handlerInstance;
-    private static final int SLEEP_TIMEOUT_MS = 500;
     private Thread.UncaughtExceptionHandler defaultExceptionHandler;
     private final ClickstreamContext clickstreamContext;
 
@@ -42,6 +41,7 @@ public final class ClickstreamExceptionHandler implements Thread.UncaughtExcepti
      * start listening the exception events.
      */
     public void startTrackException() {
+        clickstreamContext.getAnalyticsClient().openCrashJournal();
         defaultExceptionHandler = Thread.getDefaultUncaughtExceptionHandler();
         Thread.setDefaultUncaughtExceptionHandler(this);
     }
@@ -100,15 +100,12 @@ public final class ClickstreamExceptionHandler implements Thread.UncaughtExcepti
                     this.clickstreamContext.getAnalyticsClient().createEvent(Event.PresetEvent.APP_EXCEPTION);
                 event.addInternalAttribute("exception_message", exceptionMessage);
                 event.addInternalAttribute("exception_stack", exceptionStack);
-                this.clickstreamContext.getAnalyticsClient().recordEvent(event);
+                this.clickstreamContext.getAnalyticsClient().recordCrashEvent(event);
             }
 
-            this.clickstreamContext.getAnalyticsClient().submitEvents();
-            try {
-                Thread.sleep(SLEEP_TIMEOUT_MS);
-            } catch (InterruptedException exception) {
-                LOG.error("interrupted exception for sleep:", exception);
-            }
+            this.clickstreamContext.getSystem().getPreferences().commit();
+            // the delayed write of the session and user state does not survive the process.
+            this.clickstreamContext.getSystem().getStateStore().flush();
             if (defaultExceptionHandler != null) {
                 defaultExceptionHandler.uncaughtException(thread, throwable);
             } else {
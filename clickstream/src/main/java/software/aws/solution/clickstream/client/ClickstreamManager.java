@@ -26,6 +26,7 @@ import com.amazonaws.logging.LogFactory;
 import software.aws.solution.clickstream.AWSClickstreamPlugin;
 import software.aws.solution.clickstream.BuildConfig;
 import software.aws.solution.clickstream.ClickstreamConfiguration;
+import software.aws.solution.clickstream.client.metrics.ClickstreamMetrics;
 
 import java.util.Locale;
 import java.util.Map;
@@ -54,7 +55,10 @@ public class ClickstreamManager {
      */
     public ClickstreamManager(@NonNull Context appContext, @NonNull final ClickstreamConfiguration config) {
         try {
+            final long start = System.nanoTime();
             this.clickstreamContext = new ClickstreamContext(appContext, SDK_INFO, config);
+            final ClickstreamMetrics metrics = this.clickstreamContext.getMetrics();
+            final long clientsStart = System.nanoTime();
             this.analyticsClient = new AnalyticsClient(this.clickstreamContext);
             this.clickstreamContext.setAnalyticsClient(this.analyticsClient);
             this.sessionClient = new SessionClient(this.clickstreamContext);
@@ -64,11 +68,16 @@ public class ClickstreamManager {
                 exceptionHandler = ClickstreamExceptionHandler.init(this.clickstreamContext);
                 enableTrackAppException();
             }
+            final long presetEventsStart = System.nanoTime();
+            metrics.recordInitPhase(ClickstreamMetrics.INIT_PHASE_CLIENTS, presetEventsStart - clientsStart);
             setInitialGlobalAttributes(this.analyticsClient, config);
             LOG.debug(String.format(Locale.US,
                 "Clickstream SDK(%s) initialization successfully completed", BuildConfig.VERSION_NAME));
             this.autoRecordEventClient.handleAppStart();
             handleSessionStart();
+            final long end = System.nanoTime();
+            metrics.recordInitPhase(ClickstreamMetrics.INIT_PHASE_PRESET_EVENTS, end - presetEventsStart);
+            metrics.recordInitPhase(ClickstreamMetrics.INIT_PHASE_TOTAL, end - start);
         } catch (final RuntimeException runtimeException) {
             LOG.error(String.format(Locale.US,
                 "Cannot initialize Clickstream SDK %s", runtimeException.getMessage()));
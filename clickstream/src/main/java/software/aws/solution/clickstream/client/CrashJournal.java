@@ -0,0 +1,199 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The journal of the events recorded when the app crashes. The file is preallocated when the exception
+ * tracking starts, so that the crash handler only writes a record into it without SQLite or network,
+ * and the records are imported into the event store on the next launch.
+ * Each record is the length of the event json, the json in UTF-8 and the CRC32 of the json, a record
+ * with zero length or mismatched CRC ends the journal, which discards the record torn by the crash.
+ * The journal is opened for the exception tracking only, reading and clearing it does not create the file.
+ */
+final class CrashJournal {
+    static final String FILE_NAME = "clickstream_crash_journal";
+    private static final Log LOG = LogFactory.getLog(CrashJournal.class);
+    private static final int JOURNAL_SIZE = 128 * 1024;
+    private static final int HEADER_SIZE = 4;
+    private static final int CRC_SIZE = 4;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private final File file;
+    private RandomAccessFile journal;
+    private int writeOffset;
+
+    /**
+     * The construct function with the journal file.
+     *
+     * @param file the journal file.
+     */
+    CrashJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Open the journal and preallocate the file, and find the end of the records.
+     *
+     * @return true if the journal is ready for appending.
+     */
+    synchronized boolean open() {
+        if (journal != null) {
+            return true;
+        }
+        try {
+            journal = new RandomAccessFile(file, "rw");
+            if (journal.length() < JOURNAL_SIZE) {
+                journal.setLength(JOURNAL_SIZE);
+            }
+            writeOffset = 0;
+            byte[] payload;
+            while ((payload = readRecord(writeOffset)) != null) {
+                writeOffset += HEADER_SIZE + payload.length + CRC_SIZE;
+            }
+            return true;
+        } catch (IOException exception) {
+            LOG.error("Failed to open crash journal: " + exception.getMessage());
+            close();
+            return false;
+        }
+    }
+
+    /**
+     * Append the event json to the journal and sync it to the disk.
+     *
+     * @param eventJson the event json.
+     * @return true if the event is written, false if the journal is not opened or full.
+     */
+    synchronized boolean append(String eventJson) {
+        if (journal == null) {
+            return false;
+        }
+        byte[] payload = eventJson.getBytes(UTF_8);
+        int recordSize = HEADER_SIZE + payload.length + CRC_SIZE;
+        if (writeOffset + recordSize > JOURNAL_SIZE) {
+            LOG.error("crash journal is full, the event size: " + payload.length);
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        // end the journal after the record, so that the stale records left before clear are not read.
+        boolean hasTerminator = writeOffset + recordSize + HEADER_SIZE <= JOURNAL_SIZE;
+        ByteBuffer record = ByteBuffer.allocate(recordSize + (hasTerminator ? HEADER_SIZE : 0));
+        record.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+        try {
+            journal.seek(writeOffset);
+            journal.write(record.array());
+            journal.getFD().sync();
+            writeOffset += recordSize;
+            return true;
+        } catch (IOException exception) {
+            LOG.error("Failed to append crash journal: " + exception.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Read the event json of all the complete records.
+     *
+     * @return the list of event json, empty if the journal does not exist.
+     */
+    synchronized List<String> readEvents() {
+        List<String> events = new ArrayList<>();
+        if (!file.exists() || !open()) {
+            return events;
+        }
+        try {
+            int offset = 0;
+            byte[] payload;
+            while ((payload = readRecord(offset)) != null) {
+                events.add(new String(payload, UTF_8));
+                offset += HEADER_SIZE + payload.length + CRC_SIZE;
+            }
+        } catch (IOException exception) {
+            LOG.error("Failed to read crash journal: " + exception.getMessage());
+        }
+        return events;
+    }
+
+    /**
+     * Remove all the records, the file is kept for the next crash.
+     */
+    synchronized void clear() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.seek(0);
+            journal.writeInt(0);
+            journal.getFD().sync();
+            writeOffset = 0;
+        } catch (IOException exception) {
+            LOG.error("Failed to clear crash journal: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Close the journal file.
+     */
+    synchronized void close() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException exception) {
+            LOG.error("Failed to close crash journal: " + exception.getMessage());
+        }
+        journal = null;
+    }
+
+    /**
+     * Read the record at the offset.
+     *
+     * @param offset the offset of the record.
+     * @return the event json in UTF-8, or null if there is no complete record at the offset.
+     * @throws IOException when failed to read the file.
+     */
+    private byte[] readRecord(int offset) throws IOException {
+        if (offset + HEADER_SIZE + CRC_SIZE > JOURNAL_SIZE) {
+            return null;
+        }
+        journal.seek(offset);
+        int length = journal.readInt();
+        if (length <= 0 || offset + HEADER_SIZE + length + CRC_SIZE > JOURNAL_SIZE) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        journal.readFully(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if (journal.readInt() != (int) crc.getValue()) {
+            return null;
+        }
+        return payload;
+    }
+}
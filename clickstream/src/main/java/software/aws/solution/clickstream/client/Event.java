@@ -70,6 +70,16 @@ public final class Event {
          */
         public static final int MAX_NUM_OF_CUSTOM_ITEM_ATTRIBUTE = 10;
 
+        /**
+         * max limit of metric series number aggregated in one interval.
+         */
+        public static final int MAX_NUM_OF_METRIC_SERIES = 100;
+
+        /**
+         * max limit of dimension number in one metric.
+         */
+        public static final int MAX_NUM_OF_METRIC_DIMENSIONS = 10;
+
         private Limit() {
         }
     }
@@ -283,11 +293,94 @@ public final class Event {
          * is the error message attribute.
          */
         public static final String ERROR_MESSAGE = "_error_message";
+        /**
+         * the number of events dropped by rate limit.
+         */
+        public static final String RATE_LIMITED_COUNT = "_rate_limited_count";
+        /**
+         * the number of events dropped by sampling.
+         */
+        public static final String SAMPLED_OUT_COUNT = "_sampled_out_count";
+        /**
+         * the counts of limited events by event name in {name:[rate limited, sampled out]} format.
+         */
+        public static final String LIMITED_EVENTS = "_limited_events";
+        /**
+         * the aggregated metrics in [{name, dimensions, count, sum, min, max, histogram}] format.
+         */
+        public static final String METRICS = "_metrics";
+        /**
+         * the timestamp when the first metric value of the summary is recorded.
+         */
+        public static final String METRIC_START_TIMESTAMP = "_metric_start_timestamp";
 
         private ReservedAttribute() {
         }
     }
 
+    /**
+     * the priority of event in storage and upload, the events with higher priority are uploaded first
+     * and the events with lower priority are evicted first when the storage exceeds the limit.
+     */
+    public enum Priority {
+        /**
+         * low priority for the frequent events which can be lost.
+         */
+        LOW(0),
+        /**
+         * normal priority, the default priority of custom events.
+         */
+        NORMAL(1),
+        /**
+         * high priority for the critical events.
+         */
+        HIGH(2);
+
+        private final int value;
+
+        /**
+         * The constructor.
+         *
+         * @param value The value stored in database.
+         */
+        Priority(final int value) {
+            this.value = value;
+        }
+
+        /**
+         * Get the value stored in database.
+         *
+         * @return The value.
+         */
+        public int getValue() {
+            return value;
+        }
+
+        /**
+         * Get the default priority of the event.
+         *
+         * @param eventType the event name.
+         * @return HIGH for app exception, first open, profile set and version updates, LOW for user engagement
+         * and SDK diagnostic events, otherwise NORMAL.
+         */
+        public static Priority getDefault(String eventType) {
+            switch (eventType) {
+                case PresetEvent.APP_EXCEPTION:
+                case PresetEvent.FIRST_OPEN:
+                case PresetEvent.PROFILE_SET:
+                case PresetEvent.APP_UPDATE:
+                case PresetEvent.OS_UPDATE:
+                    return HIGH;
+                case PresetEvent.USER_ENGAGEMENT:
+                case PresetEvent.CLICKSTREAM_ERROR:
+                case PresetEvent.EVENT_LIMIT_SUMMARY:
+                    return LOW;
+                default:
+                    return NORMAL;
+            }
+        }
+    }
+
     /**
      * preset event for Clickstream.
      */
@@ -347,6 +440,16 @@ public final class Event {
          */
         public static final String CLICKSTREAM_ERROR = "_clickstream_error";
 
+        /**
+         * the summary event of the events dropped by rate limit and sampling.
+         */
+        public static final String EVENT_LIMIT_SUMMARY = "_event_limit_summary";
+
+        /**
+         * the summary event of the metrics aggregated on device.
+         */
+        public static final String METRIC_SUMMARY = "_metric_summary";
+
         private PresetEvent() {
         }
     }
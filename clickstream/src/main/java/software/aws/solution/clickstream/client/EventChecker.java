@@ -17,16 +17,15 @@ package software.aws.solution.clickstream.client;
 
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
-import org.json.JSONException;
 import software.aws.solution.clickstream.ClickstreamAnalytics;
 import software.aws.solution.clickstream.ClickstreamItem;
 import software.aws.solution.clickstream.client.Event.ErrorCode;
 import software.aws.solution.clickstream.client.Event.EventError;
 import software.aws.solution.clickstream.client.Event.Limit;
+import software.aws.solution.clickstream.client.util.AttributeContainer;
 import software.aws.solution.clickstream.client.util.StringUtil;
 
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -185,7 +184,7 @@ public final class EventChecker {
             initItemKeySet();
         }
         if (currentNumber >= Event.Limit.MAX_NUM_OF_ITEMS) {
-            String itemKey = item.getAttributes().toString();
+            String itemKey = item.getAttributeContainer().toJSONString();
             String errorMsg = "reached the max number of items limit" + Event.Limit.MAX_NUM_OF_ITEMS +
                 ". and the item: " + itemKey + " will not be recorded";
             LOG.warn(errorMsg);
@@ -193,18 +192,13 @@ public final class EventChecker {
                 Limit.MAX_LENGTH_OF_ERROR_VALUE, true));
         }
         int customKeyNumber = 0;
-        Iterator<String> keys = item.getAttributes().keys();
+        AttributeContainer attributes = item.getAttributeContainer();
         EventError error = new EventError();
         error.setErrorCode(ErrorCode.NO_ERROR);
         String errorMsg = null;
-        while (keys.hasNext()) {
-            String key = keys.next();
-            String valueStr = "";
-            try {
-                valueStr = item.getAttributes().get(key).toString();
-            } catch (JSONException exception) {
-                LOG.warn("error getting item value for key: " + key + ", error message: " + exception.getMessage());
-            }
+        for (int i = 0; i < attributes.length(); i++) {
+            String key = attributes.keyAt(i);
+            String valueStr = String.valueOf(attributes.valueAt(i));
             if (!itemKeySet.contains(key)) {
                 customKeyNumber += 1;
                 if (customKeyNumber > Limit.MAX_NUM_OF_CUSTOM_ITEM_ATTRIBUTE) {
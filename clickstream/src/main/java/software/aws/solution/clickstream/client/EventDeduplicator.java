@@ -0,0 +1,114 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client;
+
+import software.aws.solution.clickstream.ClickstreamConfiguration;
+import software.aws.solution.clickstream.client.metrics.ClickstreamMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drop the repeated events which have the same event name, attributes and items within the dedupe window
+ * of the configuration. The fingerprints of recent events are kept in a fixed size table indexed by the
+ * fingerprint, so the memory is constant: a newer fingerprint overwrites the older one in the same slot,
+ * which only lets a repeated event through, and two different events are treated as the same only when
+ * their 64 bit fingerprints collide. Only the custom events are deduped, the preset events whose names start
+ * with "_" are recorded by the SDK itself and repeat legitimately, such as the app end and app start events
+ * of a quick background and foreground cycle.
+ */
+final class EventDeduplicator {
+    private static final int SLOT_COUNT = 1024;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final int HIGH_BITS_SHIFT = 32;
+    private static final String PRESET_EVENT_PREFIX = "_";
+    private final ClickstreamConfiguration configuration;
+    private final ClickstreamMetrics metrics;
+    private final long[] fingerprints = new long[SLOT_COUNT];
+    private final long[] recordNanos = new long[SLOT_COUNT];
+
+    /**
+     * The construct function with configuration and metrics.
+     *
+     * @param configuration the configuration which the dedupe window is read from.
+     * @param metrics       the metrics to count the suppressed events.
+     */
+    EventDeduplicator(ClickstreamConfiguration configuration, ClickstreamMetrics metrics) {
+        this.configuration = configuration;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Determines if the event repeats an event recorded within the dedupe window.
+     *
+     * @param event the event to record.
+     * @return true if the event should be dropped.
+     */
+    boolean isDuplicate(AnalyticsEvent event) {
+        return isDuplicate(event, System.nanoTime());
+    }
+
+    /**
+     * Determines if the event repeats an event recorded within the dedupe window at the time.
+     *
+     * @param event    the event to record.
+     * @param nowNanos the current time from {@link System#nanoTime()}.
+     * @return true if the event should be dropped.
+     */
+    boolean isDuplicate(AnalyticsEvent event, long nowNanos) {
+        long dedupeWindow = configuration.getDedupeWindow();
+        if (dedupeWindow <= 0 || event.getEventType().startsWith(PRESET_EVENT_PREFIX)) {
+            return false;
+        }
+        long fingerprint = getFingerprint(event);
+        int slot = (int) ((fingerprint ^ (fingerprint >>> HIGH_BITS_SHIFT)) & (SLOT_COUNT - 1));
+        synchronized (this) {
+            if (fingerprints[slot] == fingerprint
+                && nowNanos - recordNanos[slot] < TimeUnit.MILLISECONDS.toNanos(dedupeWindow)) {
+                metrics.incrementEventsDeduplicated();
+                return true;
+            }
+            fingerprints[slot] = fingerprint;
+            recordNanos[slot] = nowNanos;
+        }
+        return false;
+    }
+
+    /**
+     * Get the 64 bit FNV-1a hash of the event name, attributes and items, 0 is reserved for the empty slot.
+     *
+     * @param event the event.
+     * @return the fingerprint.
+     */
+    static long getFingerprint(AnalyticsEvent event) {
+        long hash = hash(FNV_OFFSET_BASIS, event.getEventType());
+        hash = hash(hash, event.serializeAttributes());
+        hash = hash(hash, event.serializeItems());
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static long hash(long hash, String value) {
+        long result = hash;
+        for (int i = 0; i < value.length(); i++) {
+            result ^= value.charAt(i);
+            result *= FNV_PRIME;
+        }
+        // separate the fields so that moving characters between them changes the fingerprint.
+        result ^= value.length();
+        result *= FNV_PRIME;
+        return result;
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import software.aws.solution.clickstream.ClickstreamConfiguration;
+import software.aws.solution.clickstream.ClickstreamEventLimits;
+import software.aws.solution.clickstream.client.metrics.ClickstreamMetrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drop the events which are not sampled or exceed the rate limits before they are serialized and stored,
+ * the limits are read from {@link ClickstreamEventLimits} of the configuration and the dropped events are
+ * counted by event name until they are reported in the summary event.
+ */
+final class EventLimiter {
+    private static final Log LOG = LogFactory.getLog(EventLimiter.class);
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final int FRACTION_SHIFT = 11;
+    private static final double FRACTION_UNIT = 0x1.0p-53;
+    private static final String PRESET_EVENT_PREFIX = "_";
+    private final ClickstreamConfiguration configuration;
+    private final ClickstreamMetrics metrics;
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private volatile Rules rules = Rules.NONE;
+
+    /**
+     * The construct function with configuration and metrics.
+     *
+     * @param configuration the configuration which the event limits are read from.
+     * @param metrics       the metrics to count the dropped events.
+     */
+    EventLimiter(ClickstreamConfiguration configuration, ClickstreamMetrics metrics) {
+        this.configuration = configuration;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Determines if the event should be recorded.
+     *
+     * @param event the event to record.
+     * @return true if the event is allowed.
+     */
+    boolean isAllowed(AnalyticsEvent event) {
+        return isAllowed(event, System.nanoTime());
+    }
+
+    /**
+     * Determines if the event should be recorded at the time. The global rate limit does not apply to
+     * the preset events whose names start with "_" and the events of high priority.
+     *
+     * @param event    the event to record.
+     * @param nowNanos the current time from {@link System#nanoTime()}.
+     * @return true if the event is allowed.
+     */
+    boolean isAllowed(AnalyticsEvent event, long nowNanos) {
+        String eventType = event.getEventType();
+        Rules currentRules = getRules(nowNanos);
+        if (currentRules == Rules.NONE || Event.PresetEvent.EVENT_LIMIT_SUMMARY.equals(eventType)
+            || Event.PresetEvent.METRIC_SUMMARY.equals(eventType)) {
+            return true;
+        }
+        Double samplingRate = currentRules.samplingRates.get(eventType);
+        if (samplingRate != null && !isSampled(getSamplingKey(event), samplingRate)) {
+            getCounter(eventType).sampledOut.incrementAndGet();
+            metrics.incrementEventsSampledOut();
+            return false;
+        }
+        TokenBucket bucket = currentRules.buckets.get(eventType);
+        TokenBucket globalBucket = eventType.startsWith(PRESET_EVENT_PREFIX)
+            || event.getPriority() == Event.Priority.HIGH ? null : currentRules.globalBucket;
+        if (!currentRules.tryAcquire(bucket, globalBucket, nowNanos)) {
+            getCounter(eventType).rateLimited.incrementAndGet();
+            metrics.incrementEventsRateLimited();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the key of the sampling decision, the user unique id or the device id with the event name, so the
+     * events of a name from the same user are either all kept or all dropped.
+     *
+     * @param event the event.
+     * @return the sampling key.
+     */
+    static String getSamplingKey(AnalyticsEvent event) {
+        String userKey = event.getUniqueId() != null ? event.getUniqueId() : event.getDeviceId();
+        return userKey + ":" + event.getEventType();
+    }
+
+    private Rules getRules(long nowNanos) {
+        Rules currentRules = rules;
+        ClickstreamEventLimits eventLimits = configuration.getEventLimits();
+        if (currentRules.eventLimits != eventLimits) {
+            synchronized (this) {
+                currentRules = rules;
+                if (currentRules.eventLimits != eventLimits) {
+                    currentRules = eventLimits == null ? Rules.NONE : new Rules(eventLimits, nowNanos);
+                    rules = currentRules;
+                }
+            }
+        }
+        return currentRules;
+    }
+
+    private Counter getCounter(String eventType) {
+        Counter counter = counters.get(eventType);
+        if (counter == null) {
+            counter = new Counter();
+            Counter existing = counters.putIfAbsent(eventType, counter);
+            if (existing != null) {
+                counter = existing;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Deterministic sampling by the hash of the sampling key, the same key always gets the same decision.
+     *
+     * @param samplingKey  the sampling key from {@link #getSamplingKey(AnalyticsEvent)}.
+     * @param samplingRate the ratio of events to keep.
+     * @return true if the event is sampled.
+     */
+    static boolean isSampled(String samplingKey, double samplingRate) {
+        if (samplingRate >= 1) {
+            return true;
+        }
+        if (samplingRate <= 0 || samplingKey == null) {
+            return false;
+        }
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < samplingKey.length(); i++) {
+            hash ^= samplingKey.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return (hash >>> FRACTION_SHIFT) * FRACTION_UNIT < samplingRate;
+    }
+
+    /**
+     * Take the counts of dropped events since last summary and reset them.
+     *
+     * @return the summary, or null if no event is dropped.
+     */
+    Summary drainSummary() {
+        long rateLimitedCount = 0;
+        long sampledOutCount = 0;
+        JSONObject limitedEvents = new JSONObject();
+        int detailsLength = 2;
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            long rateLimited = entry.getValue().rateLimited.getAndSet(0);
+            long sampledOut = entry.getValue().sampledOut.getAndSet(0);
+            if (rateLimited == 0 && sampledOut == 0) {
+                continue;
+            }
+            rateLimitedCount += rateLimited;
+            sampledOutCount += sampledOut;
+            String counts = "[" + rateLimited + "," + sampledOut + "]";
+            int entryLength = JSONObject.quote(entry.getKey()).length() + counts.length() + 2;
+            if (detailsLength + entryLength > Event.Limit.MAX_LENGTH_OF_VALUE) {
+                continue;
+            }
+            try {
+                limitedEvents.put(entry.getKey(), new JSONArray().put(rateLimited).put(sampledOut));
+                detailsLength += entryLength;
+            } catch (final JSONException jsonException) {
+                LOG.error("Could not create limited events summary. error: " + jsonException.getMessage());
+            }
+        }
+        if (rateLimitedCount == 0 && sampledOutCount == 0) {
+            return null;
+        }
+        return new Summary(rateLimitedCount, sampledOutCount, limitedEvents.toString());
+    }
+
+    /**
+     * The counts of events dropped since last summary.
+     */
+    static final class Summary {
+        private final long rateLimitedCount;
+        private final long sampledOutCount;
+        private final String limitedEvents;
+
+        private Summary(long rateLimitedCount, long sampledOutCount, String limitedEvents) {
+            this.rateLimitedCount = rateLimitedCount;
+            this.sampledOutCount = sampledOutCount;
+            this.limitedEvents = limitedEvents;
+        }
+
+        /**
+         * Get the number of events dropped by rate limit.
+         *
+         * @return the number of events.
+         */
+        long getRateLimitedCount() {
+            return rateLimitedCount;
+        }
+
+        /**
+         * Get the number of events dropped by sampling.
+         *
+         * @return the number of events.
+         */
+        long getSampledOutCount() {
+            return sampledOutCount;
+        }
+
+        /**
+         * Get the counts by event name.
+         *
+         * @return the JSON string in {name:[rate limited, sampled out]} format.
+         */
+        String getLimitedEvents() {
+            return limitedEvents;
+        }
+    }
+
+    /**
+     * The counts of dropped events of an event name.
+     */
+    private static final class Counter {
+        private final AtomicLong rateLimited = new AtomicLong();
+        private final AtomicLong sampledOut = new AtomicLong();
+    }
+
+    /**
+     * The token buckets and sampling rates created from the event limits.
+     */
+    private static final class Rules {
+        private static final Rules NONE = new Rules();
+        private final ClickstreamEventLimits eventLimits;
+        private final TokenBucket globalBucket;
+        private final Map<String, TokenBucket> buckets;
+        private final Map<String, Double> samplingRates;
+
+        private Rules() {
+            this.eventLimits = null;
+            this.globalBucket = null;
+            this.buckets = Collections.emptyMap();
+            this.samplingRates = Collections.emptyMap();
+        }
+
+        private Rules(ClickstreamEventLimits eventLimits, long nowNanos) {
+            this.eventLimits = eventLimits;
+            this.globalBucket = eventLimits.getGlobalRateLimit() == null ? null :
+                new TokenBucket(eventLimits.getGlobalRateLimit(), nowNanos);
+            Map<String, TokenBucket> newBuckets = new HashMap<>();
+            for (Map.Entry<String, ClickstreamEventLimits.RateLimit> entry : eventLimits.getRateLimits().entrySet()) {
+                newBuckets.put(entry.getKey(), new TokenBucket(entry.getValue(), nowNanos));
+            }
+            this.buckets = newBuckets;
+            this.samplingRates = eventLimits.getSamplingRates();
+        }
+
+        /**
+         * Take a token from each of the buckets only when all of them have one, so an event dropped by one
+         * bucket does not use up the token of the other.
+         *
+         * @param bucket       the bucket of the event name, or null if not limited.
+         * @param globalBucket the global bucket, or null if not limited.
+         * @param nowNanos     the current time from {@link System#nanoTime()}.
+         * @return true if the tokens are taken.
+         */
+        private synchronized boolean tryAcquire(TokenBucket bucket, TokenBucket globalBucket, long nowNanos) {
+            if ((bucket != null && !bucket.hasToken(nowNanos))
+                || (globalBucket != null && !globalBucket.hasToken(nowNanos))) {
+                return false;
+            }
+            if (bucket != null) {
+                bucket.tryAcquire(nowNanos);
+            }
+            if (globalBucket != null) {
+                globalBucket.tryAcquire(nowNanos);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Token bucket which starts full and refills continuously at the rate until the burst capacity.
+     */
+    static final class TokenBucket {
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long lastRefillNanos;
+
+        /**
+         * The construct function with the rate limit.
+         *
+         * @param rateLimit the rate limit.
+         * @param nowNanos  the current time from {@link System#nanoTime()}.
+         */
+        TokenBucket(ClickstreamEventLimits.RateLimit rateLimit, long nowNanos) {
+            this.capacity = rateLimit.getBurst();
+            this.tokensPerNano = rateLimit.getEventsPerSecond() / TimeUnit.SECONDS.toNanos(1);
+            this.tokens = capacity;
+            this.lastRefillNanos = nowNanos;
+        }
+
+        /**
+         * Determines if a token is available without taking it.
+         *
+         * @param nowNanos the current time from {@link System#nanoTime()}.
+         * @return true if a token is available.
+         */
+        synchronized boolean hasToken(long nowNanos) {
+            refill(nowNanos);
+            return tokens >= 1;
+        }
+
+        /**
+         * Take a token if available.
+         *
+         * @param nowNanos the current time from {@link System#nanoTime()}.
+         * @return true if a token is taken.
+         */
+        synchronized boolean tryAcquire(long nowNanos) {
+            refill(nowNanos);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+
+        private void refill(long nowNanos) {
+            if (nowNanos > lastRefillNanos) {
+                tokens = Math.min(capacity, tokens + (nowNanos - lastRefillNanos) * tokensPerNano);
+                lastRefillNanos = nowNanos;
+            }
+        }
+    }
+}
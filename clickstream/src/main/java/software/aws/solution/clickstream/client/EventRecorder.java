@@ -15,6 +15,8 @@
 
 package software.aws.solution.clickstream.client;
 
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
 import android.database.Cursor;
 import android.net.Uri;
 import androidx.annotation.NonNull;
@@ -22,11 +24,16 @@ import androidx.annotation.NonNull;
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 import software.aws.solution.clickstream.client.db.ClickstreamDBUtil;
+import software.aws.solution.clickstream.client.db.EventStore;
 import software.aws.solution.clickstream.client.db.EventTable;
+import software.aws.solution.clickstream.client.db.MemoryEventStore;
+import software.aws.solution.clickstream.client.metrics.ClickstreamMetrics;
 import software.aws.solution.clickstream.client.network.NetRequest;
 import software.aws.solution.clickstream.client.network.NetUtil;
 import software.aws.solution.clickstream.client.util.StringUtil;
 
+import java.io.File;
+import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -44,15 +51,25 @@ public class EventRecorder {
     private static final int QUERY_OLDEST_EVENT_LIMIT = 5;
     private static final long DEFAULT_MAX_SUBMISSION_SIZE = 512 * 1024;
     private static final long DEFAULT_MAX_DB_SIZE = 50 * 1024 * 1024;
+    private static final int MEMORY_STORE_CAPACITY = 1000;
+    private static final long MAX_MEMORY_STORE_SIZE = 5 * 1024 * 1024;
+    private static final long FREE_PAGE_THRESHOLD = 256;
     private static final Log LOG = LogFactory.getLog(EventRecorder.class);
 
     private static final int JSON_COLUMN_INDEX = EventTable.ColumnIndex.JSON.getValue();
     private static final int ID_COLUMN_INDEX = EventTable.ColumnIndex.ID.getValue();
     private static final int SIZE_COLUMN_INDEX = EventTable.ColumnIndex.SIZE.getValue();
+    private static final int PRIORITY_COLUMN_INDEX = EventTable.ColumnIndex.PRIORITY.getValue();
+    private static final int TIMESTAMP_COLUMN_INDEX = EventTable.ColumnIndex.TIMESTAMP.getValue();
 
     private final ClickstreamContext clickstreamContext;
     private final ClickstreamDBUtil dbUtil;
+    private final EventStore eventStore;
+    private final MemoryEventStore memoryStore;
+    private final boolean isSpillToDisk;
     private final ExecutorService submissionRunnableQueue;
+    private final ClickstreamMetrics metrics;
+    private final UploadLock uploadLock;
     private int bundleSequenceId;
 
     EventRecorder(final ClickstreamContext clickstreamContext, final ClickstreamDBUtil dbUtil,
@@ -60,7 +77,17 @@ public class EventRecorder {
         this.clickstreamContext = clickstreamContext;
         this.dbUtil = dbUtil;
         this.submissionRunnableQueue = submissionRunnableQueue;
+        this.metrics = clickstreamContext.getMetrics();
+        this.uploadLock = isMultiProcess(clickstreamContext) ? new UploadLock(
+            new File(clickstreamContext.getApplicationContext().getFilesDir(), UploadLock.FILE_NAME)) : null;
         this.bundleSequenceId = clickstreamContext.getSystem().getPreferences().getInt(KEY_BUNDLE_SEQUENCE_ID_PREF, 1);
+        this.memoryStore = isMemoryEventStore(clickstreamContext) ?
+            new MemoryEventStore(MEMORY_STORE_CAPACITY, metrics) : null;
+        this.eventStore = memoryStore != null ? memoryStore : dbUtil;
+        this.isSpillToDisk = memoryStore != null && isSpillEventsToDisk(clickstreamContext);
+        if (isSpillToDisk) {
+            clickstreamContext.getApplicationContext().registerComponentCallbacks(new MemoryPressureCallbacks());
+        }
     }
 
     /**
@@ -73,9 +100,19 @@ public class EventRecorder {
         final ExecutorService submissionRunnableQueue =
             new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(MAX_EVENT_OPERATIONS),
                 new ThreadPoolExecutor.DiscardPolicy());
-        return new EventRecorder(clickstreamContext,
-            new ClickstreamDBUtil(clickstreamContext.getApplicationContext().getApplicationContext()),
-            submissionRunnableQueue);
+        final long start = System.nanoTime();
+        final ClickstreamDBUtil dbUtil = new ClickstreamDBUtil(
+            clickstreamContext.getApplicationContext().getApplicationContext(), isMultiProcess(clickstreamContext));
+        // open the database and create or upgrade the table when initializing, instead of the first record,
+        // the database is not used by the memory event store unless the events are spilled to it.
+        if (!isMemoryEventStore(clickstreamContext)) {
+            clickstreamContext.getMetrics().setStoreSizeBytes(dbUtil.getTotalSize());
+        } else if (isSpillEventsToDisk(clickstreamContext)) {
+            dbUtil.getTotalSize();
+        }
+        clickstreamContext.getMetrics().recordInitPhase(ClickstreamMetrics.INIT_PHASE_DB_OPEN,
+            System.nanoTime() - start);
+        return new EventRecorder(clickstreamContext, dbUtil, submissionRunnableQueue);
     }
 
     /**
@@ -85,26 +122,93 @@ public class EventRecorder {
      * @return Uri the event uri.
      */
     public Uri recordEvent(@NonNull final AnalyticsEvent event) {
-        final Uri uri = this.dbUtil.saveEvent(event);
+        final long start = System.nanoTime();
+        final Uri uri = this.eventStore.saveEvent(event);
+        metrics.getInsertLatency().record(System.nanoTime() - start);
         if (uri != null) {
+            metrics.incrementEventsRecorded();
             if (clickstreamContext.getClickstreamConfiguration() != null &&
                 clickstreamContext.getClickstreamConfiguration().isLogEvents()) {
                 LOG.info("save event: " + event.getEventType() + " success, event json:");
                 LOG.info(event.toString());
             }
-            while (this.dbUtil.getTotalSize() > DEFAULT_MAX_DB_SIZE) {
-                try (Cursor cursor = this.dbUtil.queryOldestEvents(QUERY_OLDEST_EVENT_LIMIT)) {
-                    while (this.dbUtil.getTotalSize() > DEFAULT_MAX_DB_SIZE && cursor.moveToNext()) {
-                        this.dbUtil.deleteEvent(cursor.getInt(EventTable.ColumnIndex.ID.getValue()));
-                    }
+            evictOldestEvents();
+        } else {
+            metrics.addEventsDropped(1);
+            LOG.error(String.format("Error to save event with EventType: %s", event.getEventType()));
+        }
+        metrics.getRecordLatency().record(System.nanoTime() - start);
+        return uri;
+    }
+
+    /**
+     * Records the {@link AnalyticsEvent}s in order in one transaction.
+     *
+     * @param events the analytics events.
+     * @return the number of events recorded, 0 if failed.
+     */
+    public int recordEvents(@NonNull final List<AnalyticsEvent> events) {
+        final long start = System.nanoTime();
+        int count;
+        try {
+            count = this.eventStore.saveEvents(events);
+        } catch (Exception exception) {
+            LOG.error("Error to save events in batch: " + exception.getMessage());
+            count = 0;
+        }
+        metrics.getInsertLatency().record(System.nanoTime() - start);
+        if (count > 0) {
+            metrics.addEventsRecorded(count);
+            if (clickstreamContext.getClickstreamConfiguration() != null &&
+                clickstreamContext.getClickstreamConfiguration().isLogEvents()) {
+                for (AnalyticsEvent event : events) {
+                    LOG.info("save event: " + event.getEventType() + " success, event json:");
+                    LOG.info(event.toString());
                 }
             }
+            evictOldestEvents();
         } else {
-            LOG.error(String.format("Error to save event with EventType: %s", event.getEventType()));
+            metrics.addEventsDropped(events.size());
+        }
+        metrics.getRecordLatency().record(System.nanoTime() - start);
+        return count;
+    }
+
+    /**
+     * Records the serialized event, which is recorded before and restored from other storage.
+     *
+     * @param eventJson the event json.
+     * @param priority  the priority of the event.
+     * @param timestamp the time when the event is recorded in milliseconds.
+     * @return Uri the event uri, or null if failed.
+     */
+    Uri recordEvent(@NonNull final String eventJson, @NonNull final Event.Priority priority, final long timestamp) {
+        final Uri uri = this.eventStore.saveEvent(eventJson, priority.getValue(), timestamp);
+        if (uri != null) {
+            metrics.incrementEventsRecorded();
+            evictOldestEvents();
+        } else {
+            metrics.addEventsDropped(1);
+            LOG.error("Error to save the restored event");
         }
         return uri;
     }
 
+    private void evictOldestEvents() {
+        final long maxSize = memoryStore != null ? MAX_MEMORY_STORE_SIZE : DEFAULT_MAX_DB_SIZE;
+        long totalSize = this.eventStore.getTotalSize();
+        while (totalSize > maxSize) {
+            try (Cursor cursor = this.eventStore.queryOldestEvents(QUERY_OLDEST_EVENT_LIMIT)) {
+                while (totalSize > maxSize && cursor.moveToNext()) {
+                    metrics.addEventsDropped(
+                        this.eventStore.deleteEvent(cursor.getInt(EventTable.ColumnIndex.ID.getValue())));
+                    totalSize = this.eventStore.getTotalSize();
+                }
+            }
+        }
+        metrics.setStoreSizeBytes(totalSize);
+    }
+
     /**
      * Submit the events.
      */
@@ -113,16 +217,154 @@ public class EventRecorder {
             submissionRunnableQueue.execute(this::processEvents);
         } else {
             LOG.warn("Device is offline, skipping submitting events to Clickstream server");
+            releaseUploadLock();
+        }
+    }
+
+    /**
+     * Release the upload lock in the multi process mode after the submissions in progress, so that another
+     * process becomes the uploader. It is a no-op in the single process mode.
+     */
+    public void releaseUploadLock() {
+        if (uploadLock != null) {
+            submissionRunnableQueue.execute(uploadLock::release);
+        }
+    }
+
+    /**
+     * Spill the events in the memory event store to the database in background, which is called when
+     * the app enters the background or the system is low on memory. It is a no-op unless the memory
+     * event store is used with the spill enabled.
+     */
+    public void spillEvents() {
+        if (isSpillToDisk) {
+            submissionRunnableQueue.execute(this::spillToDisk);
         }
     }
 
     /**
-     * Process the events.
+     * Move the events in the memory event store to the database in one transaction, they are uploaded
+     * from the database before the events recorded later.
+     *
+     * @return the number of events spilled.
+     */
+    int spillToDisk() {
+        final String[] eventJsons;
+        final int[] priorities;
+        final long[] timestamps;
+        final int lastId;
+        try (Cursor cursor = memoryStore.queryAllEvents()) {
+            if (!cursor.moveToLast()) {
+                return 0;
+            }
+            lastId = cursor.getInt(ID_COLUMN_INDEX);
+            eventJsons = new String[cursor.getCount()];
+            priorities = new int[cursor.getCount()];
+            timestamps = new long[cursor.getCount()];
+            cursor.moveToPosition(-1);
+            while (cursor.moveToNext()) {
+                eventJsons[cursor.getPosition()] = cursor.getString(JSON_COLUMN_INDEX);
+                priorities[cursor.getPosition()] = cursor.getInt(PRIORITY_COLUMN_INDEX);
+                timestamps[cursor.getPosition()] = cursor.getLong(TIMESTAMP_COLUMN_INDEX);
+            }
+        }
+        try {
+            dbUtil.saveEvents(eventJsons, priorities, timestamps);
+        } catch (Exception exception) {
+            LOG.error("Failed to spill events to disk: " + exception.getMessage());
+            return 0;
+        }
+        memoryStore.deleteBatchEvents(lastId);
+        LOG.debug("Spill event number: " + eventJsons.length);
+        return eventJsons.length;
+    }
+
+    /**
+     * Determines if the events are stored in memory instead of the database.
+     *
+     * @param clickstreamContext the ClickstreamContext.
+     * @return true if the memory event store is enabled.
+     */
+    static boolean isMemoryEventStore(final ClickstreamContext clickstreamContext) {
+        return clickstreamContext.getClickstreamConfiguration() != null
+            && Boolean.TRUE.equals(clickstreamContext.getClickstreamConfiguration().isMemoryEventStore());
+    }
+
+    private static boolean isSpillEventsToDisk(final ClickstreamContext clickstreamContext) {
+        return clickstreamContext.getClickstreamConfiguration() != null
+            && Boolean.TRUE.equals(clickstreamContext.getClickstreamConfiguration().isSpillEventsToDisk());
+    }
+
+    /**
+     * Determines if the SDK runs in more than one process of the app.
+     *
+     * @param clickstreamContext the ClickstreamContext.
+     * @return true if the multi process mode is enabled.
+     */
+    static boolean isMultiProcess(final ClickstreamContext clickstreamContext) {
+        return clickstreamContext.getClickstreamConfiguration() != null
+            && Boolean.TRUE.equals(clickstreamContext.getClickstreamConfiguration().isMultiProcess());
+    }
+
+    /**
+     * Process the events, the events spilled to the database are uploaded before the events in memory.
+     * In the multi process mode the events are only uploaded by the process which holds the upload lock,
+     * the bundle sequence id is continued from the lock file and the lock is released when nothing is sent.
      */
     int processEvents() {
+        if (uploadLock == null) {
+            return processStores();
+        }
+        if (!uploadLock.tryAcquire()) {
+            LOG.debug("Skip submitting events as another process is the uploader");
+            return 0;
+        }
+        bundleSequenceId = uploadLock.readSequenceId(bundleSequenceId);
+        int totalEventNumber = processStores();
+        if (totalEventNumber == 0) {
+            uploadLock.release();
+        }
+        return totalEventNumber;
+    }
+
+    private int processStores() {
+        if (memoryStore == null) {
+            int totalEventNumber = processEvents(dbUtil);
+            reclaimFreePages();
+            return totalEventNumber;
+        }
+        if (!isSpillToDisk) {
+            return processEvents(memoryStore);
+        }
+        int totalEventNumber = processEvents(dbUtil);
+        reclaimFreePages();
+        if (dbUtil.getTotalNumber() == 0) {
+            totalEventNumber += processEvents(memoryStore);
+        }
+        return totalEventNumber;
+    }
+
+    /**
+     * Reclaim the free pages of the database in the submission thread when the events are drained or
+     * the free pages exceed the threshold, so that deleting the uploaded events does not truncate the file.
+     */
+    private void reclaimFreePages() {
+        try {
+            final long freePageCount = dbUtil.getFreePageCount();
+            if (freePageCount > 0 && (freePageCount >= FREE_PAGE_THRESHOLD || dbUtil.getTotalNumber() == 0)) {
+                dbUtil.reclaimFreePages();
+                LOG.debug("Reclaimed free pages: " + freePageCount);
+            }
+        } catch (Exception exception) {
+            LOG.error("Failed to reclaim free pages: " + exception.getMessage());
+        }
+    }
+
+    private int processEvents(final EventStore store) {
         final long start = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
         int totalEventNumber = 0;
-        try (Cursor cursor = dbUtil.queryAllEvents()) {
+        expireEvents(store);
+        try (Cursor cursor = store.queryEventsInUploadOrder()) {
             if (!cursor.moveToFirst()) {
                 // if the cursor is empty there is nothing to do.
                 return totalEventNumber;
@@ -130,20 +372,28 @@ public class EventRecorder {
             LOG.debug("Start flushing events");
             int submissions = 0;
             do {
+                // the events are ordered by priority and a batch only contains events of one priority.
+                final int priority = cursor.getInt(PRIORITY_COLUMN_INDEX);
                 final String[] event = this.getBatchOfEvents(cursor);
                 int lastId = Integer.parseInt(event[1]);
                 // upload events to server
+                final long uploadStart = System.nanoTime();
                 boolean result = NetRequest.uploadEvents(event[0], clickstreamContext.getClickstreamConfiguration(),
-                    bundleSequenceId);
+                    bundleSequenceId, metrics);
                 bundleSequenceId += 1;
                 clickstreamContext.getSystem().getPreferences().putInt(KEY_BUNDLE_SEQUENCE_ID_PREF, bundleSequenceId);
+                if (uploadLock != null) {
+                    uploadLock.writeSequenceId(bundleSequenceId);
+                }
                 if (!result) {
+                    metrics.recordUpload(false, 0, System.nanoTime() - uploadStart);
                     // if fail to upload event then end the process.
                     break;
                 }
                 // delete all uploaded event by last event id.
                 try {
-                    int deleteSize = dbUtil.deleteBatchEvents(lastId);
+                    int deleteSize = store.deleteBatchEvents(lastId, priority);
+                    metrics.recordUpload(true, deleteSize, System.nanoTime() - uploadStart);
                     submissions++;
                     totalEventNumber += deleteSize;
                     LOG.debug("Send event number: " + deleteSize);
@@ -159,6 +409,7 @@ public class EventRecorder {
             } while (cursor.moveToNext());
             LOG.debug(String.format(Locale.US, "Time of attemptDelivery: %d",
                 TimeUnit.NANOSECONDS.toMillis(System.nanoTime()) - start));
+            metrics.setStoreSizeBytes(eventStore.getTotalSize());
         } catch (Exception exception) {
             LOG.error("Failed to send event", exception);
         }
@@ -167,7 +418,29 @@ public class EventRecorder {
     }
 
     /**
-     * Reads events of maximum of KEY_MAX_SUBMISSION_SIZE size.
+     * Delete the events older than the max event age before uploading, they are not uploaded.
+     *
+     * @param store the event store.
+     */
+    private void expireEvents(final EventStore store) {
+        final long maxEventAge = clickstreamContext.getClickstreamConfiguration() == null ? 0 :
+            clickstreamContext.getClickstreamConfiguration().getMaxEventAge();
+        if (maxEventAge <= 0) {
+            return;
+        }
+        try {
+            int expiredNumber = store.deleteExpiredEvents(System.currentTimeMillis() - maxEventAge);
+            if (expiredNumber > 0) {
+                metrics.addEventsExpired(expiredNumber);
+                LOG.info(String.format(Locale.US, "Deleted %d events older than %d ms", expiredNumber, maxEventAge));
+            }
+        } catch (Exception exception) {
+            LOG.error("Failed to delete expired events: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Reads events of maximum of KEY_MAX_SUBMISSION_SIZE size with the same priority as the first event.
      * The default max request size is DEFAULT_MAX_SUBMISSION_SIZE.
      *
      * @param cursor the cursor to the database to read events from.
@@ -180,7 +453,17 @@ public class EventRecorder {
         eventBuilder.append("[");
         int eventNumber = 0;
         String suffix = ",";
+        final int priority = cursor.getInt(PRIORITY_COLUMN_INDEX);
+        int previousEventId = cursor.getInt(ID_COLUMN_INDEX);
         do {
+            if (cursor.getInt(PRIORITY_COLUMN_INDEX) != priority) {
+                int length = eventBuilder.length();
+                eventBuilder.replace(length - 1, length, "]");
+                lastEventId = String.valueOf(previousEventId);
+                cursor.moveToPrevious();
+                break;
+            }
+            previousEventId = cursor.getInt(ID_COLUMN_INDEX);
             int size = cursor.getInt(SIZE_COLUMN_INDEX);
             String eventJson = cursor.getString(JSON_COLUMN_INDEX);
             if (!StringUtil.isNullOrEmpty(eventJson)) {
@@ -207,5 +490,27 @@ public class EventRecorder {
 
         return new String[] {eventBuilder.toString(), lastEventId};
     }
-}
 
+    /**
+     * Spill the events in memory when the system is low on memory, the memory event store does not
+     * release the events otherwise until they are uploaded.
+     */
+    private final class MemoryPressureCallbacks implements ComponentCallbacks2 {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+                spillEvents();
+            }
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+            // no need to spill the events.
+        }
+
+        @Override
+        public void onLowMemory() {
+            spillEvents();
+        }
+    }
+}
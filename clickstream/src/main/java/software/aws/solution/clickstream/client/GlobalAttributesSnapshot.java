@@ -0,0 +1,120 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client;
+
+import org.json.JSONObject;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable version of the global attributes, a new snapshot is created for every change
+ * so that events can share it without copying, and it is serialized at most once per snapshot.
+ */
+final class GlobalAttributesSnapshot {
+    /**
+     * The snapshot without any global attribute.
+     */
+    static final GlobalAttributesSnapshot EMPTY =
+        new GlobalAttributesSnapshot(Collections.<String, Object>emptyMap());
+    private final Map<String, Object> attributes;
+    private volatile String serializedAttributes;
+
+    private GlobalAttributesSnapshot(Map<String, Object> attributes) {
+        this.attributes = attributes;
+    }
+
+    /**
+     * Create the next snapshot with the attribute added or replaced.
+     *
+     * @param name  attribute name.
+     * @param value attribute value.
+     * @return the new snapshot.
+     */
+    GlobalAttributesSnapshot with(String name, Object value) {
+        Map<String, Object> newAttributes = new LinkedHashMap<>(attributes);
+        newAttributes.put(name, value);
+        return new GlobalAttributesSnapshot(Collections.unmodifiableMap(newAttributes));
+    }
+
+    /**
+     * Create the next snapshot with the attribute removed.
+     *
+     * @param name attribute name.
+     * @return the new snapshot, or this snapshot when the attribute does not exist.
+     */
+    GlobalAttributesSnapshot without(String name) {
+        if (!attributes.containsKey(name)) {
+            return this;
+        }
+        Map<String, Object> newAttributes = new LinkedHashMap<>(attributes);
+        newAttributes.remove(name);
+        return new GlobalAttributesSnapshot(Collections.unmodifiableMap(newAttributes));
+    }
+
+    /**
+     * Get the global attributes.
+     *
+     * @return the unmodifiable attributes map.
+     */
+    Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Get the number of global attributes.
+     *
+     * @return the size.
+     */
+    int size() {
+        return attributes.size();
+    }
+
+    /**
+     * Determines if the snapshot contains the attribute.
+     *
+     * @param name attribute name.
+     * @return true if the attribute exists.
+     */
+    boolean containsKey(String name) {
+        return attributes.containsKey(name);
+    }
+
+    /**
+     * Get the attribute value.
+     *
+     * @param name attribute name.
+     * @return the value, or null if not exist.
+     */
+    Object get(String name) {
+        return attributes.get(name);
+    }
+
+    /**
+     * Get the JSON string of the global attributes, serialized on first use.
+     *
+     * @return the JSON string.
+     */
+    String toJSONString() {
+        String json = serializedAttributes;
+        if (json == null) {
+            json = new JSONObject(attributes).toString();
+            serializedAttributes = json;
+        }
+        return json;
+    }
+}
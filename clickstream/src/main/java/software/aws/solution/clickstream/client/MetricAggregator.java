@@ -0,0 +1,205 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregate the metric values in memory by metric name and dimensions, each series keeps the count, sum,
+ * min, max and a histogram with power of two buckets until it is drained into the metric summary events.
+ */
+final class MetricAggregator {
+    private static final Log LOG = LogFactory.getLog(MetricAggregator.class);
+    private final Map<String, Series> seriesMap = new LinkedHashMap<>();
+    private long startTimestamp;
+
+    /**
+     * Add the value to the series of the metric name and dimensions.
+     *
+     * @param name       the metric name.
+     * @param value      the finite metric value.
+     * @param dimensions the dimensions of the metric, can be null.
+     * @return false if the series can not be created because the series number exceeds the limit.
+     */
+    synchronized boolean record(String name, double value, Map<String, Object> dimensions) {
+        Map<String, Object> sortedDimensions =
+            dimensions == null ? Collections.<String, Object>emptyMap() : new TreeMap<>(dimensions);
+        String key = getSeriesKey(name, sortedDimensions);
+        Series series = seriesMap.get(key);
+        if (series == null) {
+            if (seriesMap.size() >= Event.Limit.MAX_NUM_OF_METRIC_SERIES) {
+                LOG.error("metric series number exceeds the limit, metric name: " + name);
+                return false;
+            }
+            if (seriesMap.isEmpty()) {
+                startTimestamp = System.currentTimeMillis();
+            }
+            series = new Series(name, sortedDimensions);
+            seriesMap.put(key, series);
+        }
+        series.add(value);
+        return true;
+    }
+
+    private static String getSeriesKey(String name, Map<String, Object> sortedDimensions) {
+        if (sortedDimensions.isEmpty()) {
+            return name;
+        }
+        StringBuilder builder = new StringBuilder(name);
+        for (Map.Entry<String, Object> entry : sortedDimensions.entrySet()) {
+            builder.append('\u0000').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Get the timestamp when the first value is recorded since last drain.
+     *
+     * @return the timestamp in milliseconds, 0 if nothing recorded.
+     */
+    synchronized long getStartTimestamp() {
+        return seriesMap.isEmpty() ? 0 : startTimestamp;
+    }
+
+    /**
+     * Take all the series and reset the aggregator, the series are serialized into JSON arrays and
+     * split so that each array does not exceed the max length of attribute value, a single series which
+     * exceeds it is clipped.
+     *
+     * @return the JSON array strings, empty if nothing recorded.
+     */
+    synchronized List<String> drain() {
+        List<String> chunks = new ArrayList<>();
+        StringBuilder chunk = new StringBuilder();
+        for (Series series : seriesMap.values()) {
+            String json = series.toJSONString(Event.Limit.MAX_LENGTH_OF_VALUE - 2);
+            if (chunk.length() > 0 && chunk.length() + json.length() + 2 > Event.Limit.MAX_LENGTH_OF_VALUE) {
+                chunks.add(chunk.append(']').toString());
+                chunk.setLength(0);
+            }
+            chunk.append(chunk.length() == 0 ? '[' : ',').append(json);
+        }
+        if (chunk.length() > 0) {
+            chunks.add(chunk.append(']').toString());
+        }
+        seriesMap.clear();
+        return chunks;
+    }
+
+    /**
+     * The aggregated values of a metric name and dimensions.
+     */
+    private static final class Series {
+        private final String name;
+        private final Map<String, Object> dimensions;
+        private final Map<Double, Long> histogram = new TreeMap<>();
+        private long count;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        private Series(String name, Map<String, Object> dimensions) {
+            this.name = name;
+            this.dimensions = dimensions;
+        }
+
+        private void add(double value) {
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            Double bound = getBucketBound(value);
+            Long bucketCount = histogram.get(bound);
+            histogram.put(bound, bucketCount == null ? 1 : bucketCount + 1);
+        }
+
+        /**
+         * Get the upper bound of the bucket, the smallest power of two which is not less than the value,
+         * and 0 for the values not greater than 0.
+         *
+         * @param value the metric value.
+         * @return the bucket bound.
+         */
+        private static Double getBucketBound(double value) {
+            if (value <= 0) {
+                return 0d;
+            }
+            double bound = Math.scalb(1d, Math.getExponent(value));
+            return bound < value ? bound * 2 : bound;
+        }
+
+        /**
+         * Serialize the series within the max length, the series which exceeds it is clipped and marked as
+         * truncated: the histogram is dropped first, then the dimensions which do not fit in order.
+         *
+         * @param maxLength the max length of the JSON string.
+         * @return the JSON string.
+         */
+        private String toJSONString(int maxLength) {
+            String json = toJSONString(dimensions, true, false);
+            if (json.length() <= maxLength) {
+                return json;
+            }
+            LOG.warn("metric series exceeds the max length and is truncated, metric name: " + name);
+            Map<String, Object> clippedDimensions = new TreeMap<>();
+            for (Map.Entry<String, Object> entry : dimensions.entrySet()) {
+                clippedDimensions.put(entry.getKey(), entry.getValue());
+                if (toJSONString(clippedDimensions, false, true).length() > maxLength) {
+                    clippedDimensions.remove(entry.getKey());
+                }
+            }
+            return toJSONString(clippedDimensions, false, true);
+        }
+
+        private String toJSONString(Map<String, Object> seriesDimensions, boolean hasHistogram,
+                                    boolean isTruncated) {
+            JSONObject json = new JSONObject();
+            try {
+                json.put("name", name);
+                if (!seriesDimensions.isEmpty()) {
+                    json.put("dimensions", new JSONObject(seriesDimensions));
+                }
+                json.put("count", count);
+                json.put("sum", sum);
+                json.put("min", min);
+                json.put("max", max);
+                if (hasHistogram) {
+                    JSONObject buckets = new JSONObject();
+                    for (Map.Entry<Double, Long> entry : histogram.entrySet()) {
+                        buckets.put(JSONObject.numberToString(entry.getKey()), entry.getValue());
+                    }
+                    json.put("histogram", buckets);
+                }
+                if (isTruncated) {
+                    json.put("truncated", true);
+                }
+            } catch (final JSONException jsonException) {
+                LOG.error("Could not create Json object of metric. error: " + jsonException.getMessage());
+            }
+            return json.toString();
+        }
+    }
+}
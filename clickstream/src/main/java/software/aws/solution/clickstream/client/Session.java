@@ -17,7 +17,6 @@ package software.aws.solution.clickstream.client;
 
 import androidx.annotation.NonNull;
 
-import software.aws.solution.clickstream.client.util.PreferencesUtil;
 import software.aws.solution.clickstream.client.util.StringUtil;
 
 import java.text.DateFormat;
@@ -95,7 +94,7 @@ public final class Session {
     }
 
     /**
-     * Get the session object from preferences, if exists and not expired return it.
+     * Get the session object from state store, if exists and not expired return it.
      * otherwise create a new session.
      *
      * @param context         The {@link ClickstreamContext}.
@@ -105,7 +104,7 @@ public final class Session {
     public static Session getInstance(final ClickstreamContext context, Session previousSession) {
         Session session = previousSession;
         if (session == null) {
-            session = PreferencesUtil.getSession(context.getSystem().getPreferences());
+            session = context.getSystem().getStateStore().getSession();
         }
         if (session != null) {
             if (session.getPauseTime() == null ||
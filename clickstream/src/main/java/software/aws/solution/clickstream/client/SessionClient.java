@@ -17,8 +17,6 @@ package software.aws.solution.clickstream.client;
 
 import androidx.annotation.NonNull;
 
-import software.aws.solution.clickstream.client.util.PreferencesUtil;
-
 /**
  * Client for managing start and pause session.
  */
@@ -71,11 +69,13 @@ public class SessionClient {
     }
 
     /**
-     * store a session when the application goes to the background.
+     * store a session when the application goes to the background,
+     * and write the pending preferences in one batch.
      */
     public void storeSession() {
         session.pause();
-        PreferencesUtil.saveSession(clickstreamContext.getSystem().getPreferences(), session);
+        clickstreamContext.getSystem().getStateStore().saveSession(session);
+        clickstreamContext.getSystem().getPreferences().flush();
     }
 
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+
+/**
+ * Elect the process which uploads the events in the multi process mode. The first process which tries to
+ * upload takes an exclusive lock of the file and keeps it while it has events to upload, the other processes
+ * only record events into the shared store. The lock is released when the uploader finds nothing to upload,
+ * is offline or is disabled, and by the system when the uploader process dies, so another process takes over
+ * on its next upload attempt. The file also keeps the next bundle sequence id, so that the sequence continues
+ * in the process which takes over.
+ */
+final class UploadLock {
+    static final String FILE_NAME = "clickstream_upload.lock";
+    private static final Log LOG = LogFactory.getLog(UploadLock.class);
+    private static final int SEQUENCE_ID_BYTES = Integer.SIZE / Byte.SIZE;
+    private final File file;
+    private FileChannel channel;
+    private FileLock lock;
+
+    /**
+     * The construct function with the lock file.
+     *
+     * @param file the lock file shared by the processes.
+     */
+    UploadLock(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Take the lock if no other process holds it.
+     *
+     * @return true if the current process holds the lock and should upload.
+     */
+    synchronized boolean tryAcquire() {
+        if (lock != null && lock.isValid()) {
+            return true;
+        }
+        try {
+            if (channel == null) {
+                channel = new RandomAccessFile(file, "rw").getChannel();
+            }
+            lock = channel.tryLock();
+        } catch (IOException | OverlappingFileLockException exception) {
+            // the lock is held by another client in the current process.
+            LOG.debug("Failed to take the upload lock: " + exception.getMessage());
+            lock = null;
+        }
+        return lock != null;
+    }
+
+    /**
+     * Read the next bundle sequence id saved by the uploader which held the lock.
+     *
+     * @param defaultValue the value returned when the lock is not held or no sequence id is saved.
+     * @return the next bundle sequence id.
+     */
+    synchronized int readSequenceId(int defaultValue) {
+        if (lock == null || !lock.isValid()) {
+            return defaultValue;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(SEQUENCE_ID_BYTES);
+        try {
+            while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+                // read until the sequence id is complete or the end of the file.
+            }
+        } catch (IOException exception) {
+            LOG.error("Failed to read the bundle sequence id: " + exception.getMessage());
+            return defaultValue;
+        }
+        return buffer.hasRemaining() ? defaultValue : buffer.getInt(0);
+    }
+
+    /**
+     * Save the next bundle sequence id in the lock file, it is only saved while the lock is held.
+     *
+     * @param sequenceId the next bundle sequence id.
+     */
+    synchronized void writeSequenceId(int sequenceId) {
+        if (lock == null || !lock.isValid()) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(SEQUENCE_ID_BYTES);
+        buffer.putInt(sequenceId).flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+        } catch (IOException exception) {
+            LOG.error("Failed to save the bundle sequence id: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Release the lock and close the file, so that another process becomes the uploader.
+     */
+    synchronized void release() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            // closing the channel also releases the lock.
+            channel.close();
+        } catch (IOException exception) {
+            LOG.error("Failed to release the upload lock: " + exception.getMessage());
+        }
+        channel = null;
+        lock = null;
+    }
+}
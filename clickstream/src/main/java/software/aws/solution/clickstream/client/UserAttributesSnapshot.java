@@ -0,0 +1,153 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+
+/**
+ * Immutable user attributes, every change creates a new snapshot so that events recorded
+ * from any thread can hold it without locking, and its user blocks are serialized once.
+ * The JSONObjects of the snapshot must not be modified after it is created.
+ */
+final class UserAttributesSnapshot {
+    private static final Log LOG = LogFactory.getLog(UserAttributesSnapshot.class);
+    private final JSONObject allAttributes;
+    private final JSONObject simpleAttributes;
+    private volatile String serializedAllAttributes;
+    private volatile String serializedSimpleAttributes;
+
+    /**
+     * The construct function with all user attributes, the JSONObject is owned by the snapshot.
+     *
+     * @param allAttributes all user attributes in {name:{value, set_timestamp}} format.
+     */
+    UserAttributesSnapshot(JSONObject allAttributes) {
+        this.allAttributes = allAttributes;
+        this.simpleAttributes = new JSONObject();
+        try {
+            copyAttribute(Event.ReservedAttribute.USER_FIRST_TOUCH_TIMESTAMP);
+            copyAttribute(Event.ReservedAttribute.USER_ID);
+        } catch (final JSONException jsonException) {
+            LOG.error("Could not create Json object of simpleUserAttribute. error: " + jsonException.getMessage());
+        }
+    }
+
+    private void copyAttribute(String name) throws JSONException {
+        if (allAttributes.has(name)) {
+            simpleAttributes.put(name, allAttributes.getJSONObject(name));
+        }
+    }
+
+    /**
+     * Create a new snapshot with the attribute added or replaced.
+     *
+     * @param name      user attribute name.
+     * @param attribute user attribute in {value, set_timestamp} format.
+     * @return the new snapshot.
+     * @throws JSONException throws when the attribute is invalid.
+     */
+    UserAttributesSnapshot with(String name, JSONObject attribute) throws JSONException {
+        JSONObject newAttributes = copyAttributes();
+        newAttributes.put(name, attribute);
+        return new UserAttributesSnapshot(newAttributes);
+    }
+
+    /**
+     * Create a new snapshot with the attribute removed.
+     *
+     * @param name user attribute name.
+     * @return the new snapshot, or this snapshot when the attribute does not exist.
+     */
+    UserAttributesSnapshot without(String name) {
+        if (!allAttributes.has(name)) {
+            return this;
+        }
+        JSONObject newAttributes = copyAttributes();
+        newAttributes.remove(name);
+        return new UserAttributesSnapshot(newAttributes);
+    }
+
+    private JSONObject copyAttributes() {
+        JSONObject newAttributes = new JSONObject();
+        Iterator<String> keys = allAttributes.keys();
+        try {
+            while (keys.hasNext()) {
+                String key = keys.next();
+                newAttributes.put(key, allAttributes.get(key));
+            }
+        } catch (final JSONException jsonException) {
+            LOG.error("Could not copy user attributes. error: " + jsonException.getMessage());
+        }
+        return newAttributes;
+    }
+
+    /**
+     * Determines if the user attribute exists.
+     *
+     * @param name user attribute name.
+     * @return true if exists.
+     */
+    boolean has(String name) {
+        return allAttributes.has(name);
+    }
+
+    /**
+     * Get the number of user attributes.
+     *
+     * @return the number of user attributes.
+     */
+    int length() {
+        return allAttributes.length();
+    }
+
+    /**
+     * Get all user attributes or the simple ones with only user id and first touch timestamp.
+     *
+     * @param isAll whether to get all user attributes.
+     * @return the user attributes JSONObject which must not be modified.
+     */
+    JSONObject getAttributes(boolean isAll) {
+        return isAll ? allAttributes : simpleAttributes;
+    }
+
+    /**
+     * Get the JSON string of all user attributes or the simple ones, serialized on first use.
+     *
+     * @param isAll whether to get all user attributes.
+     * @return the JSON string.
+     */
+    String toJSONString(boolean isAll) {
+        if (isAll) {
+            String json = serializedAllAttributes;
+            if (json == null) {
+                json = allAttributes.toString();
+                serializedAllAttributes = json;
+            }
+            return json;
+        }
+        String json = serializedSimpleAttributes;
+        if (json == null) {
+            json = simpleAttributes.toString();
+            serializedSimpleAttributes = json;
+        }
+        return json;
+    }
+}
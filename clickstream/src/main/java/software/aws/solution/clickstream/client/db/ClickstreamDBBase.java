@@ -44,9 +44,20 @@ public class ClickstreamDBBase {
      * @param context A Context instance.
      */
     public ClickstreamDBBase(final Context context) {
+        this(context, false);
+    }
+
+    /**
+     * Constructs TransferDBBase with the given Context.
+     *
+     * @param context        A Context instance.
+     * @param isMultiProcess Whether the database is written by more than one process.
+     */
+    public ClickstreamDBBase(final Context context, final boolean isMultiProcess) {
         this.context = context;
         final String mAuthority = context.getApplicationContext().getPackageName();
-        databaseHelper = new ClickstreamDatabaseHelper(this.context);
+        databaseHelper = new ClickstreamDatabaseHelper(this.context, ClickstreamDatabaseHelper.DATABASE_VERSION,
+            isMultiProcess);
         contentUri = Uri.parse("content://" + mAuthority + "/" + BASE_PATH);
         uriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
 
@@ -94,6 +105,31 @@ public class ClickstreamDBBase {
         return Uri.parse(BASE_PATH + "/" + id);
     }
 
+    /**
+     * Inserts the records to the table in one transaction.
+     *
+     * @param uri    The Uri of a table.
+     * @param values The values of the records.
+     * @return Number of records inserted.
+     */
+    public int bulkInsert(final Uri uri, final ContentValues[] values) {
+        final int uriType = uriMatcher.match(uri);
+        if (uriType != EVENTS) {
+            throw new IllegalArgumentException("Unknown URI: " + uri);
+        }
+        final SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (ContentValues value : values) {
+                db.insertOrThrow(EventTable.TABLE_EVENT, null, value);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return values.length;
+    }
+
     /**
      * Get total size of event records.
      *
@@ -130,6 +166,33 @@ public class ClickstreamDBBase {
         return totalNumber;
     }
 
+    /**
+     * Get the number of free pages in the database file, which are left by the deleted records.
+     *
+     * @return Number of free pages.
+     */
+    public long getFreePageCount() {
+        long freePageCount = 0;
+        try (Cursor cursor = databaseHelper.getReadableDatabase().rawQuery("PRAGMA freelist_count", null)) {
+            if (cursor.moveToNext() && !cursor.isNull(0)) {
+                freePageCount = cursor.getLong(0);
+            }
+        }
+        return freePageCount;
+    }
+
+    /**
+     * Reclaim the free pages and truncate the database file in incremental auto-vacuum mode.
+     */
+    public void reclaimFreePages() {
+        // each step of the pragma statement frees a page, so the cursor must be read to the end.
+        try (Cursor cursor = databaseHelper.getWritableDatabase().rawQuery("PRAGMA incremental_vacuum", null)) {
+            while (cursor.moveToNext()) {
+                continue;
+            }
+        }
+    }
+
     /**
      * Query records from the database.
      *
@@ -187,7 +250,13 @@ public class ClickstreamDBBase {
                 break;
             case EVENT_LAST_ID:
                 final String lastId = uri.getLastPathSegment();
-                rowsDeleted = db.delete(EventTable.TABLE_EVENT, EventTable.COLUMN_ID + "<=" + lastId, null);
+                if (TextUtils.isEmpty(selection)) {
+                    rowsDeleted = db.delete(EventTable.TABLE_EVENT, EventTable.COLUMN_ID + "<=" + lastId, null);
+                } else {
+                    rowsDeleted =
+                        db.delete(EventTable.TABLE_EVENT, EventTable.COLUMN_ID + "<=" + lastId + " and " + selection,
+                            selectionArgs);
+                }
                 break;
             default:
                 throw new IllegalArgumentException("Unknown URI: " + uri);
@@ -22,10 +22,16 @@ import android.net.Uri;
 
 import software.aws.solution.clickstream.client.AnalyticsEvent;
 
+import java.util.List;
+
 /**
  * Clickstream Database Util.
  */
-public class ClickstreamDBUtil {
+public class ClickstreamDBUtil implements EventStore {
+    private static final String UPLOAD_ORDER =
+        EventTable.COLUMN_PRIORITY + " DESC, " + EventTable.COLUMN_ID + " ASC";
+    private static final String EVICTION_ORDER =
+        EventTable.COLUMN_PRIORITY + " ASC, " + EventTable.COLUMN_ID + " ASC";
     /**
      * ClickstreamDBBase is a basic helper for accessing the database.
      */
@@ -37,8 +43,18 @@ public class ClickstreamDBUtil {
      * @param context An instance of Context.
      */
     public ClickstreamDBUtil(final Context context) {
+        this(context, false);
+    }
+
+    /**
+     * Constructs a ClickstreamDBUtil with the given Context.
+     *
+     * @param context        An instance of Context.
+     * @param isMultiProcess Whether the database is written by more than one process.
+     */
+    public ClickstreamDBUtil(final Context context, final boolean isMultiProcess) {
         if (clickstreamDBBase == null) {
-            clickstreamDBBase = new ClickstreamDBBase(context);
+            clickstreamDBBase = new ClickstreamDBBase(context, isMultiProcess);
         }
     }
 
@@ -57,15 +73,79 @@ public class ClickstreamDBUtil {
      * @param event The AnalyticsEvent to be saved.
      * @return An Uri of the record inserted.
      */
+    @Override
     public Uri saveEvent(final AnalyticsEvent event) {
-        return clickstreamDBBase.insert(clickstreamDBBase.getContentUri(), generateContentValuesFromEvent(event));
+        return clickstreamDBBase.insert(clickstreamDBBase.getContentUri(), generateContentValuesFromEvent(
+            event.toJSONString(), event.getPriority().getValue(), event.getEventTimestamp()));
+    }
+
+    /**
+     * Inserts the serialized event into the database, the event is recorded at the current time.
+     *
+     * @param eventJson The event json to be saved.
+     * @param priority  The priority value of the event.
+     * @return An Uri of the record inserted.
+     */
+    @Override
+    public Uri saveEvent(final String eventJson, final int priority) {
+        return saveEvent(eventJson, priority, System.currentTimeMillis());
+    }
+
+    /**
+     * Inserts the serialized event into the database with the time when it is recorded.
+     *
+     * @param eventJson The event json to be saved.
+     * @param priority  The priority value of the event.
+     * @param timestamp The time when the event is recorded in milliseconds.
+     * @return An Uri of the record inserted.
+     */
+    @Override
+    public Uri saveEvent(final String eventJson, final int priority, final long timestamp) {
+        return clickstreamDBBase.insert(clickstreamDBBase.getContentUri(),
+            generateContentValuesFromEvent(eventJson, priority, timestamp));
+    }
+
+    /**
+     * Inserts the events into the database in one transaction, either all of them are inserted or none of them.
+     *
+     * @param events The AnalyticsEvents to be saved.
+     * @return Number of rows inserted.
+     */
+    @Override
+    public int saveEvents(final List<AnalyticsEvent> events) {
+        final ContentValues[] values = new ContentValues[events.size()];
+        for (int i = 0; i < values.length; i++) {
+            final AnalyticsEvent event = events.get(i);
+            values[i] = generateContentValuesFromEvent(event.toJSONString(), event.getPriority().getValue(),
+                event.getEventTimestamp());
+        }
+        return clickstreamDBBase.bulkInsert(clickstreamDBBase.getContentUri(), values);
+    }
+
+    /**
+     * Inserts the serialized events into the database in one transaction, either all of them are
+     * inserted or none of them.
+     *
+     * @param eventJsons The event jsons to be saved.
+     * @param priorities The priority values of the events.
+     * @param timestamps The timestamps of the events in milliseconds.
+     * @return Number of rows inserted.
+     */
+    public int saveEvents(final String[] eventJsons, final int[] priorities, final long[] timestamps) {
+        final ContentValues[] values = new ContentValues[eventJsons.length];
+        for (int i = 0; i < eventJsons.length; i++) {
+            values[i] = generateContentValuesFromEvent(eventJsons[i], priorities[i], timestamps[i]);
+        }
+        return clickstreamDBBase.bulkInsert(clickstreamDBBase.getContentUri(), values);
     }
 
-    private ContentValues generateContentValuesFromEvent(final AnalyticsEvent event) {
+    private ContentValues generateContentValuesFromEvent(final String eventJson, final int priority,
+                                                         final long timestamp) {
         ContentValues values = new ContentValues();
-        String json = event.toJSONObject().toString();
-        values.put(EventTable.COLUMN_JSON, json);
-        values.put(EventTable.COLUMN_SIZE, json.length());
+        values.put(EventTable.COLUMN_JSON, eventJson);
+        values.put(EventTable.COLUMN_SIZE, eventJson.length());
+        values.put(EventTable.COLUMN_PRIORITY, priority);
+        values.put(EventTable.COLUMN_TIMESTAMP, timestamp);
         return values;
     }
 
@@ -74,21 +154,35 @@ public class ClickstreamDBUtil {
      *
      * @return A Cursor pointing to records in the database.
      */
+    @Override
     public Cursor queryAllEvents() {
         return clickstreamDBBase.query(clickstreamDBBase.getContentUri(),
             null, null, null, null, null);
     }
 
     /**
-     * Queries all events from oldest. Does not include JSON.
+     * Queries all the events in upload order, from the highest priority and the oldest in each priority.
+     *
+     * @return A Cursor pointing to records in the database.
+     */
+    @Override
+    public Cursor queryEventsInUploadOrder() {
+        return clickstreamDBBase.query(clickstreamDBBase.getContentUri(),
+            null, null, null, UPLOAD_ORDER, null);
+    }
+
+    /**
+     * Queries events in eviction order, from the lowest priority and the oldest in each priority.
+     * Does not include JSON.
      *
      * @param limit The limit of result set.
      * @return A Cursor pointing to records in the database.
      */
+    @Override
     public Cursor queryOldestEvents(final int limit) {
         return clickstreamDBBase.query(clickstreamDBBase.getContentUri(),
             new String[] {EventTable.COLUMN_ID, EventTable.COLUMN_SIZE},
-            null, null, null,
+            null, null, EVICTION_ORDER,
             Integer.toString(limit));
     }
 
@@ -98,6 +192,7 @@ public class ClickstreamDBUtil {
      * @param eventId The eventId of the event to be deleted.
      * @return Number of rows deleted.
      */
+    @Override
     public int deleteEvent(final int eventId) {
         return clickstreamDBBase.delete(getEventUri(eventId), null,
             null);
@@ -109,11 +204,53 @@ public class ClickstreamDBUtil {
      * @param lastEventId The last eventId.
      * @return Number of rows deleted.
      */
+    @Override
     public int deleteBatchEvents(final int lastEventId) {
         return clickstreamDBBase.delete(getLastEventIdUri(lastEventId), null,
             null);
     }
 
+    /**
+     * Deletes the events of the priority where eventId is not larger than lastEventId.
+     *
+     * @param lastEventId The last eventId.
+     * @param priority    The priority value of the events.
+     * @return Number of rows deleted.
+     */
+    @Override
+    public int deleteBatchEvents(final int lastEventId, final int priority) {
+        return clickstreamDBBase.delete(getLastEventIdUri(lastEventId), EventTable.COLUMN_PRIORITY + "=?",
+            new String[] {String.valueOf(priority)});
+    }
+
+    /**
+     * Deletes the events recorded before the timestamp with one range delete on the timestamp index.
+     *
+     * @param timestamp The timestamp in milliseconds, the events recorded before it are deleted.
+     * @return Number of rows deleted.
+     */
+    @Override
+    public int deleteExpiredEvents(final long timestamp) {
+        return clickstreamDBBase.delete(clickstreamDBBase.getContentUri(), EventTable.COLUMN_TIMESTAMP + "<?",
+            new String[] {String.valueOf(timestamp)});
+    }
+
+    /**
+     * Get the number of free pages in the database file.
+     *
+     * @return Number of free pages.
+     */
+    public long getFreePageCount() {
+        return clickstreamDBBase.getFreePageCount();
+    }
+
+    /**
+     * Reclaim the free pages of the database file.
+     */
+    public void reclaimFreePages() {
+        clickstreamDBBase.reclaimFreePages();
+    }
+
     /**
      * Gets the Uri of an event.
      *
@@ -139,6 +276,7 @@ public class ClickstreamDBUtil {
      *
      * @return The total size.
      */
+    @Override
     public long getTotalSize() {
         return clickstreamDBBase.getTotalSize();
     }
@@ -148,6 +286,7 @@ public class ClickstreamDBUtil {
      *
      * @return The total number.
      */
+    @Override
     public long getTotalNumber() {
         return clickstreamDBBase.getTotalNumber();
     }
@@ -16,15 +16,21 @@
 package software.aws.solution.clickstream.client.db;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
 /**
  * Clickstream Database Helper.
  */
 public class ClickstreamDatabaseHelper extends SQLiteOpenHelper {
+    static final int DATABASE_VERSION = 3;
+    private static final Log LOG = LogFactory.getLog(ClickstreamDatabaseHelper.class);
     private static final String DATABASE_NAME = "clickstream.db";
-    private static final int DATABASE_VERSION = 1;
+    private static final int AUTO_VACUUM_NONE = 0;
 
     private final int version;
 
@@ -42,16 +48,55 @@ public class ClickstreamDatabaseHelper extends SQLiteOpenHelper {
      * @param version The version of SDK.
      */
     public ClickstreamDatabaseHelper(final Context context, final int version) {
+        this(context, version, false);
+    }
+
+    /**
+     * The constructor with parameters.
+     * @param context        The context of Android.
+     * @param version        The version of SDK.
+     * @param isMultiProcess Whether the database is written by more than one process, the write-ahead log
+     *                       lets the processes read while another process writes.
+     */
+    public ClickstreamDatabaseHelper(final Context context, final int version, final boolean isMultiProcess) {
         super(context, DATABASE_NAME, null, version);
         this.version = version;
+        if (isMultiProcess) {
+            setWriteAheadLoggingEnabled(true);
+        }
     }
 
     /**
-     * Set the configuration of SQLite database.
+     * Set the configuration of SQLite database, the free pages are kept after delete and reclaimed
+     * by {@link ClickstreamDBBase#reclaimFreePages()} at idle, instead of truncating the file in every delete.
+     * A database in full auto-vacuum mode switches to incremental mode without rebuilding.
      * @param database The instance of SQLite database.
      */
+    @Override
     public void onConfigure(final SQLiteDatabase database) {
-        database.execSQL("PRAGMA auto_vacuum = FULL");
+        database.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+    }
+
+    /**
+     * Rebuild the database which is created without auto-vacuum, as its mode only changes by vacuum,
+     * which can not run in the transaction of create and upgrade.
+     * @param database The instance of SQLite database.
+     */
+    @Override
+    public void onOpen(final SQLiteDatabase database) {
+        if (database.isReadOnly()) {
+            return;
+        }
+        try (Cursor cursor = database.rawQuery("PRAGMA auto_vacuum", null)) {
+            if (!cursor.moveToFirst() || cursor.getInt(0) != AUTO_VACUUM_NONE) {
+                return;
+            }
+        }
+        try {
+            database.execSQL("VACUUM");
+        } catch (Exception exception) {
+            LOG.error("Failed to enable incremental auto vacuum: " + exception.getMessage());
+        }
     }
 
     /**
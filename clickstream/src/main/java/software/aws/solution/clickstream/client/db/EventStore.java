@@ -0,0 +1,134 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client.db;
+
+import android.database.Cursor;
+import android.net.Uri;
+
+import software.aws.solution.clickstream.client.AnalyticsEvent;
+
+import java.util.List;
+
+/**
+ * The store of the recorded events which the upload pipeline reads, the cursors have the columns
+ * of {@link EventTable.ColumnIndex}.
+ */
+public interface EventStore {
+    /**
+     * Saves an event into the store.
+     *
+     * @param event The AnalyticsEvent to be saved.
+     * @return An Uri of the record inserted, or null if failed.
+     */
+    Uri saveEvent(AnalyticsEvent event);
+
+    /**
+     * Saves the serialized event into the store.
+     *
+     * @param eventJson The event json to be saved.
+     * @param priority  The priority value of the event.
+     * @return An Uri of the record inserted, or null if failed.
+     */
+    Uri saveEvent(String eventJson, int priority);
+
+    /**
+     * Saves the serialized event into the store with the time when it is recorded.
+     *
+     * @param eventJson The event json to be saved.
+     * @param priority  The priority value of the event.
+     * @param timestamp The time when the event is recorded in milliseconds.
+     * @return An Uri of the record inserted, or null if failed.
+     */
+    Uri saveEvent(String eventJson, int priority, long timestamp);
+
+    /**
+     * Saves the events into the store in order, either all of them are saved or none of them.
+     *
+     * @param events The AnalyticsEvents to be saved.
+     * @return Number of records inserted.
+     */
+    int saveEvents(List<AnalyticsEvent> events);
+
+    /**
+     * Queries all the events in the order they are saved.
+     *
+     * @return A Cursor pointing to the records.
+     */
+    Cursor queryAllEvents();
+
+    /**
+     * Queries all the events in upload order, from the highest priority and the oldest in each priority.
+     *
+     * @return A Cursor pointing to the records.
+     */
+    Cursor queryEventsInUploadOrder();
+
+    /**
+     * Queries events in eviction order, from the lowest priority and the oldest in each priority.
+     * Does not include JSON.
+     *
+     * @param limit The limit of result set.
+     * @return A Cursor pointing to the records.
+     */
+    Cursor queryOldestEvents(int limit);
+
+    /**
+     * Deletes the event with the given eventId.
+     *
+     * @param eventId The eventId of the event to be deleted.
+     * @return Number of rows deleted.
+     */
+    int deleteEvent(int eventId);
+
+    /**
+     * Deletes all the event where eventId is not larger than lastEventId.
+     *
+     * @param lastEventId The last eventId.
+     * @return Number of rows deleted.
+     */
+    int deleteBatchEvents(int lastEventId);
+
+    /**
+     * Deletes the events of the priority where eventId is not larger than lastEventId.
+     *
+     * @param lastEventId The last eventId.
+     * @param priority    The priority value of the events.
+     * @return Number of rows deleted.
+     */
+    int deleteBatchEvents(int lastEventId, int priority);
+
+    /**
+     * Deletes the events recorded before the timestamp.
+     *
+     * @param timestamp The timestamp in milliseconds, the events recorded before it are deleted.
+     * @return Number of rows deleted.
+     */
+    int deleteExpiredEvents(long timestamp);
+
+    /**
+     * Get the total event size calculate by sum of all event string's length.
+     *
+     * @return The total size.
+     */
+    long getTotalSize();
+
+    /**
+     * Get the total event number calculate by sum of all events.
+     *
+     * @return The total number.
+     */
+    long getTotalNumber();
+}
@@ -37,6 +37,14 @@ public final class EventTable {
      * The size of JSON body of the clickstream event.
      */
     public static final String COLUMN_SIZE = "event_size";
+    /**
+     * The priority of the clickstream event, see {@link software.aws.solution.clickstream.client.Event.Priority}.
+     */
+    public static final String COLUMN_PRIORITY = "event_priority";
+    /**
+     * The time when the clickstream event is recorded in milliseconds.
+     */
+    public static final String COLUMN_TIMESTAMP = "event_timestamp";
     /**
      * Database creation SQL statement.
      */
@@ -44,6 +52,25 @@ public final class EventTable {
         "(" + COLUMN_ID + " integer primary key autoincrement, "
         + COLUMN_SIZE + " INTEGER NOT NULL,"
         + COLUMN_JSON + " TEXT NOT NULL" + ");";
+    /**
+     * Version 2 adds the priority column with the index of upload and eviction order.
+     */
+    private static final int VERSION_PRIORITY = 2;
+    private static final String PRIORITY_COLUMN_ADD = "alter table " + TABLE_EVENT +
+        " add column " + COLUMN_PRIORITY + " INTEGER NOT NULL DEFAULT 1;";
+    private static final String PRIORITY_INDEX_CREATE = "create index if not exists " + TABLE_EVENT
+        + "_priority_idx on " + TABLE_EVENT + "(" + COLUMN_PRIORITY + ", " + COLUMN_ID + ");";
+    /**
+     * Version 3 adds the timestamp column with the index of expiry, the events saved before the upgrade
+     * take the time of the upgrade as their age is unknown.
+     */
+    private static final int VERSION_TIMESTAMP = 3;
+    private static final String TIMESTAMP_COLUMN_ADD = "alter table " + TABLE_EVENT +
+        " add column " + COLUMN_TIMESTAMP + " INTEGER NOT NULL DEFAULT 0;";
+    private static final String TIMESTAMP_COLUMN_UPDATE = "update " + TABLE_EVENT +
+        " set " + COLUMN_TIMESTAMP + " = ?;";
+    private static final String TIMESTAMP_INDEX_CREATE = "create index if not exists " + TABLE_EVENT
+        + "_timestamp_idx on " + TABLE_EVENT + "(" + COLUMN_TIMESTAMP + ");";
 
     /**
      * The default constructor.
@@ -70,7 +97,15 @@ public final class EventTable {
      * @param newVersion The new version of the database.
      */
     public static void onUpgrade(final SQLiteDatabase database, final int oldVersion, final int newVersion) {
-
+        if (oldVersion < VERSION_PRIORITY && newVersion >= VERSION_PRIORITY) {
+            database.execSQL(PRIORITY_COLUMN_ADD);
+            database.execSQL(PRIORITY_INDEX_CREATE);
+        }
+        if (oldVersion < VERSION_TIMESTAMP && newVersion >= VERSION_TIMESTAMP) {
+            database.execSQL(TIMESTAMP_COLUMN_ADD);
+            database.execSQL(TIMESTAMP_COLUMN_UPDATE, new Object[] {System.currentTimeMillis()});
+            database.execSQL(TIMESTAMP_INDEX_CREATE);
+        }
     }
 
     /**
@@ -88,7 +123,15 @@ public final class EventTable {
         /**
          * The JSON body of the column.
          */
-        JSON(2);
+        JSON(2),
+        /**
+         * The priority of the column.
+         */
+        PRIORITY(3),
+        /**
+         * The timestamp of the column.
+         */
+        TIMESTAMP(4);
 
         private final int value;
 
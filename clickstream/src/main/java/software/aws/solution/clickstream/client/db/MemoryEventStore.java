@@ -0,0 +1,285 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client.db;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+
+import software.aws.solution.clickstream.client.AnalyticsEvent;
+import software.aws.solution.clickstream.client.metrics.ClickstreamMetrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The event store in memory for the apps which do not need the events to survive the process, it is a
+ * ring buffer of a fixed capacity which drops the oldest event of the lowest priority when full, so that
+ * recording an event does not write the disk. The deleted events are marked in place and their slots are
+ * reclaimed when they reach the head of the ring, or by compacting the ring when the slots run out, the ids
+ * are increasing along the ring as the events are appended in order.
+ */
+public final class MemoryEventStore implements EventStore {
+    private static final String BASE_PATH = "clickstream-sdk/memory-events";
+    private static final String[] COLUMNS = {
+        EventTable.COLUMN_ID,
+        EventTable.COLUMN_SIZE,
+        EventTable.COLUMN_JSON,
+        EventTable.COLUMN_PRIORITY,
+        EventTable.COLUMN_TIMESTAMP,
+    };
+    private static final String[] OLDEST_EVENT_COLUMNS = {EventTable.COLUMN_ID, EventTable.COLUMN_SIZE};
+
+    private final ClickstreamMetrics metrics;
+    private final int capacity;
+    private final int[] ids;
+    private final int[] priorities;
+    private final long[] timestamps;
+    private final String[] eventJsons;
+    private int head;
+    private int slots;
+    private int count;
+    private long totalSize;
+    private int nextId = 1;
+
+    /**
+     * Constructs a MemoryEventStore with the capacity.
+     *
+     * @param capacity The max number of events in the store.
+     * @param metrics  The metrics to count the overwritten events as dropped.
+     */
+    public MemoryEventStore(final int capacity, final ClickstreamMetrics metrics) {
+        this.capacity = capacity;
+        this.metrics = metrics;
+        this.ids = new int[capacity];
+        this.priorities = new int[capacity];
+        this.timestamps = new long[capacity];
+        this.eventJsons = new String[capacity];
+    }
+
+    @Override
+    public Uri saveEvent(final AnalyticsEvent event) {
+        return saveEvent(event.toJSONString(), event.getPriority().getValue(), event.getEventTimestamp());
+    }
+
+    @Override
+    public synchronized int saveEvents(final List<AnalyticsEvent> events) {
+        for (AnalyticsEvent event : events) {
+            saveEvent(event);
+        }
+        return events.size();
+    }
+
+    @Override
+    public Uri saveEvent(final String eventJson, final int priority) {
+        return saveEvent(eventJson, priority, System.currentTimeMillis());
+    }
+
+    @Override
+    public synchronized Uri saveEvent(final String eventJson, final int priority, final long timestamp) {
+        if (slots == capacity) {
+            if (count == capacity) {
+                remove(getEvictionIndex());
+                metrics.addEventsDropped(1);
+            }
+            compact();
+        }
+        final int index = (head + slots) % capacity;
+        final int id = nextId++;
+        ids[index] = id;
+        priorities[index] = priority;
+        timestamps[index] = timestamp;
+        eventJsons[index] = eventJson;
+        slots++;
+        count++;
+        totalSize += eventJson.length();
+        return Uri.parse(BASE_PATH + "/" + id);
+    }
+
+    @Override
+    public synchronized Cursor queryAllEvents() {
+        final MatrixCursor cursor = new MatrixCursor(COLUMNS, count);
+        for (int index : getIndexes()) {
+            cursor.addRow(getRow(index));
+        }
+        return cursor;
+    }
+
+    @Override
+    public synchronized Cursor queryEventsInUploadOrder() {
+        final List<Integer> indexes = getIndexes();
+        // the sort is stable, so the events of each priority keep the order of the ring.
+        Collections.sort(indexes, (first, second) -> Integer.compare(priorities[second], priorities[first]));
+        final MatrixCursor cursor = new MatrixCursor(COLUMNS, indexes.size());
+        for (int index : indexes) {
+            cursor.addRow(getRow(index));
+        }
+        return cursor;
+    }
+
+    @Override
+    public synchronized Cursor queryOldestEvents(final int limit) {
+        final List<Integer> indexes = getIndexes();
+        Collections.sort(indexes, (first, second) -> Integer.compare(priorities[first], priorities[second]));
+        final MatrixCursor cursor = new MatrixCursor(OLDEST_EVENT_COLUMNS, limit);
+        for (int i = 0; i < indexes.size() && i < limit; i++) {
+            final int index = indexes.get(i);
+            cursor.addRow(new Object[] {ids[index], eventJsons[index].length()});
+        }
+        return cursor;
+    }
+
+    @Override
+    public synchronized int deleteEvent(final int eventId) {
+        for (int index : getIndexes()) {
+            if (ids[index] == eventId) {
+                remove(index);
+                reclaim();
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public int deleteBatchEvents(final int lastEventId) {
+        return deleteBatchEvents(lastEventId, null);
+    }
+
+    @Override
+    public int deleteBatchEvents(final int lastEventId, final int priority) {
+        return deleteBatchEvents(lastEventId, Integer.valueOf(priority));
+    }
+
+    private synchronized int deleteBatchEvents(final int lastEventId, final Integer priority) {
+        int rowsDeleted = 0;
+        for (int index : getIndexes()) {
+            if (ids[index] > lastEventId) {
+                break;
+            }
+            if (priority == null || priorities[index] == priority) {
+                remove(index);
+                rowsDeleted++;
+            }
+        }
+        reclaim();
+        return rowsDeleted;
+    }
+
+    @Override
+    public synchronized int deleteExpiredEvents(final long timestamp) {
+        int rowsDeleted = 0;
+        for (int index : getIndexes()) {
+            if (timestamps[index] < timestamp) {
+                remove(index);
+                rowsDeleted++;
+            }
+        }
+        reclaim();
+        return rowsDeleted;
+    }
+
+    @Override
+    public synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    @Override
+    public synchronized long getTotalNumber() {
+        return count;
+    }
+
+    /**
+     * Get the indexes of the events in the ring order.
+     *
+     * @return the list of indexes.
+     */
+    private List<Integer> getIndexes() {
+        final List<Integer> indexes = new ArrayList<>(count);
+        for (int i = 0; i < slots; i++) {
+            final int index = (head + i) % capacity;
+            if (eventJsons[index] != null) {
+                indexes.add(index);
+            }
+        }
+        return indexes;
+    }
+
+    private Object[] getRow(final int index) {
+        return new Object[] {
+            ids[index], eventJsons[index].length(), eventJsons[index], priorities[index], timestamps[index],
+        };
+    }
+
+    private void remove(final int index) {
+        if (eventJsons[index] == null) {
+            return;
+        }
+        totalSize -= eventJsons[index].length();
+        eventJsons[index] = null;
+        count--;
+    }
+
+    /**
+     * Get the index of the event to drop when the store is full, which is the oldest event of the lowest priority.
+     *
+     * @return the index of the event.
+     */
+    private int getEvictionIndex() {
+        int evictionIndex = head;
+        for (int index : getIndexes()) {
+            if (priorities[index] < priorities[evictionIndex]) {
+                evictionIndex = index;
+            }
+        }
+        return evictionIndex;
+    }
+
+    /**
+     * Move the events to the front of the ring in order, so that the slots of the deleted events between
+     * them are reclaimed.
+     */
+    private void compact() {
+        int live = 0;
+        for (int i = 0; i < slots; i++) {
+            final int from = (head + i) % capacity;
+            if (eventJsons[from] == null) {
+                continue;
+            }
+            final int to = (head + live) % capacity;
+            if (to != from) {
+                ids[to] = ids[from];
+                priorities[to] = priorities[from];
+                timestamps[to] = timestamps[from];
+                eventJsons[to] = eventJsons[from];
+                eventJsons[from] = null;
+            }
+            live++;
+        }
+        slots = live;
+    }
+
+    /**
+     * Reclaim the slots of the deleted events at the head of the ring.
+     */
+    private void reclaim() {
+        while (slots > 0 && eventJsons[head] == null) {
+            head = (head + 1) % capacity;
+            slots--;
+        }
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client.metrics;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The metrics of Clickstream SDK itself, counters and latency histograms of the recording,
+ * storage and upload paths, which are updated without lock and read by {@link #getSnapshot()}
+ * or reported periodically to the {@link Listener}.
+ */
+public final class ClickstreamMetrics {
+    /**
+     * The init phase of loading the shared preferences and the SDK state file.
+     */
+    public static final String INIT_PHASE_PREFERENCES = "preferences";
+    /**
+     * The init phase of reading the app, device and connectivity details.
+     */
+    public static final String INIT_PHASE_SYSTEM = "system";
+    /**
+     * The init phase of reading or generating the device id.
+     */
+    public static final String INIT_PHASE_DEVICE_ID = "device_id";
+    /**
+     * The init phase of opening the event database, which is part of {@link #INIT_PHASE_CLIENTS}.
+     */
+    public static final String INIT_PHASE_DB_OPEN = "db_open";
+    /**
+     * The init phase of creating the analytics, session and auto record clients.
+     */
+    public static final String INIT_PHASE_CLIENTS = "clients";
+    /**
+     * The init phase of recording the preset events of app start and session start.
+     */
+    public static final String INIT_PHASE_PRESET_EVENTS = "preset_events";
+    /**
+     * The whole SDK initialization, which includes all the other phases.
+     */
+    public static final String INIT_PHASE_TOTAL = "total";
+    private static final Log LOG = LogFactory.getLog(ClickstreamMetrics.class);
+    private final AtomicLong eventsRecorded = new AtomicLong();
+    private final AtomicLong eventsDropped = new AtomicLong();
+    private final AtomicLong eventsRateLimited = new AtomicLong();
+    private final AtomicLong eventsSampledOut = new AtomicLong();
+    private final AtomicLong eventsDeduplicated = new AtomicLong();
+    private final AtomicLong eventsExpired = new AtomicLong();
+    private final AtomicLong eventsUploaded = new AtomicLong();
+    private final AtomicLong uploadRequests = new AtomicLong();
+    private final AtomicLong uploadFailures = new AtomicLong();
+    private final AtomicLong uploadRawBytes = new AtomicLong();
+    private final AtomicLong uploadBytes = new AtomicLong();
+    private final AtomicLong storeSizeBytes = new AtomicLong();
+    private final LatencyHistogram recordLatency = new LatencyHistogram();
+    private final LatencyHistogram insertLatency = new LatencyHistogram();
+    private final LatencyHistogram uploadLatency = new LatencyHistogram();
+    private final Map<String, Long> initPhases = new LinkedHashMap<>();
+    private Handler handler;
+
+    /**
+     * Increase the number of events saved into the store.
+     */
+    public void incrementEventsRecorded() {
+        eventsRecorded.incrementAndGet();
+    }
+
+    /**
+     * Increase the number of events saved into the store in batch.
+     *
+     * @param count The number of saved events.
+     */
+    public void addEventsRecorded(long count) {
+        eventsRecorded.addAndGet(count);
+    }
+
+    /**
+     * Increase the number of events which failed to save or were evicted from the store.
+     *
+     * @param count The number of dropped events.
+     */
+    public void addEventsDropped(long count) {
+        eventsDropped.addAndGet(count);
+    }
+
+    /**
+     * Increase the number of events dropped by rate limit before recording.
+     */
+    public void incrementEventsRateLimited() {
+        eventsRateLimited.incrementAndGet();
+    }
+
+    /**
+     * Increase the number of events dropped by sampling before recording.
+     */
+    public void incrementEventsSampledOut() {
+        eventsSampledOut.incrementAndGet();
+    }
+
+    /**
+     * Increase the number of repeated events dropped within the dedupe window before recording.
+     */
+    public void incrementEventsDeduplicated() {
+        eventsDeduplicated.incrementAndGet();
+    }
+
+    /**
+     * Increase the number of events deleted from the store as they exceed the max event age.
+     *
+     * @param count The number of expired events.
+     */
+    public void addEventsExpired(long count) {
+        eventsExpired.addAndGet(count);
+    }
+
+    /**
+     * Record the result of an upload request.
+     *
+     * @param isSuccess    Whether the request succeeded.
+     * @param eventCount   The number of uploaded events.
+     * @param latencyNanos The latency of the request in nanoseconds.
+     */
+    public void recordUpload(boolean isSuccess, long eventCount, long latencyNanos) {
+        uploadRequests.incrementAndGet();
+        if (isSuccess) {
+            eventsUploaded.addAndGet(eventCount);
+        } else {
+            uploadFailures.incrementAndGet();
+        }
+        uploadLatency.record(latencyNanos);
+    }
+
+    /**
+     * Record the payload size of an upload request.
+     *
+     * @param rawBytes  The size of the events json before compression.
+     * @param sentBytes The size of the request body.
+     */
+    public void recordUploadBytes(long rawBytes, long sentBytes) {
+        uploadRawBytes.addAndGet(rawBytes);
+        uploadBytes.addAndGet(sentBytes);
+    }
+
+    /**
+     * Set the current size of the event store.
+     *
+     * @param sizeBytes The total size of stored events.
+     */
+    public void setStoreSizeBytes(long sizeBytes) {
+        storeSizeBytes.set(sizeBytes);
+    }
+
+    /**
+     * Record the duration of an SDK init phase.
+     *
+     * @param phase         The init phase name.
+     * @param durationNanos The duration in nanoseconds.
+     */
+    public void recordInitPhase(String phase, long durationNanos) {
+        synchronized (initPhases) {
+            initPhases.put(phase, durationNanos);
+        }
+    }
+
+    /**
+     * Get the latency histogram of recording an event, including storing and eviction.
+     *
+     * @return the LatencyHistogram.
+     */
+    public LatencyHistogram getRecordLatency() {
+        return recordLatency;
+    }
+
+    /**
+     * Get the latency histogram of inserting an event into the store.
+     *
+     * @return the LatencyHistogram.
+     */
+    public LatencyHistogram getInsertLatency() {
+        return insertLatency;
+    }
+
+    /**
+     * Get a snapshot of all the metrics at this moment.
+     *
+     * @return the Snapshot.
+     */
+    public Snapshot getSnapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Report the metrics snapshot to the listener periodically, the listener is called in a background thread.
+     *
+     * @param listener       The listener, null to stop reporting.
+     * @param intervalMillis The report interval in milliseconds.
+     */
+    public synchronized void setListener(final Listener listener, final long intervalMillis) {
+        if (handler == null) {
+            HandlerThread handlerThread = new HandlerThread("ClickstreamMetrics");
+            handlerThread.start();
+            handler = new Handler(handlerThread.getLooper());
+        }
+        handler.removeCallbacksAndMessages(null);
+        if (listener == null) {
+            return;
+        }
+        if (intervalMillis <= 0) {
+            LOG.error("metrics report interval must be greater than 0");
+            return;
+        }
+        final Runnable reportRunnable = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    listener.onMetrics(getSnapshot());
+                } catch (Exception exception) {
+                    LOG.error("metrics listener error: " + exception.getMessage());
+                }
+                handler.postDelayed(this, intervalMillis);
+            }
+        };
+        handler.postDelayed(reportRunnable, intervalMillis);
+    }
+
+    /**
+     * The listener to receive the metrics periodically.
+     */
+    public interface Listener {
+        /**
+         * Called with the latest metrics snapshot.
+         *
+         * @param snapshot The metrics snapshot.
+         */
+        void onMetrics(Snapshot snapshot);
+    }
+
+    /**
+     * Immutable snapshot of the metrics.
+     */
+    public static final class Snapshot {
+        private final long timestamp;
+        private final long eventsRecorded;
+        private final long eventsDropped;
+        private final long eventsRateLimited;
+        private final long eventsSampledOut;
+        private final long eventsDeduplicated;
+        private final long eventsExpired;
+        private final long eventsUploaded;
+        private final long uploadRequests;
+        private final long uploadFailures;
+        private final long uploadRawBytes;
+        private final long uploadBytes;
+        private final long storeSizeBytes;
+        private final LatencyHistogram.Snapshot recordLatency;
+        private final LatencyHistogram.Snapshot insertLatency;
+        private final LatencyHistogram.Snapshot uploadLatency;
+        private final Map<String, Long> initPhases;
+
+        private Snapshot(ClickstreamMetrics metrics) {
+            this.timestamp = System.currentTimeMillis();
+            this.eventsRecorded = metrics.eventsRecorded.get();
+            this.eventsDropped = metrics.eventsDropped.get();
+            this.eventsRateLimited = metrics.eventsRateLimited.get();
+            this.eventsSampledOut = metrics.eventsSampledOut.get();
+            this.eventsDeduplicated = metrics.eventsDeduplicated.get();
+            this.eventsExpired = metrics.eventsExpired.get();
+            this.eventsUploaded = metrics.eventsUploaded.get();
+            this.uploadRequests = metrics.uploadRequests.get();
+            this.uploadFailures = metrics.uploadFailures.get();
+            this.uploadRawBytes = metrics.uploadRawBytes.get();
+            this.uploadBytes = metrics.uploadBytes.get();
+            this.storeSizeBytes = metrics.storeSizeBytes.get();
+            this.recordLatency = metrics.recordLatency.getSnapshot();
+            this.insertLatency = metrics.insertLatency.getSnapshot();
+            this.uploadLatency = metrics.uploadLatency.getSnapshot();
+            synchronized (metrics.initPhases) {
+                this.initPhases = Collections.unmodifiableMap(new LinkedHashMap<>(metrics.initPhases));
+            }
+        }
+
+        /**
+         * Get the time when the snapshot was taken.
+         *
+         * @return the timestamp in milliseconds.
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Get the number of events saved into the store.
+         *
+         * @return the number of events.
+         */
+        public long getEventsRecorded() {
+            return eventsRecorded;
+        }
+
+        /**
+         * Get the number of events which failed to save or were evicted from the store.
+         *
+         * @return the number of events.
+         */
+        public long getEventsDropped() {
+            return eventsDropped;
+        }
+
+        /**
+         * Get the number of events dropped by rate limit before recording.
+         *
+         * @return the number of events.
+         */
+        public long getEventsRateLimited() {
+            return eventsRateLimited;
+        }
+
+        /**
+         * Get the number of events dropped by sampling before recording.
+         *
+         * @return the number of events.
+         */
+        public long getEventsSampledOut() {
+            return eventsSampledOut;
+        }
+
+        /**
+         * Get the number of repeated events dropped within the dedupe window before recording.
+         *
+         * @return the number of events.
+         */
+        public long getEventsDeduplicated() {
+            return eventsDeduplicated;
+        }
+
+        /**
+         * Get the number of events deleted from the store as they exceed the max event age.
+         *
+         * @return the number of events.
+         */
+        public long getEventsExpired() {
+            return eventsExpired;
+        }
+
+        /**
+         * Get the number of events uploaded successfully.
+         *
+         * @return the number of events.
+         */
+        public long getEventsUploaded() {
+            return eventsUploaded;
+        }
+
+        /**
+         * Get the number of upload requests.
+         *
+         * @return the number of requests.
+         */
+        public long getUploadRequests() {
+            return uploadRequests;
+        }
+
+        /**
+         * Get the number of failed upload requests.
+         *
+         * @return the number of requests.
+         */
+        public long getUploadFailures() {
+            return uploadFailures;
+        }
+
+        /**
+         * Get the size of the uploaded events json before compression.
+         *
+         * @return the size in bytes.
+         */
+        public long getUploadRawBytes() {
+            return uploadRawBytes;
+        }
+
+        /**
+         * Get the size of the uploaded request bodies.
+         *
+         * @return the size in bytes.
+         */
+        public long getUploadBytes() {
+            return uploadBytes;
+        }
+
+        /**
+         * Get the ratio of the request body size to the raw events json size.
+         *
+         * @return the compression ratio, 1 when nothing uploaded.
+         */
+        public double getCompressionRatio() {
+            return uploadRawBytes == 0 ? 1 : (double) uploadBytes / uploadRawBytes;
+        }
+
+        /**
+         * Get the size of the event store when last measured.
+         *
+         * @return the size in bytes.
+         */
+        public long getStoreSizeBytes() {
+            return storeSizeBytes;
+        }
+
+        /**
+         * Get the latency histogram of recording an event.
+         *
+         * @return the histogram snapshot.
+         */
+        public LatencyHistogram.Snapshot getRecordLatency() {
+            return recordLatency;
+        }
+
+        /**
+         * Get the latency histogram of inserting an event into the store.
+         *
+         * @return the histogram snapshot.
+         */
+        public LatencyHistogram.Snapshot getInsertLatency() {
+            return insertLatency;
+        }
+
+        /**
+         * Get the latency histogram of upload requests.
+         *
+         * @return the histogram snapshot.
+         */
+        public LatencyHistogram.Snapshot getUploadLatency() {
+            return uploadLatency;
+        }
+
+        /**
+         * Get the durations of the SDK init phases in the order they finished, see the {@code INIT_PHASE_}
+         * constants for the phase names.
+         *
+         * @return the unmodifiable map of phase name to duration in nanoseconds.
+         */
+        public Map<String, Long> getInitPhases() {
+            return initPhases;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with fixed buckets, the last bucket counts the latencies
+ * which exceed the largest bound.
+ */
+public final class LatencyHistogram {
+    private static final long[] BUCKET_BOUNDS_MICROS = {
+        100L, 250L, 500L,
+        1_000L, 2_500L, 5_000L,
+        10_000L, 25_000L, 50_000L,
+        100_000L, 250_000L, 500_000L,
+        1_000_000L, 2_500_000L, 5_000_000L,
+        10_000_000L,
+    };
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_BOUNDS_MICROS.length + 1);
+    private final AtomicLong totalMicros = new AtomicLong();
+
+    /**
+     * Record a latency.
+     *
+     * @param latencyNanos The latency in nanoseconds.
+     */
+    public void record(long latencyNanos) {
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+        int index = 0;
+        while (index < BUCKET_BOUNDS_MICROS.length && latencyMicros > BUCKET_BOUNDS_MICROS[index]) {
+            index++;
+        }
+        bucketCounts.incrementAndGet(index);
+        totalMicros.addAndGet(latencyMicros);
+    }
+
+    /**
+     * Get the snapshot of current histogram.
+     *
+     * @return the Snapshot.
+     */
+    public Snapshot getSnapshot() {
+        long[] counts = new long[bucketCounts.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = bucketCounts.get(i);
+        }
+        return new Snapshot(counts, totalMicros.get());
+    }
+
+    /**
+     * Immutable snapshot of the latency histogram.
+     */
+    public static final class Snapshot {
+        private final long[] bucketCounts;
+        private final long totalMicros;
+        private final long count;
+
+        private Snapshot(long[] bucketCounts, long totalMicros) {
+            this.bucketCounts = bucketCounts;
+            this.totalMicros = totalMicros;
+            long sum = 0;
+            for (long bucketCount : bucketCounts) {
+                sum += bucketCount;
+            }
+            this.count = sum;
+        }
+
+        /**
+         * Get the upper bounds of the buckets in microseconds, the last bucket has no upper bound.
+         *
+         * @return the bucket bounds.
+         */
+        public static long[] getBucketBoundsMicros() {
+            return BUCKET_BOUNDS_MICROS.clone();
+        }
+
+        /**
+         * Get the count of each bucket.
+         *
+         * @return the bucket counts.
+         */
+        public long[] getBucketCounts() {
+            return bucketCounts.clone();
+        }
+
+        /**
+         * Get the number of recorded latencies.
+         *
+         * @return the count.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Get the mean latency in microseconds.
+         *
+         * @return the mean latency, 0 when nothing recorded.
+         */
+        public long getMeanMicros() {
+            return count == 0 ? 0 : totalMicros / count;
+        }
+
+        /**
+         * Get the upper bound of the bucket which contains the percentile.
+         *
+         * @param percentile The percentile between 0 and 100.
+         * @return the latency in microseconds, or Long.MAX_VALUE when it falls in the last bucket.
+         */
+        public long getPercentileMicros(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            final double percent = 100.0;
+            long rank = (long) Math.ceil(count * Math.min(Math.max(percentile, 0), percent) / percent);
+            long accumulated = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+                accumulated += bucketCounts[i];
+                if (accumulated >= Math.max(rank, 1)) {
+                    return BUCKET_BOUNDS_MICROS[i];
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client.network;
+
+import software.aws.solution.clickstream.client.Event;
+
+import java.nio.charset.Charset;
+
+/**
+ * The preset dictionary of the deflate compression, built from the keys of the event json, the reserved
+ * attributes and the preset event names, so that a small batch of events does not relearn the same keys.
+ * The server must have the dictionary of the same id to decompress the payload, so the content of a
+ * dictionary never changes once released: any change of the content needs a new {@link #ID}, and the
+ * zlib header of the payload carries the Adler-32 of the dictionary for the server to verify it.
+ */
+public final class CompressionDictionary {
+    /**
+     * The id of the dictionary sent in the request.
+     */
+    public static final String ID = "v1";
+
+    // deflate references the strings closer to the end of the dictionary with shorter distances,
+    // so the names used by every event are at the end.
+    private static final String[] PRESET_EVENT_NAMES = {
+        Event.PresetEvent.METRIC_SUMMARY,
+        Event.PresetEvent.EVENT_LIMIT_SUMMARY,
+        Event.PresetEvent.CLICKSTREAM_ERROR,
+        Event.PresetEvent.PROFILE_SET,
+        Event.PresetEvent.APP_EXCEPTION,
+        Event.PresetEvent.OS_UPDATE,
+        Event.PresetEvent.APP_UPDATE,
+        Event.PresetEvent.FIRST_OPEN,
+        Event.PresetEvent.APP_END,
+        Event.PresetEvent.APP_START,
+        Event.PresetEvent.SESSION_START,
+        Event.PresetEvent.USER_ENGAGEMENT,
+        Event.PresetEvent.SCREEN_VIEW,
+    };
+    private static final String[] RESERVED_ATTRIBUTES = {
+        Event.ReservedAttribute.METRIC_START_TIMESTAMP,
+        Event.ReservedAttribute.METRICS,
+        Event.ReservedAttribute.LIMITED_EVENTS,
+        Event.ReservedAttribute.SAMPLED_OUT_COUNT,
+        Event.ReservedAttribute.RATE_LIMITED_COUNT,
+        Event.ReservedAttribute.ERROR_MESSAGE,
+        Event.ReservedAttribute.ERROR_CODE,
+        Event.ReservedAttribute.USER_ID_UNSET,
+        Event.ReservedAttribute.PREVIOUS_OS_VERSION,
+        Event.ReservedAttribute.PREVIOUS_APP_VERSION,
+        Event.ReservedAttribute.IS_FIRST_TIME,
+        Event.ReservedAttribute.ENTRANCES,
+        Event.ReservedAttribute.ENGAGEMENT_TIMESTAMP,
+        Event.ReservedAttribute.PREVIOUS_TIMESTAMP,
+        Event.ReservedAttribute.PREVIOUS_SCREEN_UNIQUE_ID,
+        Event.ReservedAttribute.PREVIOUS_SCREEN_ID,
+        Event.ReservedAttribute.PREVIOUS_SCREEN_NAME,
+        Event.ReservedAttribute.SCREEN_ID,
+        Event.ReservedAttribute.USER_FIRST_TOUCH_TIMESTAMP,
+    };
+    private static final String EVENT_TEMPLATE = "[{\"unique_id\":\"\",\"event_type\":\"\",\"event_id\":\"\","
+        + "\"app_id\":\"\",\"timestamp\":,\"device_id\":\"\",\"platform\":\"Android\",\"os_version\":\"\","
+        + "\"make\":\"\",\"brand\":\"\",\"model\":\"\",\"locale\":\"\",\"carrier\":\"UNKNOWN\","
+        + "\"network_type\":\"WIFI\",\"network_type\":\"Mobile\",\"screen_height\":,\"screen_width\":,"
+        + "\"zone_offset\":,\"system_language\":\"\",\"country\":\"\",\"country_code\":\"\",\"sdk_version\":\"\","
+        + "\"sdk_name\":\"aws-solution-clickstream-sdk\",\"app_version\":\"\",\"app_package_name\":\"\","
+        + "\"app_title\":\"\",\"items\":[],\"user\":{\"" + Event.ReservedAttribute.USER_ID + "\":{\"value\":\"\","
+        + "\"set_timestamp\":}},\"attributes\":{\"_session_id\":\"\",\"_session_start_timestamp\":,"
+        + "\"_session_duration\":,\"_session_number\":,\"" + Event.ReservedAttribute.SCREEN_NAME + "\":\"\",\""
+        + Event.ReservedAttribute.SCREEN_UNIQUE_ID + "\":\"\"}},{";
+    private static final byte[] DICTIONARY = build();
+
+    private CompressionDictionary() {
+    }
+
+    /**
+     * Get the content of the dictionary.
+     *
+     * @return a copy of the dictionary bytes.
+     */
+    public static byte[] getBytes() {
+        return DICTIONARY.clone();
+    }
+
+    private static byte[] build() {
+        StringBuilder builder = new StringBuilder();
+        for (String name : PRESET_EVENT_NAMES) {
+            builder.append("\"event_type\":\"").append(name).append("\",");
+        }
+        for (String name : RESERVED_ATTRIBUTES) {
+            builder.append('"').append(name).append("\":");
+        }
+        builder.append(EVENT_TEMPLATE);
+        return builder.toString().getBytes(Charset.forName("UTF-8"));
+    }
+}
@@ -22,6 +22,7 @@ import com.amplifyframework.util.UserAgent;
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 import software.aws.solution.clickstream.ClickstreamConfiguration;
+import software.aws.solution.clickstream.client.metrics.ClickstreamMetrics;
 import software.aws.solution.clickstream.client.util.StringUtil;
 
 import java.io.IOException;
@@ -61,10 +62,24 @@ public final class NetRequest {
      * @return submit result.
      */
     public static boolean uploadEvents(String eventJson, ClickstreamConfiguration configuration, int bundleSequenceId) {
+        return uploadEvents(eventJson, configuration, bundleSequenceId, null);
+    }
+
+    /**
+     * upload batch of recorded events to server and record the payload size.
+     *
+     * @param eventJson        event json string
+     * @param configuration    the ClickstreamConfiguration.
+     * @param bundleSequenceId the bundle sequence id.
+     * @param metrics          the metrics to record the payload size, can be null.
+     * @return submit result.
+     */
+    public static boolean uploadEvents(String eventJson, ClickstreamConfiguration configuration, int bundleSequenceId,
+                                       ClickstreamMetrics metrics) {
         if (StringUtil.isNullOrEmpty(eventJson)) {
             return false;
         }
-        try (Response response = request(eventJson, configuration, bundleSequenceId);
+        try (Response response = request(eventJson, configuration, bundleSequenceId, metrics);
              ResponseBody ignored = response.body()) {
             if (response.isSuccessful()) {
                 LOG.debug("submitEvents success. \n" + response);
@@ -87,33 +102,38 @@ public final class NetRequest {
      * @throws IOException throw IOException.
      */
     private static Response request(@NonNull String eventJson, @NonNull ClickstreamConfiguration configuration,
-                                    int bundleSequenceId)
+                                    int bundleSequenceId, ClickstreamMetrics metrics)
         throws IOException {
         String appId = configuration.getAppId();
         String endpoint = configuration.getEndpoint();
-        String curStr = eventJson;
-        String compression = "";
+        String compression = RequestPayload.COMPRESSION_NONE;
         if (configuration.isCompressEvents()) {
             LOG.debug("submitEvents isCompressEvents true");
-            curStr = StringUtil.compressForGzip(eventJson);
-            compression = "gzip";
+            compression = Boolean.TRUE.equals(configuration.isDictionaryCompression())
+                ? RequestPayload.COMPRESSION_DEFLATE : RequestPayload.COMPRESSION_GZIP;
         }
-        if (null == curStr) {
-            LOG.debug("submitEvents isCompressEvents false");
-            curStr = eventJson;
+        RequestPayload payload =
+            RequestPayload.create(eventJson, compression, Boolean.TRUE.equals(configuration.isCrc32cChecksum()));
+        if (metrics != null) {
+            metrics.recordUploadBytes(eventJson.length(), payload.getBytes().length);
         }
 
-        RequestBody body = RequestBody.create(curStr, MediaType.parse("application/json; charset=utf-8"));
+        RequestBody body = RequestBody.create(payload.getBytes(), MediaType.parse("application/json; charset=utf-8"));
         Request request = new Request.Builder().url(endpoint).build();
-        HttpUrl url = request.url().newBuilder()
+        HttpUrl.Builder urlBuilder = request.url().newBuilder()
             .addQueryParameter("platform", "Android")
             .addQueryParameter("appId", appId)
-            .addQueryParameter("hashCode", StringUtil.getHashCode(curStr))
+            .addQueryParameter("hashCode", payload.getHashCode())
             .addQueryParameter("event_bundle_sequence_id", String.valueOf(bundleSequenceId))
             .addQueryParameter("upload_timestamp", String.valueOf(System.currentTimeMillis()))
-            .addQueryParameter("compression", compression)
-            .build();
-        Request.Builder builder = request.newBuilder().url(url).post(body);
+            .addQueryParameter("compression", payload.getCompression());
+        if (payload.getHashAlgorithm() != null) {
+            urlBuilder.addQueryParameter("hashAlgorithm", payload.getHashAlgorithm());
+        }
+        if (payload.getDictionaryId() != null) {
+            urlBuilder.addQueryParameter("dictionaryId", payload.getDictionaryId());
+        }
+        Request.Builder builder = request.newBuilder().url(urlBuilder.build()).post(body);
         if (!StringUtil.isNullOrEmpty(configuration.getAuthCookie())) {
             builder.addHeader("cookie", configuration.getAuthCookie());
         }
@@ -137,5 +157,4 @@ public final class NetRequest {
         // make the sync request.
         return client.newCall(request).execute();
     }
-
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client.network;
+
+import android.util.Base64;
+import android.util.Base64OutputStream;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import software.aws.solution.clickstream.client.util.Crc32c;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The request body with its hash code, the body is compressed, base64 encoded and hashed in a single pass
+ * through the chained output streams, so the payload is neither copied into a string nor read again.
+ */
+public final class RequestPayload {
+    /**
+     * The events json is sent as is.
+     */
+    public static final String COMPRESSION_NONE = "";
+    /**
+     * The events json is compressed with gzip.
+     */
+    public static final String COMPRESSION_GZIP = "gzip";
+    /**
+     * The events json is compressed in zlib format with the preset {@link CompressionDictionary}.
+     */
+    public static final String COMPRESSION_DEFLATE = "deflate";
+    private static final Log LOG = LogFactory.getLog(RequestPayload.class);
+    private static final String SHA_256 = "SHA-256";
+    private static final String CRC32C = "crc32c";
+    private static final int HASH_CODE_BYTE_LENGTH = 4;
+    private static final int BYTE_MASK = 0xFF;
+    private static final int HEX_RADIX = 16;
+    private static final int NIBBLE_BITS = 4;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private final byte[] bytes;
+    private final String hashCode;
+    private final String hashAlgorithm;
+    private final String compression;
+
+    private RequestPayload(byte[] bytes, String hashCode, String hashAlgorithm, String compression) {
+        this.bytes = bytes;
+        this.hashCode = hashCode;
+        this.hashAlgorithm = hashAlgorithm;
+        this.compression = compression;
+    }
+
+    /**
+     * Create the payload of the events json.
+     *
+     * @param eventJson   the events json.
+     * @param compression the compression, the compressed payload is encoded with base64.
+     * @param isCrc32c    whether the hash code is the CRC32C, otherwise the first 4 bytes of the SHA-256.
+     * @return the payload.
+     * @throws IOException when failed to write the uncompressed payload.
+     */
+    public static RequestPayload create(String eventJson, String compression, boolean isCrc32c)
+        throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(eventJson.length());
+        Crc32c crc32c = null;
+        MessageDigest digest = null;
+        OutputStream outputStream = buffer;
+        if (isCrc32c) {
+            crc32c = new Crc32c();
+            outputStream = new CheckedOutputStream(outputStream, crc32c);
+        } else {
+            try {
+                digest = MessageDigest.getInstance(SHA_256);
+                outputStream = new DigestOutputStream(outputStream, digest);
+            } catch (NoSuchAlgorithmException exception) {
+                LOG.error("Failed to get sha256 for payload: " + exception.getMessage());
+            }
+        }
+        Deflater deflater = null;
+        try {
+            if (COMPRESSION_GZIP.equals(compression)) {
+                outputStream = new GZIPOutputStream(new Base64OutputStream(outputStream, Base64.NO_WRAP));
+            } else if (COMPRESSION_DEFLATE.equals(compression)) {
+                deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+                deflater.setDictionary(CompressionDictionary.getBytes());
+                outputStream =
+                    new DeflaterOutputStream(new Base64OutputStream(outputStream, Base64.NO_WRAP), deflater);
+            }
+            try (Writer writer = new OutputStreamWriter(outputStream, UTF_8)) {
+                writer.write(eventJson);
+            }
+        } catch (IOException exception) {
+            if (COMPRESSION_NONE.equals(compression)) {
+                throw exception;
+            }
+            LOG.error("IOException occur when compressing payload: " + exception.getMessage());
+            return create(eventJson, COMPRESSION_NONE, isCrc32c);
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        String hashCode;
+        if (crc32c != null) {
+            hashCode = String.format(Locale.US, "%08x", crc32c.getValue());
+        } else if (digest != null) {
+            hashCode = toHexString(digest.digest());
+        } else {
+            hashCode = "";
+        }
+        return new RequestPayload(buffer.toByteArray(), hashCode, isCrc32c ? CRC32C : null, compression);
+    }
+
+    private static String toHexString(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < HASH_CODE_BYTE_LENGTH; i++) {
+            sb.append(Character.forDigit((bytes[i] & BYTE_MASK) >> NIBBLE_BITS, HEX_RADIX));
+            sb.append(Character.forDigit(bytes[i] & (HEX_RADIX - 1), HEX_RADIX));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Get the request body.
+     *
+     * @return the bytes of the body.
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Get the hash code of the request body.
+     *
+     * @return the hash code in hex.
+     */
+    public String getHashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Get the algorithm of the hash code.
+     *
+     * @return the algorithm, or null for the default SHA-256.
+     */
+    public String getHashAlgorithm() {
+        return hashAlgorithm;
+    }
+
+    /**
+     * Get the compression of the request body.
+     *
+     * @return the compression.
+     */
+    public String getCompression() {
+        return compression;
+    }
+
+    /**
+     * Get the id of the preset dictionary of the compression.
+     *
+     * @return the dictionary id, or null if the compression does not use a dictionary.
+     */
+    public String getDictionaryId() {
+        return COMPRESSION_DEFLATE.equals(compression) ? CompressionDictionary.ID : null;
+    }
+}
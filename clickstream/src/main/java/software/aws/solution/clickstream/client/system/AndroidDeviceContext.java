@@ -0,0 +1,88 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client.system;
+
+import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.Configuration;
+import androidx.annotation.NonNull;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+/**
+ * Android Device Context, keep the latest {@link DeviceContextSnapshot} and refresh it
+ * when the configuration, locale or timezone changed.
+ */
+public final class AndroidDeviceContext extends BroadcastReceiver implements ComponentCallbacks {
+    private static final Log LOG = LogFactory.getLog(AndroidDeviceContext.class);
+    private final Context context;
+    private volatile DeviceContextSnapshot snapshot;
+
+    /**
+     * The construct function with parameters.
+     *
+     * @param context The context of Android.
+     */
+    public AndroidDeviceContext(final Context context) {
+        Context appContext = context.getApplicationContext();
+        this.context = appContext != null ? appContext : context;
+        this.snapshot = DeviceContextSnapshot.capture(this.context);
+        try {
+            this.context.registerComponentCallbacks(this);
+            IntentFilter filter = new IntentFilter();
+            filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+            filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+            this.context.registerReceiver(this, filter);
+        } catch (Exception exception) {
+            LOG.error("failed to register device context listener, error message:" + exception.getMessage());
+        }
+    }
+
+    /**
+     * Get the latest device context snapshot.
+     *
+     * @return DeviceContextSnapshot.
+     */
+    public DeviceContextSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Capture a new device context snapshot.
+     */
+    public void refresh() {
+        snapshot = DeviceContextSnapshot.capture(context);
+    }
+
+    @Override
+    public void onReceive(Context receiverContext, Intent intent) {
+        refresh();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        refresh();
+    }
+
+    @Override
+    public void onLowMemory() {
+        // no need to release the snapshot.
+    }
+}
@@ -19,17 +19,20 @@ import android.content.Context;
 import android.content.SharedPreferences;
 
 /**
- * Android Preferences.
+ * Android Preferences, the values are kept in memory and written behind in batch,
+ * call {@link #flush()} on lifecycle transitions to write them immediately.
  */
 public class AndroidPreferences {
 
     private final SharedPreferences preferences;
+    private final PreferencesWriteBuffer writeBuffer;
 
     /**
      * The default construct function.
      */
     public AndroidPreferences() {
         preferences = null;
+        writeBuffer = null;
     }
 
     /**
@@ -41,6 +44,7 @@ public class AndroidPreferences {
                               final String preferencesKey) {
         preferences = context.getSharedPreferences(preferencesKey,
                 Context.MODE_PRIVATE);
+        writeBuffer = PreferencesWriteBuffer.of(preferences);
     }
 
     /**
@@ -50,6 +54,10 @@ public class AndroidPreferences {
      * @return The boolean value from the preference with the key.
      */
     public boolean getBoolean(String key, boolean optValue) {
+        Object value = writeBuffer.get(key);
+        if (value != PreferencesWriteBuffer.NOT_DIRTY) {
+            return value != null ? (Boolean) value : optValue;
+        }
         return preferences.getBoolean(key, optValue);
     }
 
@@ -60,6 +68,10 @@ public class AndroidPreferences {
      * @return The integer value from the preference with the key.
      */
     public int getInt(String key, int optValue) {
+        Object value = writeBuffer.get(key);
+        if (value != PreferencesWriteBuffer.NOT_DIRTY) {
+            return value != null ? (Integer) value : optValue;
+        }
         return preferences.getInt(key, optValue);
     }
 
@@ -70,6 +82,10 @@ public class AndroidPreferences {
      * @return The float value from the preference with the key.
      */
     public float getFloat(String key, float optValue) {
+        Object value = writeBuffer.get(key);
+        if (value != PreferencesWriteBuffer.NOT_DIRTY) {
+            return value != null ? (Float) value : optValue;
+        }
         return preferences.getFloat(key, optValue);
     }
 
@@ -80,6 +96,10 @@ public class AndroidPreferences {
      * @return The long value from the preference with the key.
      */
     public long getLong(String key, long optValue) {
+        Object value = writeBuffer.get(key);
+        if (value != PreferencesWriteBuffer.NOT_DIRTY) {
+            return value != null ? (Long) value : optValue;
+        }
         return preferences.getLong(key, optValue);
     }
 
@@ -90,6 +110,10 @@ public class AndroidPreferences {
      * @return The string value from the preference with the key.
      */
     public String getString(String key, String optValue) {
+        Object value = writeBuffer.get(key);
+        if (value != PreferencesWriteBuffer.NOT_DIRTY) {
+            return value != null ? (String) value : optValue;
+        }
         return preferences.getString(key, optValue);
     }
 
@@ -99,9 +123,7 @@ public class AndroidPreferences {
      * @param value The value with the key.
      */
     public void putBoolean(String key, boolean value) {
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.putBoolean(key, value);
-        editor.apply();
+        writeBuffer.put(key, value);
     }
 
     /**
@@ -110,9 +132,7 @@ public class AndroidPreferences {
      * @param value The value with the key.
      */
     public void putInt(String key, int value) {
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.putInt(key, value);
-        editor.apply();
+        writeBuffer.put(key, value);
     }
 
     /**
@@ -121,9 +141,7 @@ public class AndroidPreferences {
      * @param value The value with the key.
      */
     public void putFloat(String key, float value) {
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.putFloat(key, value);
-        editor.apply();
+        writeBuffer.put(key, value);
     }
 
     /**
@@ -132,9 +150,7 @@ public class AndroidPreferences {
      * @param value The value with the key.
      */
     public void putLong(String key, long value) {
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.putLong(key, value);
-        editor.apply();
+        writeBuffer.put(key, value);
     }
 
     /**
@@ -143,10 +159,29 @@ public class AndroidPreferences {
      * @param value The value with the key.
      */
     public void putString(String key, String value) {
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.putString(key, value);
-        editor.apply();
+        writeBuffer.put(key, value);
     }
 
-}
+    /**
+     * Remove the value with the key.
+     * @param key The key in the preference.
+     */
+    public void remove(String key) {
+        writeBuffer.put(key, null);
+    }
+
+    /**
+     * Write the pending values in one batch asynchronously.
+     */
+    public void flush() {
+        writeBuffer.flush(false);
+    }
 
+    /**
+     * Write the pending values in one batch and wait for the disk write to finish.
+     */
+    public void commit() {
+        writeBuffer.flush(true);
+    }
+
+}
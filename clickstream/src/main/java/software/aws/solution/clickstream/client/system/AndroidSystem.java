@@ -19,6 +19,10 @@ import android.content.Context;
 import android.provider.Settings;
 import android.telephony.TelephonyManager;
 
+import software.aws.solution.clickstream.client.metrics.ClickstreamMetrics;
+
+import java.io.File;
+
 /**
  * Android System.
  */
@@ -27,9 +31,11 @@ public class AndroidSystem {
     // can use, will be concatenated with the package to ensure no collision.
     private final String preferencesKeySuffix = "294262d4-8dbd-4bfd-816d-0fc81b3d32b7";
     private final AndroidPreferences preferences;
+    private final SdkStateStore stateStore;
     private final AndroidConnectivity connectivity;
     private final AndroidAppDetails appDetails;
     private final AndroidDeviceDetails deviceDetails;
+    private final AndroidDeviceContext deviceContext;
     private final String androidId;
 
     /**
@@ -38,12 +44,30 @@ public class AndroidSystem {
      * @param context The context of Android.
      */
     public AndroidSystem(final Context context) {
+        this(context, null);
+    }
+
+    /**
+     * The construct function with parameters.
+     *
+     * @param context The context of Android.
+     * @param metrics The metrics to record the init phases, can be null.
+     */
+    public AndroidSystem(final Context context, final ClickstreamMetrics metrics) {
+        long start = System.nanoTime();
         preferences = new AndroidPreferences(context,
             context.getApplicationContext().getPackageName() + preferencesKeySuffix);
+        stateStore = new SdkStateStore(new File(context.getFilesDir(), SdkStateStore.STATE_FILE_NAME), preferences);
+        long preferencesEnd = System.nanoTime();
         connectivity = new AndroidConnectivity(context);
         appDetails = new AndroidAppDetails(context);
         deviceDetails = new AndroidDeviceDetails(getCarrier(context));
+        deviceContext = new AndroidDeviceContext(context);
         androidId = Settings.System.getString(context.getContentResolver(), Settings.Secure.ANDROID_ID);
+        if (metrics != null) {
+            metrics.recordInitPhase(ClickstreamMetrics.INIT_PHASE_PREFERENCES, preferencesEnd - start);
+            metrics.recordInitPhase(ClickstreamMetrics.INIT_PHASE_SYSTEM, System.nanoTime() - preferencesEnd);
+        }
     }
 
     /**
@@ -85,6 +109,15 @@ public class AndroidSystem {
         return preferences;
     }
 
+    /**
+     * Get the SDK state store.
+     *
+     * @return SdkStateStore.
+     */
+    public SdkStateStore getStateStore() {
+        return stateStore;
+    }
+
     /**
      * Get the connectivity of Android.
      *
@@ -114,5 +147,13 @@ public class AndroidSystem {
     public AndroidDeviceDetails getDeviceDetails() {
         return deviceDetails;
     }
-}
 
+    /**
+     * Get the device context which keep the latest device context snapshot.
+     *
+     * @return AndroidDeviceContext.
+     */
+    public AndroidDeviceContext getDeviceContext() {
+        return deviceContext;
+    }
+}
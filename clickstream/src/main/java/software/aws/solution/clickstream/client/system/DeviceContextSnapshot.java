@@ -0,0 +1,126 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client.system;
+
+import android.content.Context;
+import android.util.DisplayMetrics;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Immutable snapshot of the device values which only change on configuration, locale or timezone changes.
+ */
+public final class DeviceContextSnapshot {
+    private static final String UNKNOWN = "UNKNOWN";
+    private final int heightPixels;
+    private final int widthPixels;
+    private final String locale;
+    private final String language;
+    private final String countryCode;
+    private final String displayCountry;
+    private final int zoneOffset;
+
+    private DeviceContextSnapshot(int heightPixels, int widthPixels, Locale locale, int zoneOffset) {
+        this.heightPixels = heightPixels;
+        this.widthPixels = widthPixels;
+        this.locale = locale != null ? locale.toString() : UNKNOWN;
+        this.language = locale != null ? locale.getLanguage() : UNKNOWN;
+        this.countryCode = locale != null ? locale.getCountry() : UNKNOWN;
+        this.displayCountry = locale != null ? locale.getDisplayCountry() : UNKNOWN;
+        this.zoneOffset = zoneOffset;
+    }
+
+    /**
+     * Capture the current display metrics, default locale and timezone.
+     *
+     * @param context The context of Android.
+     * @return the DeviceContextSnapshot.
+     */
+    public static DeviceContextSnapshot capture(final Context context) {
+        int height = 0;
+        int width = 0;
+        DisplayMetrics dm = context.getResources().getDisplayMetrics();
+        if (dm != null) {
+            height = dm.heightPixels;
+            width = dm.widthPixels;
+        }
+        return new DeviceContextSnapshot(height, width, Locale.getDefault(), TimeZone.getDefault().getRawOffset());
+    }
+
+    /**
+     * Get the screen height pixels.
+     *
+     * @return The screen height pixels.
+     */
+    public int getHeightPixels() {
+        return heightPixels;
+    }
+
+    /**
+     * Get the screen width pixels.
+     *
+     * @return The screen width pixels.
+     */
+    public int getWidthPixels() {
+        return widthPixels;
+    }
+
+    /**
+     * Get the locale string.
+     *
+     * @return The locale string.
+     */
+    public String getLocale() {
+        return locale;
+    }
+
+    /**
+     * Get the locale language.
+     *
+     * @return The locale language.
+     */
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * Get the locale country code.
+     *
+     * @return The locale country code.
+     */
+    public String getCountryCode() {
+        return countryCode;
+    }
+
+    /**
+     * Get the locale display country.
+     *
+     * @return The locale display country.
+     */
+    public String getDisplayCountry() {
+        return displayCountry;
+    }
+
+    /**
+     * Get the raw zone offset in milliseconds.
+     *
+     * @return The zone offset.
+     */
+    public int getZoneOffset() {
+        return zoneOffset;
+    }
+}
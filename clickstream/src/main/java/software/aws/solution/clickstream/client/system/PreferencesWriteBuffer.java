@@ -0,0 +1,136 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client.system;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Write-behind buffer of a {@link SharedPreferences} file, keep the dirty values in memory
+ * and commit them in a single editor when the flush interval elapsed or flush is requested.
+ * The buffer is shared by all the {@link AndroidPreferences} which wrap the same preferences file.
+ */
+final class PreferencesWriteBuffer implements Runnable {
+    /**
+     * The interval in milliseconds to coalesce dirty values before writing them.
+     */
+    static final long FLUSH_INTERVAL_MILLIS = 1000L;
+    /**
+     * The marker returned when the key has no dirty value.
+     */
+    static final Object NOT_DIRTY = new Object();
+    private static final Map<SharedPreferences, PreferencesWriteBuffer> BUFFERS = new WeakHashMap<>();
+    private final SharedPreferences preferences;
+    private final Map<String, Object> dirtyValues = new HashMap<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private boolean isFlushScheduled;
+
+    private PreferencesWriteBuffer(SharedPreferences preferences) {
+        this.preferences = preferences;
+    }
+
+    /**
+     * Get the write buffer of the preferences file.
+     *
+     * @param preferences The SharedPreferences.
+     * @return the PreferencesWriteBuffer.
+     */
+    static synchronized PreferencesWriteBuffer of(SharedPreferences preferences) {
+        PreferencesWriteBuffer buffer = BUFFERS.get(preferences);
+        if (buffer == null) {
+            buffer = new PreferencesWriteBuffer(preferences);
+            BUFFERS.put(preferences, buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Get the value which has not been written yet.
+     *
+     * @param key The key in the preference.
+     * @return the dirty value, null when the key is removed, or {@link #NOT_DIRTY} when the key is not dirty.
+     */
+    synchronized Object get(String key) {
+        if (!dirtyValues.containsKey(key)) {
+            return NOT_DIRTY;
+        }
+        return dirtyValues.get(key);
+    }
+
+    /**
+     * Put the value into the buffer and schedule the flush.
+     *
+     * @param key   The key in the preference.
+     * @param value The value with the key, null to remove the key.
+     */
+    synchronized void put(String key, Object value) {
+        dirtyValues.put(key, value);
+        if (!isFlushScheduled) {
+            isFlushScheduled = true;
+            handler.postDelayed(this, FLUSH_INTERVAL_MILLIS);
+        }
+    }
+
+    /**
+     * Write all the dirty values with one editor.
+     *
+     * @param isSync whether to commit synchronously instead of apply.
+     */
+    synchronized void flush(boolean isSync) {
+        if (isFlushScheduled) {
+            handler.removeCallbacks(this);
+            isFlushScheduled = false;
+        }
+        if (dirtyValues.isEmpty()) {
+            return;
+        }
+        SharedPreferences.Editor editor = preferences.edit();
+        for (Map.Entry<String, Object> entry : dirtyValues.entrySet()) {
+            Object value = entry.getValue();
+            if (value == null) {
+                editor.remove(entry.getKey());
+            } else if (value instanceof Boolean) {
+                editor.putBoolean(entry.getKey(), (Boolean) value);
+            } else if (value instanceof Integer) {
+                editor.putInt(entry.getKey(), (Integer) value);
+            } else if (value instanceof Long) {
+                editor.putLong(entry.getKey(), (Long) value);
+            } else if (value instanceof Float) {
+                editor.putFloat(entry.getKey(), (Float) value);
+            } else {
+                editor.putString(entry.getKey(), (String) value);
+            }
+        }
+        // apply() updates the in-memory map of SharedPreferences before returning,
+        // so readers never miss a value which has been removed from the buffer.
+        if (isSync) {
+            editor.commit();
+        } else {
+            editor.apply();
+        }
+        dirtyValues.clear();
+    }
+
+    @Override
+    public void run() {
+        flush(false);
+    }
+}
@@ -0,0 +1,781 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client.system;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import org.json.JSONException;
+import org.json.JSONObject;
+import software.aws.solution.clickstream.client.Session;
+import software.aws.solution.clickstream.client.util.PreferencesUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SDK state store backed by a small versioned binary file, keep the session, the user attributes
+ * and the user unique id map as typed records, the file is loaded with a single read on startup.
+ * The state is migrated once from the JSON strings stored in preferences by the previous SDK version.
+ * The user unique id map is indexed in memory and bounded by the least recently used user ids,
+ * each change appends only its records, and the file is compacted when the stale records pile up.
+ * The state is updated in memory at once and written to the file in a background thread after a short delay,
+ * so the changes in the delay are written together. The file is shared by the processes of the app, each write
+ * holds a file lock and reloads the file first, so the records appended by the other processes are kept when
+ * the file is compacted. A state file which fails to be read is kept as it is, and the state is not written
+ * in this process.
+ */
+public class SdkStateStore {
+    /**
+     * The name of the state file in the app files directory.
+     */
+    public static final String STATE_FILE_NAME = "clickstream_state.bin";
+    /**
+     * The default max number of user ids kept in the user unique id map.
+     */
+    public static final int DEFAULT_MAX_USER_COUNT = 1000;
+    private static final Log LOG = LogFactory.getLog(SdkStateStore.class);
+    private static final int MAGIC = 0x43534B53;
+    private static final int VERSION = 1;
+    private static final byte RECORD_SESSION = 1;
+    private static final byte RECORD_USER_ATTRIBUTE = 2;
+    private static final byte RECORD_USER_UNIQUE_ID = 3;
+    private static final byte RECORD_USER_ATTRIBUTE_REMOVED = 4;
+    private static final byte RECORD_USER_ATTRIBUTES_CLEARED = 5;
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_INT = 2;
+    private static final byte VALUE_LONG = 3;
+    private static final byte VALUE_DOUBLE = 4;
+    private static final byte VALUE_BOOLEAN = 5;
+    private static final int MIN_COMPACT_RECORD_COUNT = 100;
+    private static final String KEY_VALUE = "value";
+    private static final String KEY_SET_TIMESTAMP = "set_timestamp";
+    private static final String KEY_USER_UNIQUE_ID = "user_unique_id";
+    private static final String KEY_USER_FIRST_TOUCH_TIMESTAMP = "user_first_touch_timestamp";
+    private static final long WRITE_THREAD_KEEP_ALIVE_SECONDS = 10;
+    private static final long WRITE_DELAY_MILLIS = 200;
+    private static final String BACKUP_FILE_SUFFIX = ".bak";
+    private static final String LOCK_FILE_SUFFIX = ".lock";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    /**
+     * The file lock is held by the whole process, so the stores in the process take it in turn.
+     */
+    private static final Object PROCESS_LOCK = new Object();
+
+    private final File file;
+    private final int maxUserCount;
+    private final State state = new State();
+    private final ScheduledThreadPoolExecutor writeExecutor;
+    private final ByteArrayOutputStream pendingRecords = new ByteArrayOutputStream();
+    private boolean isRepairPending;
+    private boolean isWriteScheduled;
+    private boolean isWritable = true;
+    private AndroidPreferences migratedPreferences;
+
+    /**
+     * The construct function with parameters, load the state file or migrate the state from preferences
+     * when the state file does not exist.
+     *
+     * @param file        The state file.
+     * @param preferences The preferences which store the state of the previous SDK version.
+     */
+    public SdkStateStore(final File file, final AndroidPreferences preferences) {
+        this(file, preferences, DEFAULT_MAX_USER_COUNT);
+    }
+
+    /**
+     * The construct function with parameters, load the state file or migrate the state from preferences
+     * when the state file does not exist.
+     *
+     * @param file         The state file.
+     * @param preferences  The preferences which store the state of the previous SDK version.
+     * @param maxUserCount The max number of user ids kept in the user unique id map.
+     */
+    public SdkStateStore(final File file, final AndroidPreferences preferences, final int maxUserCount) {
+        this.file = file;
+        this.maxUserCount = maxUserCount;
+        writeExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "ClickstreamStateWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writeExecutor.setKeepAliveTime(WRITE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        writeExecutor.allowCoreThreadTimeOut(true);
+        // the background writer locks the store, it waits until the state is loaded.
+        synchronized (this) {
+            if (file.exists()) {
+                LoadResult result = load(file, state);
+                if (result == LoadResult.READ_FAILED) {
+                    LOG.error("The state is not saved in this process to keep the state file.");
+                    isWritable = false;
+                } else if (result != LoadResult.LOADED) {
+                    // the writer backs up or rewrites the file if it is still incomplete when the lock is held.
+                    isRepairPending = true;
+                    scheduleWrite();
+                }
+                state.evictUsers(maxUserCount);
+            } else {
+                migrate(preferences);
+            }
+        }
+    }
+
+    /**
+     * Get the stored session.
+     *
+     * @return the stored session, or null when no session stored.
+     */
+    public synchronized Session getSession() {
+        return state.session;
+    }
+
+    /**
+     * Save the session to the state file.
+     *
+     * @param session The session.
+     */
+    public synchronized void saveSession(Session session) {
+        state.session = session;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            writeSession(output, session);
+            output.flush();
+        } catch (IOException exception) {
+            LOG.error("Failed to serialize session. error: " + exception.getMessage());
+            return;
+        }
+        requestAppend(bytes.toByteArray());
+    }
+
+    /**
+     * Get the user attributes in the format of {"name": {"value": value, "set_timestamp": timestamp}}.
+     *
+     * @return a new JSONObject of user attributes.
+     */
+    public synchronized JSONObject getUserAttributes() {
+        JSONObject attributes = new JSONObject();
+        for (Map.Entry<String, UserAttribute> entry : state.userAttributes.entrySet()) {
+            try {
+                JSONObject attribute = new JSONObject();
+                attribute.put(KEY_VALUE, entry.getValue().value);
+                attribute.put(KEY_SET_TIMESTAMP, entry.getValue().setTimestamp);
+                attributes.put(entry.getKey(), attribute);
+            } catch (JSONException exception) {
+                LOG.error("Could not create Json object of user attribute. error: " + exception.getMessage());
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * Replace all the user attributes and save them to the state file.
+     *
+     * @param attributes user attributes in the format of {"name": {"value": value, "set_timestamp": timestamp}}.
+     */
+    public synchronized void saveUserAttributes(JSONObject attributes) {
+        putUserAttributes(attributes);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            output.writeByte(RECORD_USER_ATTRIBUTES_CLEARED);
+            for (Map.Entry<String, UserAttribute> entry : state.userAttributes.entrySet()) {
+                writeUserAttribute(output, entry.getKey(), entry.getValue());
+            }
+            output.flush();
+        } catch (IOException exception) {
+            LOG.error("Failed to serialize user attributes. error: " + exception.getMessage());
+            return;
+        }
+        requestAppend(bytes.toByteArray());
+    }
+
+    /**
+     * Save only the changed user attributes by appending their records to the state file.
+     *
+     * @param attributes   all the user attributes in the format of
+     *                     {"name": {"value": value, "set_timestamp": timestamp}}.
+     * @param changedNames the names of the user attributes which have been added, updated or removed.
+     */
+    public synchronized void updateUserAttributes(JSONObject attributes, Collection<String> changedNames) {
+        if (changedNames.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            for (String name : changedNames) {
+                UserAttribute attribute = toUserAttribute(attributes.optJSONObject(name));
+                if (attribute != null) {
+                    state.userAttributes.put(name, attribute);
+                    writeUserAttribute(output, name, attribute);
+                } else {
+                    state.userAttributes.remove(name);
+                    output.writeByte(RECORD_USER_ATTRIBUTE_REMOVED);
+                    output.writeUTF(name);
+                }
+            }
+            output.flush();
+        } catch (IOException exception) {
+            LOG.error("Failed to serialize user attributes. error: " + exception.getMessage());
+            return;
+        }
+        requestAppend(bytes.toByteArray());
+    }
+
+    /**
+     * Get the user info which contains user unique id and user first touch timestamp.
+     *
+     * @param userId The user id.
+     * @return a new JSONObject of user info, or null when the user id is not stored.
+     */
+    public synchronized JSONObject getUserInfo(String userId) {
+        UserInfo userInfo = state.userUniqueIds.get(userId);
+        if (userInfo == null) {
+            return null;
+        }
+        return userInfo.toJSONObject();
+    }
+
+    /**
+     * Get the number of the stored user ids.
+     *
+     * @return the number of the stored user ids.
+     */
+    public synchronized int getUserCount() {
+        return state.userUniqueIds.size();
+    }
+
+    /**
+     * Save the user info of the user id as the most recently used one, the least recently used
+     * user ids are evicted when the number of user ids exceeds the limit.
+     *
+     * @param userId                  The user id.
+     * @param userUniqueId            The user unique id.
+     * @param userFirstTouchTimestamp The user first touch timestamp.
+     */
+    public synchronized void saveUserInfo(String userId, String userUniqueId, long userFirstTouchTimestamp) {
+        state.putUserInfo(userId, new UserInfo(userUniqueId, userFirstTouchTimestamp));
+        state.evictUsers(maxUserCount);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            writeUserInfo(output, userId, state.userUniqueIds.get(userId));
+            output.flush();
+        } catch (IOException exception) {
+            LOG.error("Failed to serialize user info. error: " + exception.getMessage());
+            return;
+        }
+        requestAppend(bytes.toByteArray());
+    }
+
+    /**
+     * Write the pending changes to the state file and wait until they are written.
+     */
+    public void flush() {
+        try {
+            writeExecutor.submit(this::write).get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException exception) {
+            LOG.error("Failed to flush state file. error: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Append the records to the state file in the background.
+     *
+     * @param records The serialized records.
+     */
+    private void requestAppend(byte[] records) {
+        pendingRecords.write(records, 0, records.length);
+        scheduleWrite();
+    }
+
+    private void scheduleWrite() {
+        if (!isWritable || isWriteScheduled) {
+            return;
+        }
+        isWriteScheduled = true;
+        // the changes made during the delay are written together, so a burst of updates is a single write.
+        writeExecutor.schedule(this::write, WRITE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write the pending records in the background thread, they are taken under the store lock and written
+     * to the file under the file lock, the single writer thread keeps the order of the writes.
+     */
+    private void write() {
+        byte[] records;
+        AndroidPreferences preferences;
+        synchronized (this) {
+            isWriteScheduled = false;
+            if (!isWritable || !isRepairPending && pendingRecords.size() == 0) {
+                return;
+            }
+            records = pendingRecords.toByteArray();
+            pendingRecords.reset();
+            isRepairPending = false;
+            preferences = migratedPreferences;
+        }
+        boolean isWritten;
+        synchronized (PROCESS_LOCK) {
+            try (RandomAccessFile lockFile = new RandomAccessFile(file.getPath() + LOCK_FILE_SUFFIX, "rw")) {
+                // the file lock is released when the lock file is closed.
+                lockFile.getChannel().lock();
+                isWritten = writeRecords(records);
+            } catch (IOException exception) {
+                LOG.error("Failed to lock state file. error: " + exception.getMessage());
+                isWritten = false;
+            }
+        }
+        if (!isWritten) {
+            synchronized (this) {
+                // keep the records in order before the ones recorded since, they are written with the next change.
+                byte[] laterRecords = pendingRecords.toByteArray();
+                pendingRecords.reset();
+                pendingRecords.write(records, 0, records.length);
+                pendingRecords.write(laterRecords, 0, laterRecords.length);
+                isRepairPending = true;
+            }
+        } else if (preferences != null) {
+            PreferencesUtil.removeLegacyState(preferences);
+            synchronized (this) {
+                migratedPreferences = null;
+            }
+        }
+    }
+
+    /**
+     * Write the records under the file lock. The file is reloaded with the records, the records are appended
+     * when the file is complete, otherwise or when the stale records pile up, the merged state is rewritten,
+     * so the records appended by the other processes are kept.
+     *
+     * @param records The serialized records.
+     * @return whether the records are written.
+     */
+    private boolean writeRecords(byte[] records) {
+        State merged = new State();
+        LoadResult result = load(file, merged);
+        if (result == LoadResult.READ_FAILED) {
+            return false;
+        }
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(records))) {
+            while (input.available() > 0) {
+                merged.readRecord(input);
+            }
+        } catch (IOException exception) {
+            LOG.error("Failed to merge records. error: " + exception.getMessage());
+            return false;
+        }
+        merged.evictUsers(maxUserCount);
+        if (result == LoadResult.UNSUPPORTED || result == LoadResult.CORRUPT) {
+            backup();
+        }
+        if (result != LoadResult.LOADED || merged.isCompactionNeeded(maxUserCount)) {
+            try {
+                return save(merged.serialize());
+            } catch (IOException exception) {
+                LOG.error("Failed to serialize state. error: " + exception.getMessage());
+                return false;
+            }
+        }
+        return records.length == 0 || append(records);
+    }
+
+    /**
+     * Append the records to the end of the state file.
+     *
+     * @param records The serialized records.
+     * @return whether the records are appended.
+     */
+    private boolean append(byte[] records) {
+        try (FileOutputStream outputStream = new FileOutputStream(file, true)) {
+            outputStream.write(records);
+            outputStream.getFD().sync();
+            return true;
+        } catch (IOException exception) {
+            LOG.error("Failed to append records to state file. error: " + exception.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Keep the state file which is not supported or corrupt as the backup file, the state is saved to a new file.
+     */
+    private void backup() {
+        if (!file.renameTo(new File(file.getPath() + BACKUP_FILE_SUFFIX))) {
+            LOG.error("Failed to back up state file.");
+        }
+    }
+
+    private void putUserAttributes(JSONObject attributes) {
+        state.userAttributes.clear();
+        Iterator<String> keys = attributes.keys();
+        while (keys.hasNext()) {
+            String name = keys.next();
+            UserAttribute attribute = toUserAttribute(attributes.optJSONObject(name));
+            if (attribute != null) {
+                state.userAttributes.put(name, attribute);
+            }
+        }
+    }
+
+    private static UserAttribute toUserAttribute(JSONObject attribute) {
+        if (attribute == null || !attribute.has(KEY_VALUE)) {
+            return null;
+        }
+        Object value = attribute.opt(KEY_VALUE);
+        if (value instanceof Float) {
+            value = ((Float) value).doubleValue();
+        }
+        return new UserAttribute(value, attribute.optLong(KEY_SET_TIMESTAMP));
+    }
+
+    private void migrate(AndroidPreferences preferences) {
+        state.session = PreferencesUtil.getSession(preferences);
+        putUserAttributes(PreferencesUtil.getUserAttribute(preferences));
+        JSONObject userUniqueIdObject = PreferencesUtil.getUserUniqueIdMap(preferences);
+        Iterator<String> userIds = userUniqueIdObject.keys();
+        while (userIds.hasNext()) {
+            String userId = userIds.next();
+            JSONObject userInfo = userUniqueIdObject.optJSONObject(userId);
+            if (userInfo != null) {
+                state.userUniqueIds.put(userId, new UserInfo(userInfo.optString(KEY_USER_UNIQUE_ID),
+                    userInfo.optLong(KEY_USER_FIRST_TOUCH_TIMESTAMP)));
+            }
+        }
+        state.evictUsers(maxUserCount);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            state.writeRecords(output);
+            output.flush();
+        } catch (IOException exception) {
+            LOG.error("Failed to serialize state. error: " + exception.getMessage());
+            return;
+        }
+        // the legacy state is removed after it is saved to the state file, which is created even if it is empty.
+        migratedPreferences = preferences;
+        isRepairPending = true;
+        requestAppend(bytes.toByteArray());
+    }
+
+    /**
+     * Load the state file into the state with a single read.
+     *
+     * @param file  The state file.
+     * @param state The state to load into.
+     * @return the result of the load.
+     */
+    private static LoadResult load(File file, State state) {
+        if (!file.exists()) {
+            return LoadResult.MISSING;
+        }
+        byte[] bytes;
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            FileChannel channel = inputStream.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            int read = 0;
+            while (buffer.hasRemaining() && read >= 0) {
+                read = channel.read(buffer);
+            }
+            bytes = buffer.array();
+        } catch (IOException exception) {
+            LOG.error("Failed to read state file. error: " + exception.getMessage());
+            return LoadResult.READ_FAILED;
+        }
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (bytes.length < 2 * Integer.SIZE / Byte.SIZE || input.readInt() != MAGIC
+                || input.readInt() != VERSION) {
+                LOG.error("Unsupported state file, the file is backed up and the state is reset.");
+                return LoadResult.UNSUPPORTED;
+            }
+            while (input.available() > 0) {
+                state.readRecord(input);
+            }
+            return LoadResult.LOADED;
+        } catch (EOFException exception) {
+            LOG.error("State file is truncated, the incomplete record is ignored.");
+            return LoadResult.TRUNCATED;
+        } catch (IOException exception) {
+            LOG.error("State file is corrupt, the file is backed up and the records before the corrupt one are kept. "
+                + "error: " + exception.getMessage());
+            return LoadResult.CORRUPT;
+        }
+    }
+
+    private static Object readValue(DataInputStream input) throws IOException {
+        byte valueType = input.readByte();
+        switch (valueType) {
+            case VALUE_STRING:
+                return input.readUTF();
+            case VALUE_INT:
+                return input.readInt();
+            case VALUE_LONG:
+                return input.readLong();
+            case VALUE_DOUBLE:
+                return input.readDouble();
+            case VALUE_BOOLEAN:
+                return input.readBoolean();
+            default:
+                throw new IOException("unknown value type " + valueType);
+        }
+    }
+
+    private static void writeValue(DataOutputStream output, Object value) throws IOException {
+        if (value instanceof Integer) {
+            output.writeByte(VALUE_INT);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(VALUE_LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof Number) {
+            output.writeByte(VALUE_DOUBLE);
+            output.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            output.writeByte(VALUE_BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else {
+            output.writeByte(VALUE_STRING);
+            output.writeUTF(String.valueOf(value));
+        }
+    }
+
+    private static void writeSession(DataOutputStream output, Session session) throws IOException {
+        output.writeByte(RECORD_SESSION);
+        output.writeUTF(session.getSessionID());
+        output.writeLong(session.getStartTime());
+        output.writeBoolean(session.getPauseTime() != null);
+        if (session.getPauseTime() != null) {
+            output.writeLong(session.getPauseTime());
+        }
+        output.writeInt(session.getSessionIndex());
+    }
+
+    private static void writeUserAttribute(DataOutputStream output, String name, UserAttribute attribute)
+        throws IOException {
+        output.writeByte(RECORD_USER_ATTRIBUTE);
+        output.writeUTF(name);
+        writeValue(output, attribute.value);
+        output.writeLong(attribute.setTimestamp);
+    }
+
+    private static void writeUserInfo(DataOutputStream output, String userId, UserInfo userInfo) throws IOException {
+        output.writeByte(RECORD_USER_UNIQUE_ID);
+        output.writeUTF(userId);
+        output.writeUTF(userInfo.userUniqueId);
+        output.writeLong(userInfo.userFirstTouchTimestamp);
+    }
+
+    /**
+     * Write the whole state to a temporary file then rename it to the state file, under the file lock.
+     *
+     * @param bytes The serialized state.
+     * @return whether the state is saved.
+     */
+    private boolean save(byte[] bytes) {
+        // each process writes its own temporary file, the rename replaces the state file at once.
+        File tempFile = new File(file.getPath() + "." + android.os.Process.myPid() + TEMP_FILE_SUFFIX);
+        try (FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+            outputStream.write(bytes);
+            outputStream.getFD().sync();
+        } catch (IOException exception) {
+            LOG.error("Failed to write state file. error: " + exception.getMessage());
+            return false;
+        }
+        if (!tempFile.renameTo(file)) {
+            LOG.error("Failed to rename state file.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * The result of loading the state file.
+     */
+    private enum LoadResult {
+        /**
+         * The state file is loaded.
+         */
+        LOADED,
+        /**
+         * The last record is incomplete, the records before it are loaded and the state file need to be rewritten.
+         */
+        TRUNCATED,
+        /**
+         * The state file contains an unknown record, the records before it are loaded and the state file
+         * is kept as the backup file.
+         */
+        CORRUPT,
+        /**
+         * The state file is not a supported state file, it is kept as the backup file.
+         */
+        UNSUPPORTED,
+        /**
+         * The state file failed to be read, it is kept as it is.
+         */
+        READ_FAILED,
+        /**
+         * The state file does not exist.
+         */
+        MISSING,
+    }
+
+    /**
+     * The state kept in the state file, and the number of records of each kind read from the file.
+     */
+    private static final class State {
+        private Session session;
+        private final Map<String, UserAttribute> userAttributes = new LinkedHashMap<>();
+        private final Map<String, UserInfo> userUniqueIds = new LinkedHashMap<>();
+        private int sessionRecordCount;
+        private int userAttributeRecordCount;
+        private int userRecordCount;
+
+        private void readRecord(DataInputStream input) throws IOException {
+            byte type = input.readByte();
+            if (type == RECORD_SESSION) {
+                String sessionId = input.readUTF();
+                long startTime = input.readLong();
+                Long pauseTime = input.readBoolean() ? input.readLong() : null;
+                int sessionIndex = input.readInt();
+                session = new Session(sessionId, startTime, pauseTime, sessionIndex);
+                sessionRecordCount++;
+            } else if (type == RECORD_USER_ATTRIBUTE) {
+                String name = input.readUTF();
+                Object value = readValue(input);
+                long setTimestamp = input.readLong();
+                userAttributes.put(name, new UserAttribute(value, setTimestamp));
+                userAttributeRecordCount++;
+            } else if (type == RECORD_USER_ATTRIBUTE_REMOVED) {
+                userAttributes.remove(input.readUTF());
+                userAttributeRecordCount++;
+            } else if (type == RECORD_USER_ATTRIBUTES_CLEARED) {
+                userAttributes.clear();
+                userAttributeRecordCount++;
+            } else if (type == RECORD_USER_UNIQUE_ID) {
+                String userId = input.readUTF();
+                String userUniqueId = input.readUTF();
+                long userFirstTouchTimestamp = input.readLong();
+                putUserInfo(userId, new UserInfo(userUniqueId, userFirstTouchTimestamp));
+                userRecordCount++;
+            } else {
+                throw new IOException("unknown record type " + type);
+            }
+        }
+
+        /**
+         * Put the user info to the end of the map, so the iteration order is from the least recently used.
+         *
+         * @param userId   The user id.
+         * @param userInfo The user info.
+         */
+        private void putUserInfo(String userId, UserInfo userInfo) {
+            userUniqueIds.remove(userId);
+            userUniqueIds.put(userId, userInfo);
+        }
+
+        private void evictUsers(int maxUserCount) {
+            Iterator<String> userIds = userUniqueIds.keySet().iterator();
+            while (userUniqueIds.size() > maxUserCount && userIds.hasNext()) {
+                userIds.next();
+                userIds.remove();
+            }
+        }
+
+        private boolean isCompactionNeeded(int maxUserCount) {
+            return sessionRecordCount > MIN_COMPACT_RECORD_COUNT
+                || userAttributeRecordCount >= 2 * Math.max(userAttributes.size(), MIN_COMPACT_RECORD_COUNT)
+                || userRecordCount >= 2 * Math.max(userUniqueIds.size(), maxUserCount);
+        }
+
+        private void writeRecords(DataOutputStream output) throws IOException {
+            if (session != null) {
+                writeSession(output, session);
+            }
+            for (Map.Entry<String, UserAttribute> entry : userAttributes.entrySet()) {
+                writeUserAttribute(output, entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<String, UserInfo> entry : userUniqueIds.entrySet()) {
+                writeUserInfo(output, entry.getKey(), entry.getValue());
+            }
+        }
+
+        private byte[] serialize() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            writeRecords(output);
+            output.flush();
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * The typed value of user attribute.
+     */
+    private static final class UserAttribute {
+        private final Object value;
+        private final long setTimestamp;
+
+        private UserAttribute(Object value, long setTimestamp) {
+            this.value = value;
+            this.setTimestamp = setTimestamp;
+        }
+    }
+
+    /**
+     * The user unique id and user first touch timestamp of a user id.
+     */
+    private static final class UserInfo {
+        private final String userUniqueId;
+        private final long userFirstTouchTimestamp;
+
+        private UserInfo(String userUniqueId, long userFirstTouchTimestamp) {
+            this.userUniqueId = userUniqueId;
+            this.userFirstTouchTimestamp = userFirstTouchTimestamp;
+        }
+
+        private JSONObject toJSONObject() {
+            JSONObject userInfo = new JSONObject();
+            try {
+                userInfo.put(KEY_USER_UNIQUE_ID, userUniqueId);
+                userInfo.put(KEY_USER_FIRST_TOUCH_TIMESTAMP, userFirstTouchTimestamp);
+            } catch (JSONException exception) {
+                LOG.error("Could not create Json object of user info. error: " + exception.getMessage());
+            }
+            return userInfo;
+        }
+    }
+}
@@ -0,0 +1,438 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client.util;
+
+import androidx.annotation.NonNull;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The attributes of an event or an item in insertion order, stored in parallel arrays of the keys,
+ * the type tags and the slots, so that the int, long, double and boolean values are kept in a primitive
+ * slot without boxing, and the array of the reference slots is allocated for the first String or object value.
+ * The attributes are serialized to JSON directly, the output is the same as {@link JSONObject#toString()}.
+ * It is not thread safe.
+ */
+public final class AttributeContainer implements JSONSerializable {
+    private static final Log LOG = LogFactory.getLog(AttributeContainer.class);
+    private static final int INITIAL_CAPACITY = 8;
+    private static final char MAX_CONTROL_CHAR = 0x1F;
+    private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0);
+    private static final byte TYPE_INT = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_DOUBLE = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+    private static final byte TYPE_REFERENCE = 5;
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private long[] primitives = new long[INITIAL_CAPACITY];
+    private Object[] references;
+    private int size;
+
+    /**
+     * Get the number of attributes.
+     *
+     * @return the number of attributes.
+     */
+    public int length() {
+        return size;
+    }
+
+    /**
+     * Determines if the attribute exists.
+     *
+     * @param name the attribute name.
+     * @return true if the attribute exists.
+     */
+    public boolean has(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    /**
+     * Get the attribute name at the index.
+     *
+     * @param index the index in insertion order.
+     * @return the attribute name.
+     */
+    public String keyAt(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Get the attribute value at the index, the primitive value is boxed.
+     *
+     * @param index the index in insertion order.
+     * @return the attribute value.
+     */
+    public Object valueAt(int index) {
+        long bits = primitives[index];
+        switch (types[index]) {
+            case TYPE_INT:
+                return (int) bits;
+            case TYPE_LONG:
+                return bits;
+            case TYPE_DOUBLE:
+                return Double.longBitsToDouble(bits);
+            case TYPE_BOOLEAN:
+                return bits != 0;
+            default:
+                return references[index];
+        }
+    }
+
+    /**
+     * Get the attribute value, the primitive value is boxed.
+     *
+     * @param name the attribute name.
+     * @return the attribute value, or null if not exist.
+     */
+    public Object opt(String name) {
+        int index = indexOf(name);
+        return index < 0 ? null : valueAt(index);
+    }
+
+    /**
+     * Get the attribute value as int.
+     *
+     * @param name the attribute name.
+     * @return the int value, or 0 if not exist or not a number.
+     */
+    public int optInt(String name) {
+        int index = indexOf(name);
+        if (index < 0) {
+            return 0;
+        }
+        switch (types[index]) {
+            case TYPE_INT:
+            case TYPE_LONG:
+                return (int) primitives[index];
+            case TYPE_DOUBLE:
+                return (int) Double.longBitsToDouble(primitives[index]);
+            default:
+                return references[index] instanceof Number ? ((Number) references[index]).intValue() : 0;
+        }
+    }
+
+    /**
+     * Get the attribute value as String.
+     *
+     * @param name the attribute name.
+     * @return the String value, or empty String if not exist.
+     */
+    public String optString(String name) {
+        int index = indexOf(name);
+        if (index < 0) {
+            return "";
+        }
+        if (types[index] == TYPE_REFERENCE && references[index] instanceof String) {
+            return (String) references[index];
+        }
+        return String.valueOf(valueAt(index));
+    }
+
+    /**
+     * Put the int attribute.
+     *
+     * @param name  the attribute name.
+     * @param value the attribute value.
+     */
+    public void put(String name, int value) {
+        setPrimitive(slotOf(name), TYPE_INT, value);
+    }
+
+    /**
+     * Put the long attribute.
+     *
+     * @param name  the attribute name.
+     * @param value the attribute value.
+     */
+    public void put(String name, long value) {
+        setPrimitive(slotOf(name), TYPE_LONG, value);
+    }
+
+    /**
+     * Put the double attribute.
+     *
+     * @param name  the attribute name.
+     * @param value the attribute value.
+     * @throws JSONException throws when the value is NaN or infinite.
+     */
+    public void put(String name, double value) throws JSONException {
+        checkDouble(value);
+        setPrimitive(slotOf(name), TYPE_DOUBLE, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Put the boolean attribute.
+     *
+     * @param name  the attribute name.
+     * @param value the attribute value.
+     */
+    public void put(String name, boolean value) {
+        setPrimitive(slotOf(name), TYPE_BOOLEAN, value ? 1 : 0);
+    }
+
+    /**
+     * Put the attribute, the Integer, Long, Double and Boolean values are unboxed into the primitive slot.
+     *
+     * @param name  the attribute name.
+     * @param value the attribute value, the attribute is removed when null.
+     * @throws JSONException throws when the value is a NaN or infinite number.
+     */
+    public void put(String name, Object value) throws JSONException {
+        if (value == null) {
+            remove(name);
+        } else if (value instanceof Integer) {
+            put(name, ((Integer) value).intValue());
+        } else if (value instanceof Long) {
+            put(name, ((Long) value).longValue());
+        } else if (value instanceof Double) {
+            put(name, ((Double) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            put(name, ((Boolean) value).booleanValue());
+        } else {
+            if (value instanceof Number) {
+                checkDouble(((Number) value).doubleValue());
+            }
+            int index = slotOf(name);
+            if (references == null) {
+                references = new Object[keys.length];
+            }
+            types[index] = TYPE_REFERENCE;
+            primitives[index] = 0;
+            references[index] = value;
+        }
+    }
+
+    /**
+     * Remove the attribute.
+     *
+     * @param name the attribute name.
+     * @return true if the attribute existed.
+     */
+    public boolean remove(String name) {
+        int index = indexOf(name);
+        if (index < 0) {
+            return false;
+        }
+        int moved = size - index - 1;
+        System.arraycopy(keys, index + 1, keys, index, moved);
+        System.arraycopy(types, index + 1, types, index, moved);
+        System.arraycopy(primitives, index + 1, primitives, index, moved);
+        if (references != null) {
+            System.arraycopy(references, index + 1, references, index, moved);
+            references[size - 1] = null;
+        }
+        size--;
+        keys[size] = null;
+        return true;
+    }
+
+    /**
+     * Write the JSON object of the attributes.
+     *
+     * @param builder the StringBuilder to append to.
+     */
+    public void writeTo(StringBuilder builder) {
+        builder.append('{');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            appendQuoted(builder, keys[i]);
+            builder.append(':');
+            appendValue(builder, i);
+        }
+        builder.append('}');
+    }
+
+    /**
+     * Convert the attributes to JSON string.
+     *
+     * @return the JSON string.
+     */
+    public String toJSONString() {
+        StringBuilder builder = new StringBuilder();
+        writeTo(builder);
+        return builder.toString();
+    }
+
+    /**
+     * Convert the attributes to a new JSON object, the primitive values are boxed.
+     *
+     * @return the JSON object.
+     */
+    @Override
+    public JSONObject toJSONObject() {
+        JSONObject json = new JSONObject();
+        try {
+            for (int i = 0; i < size; i++) {
+                Object value = valueAt(i);
+                json.put(keys[i],
+                    value instanceof JSONSerializable ? ((JSONSerializable) value).toJSONObject() : value);
+            }
+        } catch (JSONException exception) {
+            LOG.error("error parsing json, error message:" + exception.getMessage());
+        }
+        return json;
+    }
+
+    /**
+     * Convert the attributes to JSON string.
+     *
+     * @return the JSON string.
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        return toJSONString();
+    }
+
+    private int indexOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        for (int i = 0; i < size; i++) {
+            String key = keys[i];
+            // the constant names passed again are matched by reference first.
+            if (key == name || key.hashCode() == name.hashCode() && key.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int slotOf(String name) {
+        int index = indexOf(name);
+        if (index >= 0) {
+            return index;
+        }
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            types = Arrays.copyOf(types, capacity);
+            primitives = Arrays.copyOf(primitives, capacity);
+            if (references != null) {
+                references = Arrays.copyOf(references, capacity);
+            }
+        }
+        keys[size] = name;
+        return size++;
+    }
+
+    private void setPrimitive(int index, byte type, long bits) {
+        types[index] = type;
+        primitives[index] = bits;
+        if (references != null) {
+            references[index] = null;
+        }
+    }
+
+    private void appendValue(StringBuilder builder, int index) {
+        long bits = primitives[index];
+        switch (types[index]) {
+            case TYPE_INT:
+            case TYPE_LONG:
+                builder.append(bits);
+                break;
+            case TYPE_DOUBLE:
+                double value = Double.longBitsToDouble(bits);
+                // same as JSONObject.numberToString, the integral double is written without the fraction.
+                if (bits == NEGATIVE_ZERO_BITS) {
+                    builder.append("-0");
+                } else if (value == (long) value) {
+                    builder.append((long) value);
+                } else {
+                    builder.append(value);
+                }
+                break;
+            case TYPE_BOOLEAN:
+                builder.append(bits != 0);
+                break;
+            default:
+                appendReference(builder, references[index]);
+                break;
+        }
+    }
+
+    private static void appendReference(StringBuilder builder, Object value) {
+        if (value instanceof String) {
+            appendQuoted(builder, (String) value);
+        } else if (value instanceof AttributeContainer) {
+            ((AttributeContainer) value).writeTo(builder);
+        } else if (value instanceof JSONObject || value instanceof JSONArray || value == JSONObject.NULL) {
+            builder.append(value);
+        } else if (value instanceof Number) {
+            try {
+                builder.append(JSONObject.numberToString((Number) value));
+            } catch (JSONException exception) {
+                builder.append("null");
+            }
+        } else {
+            appendQuoted(builder, value.toString());
+        }
+    }
+
+    private static void appendQuoted(StringBuilder builder, String value) {
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                    builder.append('\\').append(c);
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                case '\b':
+                    builder.append("\\b");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\f':
+                    builder.append("\\f");
+                    break;
+                default:
+                    if (c <= MAX_CONTROL_CHAR) {
+                        builder.append(String.format(Locale.US, "\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                    break;
+            }
+        }
+        builder.append('"');
+    }
+
+    private static void checkDouble(double value) throws JSONException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new JSONException("Forbidden numeric value: " + value);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.client.util;
+
+import java.util.zip.Checksum;
+
+/**
+ * CRC-32C (Castagnoli) checksum, java.util.zip.CRC32C is only available since Android 8.0.
+ */
+public final class Crc32c implements Checksum {
+    private static final int POLYNOMIAL = 0x82F63B78;
+    private static final int TABLE_SIZE = 256;
+    private static final int BYTE_BITS = 8;
+    private static final int BYTE_MASK = 0xFF;
+    private static final long INT_MASK = 0xFFFFFFFFL;
+    private static final int[] TABLE = new int[TABLE_SIZE];
+    private int crc = ~0;
+
+    static {
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            int value = i;
+            for (int bit = 0; bit < BYTE_BITS; bit++) {
+                value = (value & 1) != 0 ? (value >>> 1) ^ POLYNOMIAL : value >>> 1;
+            }
+            TABLE[i] = value;
+        }
+    }
+
+    @Override
+    public void update(int value) {
+        crc = (crc >>> BYTE_BITS) ^ TABLE[(crc ^ value) & BYTE_MASK];
+    }
+
+    @Override
+    public void update(byte[] bytes, int offset, int length) {
+        int value = crc;
+        for (int i = offset; i < offset + length; i++) {
+            value = (value >>> BYTE_BITS) ^ TABLE[(value ^ bytes[i]) & BYTE_MASK];
+        }
+        crc = value;
+    }
+
+    @Override
+    public long getValue() {
+        return ~crc & INT_MASK;
+    }
+
+    @Override
+    public void reset() {
+        crc = ~0;
+    }
+}
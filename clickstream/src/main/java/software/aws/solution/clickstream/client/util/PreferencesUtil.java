@@ -19,9 +19,9 @@ import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 import org.json.JSONException;
 import org.json.JSONObject;
-import software.aws.solution.clickstream.client.Event;
 import software.aws.solution.clickstream.client.Session;
 import software.aws.solution.clickstream.client.system.AndroidPreferences;
+import software.aws.solution.clickstream.client.system.SdkStateStore;
 
 import java.util.UUID;
 
@@ -45,7 +45,8 @@ public final class PreferencesUtil {
     }
 
     /**
-     * get the user attribute jsonObject from preferences.
+     * get the user attribute jsonObject stored in preferences by the previous SDK version,
+     * only used to migrate to {@link SdkStateStore}.
      *
      * @param preferences AndroidPreferences
      * @return userAttribute JSONObject.
@@ -65,13 +66,35 @@ public final class PreferencesUtil {
     }
 
     /**
-     * update user attribute and save it to preferences.
+     * get the user id to user info map stored in preferences by the previous SDK version,
+     * only used to migrate to {@link SdkStateStore}.
      *
-     * @param preferences   AndroidPreferences
-     * @param userAttribute userAttribute JSONObject
+     * @param preferences AndroidPreferences
+     * @return userUniqueIdMap JSONObject.
      */
-    public static void updateUserAttribute(final AndroidPreferences preferences, JSONObject userAttribute) {
-        preferences.putString(USER_ATTRIBUTE, userAttribute.toString());
+    public static JSONObject getUserUniqueIdMap(final AndroidPreferences preferences) {
+        JSONObject userUniqueIdMap = new JSONObject();
+        String userUniqueIdJsonString = preferences.getString(USER_UNIQUE_ID_MAP, "");
+        if (StringUtil.isNullOrEmpty(userUniqueIdJsonString)) {
+            return userUniqueIdMap;
+        }
+        try {
+            userUniqueIdMap = new JSONObject(userUniqueIdJsonString);
+        } catch (final JSONException jsonException) {
+            LOG.error("Could not create Json object of user info. error: " + jsonException.getMessage());
+        }
+        return userUniqueIdMap;
+    }
+
+    /**
+     * remove the state which has been migrated to {@link SdkStateStore} from preferences.
+     *
+     * @param preferences AndroidPreferences
+     */
+    public static void removeLegacyState(final AndroidPreferences preferences) {
+        preferences.remove(USER_ATTRIBUTE);
+        preferences.remove(USER_UNIQUE_ID_MAP);
+        preferences.remove(CURRENT_SESSION);
     }
 
     /**
@@ -98,38 +121,34 @@ public final class PreferencesUtil {
      * get user info when switch to another user.
      *
      * @param preferences AndroidPreferences
+     * @param stateStore  SdkStateStore
      * @param userId      new userId
      * @return new user info contains user uniqueId and use first touch timestamp.
      */
-    public static JSONObject getNewUserInfo(final AndroidPreferences preferences, String userId) {
-        JSONObject userInfo = new JSONObject();
-        String userUniqueIdJsonString = preferences.getString(USER_UNIQUE_ID_MAP, "{}");
-        JSONObject userUniqueIdObject;
-        try {
-            userUniqueIdObject = new JSONObject(userUniqueIdJsonString);
-            if (userUniqueIdObject.length() == 0) {
-                // first new user login need to associate the userId and exist user uniqueId and save it to preferences.
-                userInfo.put("user_unique_id", getCurrentUserUniqueId(preferences));
-                userInfo.put("user_first_touch_timestamp", getCurrentUserFirstTouchTimestamp(preferences));
-                userUniqueIdObject.put(userId, userInfo);
-                preferences.putString(USER_UNIQUE_ID_MAP, userUniqueIdObject.toString());
-            } else if (userUniqueIdObject.has(userId)) {
-                // switch to old user.
-                userInfo = userUniqueIdObject.getJSONObject(userId);
-                setCurrentUserUniqueId(preferences, userInfo.getString("user_unique_id"));
-            } else {
-                // switch to new user.
-                String userUniqueId = UUID.randomUUID().toString();
-                userInfo.put("user_unique_id", userUniqueId);
-                userInfo.put("user_first_touch_timestamp", System.currentTimeMillis());
-                setCurrentUserUniqueId(preferences, userUniqueId);
-                userUniqueIdObject.put(userId, userInfo);
-                preferences.putString(USER_UNIQUE_ID_MAP, userUniqueIdObject.toString());
-            }
-        } catch (final JSONException jsonException) {
-            LOG.error("Could not create Json object of user info. error: " + jsonException.getMessage());
+    public static JSONObject getNewUserInfo(final AndroidPreferences preferences, final SdkStateStore stateStore,
+                                            String userId) {
+        JSONObject userInfo = stateStore.getUserInfo(userId);
+        if (userInfo != null) {
+            // switch to old user and mark it as the most recently used.
+            String userUniqueId = userInfo.optString("user_unique_id");
+            setCurrentUserUniqueId(preferences, userUniqueId);
+            stateStore.saveUserInfo(userId, userUniqueId, userInfo.optLong("user_first_touch_timestamp"));
+            return userInfo;
+        }
+        String userUniqueId;
+        long userFirstTouchTimestamp;
+        if (stateStore.getUserCount() == 0) {
+            // first new user login need to associate the userId and exist user uniqueId.
+            userUniqueId = getCurrentUserUniqueId(preferences);
+            userFirstTouchTimestamp = getCurrentUserFirstTouchTimestamp(preferences);
+        } else {
+            // switch to new user.
+            userUniqueId = UUID.randomUUID().toString();
+            userFirstTouchTimestamp = System.currentTimeMillis();
+            setCurrentUserUniqueId(preferences, userUniqueId);
         }
-        return userInfo;
+        stateStore.saveUserInfo(userId, userUniqueId, userFirstTouchTimestamp);
+        return stateStore.getUserInfo(userId);
     }
 
     /**
@@ -154,18 +173,7 @@ public final class PreferencesUtil {
      * @param preferences AndroidPreferences
      */
     private static void saveUserFirstTouchTimestamp(final AndroidPreferences preferences) {
-        long firstTouchTimestamp = System.currentTimeMillis();
-        preferences.putLong(CURRENT_USER_FIRST_TOUCH_TIMESTAMP, firstTouchTimestamp);
-        try {
-            JSONObject userAttribute = new JSONObject();
-            JSONObject attribute = new JSONObject();
-            attribute.put("value", firstTouchTimestamp);
-            attribute.put("set_timestamp", firstTouchTimestamp);
-            userAttribute.putOpt(Event.ReservedAttribute.USER_FIRST_TOUCH_TIMESTAMP, attribute);
-            updateUserAttribute(preferences, userAttribute);
-        } catch (JSONException exception) {
-            LOG.error("Could not create Json object of user first touch timestamp. error: " + exception.getMessage());
-        }
+        preferences.putLong(CURRENT_USER_FIRST_TOUCH_TIMESTAMP, System.currentTimeMillis());
     }
 
     /**
@@ -189,26 +197,8 @@ public final class PreferencesUtil {
     }
 
     /**
-     * save session as json string to preferences.
-     *
-     * @param preferences AndroidPreferences
-     * @param session     session
-     */
-    public static void saveSession(final AndroidPreferences preferences, Session session) {
-        JSONObject sessionObject = new JSONObject();
-        try {
-            sessionObject.put("sessionID", session.getSessionID());
-            sessionObject.put("startTime", session.getStartTime());
-            sessionObject.put("pauseTime", session.getPauseTime());
-            sessionObject.put("sessionIndex", session.getSessionIndex());
-            preferences.putString(CURRENT_SESSION, sessionObject.toString());
-        } catch (JSONException exception) {
-            LOG.error("Could not create Json object of session. error: " + exception.getMessage());
-        }
-    }
-
-    /**
-     * get session from preferences.
+     * get session stored in preferences by the previous SDK version,
+     * only used to migrate to {@link SdkStateStore}.
      *
      * @param preferences AndroidPreferences
      * @return stored session in preferences
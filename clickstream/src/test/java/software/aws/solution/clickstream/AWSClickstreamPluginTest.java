@@ -0,0 +1,277 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream;
+
+import android.database.Cursor;
+import android.os.Looper;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import software.aws.solution.clickstream.client.AnalyticsClient;
+import software.aws.solution.clickstream.client.AnalyticsEvent;
+import software.aws.solution.clickstream.client.AutoRecordEventClient;
+import software.aws.solution.clickstream.client.Event;
+import software.aws.solution.clickstream.client.EventRecorder;
+import software.aws.solution.clickstream.client.db.ClickstreamDBUtil;
+import software.aws.solution.clickstream.util.ReflectUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Test the AWSClickstreamPlugin which is configured directly without Amplify.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class AWSClickstreamPluginTest {
+    private static final int MAX_WAIT_TIMES = 500;
+
+    /**
+     * test the operations called before the lazy initialization finishes are buffered and recorded in order
+     * after it, and the tracking starts after the buffered operations are replayed.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testLazyInitReplaysBufferedOperations() throws Exception {
+        AWSClickstreamPlugin plugin = new AWSClickstreamPlugin(ApplicationProvider.getApplicationContext());
+        DeferredInitializer deferredInitializer;
+        // the background initialization waits for the plugin lock, so the operations below are buffered.
+        synchronized (plugin) {
+            plugin.configure(getPluginConfiguration(true), ApplicationProvider.getApplicationContext());
+            deferredInitializer = (DeferredInitializer) ReflectUtil.getFiled(plugin, "deferredInitializer");
+            plugin.recordEvent("lazy_event_1");
+            List<Event.EventError> errors = plugin.recordEvents(Arrays.asList(
+                ClickstreamEvent.builder().name("lazy_event_2").build(),
+                ClickstreamEvent.builder().name("lazy_event_3").build()));
+            assertNull(errors);
+            plugin.recordEvent("lazy_event_4");
+            assertNull(plugin.getEscapeHatch());
+            assertEquals(3, deferredInitializer.getPendingOperationCount());
+        }
+        waitForInitialization(plugin);
+
+        assertEquals(0, deferredInitializer.getPendingOperationCount());
+        assertTrue((boolean) ReflectUtil.getFiled(plugin, "isTrackingStarted"));
+        assertEquals(Arrays.asList("lazy_event_1", "lazy_event_2", "lazy_event_3", "lazy_event_4"),
+            getCustomEventTypes(plugin));
+        plugin.recordEvent("lazy_event_5");
+        assertEquals("lazy_event_5", getCustomEventTypes(plugin).get(4));
+        List<Event.EventError> errors = plugin.recordEvents(Collections.emptyList());
+        assertNotNull(errors);
+        assertTrue(errors.isEmpty());
+    }
+
+    /**
+     * test the disable operation buffered before the lazy initialization keeps the tracking from starting.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testLazyInitWithBufferedDisable() throws Exception {
+        AWSClickstreamPlugin plugin = new AWSClickstreamPlugin(ApplicationProvider.getApplicationContext());
+        synchronized (plugin) {
+            plugin.configure(getPluginConfiguration(true), ApplicationProvider.getApplicationContext());
+            plugin.disable();
+        }
+        waitForInitialization(plugin);
+
+        assertTrue((boolean) ReflectUtil.getFiled(plugin, "isTrackingStarted"));
+        assertFalse((boolean) ReflectUtil.getFiled(plugin, "isEnable"));
+        plugin.enable();
+        assertTrue((boolean) ReflectUtil.getFiled(plugin, "isEnable"));
+        plugin.recordEvent("lazy_event_1");
+        assertEquals(Collections.singletonList("lazy_event_1"), getCustomEventTypes(plugin));
+    }
+
+    /**
+     * test record events returns the error of each event in order, and the error event of the invalid event
+     * name is stored at the position of the event.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testRecordEventsKeepsErrorEventInOrder() throws Exception {
+        AWSClickstreamPlugin plugin = new AWSClickstreamPlugin(ApplicationProvider.getApplicationContext());
+        plugin.configure(getPluginConfiguration(false), ApplicationProvider.getApplicationContext());
+        getDbUtil(plugin).deleteBatchEvents(Integer.MAX_VALUE);
+
+        List<Event.EventError> errors = plugin.recordEvents(Arrays.asList(
+            ClickstreamEvent.builder().name("first_event").build(),
+            ClickstreamEvent.builder().name("01InvalidEvent").build(),
+            ClickstreamEvent.builder().name("third_event").add("01invalid_attribute", 3).build()));
+        assertEquals(3, errors.size());
+        assertEquals(Event.ErrorCode.NO_ERROR, errors.get(0).getErrorCode());
+        assertEquals(Event.ErrorCode.EVENT_NAME_INVALID, errors.get(1).getErrorCode());
+        assertEquals(Event.ErrorCode.ATTRIBUTE_NAME_INVALID, errors.get(2).getErrorCode());
+        assertEquals(Arrays.asList("first_event", Event.PresetEvent.CLICKSTREAM_ERROR, "third_event"),
+            getEventTypes(plugin));
+    }
+
+    /**
+     * test record events returns null and records nothing when the SDK is disabled.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testRecordEventsWhenDisabled() throws Exception {
+        AWSClickstreamPlugin plugin = new AWSClickstreamPlugin(ApplicationProvider.getApplicationContext());
+        plugin.configure(getPluginConfiguration(false), ApplicationProvider.getApplicationContext());
+        getDbUtil(plugin).deleteBatchEvents(Integer.MAX_VALUE);
+        plugin.disable();
+
+        assertNull(plugin.recordEvents(Collections.singletonList(ClickstreamEvent.builder().name("event").build())));
+        assertTrue(getEventTypes(plugin).isEmpty());
+    }
+
+    /**
+     * test record the events directly by the ClickstreamEvent and the event name, and the screen view events
+     * are recorded by the activity lifecycle manager as the manual screen views.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testRecordEventDirectly() throws Exception {
+        AWSClickstreamPlugin plugin = new AWSClickstreamPlugin(ApplicationProvider.getApplicationContext());
+        plugin.configure(getPluginConfiguration(false), ApplicationProvider.getApplicationContext());
+        getDbUtil(plugin).deleteBatchEvents(Integer.MAX_VALUE);
+        AutoRecordEventClient autoRecordEventClient = mock(AutoRecordEventClient.class);
+        ReflectUtil.modifyFiled(ReflectUtil.getFiled(plugin, "activityLifecycleManager"), "autoRecordEventClient",
+            autoRecordEventClient);
+
+        plugin.recordEventDirectly(ClickstreamEvent.builder().name("direct_event_1").add("index", 1).build());
+        plugin.recordEventDirectly("direct_event_2");
+        plugin.recordEventDirectly(ClickstreamEvent.builder()
+            .name(ClickstreamAnalytics.Event.SCREEN_VIEW)
+            .add(ClickstreamAnalytics.Attr.SCREEN_NAME, "HomeFragment")
+            .build());
+        plugin.recordEventDirectly(ClickstreamAnalytics.Event.SCREEN_VIEW);
+
+        assertEquals(Arrays.asList("direct_event_1", "direct_event_2"), getEventTypes(plugin));
+        ArgumentCaptor<AnalyticsEvent> captor = ArgumentCaptor.forClass(AnalyticsEvent.class);
+        verify(autoRecordEventClient, times(2)).recordViewScreenManually(captor.capture());
+        assertEquals(ClickstreamAnalytics.Event.SCREEN_VIEW, captor.getAllValues().get(0).getEventType());
+        assertEquals("HomeFragment",
+            captor.getAllValues().get(0).getStringAttribute(ClickstreamAnalytics.Attr.SCREEN_NAME));
+        assertEquals(ClickstreamAnalytics.Event.SCREEN_VIEW, captor.getAllValues().get(1).getEventType());
+    }
+
+    /**
+     * test record the events directly records nothing when the SDK is disabled.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testRecordEventDirectlyWhenDisabled() throws Exception {
+        AWSClickstreamPlugin plugin = new AWSClickstreamPlugin(ApplicationProvider.getApplicationContext());
+        plugin.configure(getPluginConfiguration(false), ApplicationProvider.getApplicationContext());
+        getDbUtil(plugin).deleteBatchEvents(Integer.MAX_VALUE);
+        plugin.disable();
+        AutoRecordEventClient autoRecordEventClient = mock(AutoRecordEventClient.class);
+        ReflectUtil.modifyFiled(ReflectUtil.getFiled(plugin, "activityLifecycleManager"), "autoRecordEventClient",
+            autoRecordEventClient);
+
+        plugin.recordEventDirectly(ClickstreamEvent.builder().name("direct_event_1").build());
+        plugin.recordEventDirectly("direct_event_2");
+        plugin.recordEventDirectly(ClickstreamEvent.builder().name(ClickstreamAnalytics.Event.SCREEN_VIEW).build());
+        plugin.recordEventDirectly(ClickstreamAnalytics.Event.SCREEN_VIEW);
+
+        assertTrue(getEventTypes(plugin).isEmpty());
+        verify(autoRecordEventClient, never()).recordViewScreenManually(any());
+    }
+
+    /**
+     * Get the plugin configuration.
+     *
+     * @param isLazyInit whether to init lazily.
+     * @return the plugin configuration.
+     * @throws Exception exception
+     */
+    static JSONObject getPluginConfiguration(boolean isLazyInit) throws Exception {
+        JSONObject configuration = new JSONObject();
+        configuration.put(AWSClickstreamPlugin.ConfigurationKey.APP_ID, "demo-app");
+        configuration.put(AWSClickstreamPlugin.ConfigurationKey.ENDPOINT, "http://example.com/collect");
+        configuration.put(AWSClickstreamPlugin.ConfigurationKey.SEND_EVENTS_INTERVAL, 100000);
+        configuration.put(AWSClickstreamPlugin.ConfigurationKey.IS_LAZY_INIT, isLazyInit);
+        return configuration;
+    }
+
+    /**
+     * Get the types of the stored events which are recorded by the test, in the stored order.
+     *
+     * @param plugin the plugin.
+     * @return the event types which start with "lazy_".
+     * @throws Exception exception
+     */
+    static List<String> getCustomEventTypes(AWSClickstreamPlugin plugin) throws Exception {
+        List<String> eventTypes = new ArrayList<>();
+        for (String eventType : getEventTypes(plugin)) {
+            if (eventType.startsWith("lazy_")) {
+                eventTypes.add(eventType);
+            }
+        }
+        return eventTypes;
+    }
+
+    /**
+     * Get the types of all the stored events, in the stored order.
+     *
+     * @param plugin the plugin.
+     * @return the event types.
+     * @throws Exception exception
+     */
+    static List<String> getEventTypes(AWSClickstreamPlugin plugin) throws Exception {
+        List<String> eventTypes = new ArrayList<>();
+        try (Cursor cursor = getDbUtil(plugin).queryAllEvents()) {
+            while (cursor.moveToNext()) {
+                eventTypes.add(new JSONObject(cursor.getString(2)).getString("event_type"));
+            }
+        }
+        return eventTypes;
+    }
+
+    private static ClickstreamDBUtil getDbUtil(AWSClickstreamPlugin plugin) throws Exception {
+        AnalyticsClient analyticsClient = plugin.getEscapeHatch();
+        EventRecorder eventRecorder = (EventRecorder) ReflectUtil.getFiled(analyticsClient, "eventRecorder");
+        return (ClickstreamDBUtil) ReflectUtil.getFiled(eventRecorder, "dbUtil");
+    }
+
+    private static void waitForInitialization(AWSClickstreamPlugin plugin) throws Exception {
+        for (int i = 0; i < MAX_WAIT_TIMES && !(boolean) ReflectUtil.getFiled(plugin, "isTrackingStarted"); i++) {
+            Thread.sleep(10);
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+    }
+}
@@ -18,6 +18,9 @@ package software.aws.solution.clickstream;
 import android.content.Context;
 import androidx.test.core.app.ApplicationProvider;
 
+import com.amplifyframework.analytics.AnalyticsPropertyBehavior;
+
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.After;
@@ -31,16 +34,24 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 import software.aws.solution.clickstream.client.AnalyticsClient;
 import software.aws.solution.clickstream.client.AnalyticsEvent;
+import software.aws.solution.clickstream.client.ClickstreamContext;
 import software.aws.solution.clickstream.client.ClickstreamManager;
 import software.aws.solution.clickstream.client.Event;
 import software.aws.solution.clickstream.client.Event.ErrorCode;
+import software.aws.solution.clickstream.client.EventRecorder;
+import software.aws.solution.clickstream.client.metrics.ClickstreamMetrics;
 import software.aws.solution.clickstream.util.ReflectUtil;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @RunWith(RobolectricTestRunner.class)
@@ -48,8 +59,6 @@ import static org.mockito.Mockito.verify;
 public class AnalyticsClientTest {
 
     private AnalyticsClient analyticsClient;
-    private Map<String, Object> globalAttributes;
-    private JSONObject allUserAttributes;
     private String exceedLengthName = "abcdefghijabcdefghijabcdefghijabcdefghijabcdefghij";
     private final String invalidName = "1_goods_expose";
     private String exceedLengthValue = "";
@@ -75,9 +84,6 @@ public class AnalyticsClientTest {
         ClickstreamManager clickstreamManager = new ClickstreamManager(context, configuration);
         analyticsClient = clickstreamManager.getAnalyticsClient();
 
-        globalAttributes = (Map<String, Object>) ReflectUtil.getFiled(analyticsClient, "globalAttributes");
-        allUserAttributes = (JSONObject) ReflectUtil.getFiled(analyticsClient, "allUserAttributes");
-
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < 21; i++) {
             sb.append(exceedLengthName);
@@ -129,8 +135,8 @@ public class AnalyticsClientTest {
     @Test
     public void testAddGlobalAttributeWhenSuccess() {
         analyticsClient.addGlobalAttribute("channel", "HUAWEI");
-        Assert.assertTrue(globalAttributes.containsKey("channel"));
-        Assert.assertEquals("HUAWEI", Objects.requireNonNull(globalAttributes.get("channel")));
+        Assert.assertTrue(analyticsClient.getGlobalAttributes().containsKey("channel"));
+        Assert.assertEquals("HUAWEI", Objects.requireNonNull(analyticsClient.getGlobalAttributes().get("channel")));
     }
 
     /**
@@ -172,8 +178,8 @@ public class AnalyticsClientTest {
         analyticsClient.addGlobalAttribute("name01", "value");
         analyticsClient.addGlobalAttribute("name02", "value1");
         analyticsClient.deleteGlobalAttribute("name01");
-        Assert.assertTrue(globalAttributes.containsKey("name02"));
-        Assert.assertFalse(globalAttributes.containsKey("name01"));
+        Assert.assertTrue(analyticsClient.getGlobalAttributes().containsKey("name02"));
+        Assert.assertFalse(analyticsClient.getGlobalAttributes().containsKey("name01"));
     }
 
     /**
@@ -185,24 +191,25 @@ public class AnalyticsClientTest {
         for (int i = 0; i < 501; i++) {
             mockAnalyticsClient.addGlobalAttribute("name", "value" + i);
         }
-        Assert.assertFalse(globalAttributes.containsKey("_error_attribute_size_exceed"));
+        Assert.assertFalse(mockAnalyticsClient.getGlobalAttributes().containsKey("_error_attribute_size_exceed"));
         verify(mockAnalyticsClient, never()).createEvent(anyString());
-        Assert.assertEquals(1, globalAttributes.size());
-        Assert.assertEquals("value500", Objects.requireNonNull(globalAttributes.get("name")).toString());
+        Assert.assertEquals(1, mockAnalyticsClient.getGlobalAttributes().size());
+        Assert.assertEquals("value500",
+            Objects.requireNonNull(mockAnalyticsClient.getGlobalAttributes().get("name")).toString());
     }
 
     /**
      * test add user attribute when success.
      *
-     * @throws JSONException exception
+     * @throws Exception exception
      */
     @Test
-    public void testAddUserAttributeWhenSuccess() throws JSONException {
+    public void testAddUserAttributeWhenSuccess() throws Exception {
         analyticsClient.addUserAttribute("_user_age", 18);
-        Assert.assertTrue(allUserAttributes.has("_user_age"));
-        Assert.assertEquals(18, ((JSONObject) allUserAttributes.get("_user_age")).get("value"));
+        Assert.assertTrue(getUserAttributes(analyticsClient).has("_user_age"));
+        Assert.assertEquals(18, ((JSONObject) getUserAttributes(analyticsClient).get("_user_age")).get("value"));
         Assert.assertTrue(System.currentTimeMillis() -
-            (Long) (((JSONObject) allUserAttributes.get("_user_age")).get("set_timestamp")) < 1000);
+            (Long) (((JSONObject) getUserAttributes(analyticsClient).get("_user_age")).get("set_timestamp")) < 1000);
     }
 
     /**
@@ -256,16 +263,17 @@ public class AnalyticsClientTest {
      * test add user attribute for same name multi times, the value of the user attribute ame will
      * covered by the last value.
      *
-     * @throws JSONException exception
+     * @throws Exception exception
      */
     @Test
-    public void testAddUserAttributeSameNameMultiTimes() throws JSONException {
+    public void testAddUserAttributeSameNameMultiTimes() throws Exception {
         for (int i = 0; i < 101; i++) {
             mockAnalyticsClient.addUserAttribute("name", "value" + i);
         }
         verify(mockAnalyticsClient, never()).createEvent(anyString());
-        Assert.assertEquals(2, allUserAttributes.length());
-        Assert.assertEquals("value100", ((JSONObject) allUserAttributes.get("name")).get("value"));
+        Assert.assertEquals(2, getUserAttributes(mockAnalyticsClient).length());
+        Assert.assertEquals("value100",
+            ((JSONObject) getUserAttributes(mockAnalyticsClient).get("name")).get("value"));
     }
 
     /**
@@ -274,20 +282,21 @@ public class AnalyticsClientTest {
     @Test
     public void testAddGlobalAttributeForNullValue() {
         analyticsClient.addGlobalAttribute("Channel", "HUAWEI");
-        Assert.assertTrue(globalAttributes.containsKey("Channel"));
+        Assert.assertTrue(analyticsClient.getGlobalAttributes().containsKey("Channel"));
         analyticsClient.addGlobalAttribute("Channel", null);
-        Assert.assertFalse(globalAttributes.containsKey("Channel"));
+        Assert.assertFalse(analyticsClient.getGlobalAttributes().containsKey("Channel"));
     }
 
     /**
      * test add user attribute for null value and verify the user attribute is deleted.
+     * @throws Exception exception
      */
     @Test
-    public void testAddUserAttributeForNullValue() {
+    public void testAddUserAttributeForNullValue() throws Exception {
         analyticsClient.addUserAttribute("UserAge", 20);
-        Assert.assertTrue(allUserAttributes.has("UserAge"));
+        Assert.assertTrue(getUserAttributes(analyticsClient).has("UserAge"));
         analyticsClient.addUserAttribute("UserAge", null);
-        Assert.assertFalse(allUserAttributes.has("UserAge"));
+        Assert.assertFalse(getUserAttributes(analyticsClient).has("UserAge"));
     }
 
     /**
@@ -299,25 +308,26 @@ public class AnalyticsClientTest {
         for (int i = 0; i < 500; i++) {
             analyticsClient.addGlobalAttribute("name" + i, "value" + i);
         }
-        Assert.assertTrue(globalAttributes.containsKey("name0"));
+        Assert.assertTrue(analyticsClient.getGlobalAttributes().containsKey("name0"));
         analyticsClient.addGlobalAttribute("name0", null);
-        Assert.assertFalse(globalAttributes.containsKey("name0"));
-        Assert.assertEquals(499, globalAttributes.size());
+        Assert.assertFalse(analyticsClient.getGlobalAttributes().containsKey("name0"));
+        Assert.assertEquals(499, analyticsClient.getGlobalAttributes().size());
     }
 
     /**
      * test add user attribute for null value when reached max length,
      * and verify the user attribute is deleted.
+     * @throws Exception exception
      */
     @Test
-    public void testAddUserAttributeForNullValueWhenReachedMaxLength() {
+    public void testAddUserAttributeForNullValueWhenReachedMaxLength() throws Exception {
         for (int i = 0; i < 100; i++) {
             analyticsClient.addUserAttribute("name" + i, "value" + i);
         }
-        Assert.assertTrue(allUserAttributes.has("name0"));
+        Assert.assertTrue(getUserAttributes(analyticsClient).has("name0"));
         analyticsClient.addUserAttribute("name0", null);
-        Assert.assertFalse(allUserAttributes.has("name0"));
-        Assert.assertEquals(99, allUserAttributes.length());
+        Assert.assertFalse(getUserAttributes(analyticsClient).has("name0"));
+        Assert.assertEquals(99, getUserAttributes(analyticsClient).length());
     }
 
     /**
@@ -329,19 +339,20 @@ public class AnalyticsClientTest {
             analyticsClient.addGlobalAttribute("name" + i, "value" + i);
         }
         analyticsClient.addGlobalAttribute("name1000", null);
-        Assert.assertEquals(500, globalAttributes.size());
+        Assert.assertEquals(500, analyticsClient.getGlobalAttributes().size());
     }
 
     /**
      * test delete and non-existing user attribute.
+     * @throws Exception exception
      */
     @Test
-    public void deleteNonExistingUserAttribute() {
+    public void deleteNonExistingUserAttribute() throws Exception {
         for (int i = 0; i < 100; i++) {
             analyticsClient.addUserAttribute("name" + i, "value" + i);
         }
         analyticsClient.addUserAttribute("name1000", null);
-        Assert.assertEquals(100, allUserAttributes.length());
+        Assert.assertEquals(100, getUserAttributes(analyticsClient).length());
     }
 
     /**
@@ -357,6 +368,8 @@ public class AnalyticsClientTest {
         analyticsClient.addUserAttribute("isNew", true);
         analyticsClient.addUserAttribute("score", 85.5);
         analyticsClient.updateUserAttribute();
+        ClickstreamContext clickstreamContext = (ClickstreamContext) ReflectUtil.getFiled(analyticsClient, "context");
+        clickstreamContext.getSystem().getStateStore().flush();
         Context context = ApplicationProvider.getApplicationContext();
 
         ClickstreamManager clickstreamManager = new ClickstreamManager(context,
@@ -365,7 +378,7 @@ public class AnalyticsClientTest {
                 .withEndpoint("http://example.com/collect")
         );
         JSONObject userAttributesFromStorage =
-            (JSONObject) ReflectUtil.getFiled(clickstreamManager.getAnalyticsClient(), "allUserAttributes");
+            getUserAttributes(clickstreamManager.getAnalyticsClient());
         Assert.assertEquals(6, userAttributesFromStorage.length());
         Assert.assertEquals("carl", ((JSONObject) userAttributesFromStorage.get("user_name")).getString("value"));
         Assert.assertEquals("10837409", ((JSONObject) userAttributesFromStorage.get("_user_id")).getString("value"));
@@ -390,8 +403,7 @@ public class AnalyticsClientTest {
         Assert.assertEquals("", userId);
         Assert.assertNotNull(userUniqueId);
 
-        allUserAttributes = (JSONObject) ReflectUtil.getFiled(analyticsClient, "allUserAttributes");
-        Assert.assertTrue(allUserAttributes.has(Event.ReservedAttribute.USER_FIRST_TOUCH_TIMESTAMP));
+        Assert.assertTrue(getUserAttributes(analyticsClient).has(Event.ReservedAttribute.USER_FIRST_TOUCH_TIMESTAMP));
     }
 
     /**
@@ -406,8 +418,7 @@ public class AnalyticsClientTest {
         analyticsClient.updateUserId(userIdForA);
         analyticsClient.addUserAttribute("user_age", 12);
         analyticsClient.updateUserId(userIdForA);
-        allUserAttributes = (JSONObject) ReflectUtil.getFiled(analyticsClient, "allUserAttributes");
-        Assert.assertTrue(allUserAttributes.has("user_age"));
+        Assert.assertTrue(getUserAttributes(analyticsClient).has("user_age"));
         Assert.assertEquals(userUniqueId, ReflectUtil.getFiled(analyticsClient, "userUniqueId"));
     }
 
@@ -424,8 +435,7 @@ public class AnalyticsClientTest {
         analyticsClient.updateUserId(userIdForA);
         analyticsClient.addUserAttribute("user_age", 12);
         analyticsClient.updateUserId(userIdForB);
-        allUserAttributes = (JSONObject) ReflectUtil.getFiled(analyticsClient, "allUserAttributes");
-        Assert.assertFalse(allUserAttributes.has("user_age"));
+        Assert.assertFalse(getUserAttributes(analyticsClient).has("user_age"));
         Assert.assertNotEquals(userUniqueId, ReflectUtil.getFiled(analyticsClient, "userUniqueId"));
     }
 
@@ -470,6 +480,446 @@ public class AnalyticsClientTest {
         Assert.assertEquals("123", userIdObject.getString("value"));
     }
 
+    /**
+     * test the event keeps the global attributes snapshot when it was created.
+     */
+    @Test
+    public void testEventKeepsGlobalAttributesSnapshot() {
+        analyticsClient.addGlobalAttribute("channel", "HUAWEI");
+        AnalyticsEvent event = analyticsClient.createEvent("testEvent");
+        analyticsClient.addGlobalAttribute("channel", "XIAOMI");
+        analyticsClient.addGlobalAttribute("level", 5);
+        Assert.assertEquals("HUAWEI", event.getStringAttribute("channel"));
+        Assert.assertFalse(event.hasAttribute("level"));
+        Assert.assertEquals(1, event.getCurrentNumOfAttributes());
+        AnalyticsEvent newEvent = analyticsClient.createEvent("testEvent");
+        Assert.assertEquals("XIAOMI", newEvent.getStringAttribute("channel"));
+        Assert.assertEquals("5", newEvent.getStringAttribute("level"));
+        Assert.assertEquals(2, newEvent.getCurrentNumOfAttributes());
+    }
+
+    /**
+     * test the serialized event string is the same as the event JSON object.
+     *
+     * @throws JSONException the json exception
+     */
+    @Test
+    public void testEventJSONStringWithGlobalAttributes() throws JSONException {
+        analyticsClient.addGlobalAttribute("channel", "HUAWEI");
+        analyticsClient.addGlobalAttribute("level", 5);
+        AnalyticsEvent event = analyticsClient.createEvent("testEvent");
+        event.addAttribute("goods", "apple");
+        JSONObject attributes = new JSONObject(event.toJSONString()).getJSONObject("attributes");
+        Assert.assertEquals("HUAWEI", attributes.getString("channel"));
+        Assert.assertEquals(5, attributes.getInt("level"));
+        Assert.assertEquals("apple", attributes.getString("goods"));
+        int numOfAttributes = event.getCurrentNumOfAttributes();
+        Assert.assertEquals(numOfAttributes, attributes.length());
+
+        event.addAttribute("channel", "XIAOMI");
+        event.addAttribute("level", null);
+        Assert.assertEquals(numOfAttributes - 1, event.getCurrentNumOfAttributes());
+        attributes = new JSONObject(event.toJSONString()).getJSONObject("attributes");
+        Assert.assertEquals("XIAOMI", attributes.getString("channel"));
+        Assert.assertFalse(attributes.has("level"));
+        Assert.assertEquals(numOfAttributes - 1, attributes.length());
+        event.addAttribute("level", 6);
+        Assert.assertEquals(numOfAttributes, event.getCurrentNumOfAttributes());
+        Assert.assertEquals(6, event.getAttributes().getInt("level"));
+    }
+
+    /**
+     * test the event keeps the user attributes snapshot when it was created.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testEventKeepsUserAttributesSnapshot() throws Exception {
+        analyticsClient.updateUserId("123");
+        analyticsClient.addUserAttribute("userName", "carl");
+        AnalyticsEvent profileSetEvent = analyticsClient.createEvent(Event.PresetEvent.PROFILE_SET);
+        AnalyticsEvent testEvent = analyticsClient.createEvent("testEvent");
+        analyticsClient.addUserAttribute("userName", "mike");
+        analyticsClient.updateUserId("456");
+
+        JSONObject user = new JSONObject(profileSetEvent.toJSONString()).getJSONObject("user");
+        Assert.assertEquals("carl", user.getJSONObject("userName").getString("value"));
+        Assert.assertEquals("123", user.getJSONObject(Event.ReservedAttribute.USER_ID).getString("value"));
+        Assert.assertEquals(profileSetEvent.toJSONObject().getJSONObject("user").toString(), user.toString());
+        user = new JSONObject(testEvent.toJSONString()).getJSONObject("user");
+        Assert.assertFalse(user.has("userName"));
+        Assert.assertEquals("123", user.getJSONObject(Event.ReservedAttribute.USER_ID).getString("value"));
+        Assert.assertFalse(getUserAttributes(analyticsClient).has("userName"));
+    }
+
+    /**
+     * test the events are dropped by sampling deterministically for each user before recording.
+     *
+     * @throws Exception exception.
+     */
+    @Test
+    public void testRecordEventWithSamplingRate() throws Exception {
+        EventRecorder eventRecorder = Mockito.mock(EventRecorder.class);
+        ReflectUtil.modifyFiled(analyticsClient, "eventRecorder", eventRecorder);
+        analyticsClient.getClickstreamConfiguration().withEventLimits(ClickstreamEventLimits.builder()
+            .samplingRate("testEvent", 0.5)
+            .samplingRate("ignoredEvent", 0)
+            .samplingRate("invalidRate", 2)
+            .build());
+        analyticsClient.recordEvent(analyticsClient.createEvent("ignoredEvent"));
+        analyticsClient.recordEvent(analyticsClient.createEvent("otherEvent"));
+        analyticsClient.recordEvent(analyticsClient.createEvent("invalidRate"));
+        verify(eventRecorder, times(2)).recordEvent(any(AnalyticsEvent.class));
+
+        int sampledCount = 0;
+        for (int i = 0; i < 2000; i++) {
+            ReflectUtil.modifyFiled(analyticsClient, "userUniqueId", "user_unique_id_" + i);
+            AnalyticsEvent event = analyticsClient.createEvent("testEvent");
+            ClickstreamMetrics.Snapshot before = analyticsClient.getMetrics().getSnapshot();
+            analyticsClient.recordEvent(event);
+            boolean isSampled = analyticsClient.getMetrics().getSnapshot().getEventsSampledOut()
+                == before.getEventsSampledOut();
+            analyticsClient.recordEvent(analyticsClient.createEvent("testEvent"));
+            Assert.assertEquals(isSampled, analyticsClient.getMetrics().getSnapshot().getEventsSampledOut()
+                == before.getEventsSampledOut());
+            if (isSampled) {
+                sampledCount++;
+            }
+        }
+        Assert.assertTrue(sampledCount > 800 && sampledCount < 1200);
+        verify(eventRecorder, times(2 + sampledCount * 2)).recordEvent(any(AnalyticsEvent.class));
+    }
+
+    /**
+     * test the events exceed the rate limits are dropped and reported in the summary event when submit.
+     *
+     * @throws Exception exception.
+     */
+    @Test
+    public void testRecordEventWithRateLimit() throws Exception {
+        EventRecorder eventRecorder = Mockito.mock(EventRecorder.class);
+        ReflectUtil.modifyFiled(analyticsClient, "eventRecorder", eventRecorder);
+        long rateLimitedCount = analyticsClient.getMetrics().getSnapshot().getEventsRateLimited();
+        analyticsClient.getClickstreamConfiguration().withEventLimits(ClickstreamEventLimits.builder()
+            .rateLimit("testEvent", 0.001, 2)
+            .globalRateLimit(0.001, 5)
+            .build());
+        for (int i = 0; i < 5; i++) {
+            analyticsClient.recordEvent(analyticsClient.createEvent("testEvent"));
+        }
+        for (int i = 0; i < 5; i++) {
+            analyticsClient.recordEvent(analyticsClient.createEvent("otherEvent"));
+        }
+        verify(eventRecorder, times(5)).recordEvent(any(AnalyticsEvent.class));
+        Assert.assertEquals(rateLimitedCount + 5, analyticsClient.getMetrics().getSnapshot().getEventsRateLimited());
+
+        analyticsClient.submitEvents();
+        verify(eventRecorder, times(6)).recordEvent(analyticsEventCaptor.capture());
+        AnalyticsEvent summaryEvent = analyticsEventCaptor.getValue();
+        Assert.assertEquals(Event.PresetEvent.EVENT_LIMIT_SUMMARY, summaryEvent.getEventType());
+        JSONObject attributes = summaryEvent.getAttributes();
+        Assert.assertEquals(5, attributes.getLong(Event.ReservedAttribute.RATE_LIMITED_COUNT));
+        Assert.assertEquals(0, attributes.getLong(Event.ReservedAttribute.SAMPLED_OUT_COUNT));
+        JSONObject limitedEvents = new JSONObject(attributes.getString(Event.ReservedAttribute.LIMITED_EVENTS));
+        Assert.assertEquals(3, limitedEvents.getJSONArray("testEvent").getLong(0));
+        Assert.assertEquals(2, limitedEvents.getJSONArray("otherEvent").getLong(0));
+
+        analyticsClient.submitEvents();
+        verify(eventRecorder, times(6)).recordEvent(any(AnalyticsEvent.class));
+        analyticsClient.getClickstreamConfiguration().withEventLimits(null);
+        analyticsClient.recordEvent(analyticsClient.createEvent("testEvent"));
+        verify(eventRecorder, times(7)).recordEvent(any(AnalyticsEvent.class));
+    }
+
+    /**
+     * test the token of the event name is not taken when the event is dropped by the global rate limit.
+     *
+     * @throws Exception exception.
+     */
+    @Test
+    public void testRateLimitChecksBothBucketsBeforeTakingToken() throws Exception {
+        EventRecorder eventRecorder = Mockito.mock(EventRecorder.class);
+        ReflectUtil.modifyFiled(analyticsClient, "eventRecorder", eventRecorder);
+        analyticsClient.getClickstreamConfiguration().withEventLimits(ClickstreamEventLimits.builder()
+            .rateLimit("testEvent", 0.001, 1)
+            .globalRateLimit(10, 1)
+            .build());
+        analyticsClient.recordEvent(analyticsClient.createEvent("otherEvent"));
+        analyticsClient.recordEvent(analyticsClient.createEvent("testEvent"));
+        verify(eventRecorder, times(1)).recordEvent(any(AnalyticsEvent.class));
+
+        Thread.sleep(200);
+        analyticsClient.recordEvent(analyticsClient.createEvent("testEvent"));
+        verify(eventRecorder, times(2)).recordEvent(any(AnalyticsEvent.class));
+        analyticsClient.getClickstreamConfiguration().withEventLimits(null);
+    }
+
+    /**
+     * test the preset events and the events of high priority are not limited by the global rate limit.
+     *
+     * @throws Exception exception.
+     */
+    @Test
+    public void testGlobalRateLimitExemptsPresetAndHighPriorityEvents() throws Exception {
+        EventRecorder eventRecorder = Mockito.mock(EventRecorder.class);
+        ReflectUtil.modifyFiled(analyticsClient, "eventRecorder", eventRecorder);
+        analyticsClient.getClickstreamConfiguration().withEventLimits(ClickstreamEventLimits.builder()
+            .globalRateLimit(0.001, 1)
+            .build());
+        analyticsClient.recordEvent(analyticsClient.createEvent("otherEvent"));
+        analyticsClient.recordEvent(analyticsClient.createEvent("otherEvent"));
+        verify(eventRecorder, times(1)).recordEvent(any(AnalyticsEvent.class));
+
+        analyticsClient.recordEvent(analyticsClient.createEvent(Event.PresetEvent.APP_EXCEPTION));
+        analyticsClient.recordEvent(analyticsClient.createEvent(Event.PresetEvent.FIRST_OPEN));
+        analyticsClient.recordEvent(analyticsClient.createEvent(Event.PresetEvent.SESSION_START));
+        AnalyticsEvent highPriorityEvent = analyticsClient.createEvent("purchase");
+        highPriorityEvent.setPriority(Event.Priority.HIGH);
+        analyticsClient.recordEvent(highPriorityEvent);
+        verify(eventRecorder, times(5)).recordEvent(any(AnalyticsEvent.class));
+        analyticsClient.getClickstreamConfiguration().withEventLimits(null);
+    }
+
+    /**
+     * test record metrics are aggregated by name and dimensions and sent in one summary event.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testRecordMetric() throws Exception {
+        EventRecorder eventRecorder = Mockito.mock(EventRecorder.class);
+        ReflectUtil.modifyFiled(analyticsClient, "eventRecorder", eventRecorder);
+        Map<String, Object> dimensions = new HashMap<>();
+        dimensions.put("screen", "home");
+        analyticsClient.recordMetric("load_time", 3, dimensions);
+        analyticsClient.recordMetric("load_time", 100, dimensions);
+        analyticsClient.recordMetric("load_time", 7, null);
+        analyticsClient.recordMetric("load_time", Double.NaN, null);
+        verify(eventRecorder, never()).recordEvent(any(AnalyticsEvent.class));
+
+        analyticsClient.submitEvents();
+        verify(eventRecorder, times(1)).recordEvent(analyticsEventCaptor.capture());
+        AnalyticsEvent summaryEvent = analyticsEventCaptor.getValue();
+        Assert.assertEquals(Event.PresetEvent.METRIC_SUMMARY, summaryEvent.getEventType());
+        JSONObject attributes = summaryEvent.getAttributes();
+        Assert.assertTrue(attributes.getLong(Event.ReservedAttribute.METRIC_START_TIMESTAMP) > 0);
+        JSONArray metrics = new JSONArray(attributes.getString(Event.ReservedAttribute.METRICS));
+        Assert.assertEquals(2, metrics.length());
+        JSONObject homeMetric = metrics.getJSONObject(0);
+        Assert.assertEquals("load_time", homeMetric.getString("name"));
+        Assert.assertEquals("home", homeMetric.getJSONObject("dimensions").getString("screen"));
+        Assert.assertEquals(2, homeMetric.getLong("count"));
+        Assert.assertEquals(103, homeMetric.getDouble("sum"), 0);
+        Assert.assertEquals(3, homeMetric.getDouble("min"), 0);
+        Assert.assertEquals(100, homeMetric.getDouble("max"), 0);
+        JSONObject histogram = homeMetric.getJSONObject("histogram");
+        Assert.assertEquals(1, histogram.getLong("4"));
+        Assert.assertEquals(1, histogram.getLong("128"));
+        JSONObject metric = metrics.getJSONObject(1);
+        Assert.assertFalse(metric.has("dimensions"));
+        Assert.assertEquals(1, metric.getLong("count"));
+
+        analyticsClient.submitEvents();
+        verify(eventRecorder, times(1)).recordEvent(any(AnalyticsEvent.class));
+    }
+
+    /**
+     * test record metric with invalid name records the error event and the series number is limited.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testRecordMetricWithInvalidNameAndSeriesLimit() throws Exception {
+        EventRecorder eventRecorder = Mockito.mock(EventRecorder.class);
+        ReflectUtil.modifyFiled(analyticsClient, "eventRecorder", eventRecorder);
+        analyticsClient.recordMetric("1_invalid", 1, null);
+        verify(eventRecorder, times(1)).recordEvent(analyticsEventCaptor.capture());
+        Assert.assertEquals(Event.PresetEvent.CLICKSTREAM_ERROR, analyticsEventCaptor.getValue().getEventType());
+
+        for (int i = 0; i <= Event.Limit.MAX_NUM_OF_METRIC_SERIES; i++) {
+            Map<String, Object> dimensions = new HashMap<>();
+            dimensions.put("index", i);
+            analyticsClient.recordMetric("metric", i, dimensions);
+        }
+        analyticsClient.submitEvents();
+        int seriesCount = 0;
+        verify(eventRecorder, Mockito.atLeast(2)).recordEvent(analyticsEventCaptor.capture());
+        for (AnalyticsEvent event : analyticsEventCaptor.getAllValues()) {
+            if (Event.PresetEvent.METRIC_SUMMARY.equals(event.getEventType())) {
+                String metrics = event.getAttributes().getString(Event.ReservedAttribute.METRICS);
+                Assert.assertTrue(metrics.length() <= Event.Limit.MAX_LENGTH_OF_VALUE);
+                seriesCount += new JSONArray(metrics).length();
+            }
+        }
+        Assert.assertEquals(Event.Limit.MAX_NUM_OF_METRIC_SERIES, seriesCount);
+    }
+
+    /**
+     * test a single metric series which exceeds the max length of attribute value is clipped instead of lost.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testRecordMetricClipsOversizedSeries() throws Exception {
+        EventRecorder eventRecorder = Mockito.mock(EventRecorder.class);
+        ReflectUtil.modifyFiled(analyticsClient, "eventRecorder", eventRecorder);
+        Map<String, Object> dimensions = new HashMap<>();
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 150; i++) {
+            value.append('v');
+        }
+        for (int i = 0; i < Event.Limit.MAX_NUM_OF_METRIC_DIMENSIONS; i++) {
+            dimensions.put("dimension_" + i, value.toString());
+        }
+        for (int i = -500; i < 500; i += 5) {
+            analyticsClient.recordMetric("oversized", Math.scalb(1d, i), dimensions);
+        }
+        analyticsClient.recordMetric("small", 1, null);
+
+        analyticsClient.submitEvents();
+        verify(eventRecorder, times(2)).recordEvent(analyticsEventCaptor.capture());
+        JSONArray metrics = new JSONArray();
+        for (AnalyticsEvent event : analyticsEventCaptor.getAllValues()) {
+            String metricsValue = event.getAttributes().getString(Event.ReservedAttribute.METRICS);
+            Assert.assertTrue(metricsValue.length() <= Event.Limit.MAX_LENGTH_OF_VALUE);
+            JSONArray chunk = new JSONArray(metricsValue);
+            for (int i = 0; i < chunk.length(); i++) {
+                metrics.put(chunk.getJSONObject(i));
+            }
+        }
+        Assert.assertEquals(2, metrics.length());
+        JSONObject oversizedMetric = metrics.getJSONObject(0);
+        Assert.assertEquals("oversized", oversizedMetric.getString("name"));
+        Assert.assertEquals(200, oversizedMetric.getLong("count"));
+        Assert.assertTrue(oversizedMetric.getBoolean("truncated"));
+        Assert.assertFalse(oversizedMetric.has("histogram"));
+        int dimensionCount = oversizedMetric.getJSONObject("dimensions").length();
+        Assert.assertTrue(dimensionCount > 0 && dimensionCount < Event.Limit.MAX_NUM_OF_METRIC_DIMENSIONS);
+        Assert.assertFalse(metrics.getJSONObject(1).has("truncated"));
+    }
+
+    /**
+     * test the repeated events within the dedupe window are dropped and counted in metrics.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testRecordEventWithDedupeWindow() throws Exception {
+        EventRecorder eventRecorder = Mockito.mock(EventRecorder.class);
+        ReflectUtil.modifyFiled(analyticsClient, "eventRecorder", eventRecorder);
+        long deduplicatedCount = analyticsClient.getMetrics().getSnapshot().getEventsDeduplicated();
+        analyticsClient.getClickstreamConfiguration().withDedupeWindow(200);
+        for (int i = 0; i < 3; i++) {
+            AnalyticsEvent event = analyticsClient.createEvent("button_click");
+            event.addAttribute("id", 1);
+            analyticsClient.recordEvent(event);
+        }
+        AnalyticsEvent otherEvent = analyticsClient.createEvent("button_click");
+        otherEvent.addAttribute("id", 2);
+        analyticsClient.recordEvent(otherEvent);
+        verify(eventRecorder, times(2)).recordEvent(any(AnalyticsEvent.class));
+        Assert.assertEquals(deduplicatedCount + 2,
+            analyticsClient.getMetrics().getSnapshot().getEventsDeduplicated());
+
+        Thread.sleep(300);
+        AnalyticsEvent event = analyticsClient.createEvent("button_click");
+        event.addAttribute("id", 1);
+        analyticsClient.recordEvent(event);
+        verify(eventRecorder, times(3)).recordEvent(any(AnalyticsEvent.class));
+
+        analyticsClient.getClickstreamConfiguration().withDedupeWindow(0);
+        event = analyticsClient.createEvent("button_click");
+        event.addAttribute("id", 1);
+        analyticsClient.recordEvent(event);
+        verify(eventRecorder, times(4)).recordEvent(any(AnalyticsEvent.class));
+    }
+
+    /**
+     * test the preset events of a quick background and foreground cycle are not deduped.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testPresetEventsNotDedupedInBackgroundForegroundCycle() throws Exception {
+        EventRecorder eventRecorder = Mockito.mock(EventRecorder.class);
+        ReflectUtil.modifyFiled(analyticsClient, "eventRecorder", eventRecorder);
+        long deduplicatedCount = analyticsClient.getMetrics().getSnapshot().getEventsDeduplicated();
+        analyticsClient.getClickstreamConfiguration().withDedupeWindow(60000);
+        String[] cycleEventTypes = {Event.PresetEvent.APP_END, Event.PresetEvent.APP_START,
+            Event.PresetEvent.SESSION_START, Event.PresetEvent.PROFILE_SET, Event.PresetEvent.CLICKSTREAM_ERROR};
+        for (int i = 0; i < 2; i++) {
+            for (String eventType : cycleEventTypes) {
+                analyticsClient.recordEvent(analyticsClient.createEvent(eventType));
+            }
+        }
+        verify(eventRecorder, times(2 * cycleEventTypes.length)).recordEvent(any(AnalyticsEvent.class));
+        Assert.assertEquals(deduplicatedCount, analyticsClient.getMetrics().getSnapshot().getEventsDeduplicated());
+        analyticsClient.getClickstreamConfiguration().withDedupeWindow(0);
+    }
+
+    /**
+     * test the default priority of preset events and the priority override of ClickstreamEvent.
+     */
+    @Test
+    public void testEventPriority() {
+        Assert.assertEquals(Event.Priority.HIGH,
+            analyticsClient.createEvent(Event.PresetEvent.APP_EXCEPTION).getPriority());
+        Assert.assertEquals(Event.Priority.LOW,
+            analyticsClient.createEvent(Event.PresetEvent.USER_ENGAGEMENT).getPriority());
+        Assert.assertEquals(Event.Priority.NORMAL, analyticsClient.createEvent("testEvent").getPriority());
+        ClickstreamEvent event = ClickstreamEvent.builder().name("purchase").priority(Event.Priority.HIGH).build();
+        Assert.assertEquals(Event.Priority.HIGH, event.getPriority());
+        Assert.assertNull(ClickstreamEvent.builder().name("purchase").build().getPriority());
+    }
+
+    /**
+     * test the ClickstreamEvent keeps the attribute values in order and converts them to properties on demand.
+     */
+    @Test
+    public void testEventAttributes() {
+        ClickstreamEvent.Builder builder = ClickstreamEvent.builder()
+            .name("purchase")
+            .add("product", "shoes")
+            .add("price", 99.9)
+            .add("isMember", true)
+            .add("count", 2)
+            .add("userNumber", 20230101L)
+            .add("count", 3);
+        ClickstreamEvent event = builder.build();
+        builder.add("afterBuild", "value");
+
+        Map<String, Object> attributes = event.getAttributes();
+        Assert.assertArrayEquals(new String[] {"product", "price", "isMember", "count", "userNumber"},
+            attributes.keySet().toArray(new String[0]));
+        Assert.assertEquals("shoes", attributes.get("product"));
+        Assert.assertEquals(99.9, attributes.get("price"));
+        Assert.assertEquals(true, attributes.get("isMember"));
+        Assert.assertEquals(3, attributes.get("count"));
+        Assert.assertEquals(20230101L, attributes.get("userNumber"));
+
+        Map<String, Object> properties = new HashMap<>();
+        for (Map.Entry<String, AnalyticsPropertyBehavior<?>> entry : event.getProperties()) {
+            properties.put(entry.getKey(), entry.getValue().getValue());
+        }
+        Assert.assertEquals(attributes, properties);
+        Assert.assertSame(event.getProperties(), event.getProperties());
+    }
+
+    /**
+     * get all the current user attributes of the analytics client.
+     *
+     * @param client the analytics client.
+     * @return the user attributes JSONObject.
+     * @throws Exception exception.
+     */
+    private JSONObject getUserAttributes(AnalyticsClient client) throws Exception {
+        Field field = AnalyticsClient.class.getDeclaredField("userAttributes");
+        field.setAccessible(true);
+        Object snapshot = field.get(client);
+        Method getAttributes = snapshot.getClass().getDeclaredMethod("getAttributes", boolean.class);
+        return (JSONObject) ReflectUtil.invokeMethod(snapshot, getAttributes, true);
+    }
+
     /**
      * tearDown.
      */
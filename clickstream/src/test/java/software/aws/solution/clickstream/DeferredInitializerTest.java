@@ -0,0 +1,155 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream;
+
+import android.app.Activity;
+import android.os.Looper;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Test the DeferredInitializer.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class DeferredInitializerTest {
+    private static final int MAX_WAIT_TIMES = 500;
+
+    /**
+     * test the operations called before initialized are replayed in order in the background thread after the
+     * initialization, and then the main thread task runs.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testReplayOperationsInOrder() throws Exception {
+        DeferredInitializer initializer = new DeferredInitializer(ApplicationProvider.getApplicationContext());
+        List<String> steps = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(1);
+        Thread mainThread = Thread.currentThread();
+        List<Thread> replayThreads = Collections.synchronizedList(new ArrayList<>());
+        Runnable mainThreadTask = () -> {
+            assertEquals(mainThread, Thread.currentThread());
+            steps.add("main");
+        };
+        initializer.start(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            steps.add("background");
+        }, mainThreadTask);
+        assertFalse(initializer.run(() -> {
+            replayThreads.add(Thread.currentThread());
+            steps.add("operation1");
+        }));
+        initializer.run(() -> {
+            steps.add("operation2");
+            initializer.run(() -> steps.add("operation3"));
+        });
+        assertEquals(2, initializer.getPendingOperationCount());
+        assertTrue(steps.isEmpty());
+
+        latch.countDown();
+        waitForMainThread(steps, 5);
+        assertEquals(Arrays.asList("background", "operation1", "operation2", "operation3", "main"), steps);
+        assertEquals(1, replayThreads.size());
+        assertNotEquals(mainThread, replayThreads.get(0));
+        assertEquals(0, initializer.getPendingOperationCount());
+        assertTrue(initializer.run(() -> steps.add("operation4")));
+        assertEquals("operation4", steps.get(steps.size() - 1));
+    }
+
+    /**
+     * test the operations exceed the limit are dropped.
+     */
+    @Test
+    public void testDropOperationsExceedLimit() {
+        DeferredInitializer initializer = new DeferredInitializer(ApplicationProvider.getApplicationContext());
+        final int[] count = {0};
+        for (int i = 0; i < DeferredInitializer.MAX_PENDING_OPERATIONS; i++) {
+            initializer.run(() -> count[0]++);
+        }
+        assertFalse(initializer.run(() -> count[0]++));
+        assertEquals(DeferredInitializer.MAX_PENDING_OPERATIONS, initializer.getPendingOperationCount());
+        initializer.replay();
+        assertEquals(DeferredInitializer.MAX_PENDING_OPERATIONS, count[0]);
+    }
+
+    /**
+     * test the operations are dropped when the initialization failed.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testInitializationFailed() throws Exception {
+        DeferredInitializer initializer = new DeferredInitializer(ApplicationProvider.getApplicationContext());
+        List<String> steps = Collections.synchronizedList(new ArrayList<>());
+        initializer.run(() -> steps.add("operation1"));
+        initializer.start(() -> {
+            throw new IllegalStateException("test init failed");
+        }, () -> steps.add("main"));
+        for (int i = 0; i < MAX_WAIT_TIMES && initializer.getPendingOperationCount() > 0; i++) {
+            Thread.sleep(10);
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+        assertEquals(0, initializer.getPendingOperationCount());
+        assertFalse(initializer.run(() -> steps.add("operation2")));
+        assertTrue(steps.isEmpty());
+        assertEquals(0, initializer.getPendingOperationCount());
+    }
+
+    /**
+     * test the activity resumed and not paused before initialized is kept.
+     */
+    @Test
+    public void testResumedActivity() {
+        DeferredInitializer initializer = new DeferredInitializer(ApplicationProvider.getApplicationContext());
+        Activity activity = mock(Activity.class);
+        initializer.onActivityResumed(activity);
+        assertEquals(activity, initializer.getResumedActivity());
+        initializer.onActivityPaused(mock(Activity.class));
+        assertEquals(activity, initializer.getResumedActivity());
+        initializer.onActivityPaused(activity);
+        assertNull(initializer.getResumedActivity());
+    }
+
+    private static void waitForMainThread(List<String> steps, int size) throws InterruptedException {
+        for (int i = 0; i < MAX_WAIT_TIMES && steps.size() < size; i++) {
+            Thread.sleep(10);
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+    }
+}
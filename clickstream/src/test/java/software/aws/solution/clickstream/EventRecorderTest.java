@@ -41,11 +41,17 @@ import software.aws.solution.clickstream.client.ClickstreamManager;
 import software.aws.solution.clickstream.client.Event;
 import software.aws.solution.clickstream.client.EventRecorder;
 import software.aws.solution.clickstream.client.db.ClickstreamDBUtil;
+import software.aws.solution.clickstream.client.db.EventTable;
+import software.aws.solution.clickstream.client.metrics.ClickstreamMetrics;
+import software.aws.solution.clickstream.client.network.CompressionDictionary;
 import software.aws.solution.clickstream.client.network.NetRequest;
+import software.aws.solution.clickstream.client.util.Crc32c;
 import software.aws.solution.clickstream.client.util.StringUtil;
 import software.aws.solution.clickstream.util.ReflectUtil;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -168,6 +174,28 @@ public class EventRecorderTest {
         assertEquals(256, dbUtil.getTotalNumber());
     }
 
+    /**
+     * test record event metrics when store events and evict the oldest events.
+     */
+    @Test
+    public void testRecordEventMetrics() {
+        for (int i = 0; i < 200; i++) {
+            event.addAttribute("test_json_" + i, jsonString);
+        }
+        ClickstreamMetrics.Snapshot initial = clickstreamContext.getMetrics().getSnapshot();
+        long initialNumber = dbUtil.getTotalNumber();
+        for (int i = 0; i < 260; i++) {
+            eventRecorder.recordEvent(event);
+        }
+        ClickstreamMetrics.Snapshot snapshot = clickstreamContext.getMetrics().getSnapshot();
+        assertEquals(initial.getEventsRecorded() + 260, snapshot.getEventsRecorded());
+        assertEquals(initialNumber + 260 - dbUtil.getTotalNumber(),
+            snapshot.getEventsDropped() - initial.getEventsDropped());
+        assertEquals(dbUtil.getTotalSize(), snapshot.getStoreSizeBytes());
+        assertEquals(initial.getInsertLatency().getCount() + 260, snapshot.getInsertLatency().getCount());
+        assertEquals(initial.getRecordLatency().getCount() + 260, snapshot.getRecordLatency().getCount());
+    }
+
     /**
      * test insert single event when exceed attribute number limit.
      *
@@ -300,6 +328,67 @@ public class EventRecorderTest {
         cursor.close();
     }
 
+    /**
+     * test getBatchOfEvents only reads the events of the same priority from high to low.
+     *
+     * @throws Exception exception.
+     */
+    @Test
+    public void testGetBatchOfEventsByPriority() throws Exception {
+        event.setPriority(Event.Priority.LOW);
+        eventRecorder.recordEvent(event);
+        event.setPriority(Event.Priority.NORMAL);
+        eventRecorder.recordEvent(event);
+        event.setPriority(Event.Priority.HIGH);
+        eventRecorder.recordEvent(event);
+        eventRecorder.recordEvent(event);
+        event.setPriority(Event.Priority.NORMAL);
+        eventRecorder.recordEvent(event);
+        Cursor cursor = dbUtil.queryEventsInUploadOrder();
+        String[] result = getBatchOfEvents(cursor);
+        cursor.close();
+        assertEquals(2, new JSONArray(result[0]).length());
+        assertEquals("7", result[1]);
+        assertEquals(2, dbUtil.deleteBatchEvents(7, Event.Priority.HIGH.getValue()));
+        cursor = dbUtil.queryEventsInUploadOrder();
+        result = getBatchOfEvents(cursor);
+        cursor.close();
+        assertEquals(2, new JSONArray(result[0]).length());
+        assertEquals("8", result[1]);
+        assertEquals(2, dbUtil.deleteBatchEvents(8, Event.Priority.NORMAL.getValue()));
+        cursor = dbUtil.queryEventsInUploadOrder();
+        result = getBatchOfEvents(cursor);
+        cursor.close();
+        assertEquals(1, new JSONArray(result[0]).length());
+        assertEquals("4", result[1]);
+    }
+
+    /**
+     * test the events with low priority are evicted first when reached max db size.
+     */
+    @Test
+    public void testRecordEventEvictLowPriorityFirst() {
+        for (int i = 0; i < 200; i++) {
+            event.addAttribute("test_json_" + i, jsonString);
+        }
+        event.setPriority(Event.Priority.HIGH);
+        eventRecorder.recordEvent(event);
+        event.setPriority(Event.Priority.LOW);
+        eventRecorder.recordEvent(event);
+        event.setPriority(Event.Priority.NORMAL);
+        for (int i = 0; i < 258; i++) {
+            eventRecorder.recordEvent(event);
+        }
+        assertEquals(256, dbUtil.getTotalNumber());
+        try (Cursor cursor = dbUtil.queryEventsInUploadOrder()) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(Event.Priority.HIGH.getValue(), cursor.getInt(EventTable.ColumnIndex.PRIORITY.getValue()));
+            assertEquals(4, cursor.getInt(EventTable.ColumnIndex.ID.getValue()));
+            assertTrue(cursor.moveToLast());
+            assertEquals(Event.Priority.NORMAL.getValue(), cursor.getInt(EventTable.ColumnIndex.PRIORITY.getValue()));
+        }
+    }
+
     /**
      * test process None event.
      *
@@ -327,6 +416,77 @@ public class EventRecorderTest {
         assertEquals(0, dbUtil.getTotalNumber());
     }
 
+    /**
+     * test the events are recorded into memory and uploaded from it in the memory event store mode,
+     * and the spilled events are uploaded from the database before the events in memory.
+     *
+     * @throws Exception exception.
+     */
+    @Test
+    public void testMemoryEventStoreWithSpillToDisk() throws Exception {
+        setRequestPath(COLLECT_SUCCESS);
+        clickstreamContext.getClickstreamConfiguration().withMemoryEventStore(true).withSpillEventsToDisk(true);
+        EventRecorder memoryRecorder =
+            (EventRecorder) ReflectUtil.newInstance(EventRecorder.class, clickstreamContext, dbUtil, executorService);
+        assertNotNull(memoryRecorder.recordEvent(event));
+        assertNotNull(memoryRecorder.recordEvent(event));
+        assertEquals(0, dbUtil.getTotalNumber());
+        assertEquals(2, (int) ReflectUtil.invokeMethod(memoryRecorder, "spillToDisk"));
+        assertEquals(2, dbUtil.getTotalNumber());
+        assertEquals(0, (int) ReflectUtil.invokeMethod(memoryRecorder, "spillToDisk"));
+
+        memoryRecorder.recordEvent(event);
+        assertEquals(2, dbUtil.getTotalNumber());
+        assertEquals(3, (int) ReflectUtil.invokeMethod(memoryRecorder, "processEvents"));
+        assertEquals(0, dbUtil.getTotalNumber());
+        assertEquals(0, (int) ReflectUtil.invokeMethod(memoryRecorder, "processEvents"));
+        clickstreamContext.getClickstreamConfiguration().withMemoryEventStore(false).withSpillEventsToDisk(false);
+    }
+
+    /**
+     * test record events in batch saves them in order in one transaction.
+     */
+    @Test
+    public void testRecordEvents() {
+        AnalyticsEvent firstEvent = clickstreamContext.getAnalyticsClient().createEvent("first_event");
+        AnalyticsEvent secondEvent = clickstreamContext.getAnalyticsClient().createEvent("second_event");
+        ClickstreamMetrics.Snapshot initial = clickstreamContext.getMetrics().getSnapshot();
+        assertEquals(2, eventRecorder.recordEvents(Arrays.asList(firstEvent, secondEvent)));
+        assertEquals(2, dbUtil.getTotalNumber());
+        ClickstreamMetrics.Snapshot snapshot = clickstreamContext.getMetrics().getSnapshot();
+        assertEquals(2, snapshot.getEventsRecorded() - initial.getEventsRecorded());
+        try (Cursor cursor = dbUtil.queryAllEvents()) {
+            assertTrue(cursor.moveToFirst());
+            assertTrue(cursor.getString(EventTable.ColumnIndex.JSON.getValue()).contains("first_event"));
+            assertTrue(cursor.moveToNext());
+            assertTrue(cursor.getString(EventTable.ColumnIndex.JSON.getValue()).contains("second_event"));
+        }
+    }
+
+    /**
+     * test the events older than the max event age are deleted without uploading at flush time.
+     *
+     * @throws Exception exception.
+     */
+    @Test
+    public void testExpireEventsAtFlush() throws Exception {
+        setRequestPath(COLLECT_SUCCESS);
+        String eventJson = event.toJSONString();
+        int priority = Event.Priority.NORMAL.getValue();
+        long now = System.currentTimeMillis();
+        dbUtil.saveEvents(new String[] {eventJson, eventJson}, new int[] {priority, priority},
+            new long[] {now - 3 * 86400000L, now - 2 * 86400000L});
+        eventRecorder.recordEvent(event);
+        clickstreamContext.getClickstreamConfiguration().withMaxEventAge(86400000L);
+        ClickstreamMetrics.Snapshot initial = clickstreamContext.getMetrics().getSnapshot();
+        assertEquals(1, (int) ReflectUtil.invokeMethod(eventRecorder, "processEvents"));
+        assertEquals(0, dbUtil.getTotalNumber());
+        ClickstreamMetrics.Snapshot snapshot = clickstreamContext.getMetrics().getSnapshot();
+        assertEquals(2, snapshot.getEventsExpired() - initial.getEventsExpired());
+        assertEquals(1, snapshot.getEventsUploaded() - initial.getEventsUploaded());
+        clickstreamContext.getClickstreamConfiguration().withMaxEventAge(0);
+    }
+
     /**
      * test process event when request fail.
      *
@@ -341,6 +501,33 @@ public class EventRecorderTest {
         assertEquals(1, dbUtil.getTotalNumber());
     }
 
+    /**
+     * test upload metrics when process events success and fail.
+     *
+     * @throws Exception exception.
+     */
+    @Test
+    public void testProcessEventMetrics() throws Exception {
+        setRequestPath(COLLECT_FAIL);
+        eventRecorder.recordEvent(event);
+        ReflectUtil.invokeMethod(eventRecorder, "processEvents");
+        ClickstreamMetrics.Snapshot snapshot = clickstreamContext.getMetrics().getSnapshot();
+        assertEquals(1, snapshot.getUploadRequests());
+        assertEquals(1, snapshot.getUploadFailures());
+        assertEquals(0, snapshot.getEventsUploaded());
+
+        setRequestPath(COLLECT_SUCCESS);
+        ReflectUtil.invokeMethod(eventRecorder, "processEvents");
+        snapshot = clickstreamContext.getMetrics().getSnapshot();
+        assertEquals(2, snapshot.getUploadRequests());
+        assertEquals(1, snapshot.getUploadFailures());
+        assertEquals(1, snapshot.getEventsUploaded());
+        assertEquals(2, snapshot.getUploadLatency().getCount());
+        assertEquals(0, snapshot.getStoreSizeBytes());
+        assertTrue(snapshot.getUploadRawBytes() > 0);
+        assertTrue(snapshot.getCompressionRatio() < 1);
+    }
+
     /**
      * test processEvent() for send multi event success with one request.
      *
@@ -535,6 +722,82 @@ public class EventRecorderTest {
         assertEquals(1001, ((ThreadPoolExecutor) executorService).getTaskCount());
     }
 
+    /**
+     * test only the process which holds the upload lock uploads the events in the multi process mode,
+     * it releases the lock when it has nothing to send and another process takes over with the next
+     * bundle sequence id.
+     *
+     * @throws Exception exception.
+     */
+    @Test
+    public void testMultiProcessUploaderElection() throws Exception {
+        setRequestPath(COLLECT_SUCCESS);
+        clickstreamContext.getClickstreamConfiguration().withMultiProcess(true);
+        EventRecorder uploader =
+            (EventRecorder) ReflectUtil.newInstance(EventRecorder.class, clickstreamContext, dbUtil, executorService);
+        EventRecorder appender =
+            (EventRecorder) ReflectUtil.newInstance(EventRecorder.class, clickstreamContext, dbUtil, executorService);
+        try {
+            assertNotNull(appender.recordEvent(event));
+            assertEquals(1, (int) ReflectUtil.invokeMethod(uploader, "processEvents"));
+            assertNotNull(appender.recordEvent(event));
+            assertEquals(0, (int) ReflectUtil.invokeMethod(appender, "processEvents"));
+            assertEquals(1, dbUtil.getTotalNumber());
+            assertEquals(1, (int) ReflectUtil.invokeMethod(uploader, "processEvents"));
+
+            // the uploader has nothing to send, so it releases the lock.
+            assertEquals(0, (int) ReflectUtil.invokeMethod(uploader, "processEvents"));
+            int nextSequenceId = (int) ReflectUtil.getFiled(uploader, "bundleSequenceId");
+            // the sequence id cached in the other process is stale, it continues from the lock file.
+            ReflectUtil.modifyFiled(appender, "bundleSequenceId", 1);
+            assertNotNull(appender.recordEvent(event));
+            assertEquals(1, (int) ReflectUtil.invokeMethod(appender, "processEvents"));
+            assertEquals(nextSequenceId + 1, (int) ReflectUtil.getFiled(appender, "bundleSequenceId"));
+            assertNotNull(appender.recordEvent(event));
+            assertEquals(0, (int) ReflectUtil.invokeMethod(uploader, "processEvents"));
+            assertEquals(1, dbUtil.getTotalNumber());
+        } finally {
+            ReflectUtil.invokeMethod(ReflectUtil.getFiled(uploader, "uploadLock"), "release");
+            ReflectUtil.invokeMethod(ReflectUtil.getFiled(appender, "uploadLock"), "release");
+        }
+    }
+
+    /**
+     * test the uploader releases the upload lock after the submissions in progress when it is released
+     * on disable, so that another process takes over.
+     *
+     * @throws Exception exception.
+     */
+    @Test
+    public void testMultiProcessReleaseUploadLock() throws Exception {
+        setRequestPath(COLLECT_SUCCESS);
+        clickstreamContext.getClickstreamConfiguration().withMultiProcess(true);
+        EventRecorder uploader =
+            (EventRecorder) ReflectUtil.newInstance(EventRecorder.class, clickstreamContext, dbUtil, executorService);
+        ExecutorService appenderExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(1000), new ThreadPoolExecutor.DiscardPolicy());
+        EventRecorder appender =
+            (EventRecorder) ReflectUtil.newInstance(EventRecorder.class, clickstreamContext, dbUtil, appenderExecutor);
+        try {
+            assertNotNull(uploader.recordEvent(event));
+            assertNotNull(uploader.recordEvent(event));
+            assertEquals(2, (int) ReflectUtil.invokeMethod(uploader, "processEvents"));
+            assertNotNull(uploader.recordEvent(event));
+            assertEquals(0, (int) ReflectUtil.invokeMethod(appender, "processEvents"));
+
+            uploader.releaseUploadLock();
+            executorService.shutdown();
+            assertTrue(executorService.awaitTermination(1, TimeUnit.SECONDS));
+            appender.submitEvents();
+            appenderExecutor.shutdown();
+            assertTrue(appenderExecutor.awaitTermination(1, TimeUnit.SECONDS));
+            assertEquals(0, dbUtil.getTotalNumber());
+        } finally {
+            ReflectUtil.invokeMethod(ReflectUtil.getFiled(uploader, "uploadLock"), "release");
+            ReflectUtil.invokeMethod(ReflectUtil.getFiled(appender, "uploadLock"), "release");
+        }
+    }
+
     /**
      * test record event with request parameter hash code.
      *
@@ -552,6 +815,62 @@ public class EventRecorderTest {
         assertTrue(requestResult);
     }
 
+    /**
+     * test the hash code of the compressed request is the hash code of the base64 encoded gzip payload.
+     *
+     * @throws Exception exception.
+     */
+    @Test
+    public void testRecordEventRequestWithCompressedHashCode() throws Exception {
+        clickstreamContext.getClickstreamConfiguration().withCompressEvents(true);
+        setRequestPath(COLLECT_FOR_VERIFY_HASH_CODE);
+        String eventJson = "[" + event.toJSONObject().toString() + "]";
+        String eventHashCode = StringUtil.getHashCode(StringUtil.compressForGzip(eventJson));
+        server.request(and(by(uri(COLLECT_FOR_VERIFY_HASH_CODE)), eq(query("hashCode"), eventHashCode),
+                eq(query("compression"), "gzip")))
+            .response(status(200), text("success"));
+        boolean requestResult = NetRequest.uploadEvents(eventJson, clickstreamContext.getClickstreamConfiguration(), 1);
+        assertTrue(requestResult);
+    }
+
+    /**
+     * test record event with the CRC32C hash code when the server accepts it.
+     *
+     * @throws Exception exception.
+     */
+    @Test
+    public void testRecordEventRequestWithCrc32cHashCode() throws Exception {
+        clickstreamContext.getClickstreamConfiguration().withCompressEvents(false).withCrc32cChecksum(true);
+        setRequestPath(COLLECT_FOR_VERIFY_HASH_CODE);
+        String eventJson = "[" + event.toJSONObject().toString() + "]";
+        Crc32c crc32c = new Crc32c();
+        byte[] bytes = eventJson.getBytes("UTF-8");
+        crc32c.update(bytes, 0, bytes.length);
+        String eventHashCode = String.format(Locale.US, "%08x", crc32c.getValue());
+        server.request(and(by(uri(COLLECT_FOR_VERIFY_HASH_CODE)), eq(query("hashCode"), eventHashCode),
+                eq(query("hashAlgorithm"), "crc32c")))
+            .response(status(200), text("success"));
+        boolean requestResult = NetRequest.uploadEvents(eventJson, clickstreamContext.getClickstreamConfiguration(), 1);
+        assertTrue(requestResult);
+    }
+
+    /**
+     * test record event with the dictionary compression request parameters.
+     *
+     * @throws Exception exception.
+     */
+    @Test
+    public void testRecordEventRequestWithDictionaryCompression() throws Exception {
+        clickstreamContext.getClickstreamConfiguration().withCompressEvents(true).withDictionaryCompression(true);
+        setRequestPath(COLLECT_FOR_VERIFY_HASH_CODE);
+        String eventJson = "[" + event.toJSONObject().toString() + "]";
+        server.request(and(by(uri(COLLECT_FOR_VERIFY_HASH_CODE)), eq(query("compression"), "deflate"),
+                eq(query("dictionaryId"), CompressionDictionary.ID)))
+            .response(status(200), text("success"));
+        boolean requestResult = NetRequest.uploadEvents(eventJson, clickstreamContext.getClickstreamConfiguration(), 1);
+        assertTrue(requestResult);
+    }
+
     /**
      * test record event with request parameter upload timestamp.
      *
@@ -25,13 +25,27 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
+import software.aws.solution.clickstream.client.AnalyticsClient;
+import software.aws.solution.clickstream.client.ClickstreamExceptionHandler;
 import software.aws.solution.clickstream.client.ClickstreamManager;
 import software.aws.solution.clickstream.client.Event;
+import software.aws.solution.clickstream.client.EventRecorder;
 import software.aws.solution.clickstream.client.db.ClickstreamDBUtil;
+import software.aws.solution.clickstream.client.db.EventTable;
+import software.aws.solution.clickstream.client.system.AndroidSystem;
+import software.aws.solution.clickstream.client.system.SdkStateStore;
+import software.aws.solution.clickstream.util.ReflectUtil;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.util.zip.CRC32;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
 
 /**
  * Test the ClickstreamExceptionHandler.
@@ -41,6 +55,7 @@ public class ExceptionHandlerTest {
 
     private ClickstreamDBUtil dbUtil;
     private ClickstreamManager clickstreamManager;
+    private ClickstreamConfiguration configuration;
 
     /**
      * prepare start up environment and context.
@@ -52,9 +67,13 @@ public class ExceptionHandlerTest {
         Context context = ApplicationProvider.getApplicationContext();
         Thread.setDefaultUncaughtExceptionHandler((t, e) -> {
         });
+        // the handler is a singleton of the process, track the exceptions with the context of this test.
+        Field handlerInstance = ClickstreamExceptionHandler.class.getDeclaredField("handlerInstance");
+        handlerInstance.setAccessible(true);
+        handlerInstance.set(null, null);
         dbUtil = new ClickstreamDBUtil(context);
 
-        ClickstreamConfiguration configuration = ClickstreamConfiguration.getDefaultConfiguration()
+        configuration = ClickstreamConfiguration.getDefaultConfiguration()
             .withAppId("demo-app")
             .withTrackAppExceptionEvents(true)
             .withEndpoint("http://example.com/collect")
@@ -64,7 +83,7 @@ public class ExceptionHandlerTest {
     }
 
     /**
-     * test exception for record _app_exception event.
+     * test exception for record _app_exception event into the crash journal and import it in next launch.
      *
      * @throws Exception                exception
      * @throws IllegalArgumentException exception
@@ -79,10 +98,12 @@ public class ExceptionHandlerTest {
         testThread.start();
         testThread.join();
 
-        assertEquals(1, dbUtil.getTotalNumber());
+        assertEquals(0, dbUtil.getTotalNumber());
+        clickstreamManager = new ClickstreamManager(ApplicationProvider.getApplicationContext(), configuration);
 
-        try (Cursor cursor = dbUtil.queryAllEvents()) {
+        try (Cursor cursor = dbUtil.queryEventsInUploadOrder()) {
             cursor.moveToNext();
+            assertEquals(Event.Priority.HIGH.getValue(), cursor.getInt(EventTable.ColumnIndex.PRIORITY.getValue()));
             String eventString = cursor.getString(2);
             JSONObject jsonObject = new JSONObject(eventString);
             String eventName = jsonObject.getString("event_type");
@@ -96,6 +117,94 @@ public class ExceptionHandlerTest {
                 attributes.getString("exception_stack").contains("java.lang.IllegalArgumentException: test exception"));
             assertTrue(attributes.getString("exception_stack").contains("ExceptionHandlerTest.java:"));
         }
+        dbUtil.deleteBatchEvents(Integer.MAX_VALUE);
+        new ClickstreamManager(ApplicationProvider.getApplicationContext(), configuration);
+        try (Cursor cursor = dbUtil.queryAllEvents()) {
+            while (cursor.moveToNext()) {
+                JSONObject jsonObject = new JSONObject(cursor.getString(2));
+                assertNotEquals(Event.PresetEvent.APP_EXCEPTION, jsonObject.getString("event_type"));
+            }
+        }
+    }
+
+    /**
+     * test the torn record in the crash journal is not imported.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testTornCrashJournalRecord() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        byte[] payload = "{\"event_type\":\"_app_exception\"}".getBytes("UTF-8");
+        try (RandomAccessFile journal = new RandomAccessFile(
+            new File(context.getFilesDir(), "clickstream_crash_journal"), "rw")) {
+            journal.writeInt(payload.length);
+            journal.write(payload);
+            journal.writeInt(0);
+        }
+        dbUtil.deleteBatchEvents(Integer.MAX_VALUE);
+        new ClickstreamManager(context, configuration);
+        try (Cursor cursor = dbUtil.queryAllEvents()) {
+            while (cursor.moveToNext()) {
+                JSONObject jsonObject = new JSONObject(cursor.getString(2));
+                assertNotEquals(Event.PresetEvent.APP_EXCEPTION, jsonObject.getString("event_type"));
+            }
+        }
+    }
+
+    /**
+     * test the crash event is imported with the time when it is recorded.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testCrashEventImportedWithEventTimestamp() throws Exception {
+        long timestamp = System.currentTimeMillis() - 60 * 1000L;
+        writeCrashJournal("{\"event_type\":\"_app_exception\",\"timestamp\":" + timestamp + "}");
+        dbUtil.deleteBatchEvents(Integer.MAX_VALUE);
+        new ClickstreamManager(ApplicationProvider.getApplicationContext(), configuration);
+        assertEquals(timestamp, getCrashEventTimestamp());
+    }
+
+    /**
+     * test the crash event which fails to be saved is kept in the crash journal and imported in next launch.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testFailedCrashEventKeptInJournal() throws Exception {
+        long timestamp = System.currentTimeMillis() - 60 * 1000L;
+        writeCrashJournal("{\"event_type\":\"_app_exception\",\"timestamp\":" + timestamp + "}");
+        AnalyticsClient analyticsClient = clickstreamManager.getAnalyticsClient();
+        // the mocked recorder fails to save the event.
+        ReflectUtil.modifyFiled(analyticsClient, "eventRecorder", mock(EventRecorder.class));
+        ReflectUtil.invokeMethod(analyticsClient, "importCrashJournal");
+
+        dbUtil.deleteBatchEvents(Integer.MAX_VALUE);
+        new ClickstreamManager(ApplicationProvider.getApplicationContext(), configuration);
+        assertEquals(timestamp, getCrashEventTimestamp());
+    }
+
+    /**
+     * test the pending state is written to the state file when the app crashes.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testStateFlushedWhenCrash() throws Exception {
+        AndroidSystem system = clickstreamManager.getClickstreamContext().getSystem();
+        system.getStateStore().saveUserInfo("crash_user", "crash_unique_id", 1000L);
+        Thread testThread = new Thread() {
+            public void run() {
+                throw new IllegalArgumentException("test exception");
+            }
+        };
+        testThread.start();
+        testThread.join();
+
+        SdkStateStore stateStore = new SdkStateStore(new File(ApplicationProvider.getApplicationContext().getFilesDir(),
+            SdkStateStore.STATE_FILE_NAME), system.getPreferences());
+        assertNotNull(stateStore.getUserInfo("crash_user"));
     }
 
     /**
@@ -139,6 +248,31 @@ public class ExceptionHandlerTest {
         assertEquals(0, dbUtil.getTotalNumber());
     }
 
+    private static void writeCrashJournal(String eventJson) throws Exception {
+        byte[] payload = eventJson.getBytes("UTF-8");
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        try (RandomAccessFile journal = new RandomAccessFile(
+            new File(ApplicationProvider.getApplicationContext().getFilesDir(), "clickstream_crash_journal"), "rw")) {
+            journal.writeInt(payload.length);
+            journal.write(payload);
+            journal.writeInt((int) crc.getValue());
+            journal.writeInt(0);
+        }
+    }
+
+    private long getCrashEventTimestamp() throws Exception {
+        try (Cursor cursor = dbUtil.queryAllEvents()) {
+            while (cursor.moveToNext()) {
+                JSONObject jsonObject = new JSONObject(cursor.getString(2));
+                if (Event.PresetEvent.APP_EXCEPTION.equals(jsonObject.getString("event_type"))) {
+                    return cursor.getLong(EventTable.ColumnIndex.TIMESTAMP.getValue());
+                }
+            }
+        }
+        return 0;
+    }
+
     /**
      * close db.
      */
@@ -47,7 +47,8 @@ import software.aws.solution.clickstream.client.db.ClickstreamDBUtil;
 import software.aws.solution.clickstream.util.CustomOkhttpDns;
 import software.aws.solution.clickstream.util.ReflectUtil;
 
-import java.util.Map;
+import java.util.Arrays;
+import java.util.List;
 
 import static com.github.dreamhead.moco.Moco.and;
 import static com.github.dreamhead.moco.Moco.by;
@@ -185,6 +186,34 @@ public class IntegrationTest {
         }
     }
 
+    /**
+     * test record events in batch keeps the order and returns the error of each event.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testRecordEvents() throws Exception {
+        executeBackground();
+        List<Event.EventError> errors = ClickstreamAnalytics.recordEvents(Arrays.asList(
+            ClickstreamEvent.builder().name("first_event").add("index", 1).build(),
+            ClickstreamEvent.builder().name("01InvalidEvent").build(),
+            ClickstreamEvent.builder().name("third_event").add("01invalid_attribute", 3).build()));
+        assertEquals(3, errors.size());
+        assertEquals(Event.ErrorCode.NO_ERROR, errors.get(0).getErrorCode());
+        assertEquals(Event.ErrorCode.EVENT_NAME_INVALID, errors.get(1).getErrorCode());
+        assertEquals(Event.ErrorCode.ATTRIBUTE_NAME_INVALID, errors.get(2).getErrorCode());
+        assertEquals(3, dbUtil.getTotalNumber());
+        try (Cursor cursor = dbUtil.queryAllEvents()) {
+            cursor.moveToFirst();
+            assertEquals("first_event", new JSONObject(cursor.getString(2)).getString("event_type"));
+            cursor.moveToNext();
+            JSONObject errorEvent = new JSONObject(cursor.getString(2));
+            assertEquals(Event.PresetEvent.CLICKSTREAM_ERROR, errorEvent.getString("event_type"));
+            cursor.moveToNext();
+            assertEquals("third_event", new JSONObject(cursor.getString(2)).getString("event_type"));
+        }
+    }
+
     /**
      * test record Screen View Event manually.
      *
@@ -902,18 +931,18 @@ public class IntegrationTest {
      *
      * @throws Exception exception
      */
-    @SuppressWarnings("unchecked")
     @After
     public void tearDown() throws Exception {
         dbUtil.deleteBatchEvents(1000);
         dbUtil.closeDB();
         stopThreadSafely();
         ClickstreamAnalytics.getClickStreamConfiguration().withCustomDns(null);
-        Map<String, Object> globalAttribute =
-            (Map<String, Object>) ReflectUtil.getFiled(analyticsClient, "globalAttributes");
-        ReflectUtil.modifyFiled(analyticsClient, "simpleUserAttributes", new JSONObject());
-        ReflectUtil.modifyFiled(analyticsClient, "allUserAttributes", new JSONObject());
-        globalAttribute.clear();
+        ReflectUtil.modifyFiled(analyticsClient, "userAttributes",
+            ReflectUtil.newInstance(Class.forName("software.aws.solution.clickstream.client.UserAttributesSnapshot"),
+                new JSONObject()));
+        for (String name : analyticsClient.getGlobalAttributes().keySet()) {
+            analyticsClient.deleteGlobalAttribute(name);
+        }
         ReflectUtil.makeAmplifyNotConfigured();
     }
 
@@ -15,7 +15,10 @@
 
 package software.aws.solution.clickstream.db;
 
+import android.content.ContentValues;
+import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 import androidx.test.core.app.ApplicationProvider;
 
@@ -27,9 +30,18 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 import software.aws.solution.clickstream.AnalyticsEventTest;
+import software.aws.solution.clickstream.client.AnalyticsClient;
 import software.aws.solution.clickstream.client.AnalyticsEvent;
+import software.aws.solution.clickstream.client.Event;
 import software.aws.solution.clickstream.client.db.ClickstreamDBUtil;
+import software.aws.solution.clickstream.client.db.ClickstreamDatabaseHelper;
+import software.aws.solution.clickstream.client.db.EventTable;
+import software.aws.solution.clickstream.client.db.MemoryEventStore;
+import software.aws.solution.clickstream.client.metrics.ClickstreamMetrics;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 import static org.junit.Assert.assertEquals;
@@ -146,6 +158,251 @@ public class DBUtilTest {
         assertEquals(dbUtil.getTotalNumber(), 2);
     }
 
+    /**
+     * test query events in upload order and eviction order by priority.
+     */
+    @Test
+    public void testQueryOrderByPriority() {
+        AnalyticsClient analyticsClient = AnalyticsEventTest.getAnalyticsClient();
+        AnalyticsEvent lowEvent = analyticsClient.createEvent("lowEvent");
+        lowEvent.setPriority(Event.Priority.LOW);
+        AnalyticsEvent highEvent = analyticsClient.createEvent("highEvent");
+        highEvent.setPriority(Event.Priority.HIGH);
+        dbUtil.deleteBatchEvents(Integer.MAX_VALUE);
+        dbUtil.saveEvent(lowEvent);
+        dbUtil.saveEvent(analyticsEvent);
+        dbUtil.saveEvent(highEvent);
+        dbUtil.saveEvent(analyticsEvent);
+        int priorityIndex = EventTable.ColumnIndex.PRIORITY.getValue();
+        try (Cursor cursor = dbUtil.queryEventsInUploadOrder()) {
+            Assert.assertTrue(cursor.moveToFirst());
+            assertEquals(Event.Priority.HIGH.getValue(), cursor.getInt(priorityIndex));
+            Assert.assertTrue(cursor.getString(EventTable.ColumnIndex.JSON.getValue()).contains("highEvent"));
+            Assert.assertTrue(cursor.moveToNext());
+            assertEquals(Event.Priority.NORMAL.getValue(), cursor.getInt(priorityIndex));
+            int firstNormalId = cursor.getInt(EventTable.ColumnIndex.ID.getValue());
+            Assert.assertTrue(cursor.moveToNext());
+            Assert.assertTrue(firstNormalId < cursor.getInt(EventTable.ColumnIndex.ID.getValue()));
+            Assert.assertTrue(cursor.moveToLast());
+            assertEquals(Event.Priority.LOW.getValue(), cursor.getInt(priorityIndex));
+        }
+        try (Cursor cursor = dbUtil.queryOldestEvents(1)) {
+            Assert.assertTrue(cursor.moveToFirst());
+            int lowEventId = cursor.getInt(0);
+            assertEquals(0, dbUtil.deleteBatchEvents(lowEventId, Event.Priority.HIGH.getValue()));
+            assertEquals(1, dbUtil.deleteBatchEvents(lowEventId, Event.Priority.LOW.getValue()));
+        }
+        assertEquals(3, dbUtil.getTotalNumber());
+    }
+
+    /**
+     * test save events in one transaction.
+     */
+    @Test
+    public void testSaveEvents() {
+        dbUtil.deleteBatchEvents(Integer.MAX_VALUE);
+        String eventJson = analyticsEvent.toJSONString();
+        assertEquals(2, dbUtil.saveEvents(new String[] {eventJson, eventJson},
+            new int[] {Event.Priority.HIGH.getValue(), Event.Priority.NORMAL.getValue()}, new long[] {1L, 2L}));
+        try (Cursor cursor = dbUtil.queryEventsInUploadOrder()) {
+            Assert.assertTrue(cursor.moveToFirst());
+            assertEquals(Event.Priority.HIGH.getValue(), cursor.getInt(EventTable.ColumnIndex.PRIORITY.getValue()));
+            assertEquals(eventJson, cursor.getString(EventTable.ColumnIndex.JSON.getValue()));
+            assertEquals(1L, cursor.getLong(EventTable.ColumnIndex.TIMESTAMP.getValue()));
+        }
+        assertEquals(2, dbUtil.getTotalNumber());
+    }
+
+    /**
+     * test delete the events recorded before the timestamp.
+     */
+    @Test
+    public void testDeleteExpiredEvents() {
+        dbUtil.deleteBatchEvents(Integer.MAX_VALUE);
+        String eventJson = analyticsEvent.toJSONString();
+        int priority = Event.Priority.NORMAL.getValue();
+        dbUtil.saveEvents(new String[] {eventJson, eventJson, eventJson}, new int[] {priority, priority, priority},
+            new long[] {1000L, 2000L, 3000L});
+        dbUtil.saveEvent(analyticsEvent);
+        assertEquals(0, dbUtil.deleteExpiredEvents(1000L));
+        assertEquals(2, dbUtil.deleteExpiredEvents(3000L));
+        assertEquals(2, dbUtil.getTotalNumber());
+        try (Cursor cursor = dbUtil.queryAllEvents()) {
+            Assert.assertTrue(cursor.moveToLast());
+            assertEquals(analyticsEvent.getEventTimestamp().longValue(),
+                cursor.getLong(EventTable.ColumnIndex.TIMESTAMP.getValue()));
+        }
+
+        MemoryEventStore memoryStore = new MemoryEventStore(3, new ClickstreamMetrics());
+        memoryStore.saveEvent(analyticsEvent);
+        memoryStore.saveEvent(eventJson, priority);
+        assertEquals(1, memoryStore.deleteExpiredEvents(analyticsEvent.getEventTimestamp() + 1));
+        assertEquals(1, memoryStore.getTotalNumber());
+    }
+
+    /**
+     * test the memory event store orders the events as the database, reuses the slots of the deleted events
+     * and drops the oldest event of the lowest priority when it is full.
+     */
+    @Test
+    public void testMemoryEventStore() {
+        ClickstreamMetrics metrics = new ClickstreamMetrics();
+        MemoryEventStore memoryStore = new MemoryEventStore(3, metrics);
+        String eventJson = analyticsEvent.toJSONString();
+        memoryStore.saveEvent(eventJson, Event.Priority.LOW.getValue());
+        memoryStore.saveEvent(eventJson, Event.Priority.NORMAL.getValue());
+        memoryStore.saveEvent(eventJson, Event.Priority.HIGH.getValue());
+        try (Cursor cursor = memoryStore.queryEventsInUploadOrder()) {
+            Assert.assertTrue(cursor.moveToFirst());
+            assertEquals(3, cursor.getInt(EventTable.ColumnIndex.ID.getValue()));
+            Assert.assertTrue(cursor.moveToLast());
+            assertEquals(1, cursor.getInt(EventTable.ColumnIndex.ID.getValue()));
+        }
+        try (Cursor cursor = memoryStore.queryOldestEvents(1)) {
+            Assert.assertTrue(cursor.moveToFirst());
+            assertEquals(1, cursor.getInt(EventTable.ColumnIndex.ID.getValue()));
+        }
+        assertEquals(1, memoryStore.deleteBatchEvents(2, Event.Priority.NORMAL.getValue()));
+        assertEquals(2, memoryStore.getTotalNumber());
+
+        // the slot of the deleted event is reclaimed by compacting the ring, so no event is dropped.
+        Uri uri = memoryStore.saveEvent(analyticsEvent);
+        assertEquals("4", uri.getLastPathSegment());
+        assertEquals(0, metrics.getSnapshot().getEventsDropped());
+        memoryStore.saveEvent(eventJson, Event.Priority.NORMAL.getValue());
+        assertEquals(1, metrics.getSnapshot().getEventsDropped());
+        assertEquals(3, memoryStore.getTotalNumber());
+        assertEquals(3L * eventJson.length(), memoryStore.getTotalSize());
+        try (Cursor cursor = memoryStore.queryAllEvents()) {
+            Assert.assertTrue(cursor.moveToFirst());
+            assertEquals(3, cursor.getInt(EventTable.ColumnIndex.ID.getValue()));
+            Assert.assertTrue(cursor.moveToLast());
+            assertEquals(5, cursor.getInt(EventTable.ColumnIndex.ID.getValue()));
+        }
+        assertEquals(1, memoryStore.deleteEvent(4));
+        assertEquals(2, memoryStore.deleteBatchEvents(Integer.MAX_VALUE));
+        assertEquals(0, memoryStore.getTotalSize());
+    }
+
+    /**
+     * test the memory event store compacts the slots of the events deleted out of order before it is full,
+     * so the event at the head is kept.
+     */
+    @Test
+    public void testMemoryEventStoreCompactsDeletedSlots() {
+        ClickstreamMetrics metrics = new ClickstreamMetrics();
+        MemoryEventStore memoryStore = new MemoryEventStore(3, metrics);
+        String eventJson = analyticsEvent.toJSONString();
+        memoryStore.saveEvent(eventJson, Event.Priority.HIGH.getValue());
+        memoryStore.saveEvent(eventJson, Event.Priority.NORMAL.getValue());
+        memoryStore.saveEvent(eventJson, Event.Priority.LOW.getValue());
+        assertEquals(1, memoryStore.deleteBatchEvents(3, Event.Priority.NORMAL.getValue()));
+        memoryStore.saveEvent(eventJson, Event.Priority.NORMAL.getValue());
+
+        assertEquals(0, metrics.getSnapshot().getEventsDropped());
+        assertEquals(3, memoryStore.getTotalNumber());
+        assertEquals(3L * eventJson.length(), memoryStore.getTotalSize());
+        assertEquals(Arrays.asList(1, 3, 4), getEventIds(memoryStore.queryAllEvents()));
+        assertEquals(Arrays.asList(1, 4, 3), getEventIds(memoryStore.queryEventsInUploadOrder()));
+    }
+
+    /**
+     * test the memory event store drops the oldest event of the lowest priority when it is full.
+     */
+    @Test
+    public void testMemoryEventStoreEvictsOldestEventOfLowestPriority() {
+        ClickstreamMetrics metrics = new ClickstreamMetrics();
+        MemoryEventStore memoryStore = new MemoryEventStore(3, metrics);
+        String eventJson = analyticsEvent.toJSONString();
+        memoryStore.saveEvent(eventJson, Event.Priority.HIGH.getValue());
+        memoryStore.saveEvent(eventJson, Event.Priority.LOW.getValue());
+        memoryStore.saveEvent(eventJson, Event.Priority.NORMAL.getValue());
+        memoryStore.saveEvent(eventJson, Event.Priority.NORMAL.getValue());
+        assertEquals(Arrays.asList(1, 3, 4), getEventIds(memoryStore.queryAllEvents()));
+
+        memoryStore.saveEvent(eventJson, Event.Priority.NORMAL.getValue());
+        assertEquals(Arrays.asList(1, 4, 5), getEventIds(memoryStore.queryAllEvents()));
+        assertEquals(2, metrics.getSnapshot().getEventsDropped());
+        assertEquals(3, memoryStore.getTotalNumber());
+        assertEquals(3L * eventJson.length(), memoryStore.getTotalSize());
+    }
+
+    /**
+     * test upgrade the database of version 1 keeps the events with normal priority and the upgrade time.
+     */
+    @Test
+    public void testUpgradeFromVersionOne() {
+        Context context = ApplicationProvider.getApplicationContext();
+        dbUtil.closeDB();
+        context.deleteDatabase("clickstream.db");
+        ClickstreamDatabaseHelper helperV1 = new ClickstreamDatabaseHelper(context, 1);
+        ContentValues values = new ContentValues();
+        values.put(EventTable.COLUMN_JSON, "{}");
+        values.put(EventTable.COLUMN_SIZE, 2);
+        helperV1.getWritableDatabase().insert(EventTable.TABLE_EVENT, null, values);
+        helperV1.close();
+
+        ClickstreamDatabaseHelper helper = new ClickstreamDatabaseHelper(context);
+        SQLiteDatabase database = helper.getWritableDatabase();
+        try (Cursor cursor = database.query(EventTable.TABLE_EVENT, null, null, null, null, null, null)) {
+            Assert.assertTrue(cursor.moveToFirst());
+            assertEquals(EventTable.COLUMN_PRIORITY, cursor.getColumnName(EventTable.ColumnIndex.PRIORITY.getValue()));
+            assertEquals(Event.Priority.NORMAL.getValue(), cursor.getInt(EventTable.ColumnIndex.PRIORITY.getValue()));
+            assertEquals(EventTable.COLUMN_TIMESTAMP,
+                cursor.getColumnName(EventTable.ColumnIndex.TIMESTAMP.getValue()));
+            Assert.assertTrue(cursor.getLong(EventTable.ColumnIndex.TIMESTAMP.getValue()) > 0);
+        }
+        helper.close();
+    }
+
+    /**
+     * test the deleted events leave free pages until they are reclaimed in incremental auto-vacuum mode.
+     */
+    @Test
+    public void testReclaimFreePages() {
+        dbUtil.deleteBatchEvents(Integer.MAX_VALUE);
+        dbUtil.reclaimFreePages();
+        assertEquals(0, dbUtil.getFreePageCount());
+        String eventJson = analyticsEvent.toJSONString();
+        for (int i = 0; i < 200; i++) {
+            dbUtil.saveEvent(eventJson, Event.Priority.NORMAL.getValue());
+        }
+        dbUtil.deleteBatchEvents(Integer.MAX_VALUE);
+        Assert.assertTrue(dbUtil.getFreePageCount() > 0);
+        dbUtil.reclaimFreePages();
+        assertEquals(0, dbUtil.getFreePageCount());
+    }
+
+    /**
+     * test the database created without auto-vacuum is rebuilt in incremental auto-vacuum mode.
+     */
+    @Test
+    public void testMigrateToIncrementalAutoVacuum() {
+        Context context = ApplicationProvider.getApplicationContext();
+        dbUtil.closeDB();
+        context.deleteDatabase("clickstream.db");
+        SQLiteDatabase legacyDatabase = context.openOrCreateDatabase("clickstream.db", Context.MODE_PRIVATE, null);
+        // the auto-vacuum mode of the database with tables only changes by vacuum.
+        legacyDatabase.execSQL("PRAGMA auto_vacuum = NONE");
+        legacyDatabase.execSQL("VACUUM");
+        EventTable.onCreate(legacyDatabase, 2);
+        legacyDatabase.setVersion(2);
+        try (Cursor cursor = legacyDatabase.rawQuery("PRAGMA auto_vacuum", null)) {
+            Assert.assertTrue(cursor.moveToFirst());
+            assertEquals(0, cursor.getInt(0));
+        }
+        legacyDatabase.close();
+
+        ClickstreamDatabaseHelper helper = new ClickstreamDatabaseHelper(context);
+        SQLiteDatabase database = helper.getWritableDatabase();
+        try (Cursor cursor = database.rawQuery("PRAGMA auto_vacuum", null)) {
+            Assert.assertTrue(cursor.moveToFirst());
+            assertEquals(2, cursor.getInt(0));
+        }
+        assertEquals(3, database.getVersion());
+        helper.close();
+    }
+
     /**
      * close db.
      */
@@ -153,4 +410,14 @@ public class DBUtilTest {
     public void tearDown() {
         dbUtil.closeDB();
     }
+
+    private static List<Integer> getEventIds(Cursor cursor) {
+        List<Integer> ids = new ArrayList<>();
+        try (Cursor events = cursor) {
+            while (events.moveToNext()) {
+                ids.add(events.getInt(EventTable.ColumnIndex.ID.getValue()));
+            }
+        }
+        return ids;
+    }
 }
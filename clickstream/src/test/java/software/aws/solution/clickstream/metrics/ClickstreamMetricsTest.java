@@ -0,0 +1,142 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.metrics;
+
+import android.os.Handler;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import software.aws.solution.clickstream.ClickstreamConfiguration;
+import software.aws.solution.clickstream.client.ClickstreamManager;
+import software.aws.solution.clickstream.client.metrics.ClickstreamMetrics;
+import software.aws.solution.clickstream.client.metrics.LatencyHistogram;
+import software.aws.solution.clickstream.util.ReflectUtil;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ClickstreamMetricsTest {
+
+    /**
+     * test latency histogram buckets, mean and percentile.
+     */
+    @Test
+    public void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(80));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        histogram.record(TimeUnit.SECONDS.toNanos(60));
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        long[] counts = snapshot.getBucketCounts();
+        assertEquals(LatencyHistogram.Snapshot.getBucketBoundsMicros().length + 1, counts.length);
+        assertEquals(90, counts[0]);
+        assertEquals(1, counts[counts.length - 1]);
+        assertEquals(101, snapshot.getCount());
+        assertEquals((90 * 80 + 10 * 20_000 + 60_000_000) / 101, snapshot.getMeanMicros());
+        assertEquals(100, snapshot.getPercentileMicros(50));
+        assertEquals(25_000, snapshot.getPercentileMicros(99));
+        assertEquals(Long.MAX_VALUE, snapshot.getPercentileMicros(100));
+    }
+
+    /**
+     * test the snapshot keeps the values when it was taken.
+     */
+    @Test
+    public void testSnapshot() {
+        ClickstreamMetrics metrics = new ClickstreamMetrics();
+        metrics.incrementEventsRecorded();
+        metrics.addEventsDropped(2);
+        metrics.recordUploadBytes(1000, 250);
+        metrics.recordUpload(true, 10, TimeUnit.MILLISECONDS.toNanos(100));
+        metrics.recordUpload(false, 0, TimeUnit.MILLISECONDS.toNanos(100));
+        metrics.setStoreSizeBytes(2048);
+        ClickstreamMetrics.Snapshot snapshot = metrics.getSnapshot();
+        metrics.incrementEventsRecorded();
+        assertEquals(1, snapshot.getEventsRecorded());
+        assertEquals(2, snapshot.getEventsDropped());
+        assertEquals(10, snapshot.getEventsUploaded());
+        assertEquals(2, snapshot.getUploadRequests());
+        assertEquals(1, snapshot.getUploadFailures());
+        assertEquals(0.25, snapshot.getCompressionRatio(), 0.001);
+        assertEquals(2048, snapshot.getStoreSizeBytes());
+        assertEquals(2, snapshot.getUploadLatency().getCount());
+        assertEquals(2, metrics.getSnapshot().getEventsRecorded());
+    }
+
+    /**
+     * test the listener is called periodically until it is removed.
+     *
+     * @throws Exception exception.
+     */
+    @Test
+    public void testListener() throws Exception {
+        ClickstreamMetrics metrics = new ClickstreamMetrics();
+        List<ClickstreamMetrics.Snapshot> snapshots = new ArrayList<>();
+        metrics.setListener(snapshots::add, 1000);
+        Handler handler = (Handler) ReflectUtil.getFiled(metrics, "handler");
+        shadowOf(handler.getLooper()).idleFor(Duration.ofMillis(3000));
+        assertEquals(3, snapshots.size());
+        metrics.setListener(null, 0);
+        shadowOf(handler.getLooper()).idleFor(Duration.ofMillis(3000));
+        assertEquals(3, snapshots.size());
+    }
+
+    /**
+     * test the duration of each initialization phase is recorded when the SDK initialized.
+     */
+    @Test
+    public void testInitPhases() {
+        ClickstreamManager clickstreamManager = new ClickstreamManager(ApplicationProvider.getApplicationContext(),
+            new ClickstreamConfiguration()
+                .withAppId("demo-app")
+                .withEndpoint("http://example.com/collect")
+                .withSendEventsInterval(10000)
+                .withSessionTimeoutDuration(1800000)
+                .withCompressEvents(true)
+                .withTrackScreenViewEvents(false)
+                .withTrackUserEngagementEvents(false)
+                .withTrackAppExceptionEvents(false)
+                .withLogEvents(false));
+        Map<String, Long> initPhases = clickstreamManager.getAnalyticsClient().getMetrics().getSnapshot()
+            .getInitPhases();
+        assertEquals(Arrays.asList(ClickstreamMetrics.INIT_PHASE_PREFERENCES, ClickstreamMetrics.INIT_PHASE_SYSTEM,
+            ClickstreamMetrics.INIT_PHASE_DEVICE_ID, ClickstreamMetrics.INIT_PHASE_DB_OPEN,
+            ClickstreamMetrics.INIT_PHASE_CLIENTS, ClickstreamMetrics.INIT_PHASE_PRESET_EVENTS,
+            ClickstreamMetrics.INIT_PHASE_TOTAL), Arrays.asList(initPhases.keySet().toArray()));
+        for (Long duration : initPhases.values()) {
+            assertTrue(duration >= 0);
+        }
+        assertTrue(initPhases.get(ClickstreamMetrics.INIT_PHASE_TOTAL)
+            >= initPhases.get(ClickstreamMetrics.INIT_PHASE_CLIENTS));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.network;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import software.aws.solution.clickstream.client.network.CompressionDictionary;
+import software.aws.solution.clickstream.client.network.RequestPayload;
+import software.aws.solution.clickstream.client.util.StringUtil;
+import software.aws.solution.clickstream.util.PayloadDecoder;
+
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.zip.Adler32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RequestPayloadTest {
+    private static final int EVENT_COUNT = 10;
+    private static final String EVENT_TEMPLATE = "{\"unique_id\":\"%s\",\"event_type\":\"_screen_view\","
+        + "\"event_id\":\"%s\",\"app_id\":\"demo-app\",\"timestamp\":%d,\"device_id\":\"a1b2c3d4e5f6\","
+        + "\"platform\":\"Android\",\"os_version\":\"13\",\"make\":\"Google\",\"brand\":\"google\","
+        + "\"model\":\"Pixel 7\",\"locale\":\"en_US\",\"carrier\":\"UNKNOWN\",\"network_type\":\"WIFI\","
+        + "\"screen_height\":2400,\"screen_width\":1080,\"zone_offset\":28800000,\"system_language\":\"en\","
+        + "\"country\":\"United States\",\"country_code\":\"US\",\"sdk_version\":\"0.14.0\","
+        + "\"sdk_name\":\"aws-solution-clickstream-sdk\",\"app_version\":\"1.0\","
+        + "\"app_package_name\":\"com.example.demo\",\"app_title\":\"demo\",\"items\":[],"
+        + "\"user\":{\"_user_id\":{\"value\":\"demo_user\",\"set_timestamp\":%d}},"
+        + "\"attributes\":{\"_session_id\":\"%s\",\"_session_start_timestamp\":%d,\"_session_duration\":%d,"
+        + "\"_session_number\":1,\"_screen_name\":\"MainActivity\",\"_screen_unique_id\":\"%d\"}}";
+    private String eventsJson;
+
+    /**
+     * prepare a small batch of events json.
+     */
+    @Before
+    public void setup() {
+        StringBuilder builder = new StringBuilder("[");
+        long timestamp = 1_700_000_000_000L;
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(String.format(Locale.US, EVENT_TEMPLATE, "unique_" + i, "event_" + i, timestamp + i,
+                timestamp, "session_1", timestamp, i * 1000L, 12345 + i));
+        }
+        eventsJson = builder.append(']').toString();
+    }
+
+    /**
+     * test the gzip payload and its hash code are the same as compressing and hashing in separate passes.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testGzipPayload() throws Exception {
+        RequestPayload payload = RequestPayload.create(eventsJson, RequestPayload.COMPRESSION_GZIP, false);
+        String compressed = StringUtil.compressForGzip(eventsJson);
+        assertEquals(compressed, new String(payload.getBytes(), Charset.forName("UTF-8")));
+        assertEquals(StringUtil.getHashCode(compressed), payload.getHashCode());
+        assertNull(payload.getHashAlgorithm());
+        assertNull(payload.getDictionaryId());
+        assertEquals(eventsJson, PayloadDecoder.decode(payload.getBytes(), payload.getCompression(), null));
+    }
+
+    /**
+     * test the dictionary payload is decoded by the server and smaller than the gzip payload.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testDictionaryPayload() throws Exception {
+        RequestPayload payload = RequestPayload.create(eventsJson, RequestPayload.COMPRESSION_DEFLATE, false);
+        assertEquals(RequestPayload.COMPRESSION_DEFLATE, payload.getCompression());
+        assertEquals(CompressionDictionary.ID, payload.getDictionaryId());
+        assertEquals(StringUtil.getHashCode(new String(payload.getBytes(), Charset.forName("UTF-8"))),
+            payload.getHashCode());
+        assertEquals(eventsJson,
+            PayloadDecoder.decode(payload.getBytes(), payload.getCompression(), payload.getDictionaryId()));
+        RequestPayload gzipPayload = RequestPayload.create(eventsJson, RequestPayload.COMPRESSION_GZIP, false);
+        assertTrue(payload.getBytes().length < gzipPayload.getBytes().length);
+
+        RequestPayload singleEventPayload = RequestPayload.create("[" + String.format(Locale.US, EVENT_TEMPLATE,
+            "unique", "event", 1L, 1L, "session", 1L, 0L, 1) + "]", RequestPayload.COMPRESSION_DEFLATE, true);
+        assertEquals("crc32c", singleEventPayload.getHashAlgorithm());
+        assertTrue(PayloadDecoder.decode(singleEventPayload.getBytes(), singleEventPayload.getCompression(),
+            singleEventPayload.getDictionaryId()).contains("\"unique_id\":\"unique\""));
+    }
+
+    /**
+     * test the content of the released dictionary is not changed, a new content needs a new dictionary id.
+     */
+    @Test
+    public void testDictionaryIsVersioned() {
+        Adler32 adler32 = new Adler32();
+        adler32.update(CompressionDictionary.getBytes());
+        assertEquals("v1", CompressionDictionary.ID);
+        assertEquals(1517943974L, adler32.getValue());
+    }
+}
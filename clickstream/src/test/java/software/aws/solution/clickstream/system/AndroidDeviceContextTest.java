@@ -0,0 +1,131 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.system;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.res.Configuration;
+import android.os.Looper;
+import android.util.DisplayMetrics;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import software.aws.solution.clickstream.client.system.AndroidDeviceContext;
+import software.aws.solution.clickstream.client.system.DeviceContextSnapshot;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class AndroidDeviceContextTest {
+    private Context context;
+    private Locale defaultLocale;
+    private TimeZone defaultTimeZone;
+
+    /**
+     * set up the application context and keep the default locale and timezone.
+     */
+    @Before
+    public void setup() {
+        context = ApplicationProvider.getApplicationContext();
+        defaultLocale = Locale.getDefault();
+        defaultTimeZone = TimeZone.getDefault();
+    }
+
+    /**
+     * restore the default locale and timezone.
+     */
+    @After
+    public void tearDown() {
+        Locale.setDefault(defaultLocale);
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    /**
+     * test the snapshot is captured from display metrics, locale and timezone.
+     */
+    @Test
+    public void testCaptureSnapshot() {
+        DeviceContextSnapshot snapshot = new AndroidDeviceContext(context).getSnapshot();
+        DisplayMetrics dm = context.getResources().getDisplayMetrics();
+        Locale locale = Locale.getDefault();
+        assertEquals(dm.heightPixels, snapshot.getHeightPixels());
+        assertEquals(dm.widthPixels, snapshot.getWidthPixels());
+        assertEquals(locale.toString(), snapshot.getLocale());
+        assertEquals(locale.getLanguage(), snapshot.getLanguage());
+        assertEquals(locale.getCountry(), snapshot.getCountryCode());
+        assertEquals(locale.getDisplayCountry(), snapshot.getDisplayCountry());
+        assertEquals(TimeZone.getDefault().getRawOffset(), snapshot.getZoneOffset());
+    }
+
+    /**
+     * test the snapshot is reused when nothing changed.
+     */
+    @Test
+    public void testSnapshotIsCached() {
+        AndroidDeviceContext deviceContext = new AndroidDeviceContext(context);
+        assertSame(deviceContext.getSnapshot(), deviceContext.getSnapshot());
+    }
+
+    /**
+     * test the snapshot is refreshed when receive locale changed broadcast.
+     */
+    @Test
+    public void testRefreshWhenLocaleChanged() {
+        AndroidDeviceContext deviceContext = new AndroidDeviceContext(context);
+        Locale.setDefault(Locale.JAPAN);
+        context.sendBroadcast(new Intent(Intent.ACTION_LOCALE_CHANGED));
+        shadowOf(Looper.getMainLooper()).idle();
+        DeviceContextSnapshot snapshot = deviceContext.getSnapshot();
+        assertEquals("ja_JP", snapshot.getLocale());
+        assertEquals("ja", snapshot.getLanguage());
+        assertEquals("JP", snapshot.getCountryCode());
+    }
+
+    /**
+     * test the snapshot is refreshed when receive timezone changed broadcast.
+     */
+    @Test
+    public void testRefreshWhenTimeZoneChanged() {
+        AndroidDeviceContext deviceContext = new AndroidDeviceContext(context);
+        TimeZone.setDefault(TimeZone.getTimeZone("GMT+05:30"));
+        context.sendBroadcast(new Intent(Intent.ACTION_TIMEZONE_CHANGED));
+        shadowOf(Looper.getMainLooper()).idle();
+        assertEquals(19_800_000, deviceContext.getSnapshot().getZoneOffset());
+    }
+
+    /**
+     * test the snapshot is refreshed when configuration changed.
+     */
+    @Test
+    public void testRefreshWhenConfigurationChanged() {
+        AndroidDeviceContext deviceContext = new AndroidDeviceContext(context);
+        DeviceContextSnapshot snapshot = deviceContext.getSnapshot();
+        deviceContext.onConfigurationChanged(new Configuration());
+        assertNotSame(snapshot, deviceContext.getSnapshot());
+    }
+}
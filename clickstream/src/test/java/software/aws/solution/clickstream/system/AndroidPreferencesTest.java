@@ -17,6 +17,7 @@ package software.aws.solution.clickstream.system;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Looper;
 import androidx.test.core.app.ApplicationProvider;
 
 import org.junit.Before;
@@ -26,9 +27,14 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 import software.aws.solution.clickstream.client.system.AndroidPreferences;
 
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE)
@@ -111,6 +117,7 @@ public class AndroidPreferencesTest {
     public void putBoolean() {
         AndroidPreferences preferences = new AndroidPreferences(context, PREFERENCE_KEY);
         preferences.putBoolean("boolean", true);
+        preferences.flush();
         assertTrue(pref.getBoolean("boolean", false));
     }
 
@@ -121,6 +128,7 @@ public class AndroidPreferencesTest {
     public void putInt() {
         AndroidPreferences preferences = new AndroidPreferences(context, PREFERENCE_KEY);
         preferences.putInt("int", 1);
+        preferences.flush();
         assertEquals(pref.getInt("int", 5), 1);
     }
 
@@ -131,6 +139,7 @@ public class AndroidPreferencesTest {
     public void putFloat() {
         AndroidPreferences preferences = new AndroidPreferences(context, PREFERENCE_KEY);
         preferences.putFloat("float", 1.0f);
+        preferences.flush();
         assertEquals(pref.getFloat("float", 5.0f), 1.0f, .05f);
     }
 
@@ -141,6 +150,7 @@ public class AndroidPreferencesTest {
     public void putLong() {
         AndroidPreferences preferences = new AndroidPreferences(context, PREFERENCE_KEY);
         preferences.putLong("long", 1L);
+        preferences.flush();
         assertEquals(pref.getLong("long", 5L), 1L);
     }
 
@@ -151,6 +161,70 @@ public class AndroidPreferencesTest {
     public void putString() {
         AndroidPreferences preferences = new AndroidPreferences(context, PREFERENCE_KEY);
         preferences.putString("string", "value");
+        preferences.flush();
         assertSame(pref.getString("string", "nonValue"), "value");
     }
+
+    /**
+     * test put values are kept in memory and not written before flush.
+     */
+    @Test
+    public void putValueIsWrittenBehind() {
+        AndroidPreferences preferences = new AndroidPreferences(context, PREFERENCE_KEY);
+        preferences.putString("string", "value");
+        preferences.putInt("int", 1);
+        assertFalse(pref.contains("string"));
+        assertFalse(pref.contains("int"));
+        assertEquals(preferences.getString("string", "other"), "value");
+        assertEquals(preferences.getInt("int", 5), 1);
+    }
+
+    /**
+     * test put values are visible to other preferences instance with the same key.
+     */
+    @Test
+    public void putValueIsSharedBetweenInstances() {
+        AndroidPreferences preferences = new AndroidPreferences(context, PREFERENCE_KEY);
+        preferences.putLong("long", 1L);
+        AndroidPreferences otherPreferences = new AndroidPreferences(context, PREFERENCE_KEY);
+        assertEquals(otherPreferences.getLong("long", 5L), 1L);
+    }
+
+    /**
+     * test put null string value is kept in memory.
+     */
+    @Test
+    public void putNullStringValue() {
+        pref.edit().putString("string", "value").commit();
+        AndroidPreferences preferences = new AndroidPreferences(context, PREFERENCE_KEY);
+        preferences.putString("string", null);
+        assertNull(preferences.getString("string", null));
+        preferences.flush();
+        assertNull(pref.getString("string", null));
+    }
+
+    /**
+     * test dirty values are written after the flush interval.
+     */
+    @Test
+    public void flushAfterInterval() {
+        AndroidPreferences preferences = new AndroidPreferences(context, PREFERENCE_KEY);
+        preferences.putBoolean("boolean", true);
+        preferences.putFloat("float", 1.0f);
+        shadowOf(Looper.getMainLooper()).idleFor(1, TimeUnit.SECONDS);
+        assertTrue(pref.getBoolean("boolean", false));
+        assertEquals(pref.getFloat("float", 5.0f), 1.0f, .05f);
+    }
+
+    /**
+     * test commit write the dirty values synchronously.
+     */
+    @Test
+    public void commitDirtyValues() {
+        AndroidPreferences preferences = new AndroidPreferences(context, PREFERENCE_KEY);
+        preferences.putInt("int", 1);
+        preferences.commit();
+        assertEquals(pref.getInt("int", 5), 1);
+        assertEquals(preferences.getInt("int", 5), 1);
+    }
 }
@@ -0,0 +1,519 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.system;
+
+import android.content.Context;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import software.aws.solution.clickstream.client.Session;
+import software.aws.solution.clickstream.client.system.AndroidPreferences;
+import software.aws.solution.clickstream.client.system.SdkStateStore;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SdkStateStoreTest {
+    private static final String PREFERENCE_KEY = "294262d4-8dbd-4bfd-816d-0fc81b3d32b7";
+    private static final long HEADER_LENGTH = 8;
+    private AndroidPreferences preferences;
+    private File stateFile;
+
+    /**
+     * set up the preferences and the state file.
+     */
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        preferences = new AndroidPreferences(context, PREFERENCE_KEY);
+        stateFile = new File(context.getFilesDir(), SdkStateStore.STATE_FILE_NAME);
+    }
+
+    /**
+     * test new store is empty and create the state file.
+     */
+    @Test
+    public void testNewStoreIsEmpty() {
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences);
+        stateStore.flush();
+        assertTrue(stateFile.exists());
+        assertNull(stateStore.getSession());
+        assertEquals(0, stateStore.getUserAttributes().length());
+        assertEquals(0, stateStore.getUserCount());
+    }
+
+    /**
+     * test save and reload session.
+     */
+    @Test
+    public void testSaveAndReloadSession() {
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences);
+        stateStore.saveSession(new Session("session_id", 1000L, 2000L, 3));
+        stateStore.flush();
+        Session session = new SdkStateStore(stateFile, preferences).getSession();
+        assertEquals("session_id", session.getSessionID());
+        assertEquals(1000L, session.getStartTime());
+        assertEquals(2000L, session.getPauseTime().longValue());
+        assertEquals(3, session.getSessionIndex());
+    }
+
+    /**
+     * test save and reload session which is not paused.
+     */
+    @Test
+    public void testSaveAndReloadSessionWithoutPauseTime() {
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences);
+        stateStore.saveSession(new Session("session_id", 1000L, null, 1));
+        stateStore.flush();
+        Session session = new SdkStateStore(stateFile, preferences).getSession();
+        assertNull(session.getPauseTime());
+    }
+
+    /**
+     * test save and reload user attributes with all value types.
+     *
+     * @throws JSONException exception
+     */
+    @Test
+    public void testSaveAndReloadUserAttributes() throws JSONException {
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences);
+        JSONObject userAttributes = new JSONObject();
+        userAttributes.put("user_name", attribute("carl", 1L));
+        userAttributes.put("_user_id", attribute("10837409", 2L));
+        userAttributes.put("user_age", attribute(21, 3L));
+        userAttributes.put("_user_first_touch_timestamp", attribute(1689839453000L, 4L));
+        userAttributes.put("is_member", attribute(true, 5L));
+        userAttributes.put("score", attribute(85.5, 6L));
+        stateStore.saveUserAttributes(userAttributes);
+
+        stateStore.flush();
+        JSONObject result = new SdkStateStore(stateFile, preferences).getUserAttributes();
+        assertEquals(6, result.length());
+        assertEquals("carl", result.getJSONObject("user_name").getString("value"));
+        assertEquals(1L, result.getJSONObject("user_name").getLong("set_timestamp"));
+        assertEquals("10837409", result.getJSONObject("_user_id").getString("value"));
+        assertEquals(21, result.getJSONObject("user_age").get("value"));
+        assertEquals(1689839453000L, result.getJSONObject("_user_first_touch_timestamp").get("value"));
+        assertTrue(result.getJSONObject("is_member").getBoolean("value"));
+        assertEquals(85.5, result.getJSONObject("score").getDouble("value"), 0.01);
+    }
+
+    /**
+     * test update user attributes replace the previous user attributes.
+     *
+     * @throws JSONException exception
+     */
+    @Test
+    public void testUpdateUserAttributes() throws JSONException {
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences);
+        JSONObject userAttributes = new JSONObject();
+        userAttributes.put("user_name", attribute("carl", 1L));
+        userAttributes.put("user_age", attribute(21, 1L));
+        stateStore.saveUserAttributes(userAttributes);
+        userAttributes.remove("user_name");
+        userAttributes.put("user_age", attribute(22, 2L));
+        userAttributes.put("custom", attribute("value", 2L));
+        stateStore.saveUserAttributes(userAttributes);
+
+        stateStore.flush();
+        JSONObject result = new SdkStateStore(stateFile, preferences).getUserAttributes();
+        assertFalse(result.has("user_name"));
+        assertEquals(22, result.getJSONObject("user_age").getInt("value"));
+        assertEquals("value", result.getJSONObject("custom").getString("value"));
+    }
+
+    /**
+     * test update user attributes only append the changed entries.
+     *
+     * @throws JSONException exception
+     */
+    @Test
+    public void testUpdateChangedUserAttributes() throws JSONException {
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences);
+        JSONObject userAttributes = new JSONObject();
+        for (int i = 0; i < 50; i++) {
+            userAttributes.put("attribute_" + i, attribute("value_" + i, 1L));
+        }
+        stateStore.saveUserAttributes(userAttributes);
+        stateStore.flush();
+        long savedLength = stateFile.length();
+
+        userAttributes.put("attribute_1", attribute("new_value", 2L));
+        userAttributes.remove("attribute_2");
+        stateStore.updateUserAttributes(userAttributes, Arrays.asList("attribute_1", "attribute_2"));
+        stateStore.flush();
+        assertTrue(stateFile.length() - savedLength < 100);
+
+        JSONObject result = new SdkStateStore(stateFile, preferences).getUserAttributes();
+        assertEquals(49, result.length());
+        assertEquals("new_value", result.getJSONObject("attribute_1").getString("value"));
+        assertEquals(2L, result.getJSONObject("attribute_1").getLong("set_timestamp"));
+        assertFalse(result.has("attribute_2"));
+    }
+
+    /**
+     * test update user attributes without changed names do not write the state file.
+     *
+     * @throws JSONException exception
+     */
+    @Test
+    public void testUpdateUserAttributesWithoutChange() throws JSONException {
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences);
+        JSONObject userAttributes = new JSONObject();
+        userAttributes.put("user_name", attribute("carl", 1L));
+        stateStore.saveUserAttributes(userAttributes);
+        stateStore.flush();
+        long savedLength = stateFile.length();
+        stateStore.updateUserAttributes(userAttributes, Collections.<String>emptyList());
+        stateStore.flush();
+        assertEquals(savedLength, stateFile.length());
+    }
+
+    /**
+     * test the state file is compacted when the stale user attribute records pile up.
+     *
+     * @throws JSONException exception
+     */
+    @Test
+    public void testCompactStaleUserAttributeRecords() throws JSONException {
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences);
+        JSONObject userAttributes = new JSONObject();
+        userAttributes.put("user_name", attribute("carl", 1L));
+        stateStore.saveUserAttributes(userAttributes);
+        stateStore.flush();
+        long savedLength = stateFile.length();
+        for (int i = 0; i < 500; i++) {
+            userAttributes.put("user_name", attribute("carl", i));
+            stateStore.updateUserAttributes(userAttributes, Collections.singletonList("user_name"));
+        }
+        stateStore.flush();
+        assertTrue(stateFile.length() < savedLength * 200);
+        JSONObject result = new SdkStateStore(stateFile, preferences).getUserAttributes();
+        assertEquals(499L, result.getJSONObject("user_name").getLong("set_timestamp"));
+    }
+
+    /**
+     * test save and reload user info.
+     *
+     * @throws JSONException exception
+     */
+    @Test
+    public void testSaveAndReloadUserInfo() throws JSONException {
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences);
+        assertNull(stateStore.getUserInfo("111"));
+        stateStore.saveUserInfo("111", "unique_id_1", 1000L);
+        stateStore.saveUserInfo("222", "unique_id_2", 2000L);
+
+        stateStore.flush();
+        SdkStateStore reloadedStore = new SdkStateStore(stateFile, preferences);
+        assertEquals(2, reloadedStore.getUserCount());
+        JSONObject userInfo = reloadedStore.getUserInfo("222");
+        assertEquals("unique_id_2", userInfo.getString("user_unique_id"));
+        assertEquals(2000L, userInfo.getLong("user_first_touch_timestamp"));
+    }
+
+    /**
+     * test the least recently used user ids are evicted when exceed the max user count.
+     */
+    @Test
+    public void testEvictLeastRecentlyUsedUser() {
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences, 3);
+        stateStore.saveUserInfo("111", "unique_id_1", 1000L);
+        stateStore.saveUserInfo("222", "unique_id_2", 2000L);
+        stateStore.saveUserInfo("333", "unique_id_3", 3000L);
+        stateStore.saveUserInfo("111", "unique_id_1", 1000L);
+        stateStore.saveUserInfo("444", "unique_id_4", 4000L);
+        assertEquals(3, stateStore.getUserCount());
+        assertNull(stateStore.getUserInfo("222"));
+        assertNotNull(stateStore.getUserInfo("111"));
+
+        stateStore.flush();
+        SdkStateStore reloadedStore = new SdkStateStore(stateFile, preferences, 3);
+        assertEquals(3, reloadedStore.getUserCount());
+        assertNull(reloadedStore.getUserInfo("222"));
+        assertNotNull(reloadedStore.getUserInfo("111"));
+        assertNotNull(reloadedStore.getUserInfo("333"));
+        assertNotNull(reloadedStore.getUserInfo("444"));
+    }
+
+    /**
+     * test save user info append one record instead of rewrite the state file.
+     */
+    @Test
+    public void testSaveUserInfoAppendRecord() {
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences, 10);
+        stateStore.saveUserInfo("111", "unique_id_1", 1000L);
+        stateStore.flush();
+        long firstLength = stateFile.length();
+        stateStore.saveUserInfo("222", "unique_id_2", 2000L);
+        stateStore.flush();
+        long recordLength = stateFile.length() - firstLength;
+        long secondLength = stateFile.length();
+        stateStore.saveUserInfo("111", "unique_id_1", 1000L);
+        stateStore.flush();
+        assertEquals(secondLength + recordLength, stateFile.length());
+        assertEquals(2, new SdkStateStore(stateFile, preferences, 10).getUserCount());
+    }
+
+    /**
+     * test the quick user info updates are kept in memory and appended to the state file together.
+     */
+    @Test
+    public void testQuickUpdatesAreCoalescedIntoSingleWrite() {
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences, 10);
+        stateStore.saveUserInfo("user_0", "unique_id_0", 1000L);
+        stateStore.flush();
+        long savedLength = stateFile.length();
+        long recordLength = savedLength - HEADER_LENGTH;
+        for (int i = 1; i < 6; i++) {
+            stateStore.saveUserInfo("user_" + i, "unique_id_" + i, 1000L + i);
+        }
+        assertEquals(savedLength, stateFile.length());
+
+        stateStore.flush();
+        assertEquals(savedLength + 5 * recordLength, stateFile.length());
+        assertEquals(6, new SdkStateStore(stateFile, preferences, 10).getUserCount());
+    }
+
+    /**
+     * test the state file is compacted when the stale user records pile up.
+     */
+    @Test
+    public void testCompactStaleUserRecords() {
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences, 2);
+        stateStore.saveUserInfo("111", "unique_id_1", 1000L);
+        stateStore.saveUserInfo("222", "unique_id_2", 2000L);
+        stateStore.flush();
+        long compactLength = stateFile.length();
+        for (int i = 0; i < 10; i++) {
+            stateStore.saveUserInfo(i % 2 == 0 ? "111" : "222", i % 2 == 0 ? "unique_id_1" : "unique_id_2",
+                i % 2 == 0 ? 1000L : 2000L);
+        }
+        stateStore.flush();
+        assertTrue(stateFile.length() < compactLength * 2);
+        SdkStateStore reloadedStore = new SdkStateStore(stateFile, preferences, 2);
+        assertEquals(2, reloadedStore.getUserCount());
+    }
+
+    /**
+     * test migrate the state from preferences and remove the migrated keys.
+     *
+     * @throws JSONException exception
+     */
+    @Test
+    public void testMigrateFromPreferences() throws JSONException {
+        JSONObject userAttributes = new JSONObject();
+        userAttributes.put("user_name", attribute("carl", 1L));
+        JSONObject userInfo = new JSONObject();
+        userInfo.put("user_unique_id", "unique_id_1");
+        userInfo.put("user_first_touch_timestamp", 1000L);
+        JSONObject userUniqueIdMap = new JSONObject();
+        userUniqueIdMap.put("111", userInfo);
+        JSONObject session = new JSONObject();
+        session.put("sessionID", "session_id");
+        session.put("startTime", 1000L);
+        session.put("pauseTime", 2000L);
+        session.put("sessionIndex", 2);
+        preferences.putString("clickstream_user_attributes", userAttributes.toString());
+        preferences.putString("clickstream_user_unique_id", userUniqueIdMap.toString());
+        preferences.putString("clickstream_current_session", session.toString());
+
+        new SdkStateStore(stateFile, preferences).flush();
+        assertEquals("", preferences.getString("clickstream_user_attributes", ""));
+        assertEquals("", preferences.getString("clickstream_user_unique_id", ""));
+        assertEquals("", preferences.getString("clickstream_current_session", ""));
+
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences);
+        assertEquals("carl", stateStore.getUserAttributes().getJSONObject("user_name").getString("value"));
+        assertEquals("unique_id_1", stateStore.getUserInfo("111").getString("user_unique_id"));
+        assertEquals("session_id", stateStore.getSession().getSessionID());
+        assertEquals(2, stateStore.getSession().getSessionIndex());
+    }
+
+    /**
+     * test the state file which is not supported is backed up and the state is reset.
+     *
+     * @throws IOException exception
+     */
+    @Test
+    public void testUnsupportedStateFile() throws IOException {
+        try (FileOutputStream outputStream = new FileOutputStream(stateFile)) {
+            outputStream.write("{\"sessionID\":\"1\"}".getBytes("UTF-8"));
+        }
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences);
+        assertNull(stateStore.getSession());
+        assertEquals(0, stateStore.getUserCount());
+
+        stateStore.saveUserInfo("111", "unique_id_1", 1000L);
+        stateStore.flush();
+        assertTrue(new File(stateFile.getPath() + ".bak").exists());
+        assertEquals(1, new SdkStateStore(stateFile, preferences).getUserCount());
+    }
+
+    /**
+     * test the complete records are kept when the state file is truncated.
+     *
+     * @throws IOException exception
+     */
+    @Test
+    public void testTruncatedStateFile() throws IOException {
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences);
+        stateStore.saveUserInfo("111", "unique_id_1", 1000L);
+        stateStore.saveUserInfo("222", "unique_id_2", 2000L);
+        stateStore.flush();
+        try (RandomAccessFile file = new RandomAccessFile(stateFile, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        SdkStateStore reloadedStore = new SdkStateStore(stateFile, preferences);
+        assertEquals(1, reloadedStore.getUserCount());
+        assertNotNull(reloadedStore.getUserInfo("111"));
+
+        reloadedStore.saveUserInfo("333", "unique_id_3", 3000L);
+        reloadedStore.flush();
+        SdkStateStore rewrittenStore = new SdkStateStore(stateFile, preferences);
+        assertEquals(2, rewrittenStore.getUserCount());
+        assertNotNull(rewrittenStore.getUserInfo("333"));
+    }
+
+    /**
+     * test the user records before the corrupt record are kept and the corrupt state file is backed up.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testCorruptStateFileKeepsUserRecords() throws Exception {
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences);
+        JSONObject userAttributes = new JSONObject();
+        userAttributes.put("user_name", attribute("carl", 1L));
+        stateStore.saveUserAttributes(userAttributes);
+        stateStore.saveUserInfo("111", "unique_id_1", 1000L);
+        stateStore.flush();
+        long validLength = stateFile.length();
+        try (FileOutputStream outputStream = new FileOutputStream(stateFile, true)) {
+            outputStream.write(new byte[]{99, 0, 1, 2});
+        }
+
+        SdkStateStore reloadedStore = new SdkStateStore(stateFile, preferences);
+        reloadedStore.flush();
+        assertEquals(validLength + 4, new File(stateFile.getPath() + ".bak").length());
+        assertEquals("unique_id_1", reloadedStore.getUserInfo("111").getString("user_unique_id"));
+
+        reloadedStore.saveUserInfo("222", "unique_id_2", 2000L);
+        reloadedStore.flush();
+        SdkStateStore rewrittenStore = new SdkStateStore(stateFile, preferences);
+        assertEquals(2, rewrittenStore.getUserCount());
+        assertEquals("unique_id_1", rewrittenStore.getUserInfo("111").getString("user_unique_id"));
+        assertEquals(1000L, rewrittenStore.getUserInfo("111").getLong("user_first_touch_timestamp"));
+        assertEquals("carl", rewrittenStore.getUserAttributes().getJSONObject("user_name").getString("value"));
+    }
+
+    /**
+     * test the state file is not written when it fails to be read.
+     */
+    @Test
+    public void testReadFailedStateFileIsNotWritten() {
+        assertTrue(stateFile.mkdirs());
+        SdkStateStore stateStore = new SdkStateStore(stateFile, preferences);
+        stateStore.saveSession(new Session("session_id", 1000L, 2000L, 1));
+        stateStore.saveUserInfo("111", "unique_id_1", 1000L);
+        stateStore.flush();
+        assertTrue(stateFile.isDirectory());
+        assertFalse(new File(stateFile.getPath() + "." + android.os.Process.myPid() + ".tmp").exists());
+        assertEquals("session_id", stateStore.getSession().getSessionID());
+        assertEquals("unique_id_1", stateStore.getUserInfo("111").optString("user_unique_id"));
+    }
+
+    /**
+     * test the stores of two processes keep the records of each other when the state file is compacted.
+     *
+     * @throws JSONException exception
+     */
+    @Test
+    public void testCompactKeepsRecordsOfOtherProcess() throws JSONException {
+        SdkStateStore firstStore = new SdkStateStore(stateFile, preferences, 2);
+        firstStore.flush();
+        SdkStateStore secondStore = new SdkStateStore(stateFile, preferences, 2);
+        JSONObject userAttributes = new JSONObject();
+        userAttributes.put("user_name", attribute("carl", 1L));
+        firstStore.updateUserAttributes(userAttributes, Collections.singletonList("user_name"));
+        firstStore.saveSession(new Session("session_id", 1000L, 2000L, 1));
+        firstStore.flush();
+        long appendedLength = stateFile.length();
+
+        // the user switches in the second store pile up, so the state file is compacted.
+        for (int i = 0; i < 10; i++) {
+            secondStore.saveUserInfo("user_" + i % 2, "unique_id_" + i % 2, 1000L);
+        }
+        secondStore.flush();
+        assertTrue(stateFile.length() < appendedLength * 2);
+        assertNull(secondStore.getSession());
+
+        SdkStateStore reloadedStore = new SdkStateStore(stateFile, preferences, 2);
+        assertEquals("carl", reloadedStore.getUserAttributes().getJSONObject("user_name").getString("value"));
+        assertEquals("session_id", reloadedStore.getSession().getSessionID());
+        assertEquals(2, reloadedStore.getUserCount());
+    }
+
+    /**
+     * test the user attributes replaced by a store are appended, so the session appended by another
+     * process is kept.
+     *
+     * @throws JSONException exception
+     */
+    @Test
+    public void testReplaceUserAttributesKeepsRecordsOfOtherProcess() throws JSONException {
+        SdkStateStore firstStore = new SdkStateStore(stateFile, preferences);
+        firstStore.flush();
+        SdkStateStore secondStore = new SdkStateStore(stateFile, preferences);
+        firstStore.saveSession(new Session("session_id", 1000L, 2000L, 1));
+        firstStore.saveUserInfo("111", "unique_id_1", 1000L);
+        firstStore.flush();
+        JSONObject userAttributes = new JSONObject();
+        userAttributes.put("user_name", attribute("carl", 1L));
+        secondStore.saveUserAttributes(userAttributes);
+        secondStore.flush();
+
+        SdkStateStore reloadedStore = new SdkStateStore(stateFile, preferences);
+        assertEquals("session_id", reloadedStore.getSession().getSessionID());
+        assertEquals("unique_id_1", reloadedStore.getUserInfo("111").getString("user_unique_id"));
+        assertEquals("carl", reloadedStore.getUserAttributes().getJSONObject("user_name").getString("value"));
+    }
+
+    private static JSONObject attribute(Object value, long setTimestamp) throws JSONException {
+        JSONObject attribute = new JSONObject();
+        attribute.put("value", value);
+        attribute.put("set_timestamp", setTimestamp);
+        return attribute;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.util;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import software.aws.solution.clickstream.client.util.AttributeContainer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class AttributeContainerTest {
+
+    /**
+     * test the serialized attributes are the same as the JSONObject with the same values.
+     *
+     * @throws JSONException exception
+     */
+    @Test
+    public void testSerializeSameAsJSONObject() throws JSONException {
+        Object[][] values = {
+            {"int", 42},
+            {"negative_int", Integer.MIN_VALUE},
+            {"long", 1690000000000L},
+            {"max_long", Long.MAX_VALUE},
+            {"double", 99.9},
+            {"integral_double", 100.0},
+            {"negative_zero", -0.0},
+            {"large_double", 1e20},
+            {"small_double", 1.5e-7},
+            {"float", 1.1f},
+            {"boolean", true},
+            {"string", "a \"quoted\" \\ value/with\tcontrol\n\u0001 and 中文"},
+            {"empty", ""},
+            {"array", new JSONArray().put(1).put("two")},
+        };
+        AttributeContainer container = new AttributeContainer();
+        JSONObject expected = new JSONObject();
+        for (Object[] value : values) {
+            container.put((String) value[0], value[1]);
+            expected.put((String) value[0], value[1]);
+        }
+        assertEquals(values.length, container.length());
+        assertEquals(expected.toString(), container.toJSONString());
+        assertEquals(expected.toString(), container.toJSONObject().toString());
+
+        AttributeContainer parent = new AttributeContainer();
+        parent.put("child", container);
+        assertEquals(new JSONObject().put("child", expected).toString(), parent.toJSONString());
+        assertEquals(parent.toJSONString(), parent.toJSONObject().toString());
+    }
+
+    /**
+     * test the attributes keep the insertion order when replaced and removed.
+     *
+     * @throws JSONException exception
+     */
+    @Test
+    public void testPutReplaceAndRemove() throws JSONException {
+        AttributeContainer container = new AttributeContainer();
+        final int count = 20;
+        for (int i = 0; i < count; i++) {
+            container.put("key" + i, i);
+        }
+        assertEquals(count, container.length());
+        container.put("key3", "three");
+        container.put("key5", 5.5);
+        container.put("key3", false);
+        assertTrue(container.remove("key0"));
+        assertFalse(container.remove("key0"));
+        container.put("key7", (Object) null);
+
+        assertEquals(count - 2, container.length());
+        assertEquals("key1", container.keyAt(0));
+        assertEquals(false, container.opt("key3"));
+        assertEquals(5.5, container.opt("key5"));
+        assertEquals(5, container.optInt("key5"));
+        assertEquals("5.5", container.optString("key5"));
+        assertEquals(1, container.opt("key1"));
+        assertEquals("", container.optString("key0"));
+        assertNull(container.opt("key7"));
+        assertFalse(container.has("key7"));
+        assertTrue(container.has(new String("key19")));
+        assertEquals(container.toJSONObject().toString(), container.toJSONString());
+
+        try {
+            container.put("nan", Double.NaN);
+            fail("NaN should be rejected");
+        } catch (JSONException exception) {
+            assertFalse(container.has("nan"));
+        }
+    }
+}
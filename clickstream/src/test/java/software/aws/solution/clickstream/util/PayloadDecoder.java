@@ -0,0 +1,97 @@
+/*
+ * Copyright 2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package software.aws.solution.clickstream.util;
+
+import android.util.Base64;
+
+import software.aws.solution.clickstream.client.network.CompressionDictionary;
+import software.aws.solution.clickstream.client.network.RequestPayload;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Decode the request body as the server does, to verify the payloads sent to the mock server.
+ */
+public final class PayloadDecoder {
+    private static final int BUFFER_SIZE = 4096;
+
+    private PayloadDecoder() {
+    }
+
+    /**
+     * Decode the request body to the events json.
+     *
+     * @param body         the request body.
+     * @param compression  the compression request parameter.
+     * @param dictionaryId the dictionaryId request parameter, can be null.
+     * @return the events json.
+     * @throws IOException         when the gzip payload is invalid.
+     * @throws DataFormatException when the deflate payload is invalid.
+     */
+    public static String decode(byte[] body, String compression, String dictionaryId)
+        throws IOException, DataFormatException {
+        if (RequestPayload.COMPRESSION_NONE.equals(compression)) {
+            return new String(body, Charset.forName("UTF-8"));
+        }
+        byte[] compressed = Base64.decode(body, Base64.NO_WRAP);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        if (RequestPayload.COMPRESSION_GZIP.equals(compression)) {
+            try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+                int length;
+                while ((length = input.read(buffer)) > 0) {
+                    output.write(buffer, 0, length);
+                }
+            }
+        } else if (RequestPayload.COMPRESSION_DEFLATE.equals(compression)) {
+            if (!CompressionDictionary.ID.equals(dictionaryId)) {
+                throw new DataFormatException("unknown dictionary: " + dictionaryId);
+            }
+            byte[] dictionary = CompressionDictionary.getBytes();
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                while (!inflater.finished()) {
+                    int length = inflater.inflate(buffer);
+                    if (length == 0 && inflater.needsDictionary()) {
+                        Adler32 adler32 = new Adler32();
+                        adler32.update(dictionary);
+                        if (inflater.getAdler() != (int) adler32.getValue()) {
+                            throw new DataFormatException("mismatched dictionary checksum");
+                        }
+                        inflater.setDictionary(dictionary);
+                    } else if (length == 0 && inflater.needsInput()) {
+                        throw new DataFormatException("truncated payload");
+                    }
+                    output.write(buffer, 0, length);
+                }
+            } finally {
+                inflater.end();
+            }
+        } else {
+            throw new DataFormatException("unknown compression: " + compression);
+        }
+        return new String(output.toByteArray(), Charset.forName("UTF-8"));
+    }
+}
@@ -27,26 +27,30 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 import software.aws.solution.clickstream.client.system.AndroidPreferences;
+import software.aws.solution.clickstream.client.system.SdkStateStore;
 import software.aws.solution.clickstream.client.util.PreferencesUtil;
 
+import java.io.File;
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertNull;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE)
 public class PreferencesUtilTest {
     private AndroidPreferences preferences;
+    private SdkStateStore stateStore;
 
     /**
-     * setup AndroidPreferences.
+     * setup AndroidPreferences and SdkStateStore.
      */
     @Before
     public void setup() {
         Context context = ApplicationProvider.getApplicationContext();
         preferences = new AndroidPreferences(context,
             context.getApplicationContext().getPackageName() + "294262d4-8dbd-4bfd-816d-0fc81b3d32b7");
+        stateStore = new SdkStateStore(new File(context.getFilesDir(), SdkStateStore.STATE_FILE_NAME), preferences);
     }
 
     /**
@@ -69,56 +73,27 @@ public class PreferencesUtilTest {
     }
 
     /**
-     * test get new user info with json exception.
+     * test get user unique id map with json exception.
      */
     @Test
-    public void testGetNewUserInfoWithJSONException() {
+    public void testGetUserUniqueIdMapWithJSONException() {
         preferences.putString("clickstream_user_unique_id", "{/}");
-        JSONObject userAttribute = PreferencesUtil.getNewUserInfo(preferences, "3232111");
-        assertEquals(0, userAttribute.length());
-    }
-
-    /**
-     * test store UserAttribute.
-     *
-     * @throws JSONException exception
-     */
-    @Test
-    public void testStoreUserAttribute() throws JSONException {
-        JSONObject userAttribute = new JSONObject();
-        userAttribute.put("user_name", "carl");
-        userAttribute.put("_user_id", "10837409");
-        userAttribute.put("user_age", 21);
-        userAttribute.put("null", true);
-        userAttribute.put("score", 85.5);
-        PreferencesUtil.updateUserAttribute(preferences, userAttribute);
-        JSONObject prefUserAttribute = PreferencesUtil.getUserAttribute(preferences);
-        Assert.assertEquals("carl", prefUserAttribute.getString("user_name"));
-        Assert.assertEquals("10837409", prefUserAttribute.getString("_user_id"));
-        assertTrue(prefUserAttribute.getBoolean("null"));
-        Assert.assertEquals(85.5, prefUserAttribute.getDouble("score"), 0.01);
+        JSONObject userUniqueIdMap = PreferencesUtil.getUserUniqueIdMap(preferences);
+        assertEquals(0, userUniqueIdMap.length());
     }
 
     /**
-     * test update UserAttribute.
-     *
-     * @throws JSONException exception
+     * test remove legacy state.
      */
     @Test
-    public void testUpdateUserAttribute() throws JSONException {
-        JSONObject userAttribute = new JSONObject();
-        userAttribute.put("user_name", "carl");
-        userAttribute.put("_user_id", "10837409");
-        userAttribute.put("user_age", 21);
-        userAttribute.put("null", true);
-        userAttribute.put("score", 85.5);
-        PreferencesUtil.updateUserAttribute(preferences, userAttribute);
-        userAttribute.put("custom", "value");
-        userAttribute.put("user_age", 22);
-        PreferencesUtil.updateUserAttribute(preferences, userAttribute);
-        JSONObject prefUserAttribute = PreferencesUtil.getUserAttribute(preferences);
-        Assert.assertEquals("value", prefUserAttribute.getString("custom"));
-        Assert.assertEquals(22, prefUserAttribute.getInt("user_age"));
+    public void testRemoveLegacyState() {
+        preferences.putString("clickstream_user_attributes", "{}");
+        preferences.putString("clickstream_user_unique_id", "{}");
+        preferences.putString("clickstream_current_session", "{}");
+        PreferencesUtil.removeLegacyState(preferences);
+        assertEquals("", preferences.getString("clickstream_user_attributes", ""));
+        assertEquals("", preferences.getString("clickstream_user_unique_id", ""));
+        assertNull(PreferencesUtil.getSession(preferences));
     }
 
     /**
@@ -153,17 +128,19 @@ public class PreferencesUtilTest {
     @Test
     public void testGetNewUserUniqueId() throws JSONException {
         String userUniqueIdUnLogin = PreferencesUtil.getCurrentUserUniqueId(preferences);
+        // make sure the first touch timestamp of the unLogin user is earlier than the new user.
+        preferences.putLong("clickstream_current_user_first_touch_timestamp", System.currentTimeMillis() - 1000);
         long firstTouchTimestamp = PreferencesUtil.getCurrentUserFirstTouchTimestamp(preferences);
 
         String userId1 = "111";
-        JSONObject userInfo1 = PreferencesUtil.getNewUserInfo(preferences, userId1);
+        JSONObject userInfo1 = PreferencesUtil.getNewUserInfo(preferences, stateStore, userId1);
         String userUniqueId1 = userInfo1.getString("user_unique_id");
         long firstTouchTimestampUserId1 = userInfo1.getLong("user_first_touch_timestamp");
         Assert.assertEquals(userUniqueIdUnLogin, userUniqueId1);
         Assert.assertEquals(firstTouchTimestamp, firstTouchTimestampUserId1);
 
         String userId2 = "222";
-        JSONObject userInfo2 = PreferencesUtil.getNewUserInfo(preferences, userId2);
+        JSONObject userInfo2 = PreferencesUtil.getNewUserInfo(preferences, stateStore, userId2);
         String userUniqueId2 = userInfo2.getString("user_unique_id");
         long firstTouchTimestampUserId2 = userInfo2.getLong("user_first_touch_timestamp");
         Assert.assertTrue(userUniqueId2.length() > 0);
@@ -171,7 +148,7 @@ public class PreferencesUtilTest {
         Assert.assertNotEquals(userUniqueId1, userUniqueId2);
         Assert.assertNotEquals(firstTouchTimestampUserId1, firstTouchTimestampUserId2);
 
-        JSONObject userInfo3 = PreferencesUtil.getNewUserInfo(preferences, userId1);
+        JSONObject userInfo3 = PreferencesUtil.getNewUserInfo(preferences, stateStore, userId1);
         String userUniqueId3 = userInfo3.getString("user_unique_id");
         long firstTouchTimestampUserId3 = userInfo3.getLong("user_first_touch_timestamp");
         Assert.assertTrue(userUniqueId3.length() > 0);
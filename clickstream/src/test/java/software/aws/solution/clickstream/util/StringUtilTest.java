@@ -19,8 +19,11 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
+import software.aws.solution.clickstream.client.util.Crc32c;
 import software.aws.solution.clickstream.client.util.StringUtil;
 
+import java.nio.charset.Charset;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -149,4 +152,20 @@ public class StringUtilTest {
         assert gzippedStr != null;
         assertFalse(gzippedStr.contains("\n"));
     }
+
+    /**
+     * test the CRC32C of the standard check input.
+     */
+    @Test
+    public void testCrc32c() {
+        Crc32c crc32c = new Crc32c();
+        byte[] bytes = "123456789".getBytes(Charset.forName("UTF-8"));
+        crc32c.update(bytes, 0, bytes.length);
+        assertEquals(0xE3069283L, crc32c.getValue());
+        crc32c.reset();
+        for (byte value : bytes) {
+            crc32c.update(value);
+        }
+        assertEquals(0xE3069283L, crc32c.getValue());
+    }
 }